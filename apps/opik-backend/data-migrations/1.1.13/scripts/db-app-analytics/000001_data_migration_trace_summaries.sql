@@ -0,0 +1,63 @@
+-- changeset agent:data_migration_trace_summaries
+-- version 1.1.13
+
+-- Step 1: Replace the ${ANALYTICS_DB_DATABASE_NAME} variable with the actual database name.
+
+-- Step 2: Run the following SQL to list the projects to migrate.
+
+SELECT
+    workspace_id,
+    project_id,
+    count(DISTINCT trace_id) as trace_count
+FROM ${ANALYTICS_DB_DATABASE_NAME}.spans
+GROUP BY workspace_id, project_id
+ORDER BY trace_count DESC;
+
+-- Step 3: Run the following SQL once per project obtained in the previous step.
+-- Ps: Replace the :workspace_id and :project_id with the values of the project. As the summaries written by the
+-- application, they are versioned by the latest last_updated_at of their spans, so they never replace a summary of
+-- later spans written since then.
+-- If a project has more than 1M traces, insert pauses of 1 or 2 minutes between projects. This will give time for the merging task to kick off.
+
+INSERT INTO ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries
+(
+    workspace_id,
+    project_id,
+    trace_id,
+    usage,
+    total_estimated_cost,
+    span_count,
+    llm_span_count,
+    duration,
+    last_updated_at
+)
+SELECT
+    workspace_id,
+    project_id,
+    trace_id,
+    sumMap(usage) as usage,
+    toDecimal64(sum(total_estimated_cost), 8) as total_estimated_cost,
+    count() as span_count,
+    countIf(type = 'llm') as llm_span_count,
+    date_diff('microsecond', min(start_time), max(end_time)) as duration,
+    max(last_updated_at) as last_updated_at
+FROM (
+    SELECT
+        workspace_id,
+        project_id,
+        trace_id,
+        type,
+        usage,
+        total_estimated_cost,
+        start_time,
+        end_time,
+        last_updated_at
+    FROM ${ANALYTICS_DB_DATABASE_NAME}.spans
+    WHERE workspace_id = :workspace_id
+    AND project_id = :project_id
+    ORDER BY id DESC, last_updated_at DESC
+    LIMIT 1 BY id
+)
+GROUP BY workspace_id, project_id, trace_id;
+
+-- rollback empty
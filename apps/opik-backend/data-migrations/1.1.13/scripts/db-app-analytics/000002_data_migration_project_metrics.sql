@@ -0,0 +1,118 @@
+-- changeset agent:data_migration_project_metrics
+-- version 1.1.13
+
+-- Step 1: Replace the ${ANALYTICS_DB_DATABASE_NAME} variable with the actual database name.
+
+-- Step 2: Run the following SQL to list the projects to migrate.
+
+SELECT
+    workspace_id,
+    project_id,
+    count(DISTINCT id) as trace_count
+FROM ${ANALYTICS_DB_DATABASE_NAME}.traces
+GROUP BY workspace_id, project_id
+ORDER BY trace_count DESC;
+
+-- Step 3: Run the following SQL once per project obtained in the previous step.
+-- Ps: Replace the :workspace_id and :project_id with the values of the project. The rollups hold the latest version of
+-- each trace, span and score, replaced by the versions written since the deployment and by the deletions, so these
+-- statements can run again.
+-- If a project has more than 1M traces, insert pauses of 1 or 2 minutes between projects. This will give time for the merging task to kick off.
+
+INSERT INTO ${ANALYTICS_DB_DATABASE_NAME}.trace_metrics
+SELECT
+    workspace_id,
+    toUUID(toString(project_id)) as project_id,
+    toDateTime64(toStartOfHour(start_time), 9, 'UTC') as hour,
+    id,
+    last_updated_at,
+    0 as is_deleted
+FROM (
+    SELECT
+        *
+    FROM ${ANALYTICS_DB_DATABASE_NAME}.traces
+    WHERE workspace_id = :workspace_id
+    AND project_id = :project_id
+    ORDER BY id DESC, last_updated_at DESC
+    LIMIT 1 BY id
+);
+
+INSERT INTO ${ANALYTICS_DB_DATABASE_NAME}.span_metrics
+SELECT
+    workspace_id,
+    toUUID(toString(project_id)) as project_id,
+    toDateTime64(toStartOfHour(start_time), 9, 'UTC') as hour,
+    id,
+    last_updated_at,
+    0 as is_deleted
+FROM (
+    SELECT
+        *
+    FROM ${ANALYTICS_DB_DATABASE_NAME}.spans
+    WHERE workspace_id = :workspace_id
+    AND project_id = :project_id
+    ORDER BY id DESC, last_updated_at DESC
+    LIMIT 1 BY id
+);
+
+INSERT INTO ${ANALYTICS_DB_DATABASE_NAME}.feedback_score_metrics
+SELECT
+    workspace_id,
+    toUUID(toString(project_id)) as project_id,
+    toDateTime64(toStartOfHour(created_at), 9, 'UTC') as hour,
+    name,
+    entity_id,
+    value,
+    last_updated_at,
+    0 as is_deleted
+FROM (
+    SELECT
+        *
+    FROM ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores
+    WHERE workspace_id = :workspace_id
+    AND project_id = :project_id
+    AND entity_type = 'trace'
+    ORDER BY entity_id DESC, last_updated_at DESC
+    LIMIT 1 BY entity_id, name
+);
+
+INSERT INTO ${ANALYTICS_DB_DATABASE_NAME}.span_usage_hourly
+SELECT
+    workspace_id,
+    toUUID(toString(project_id)) as project_id,
+    toDateTime64(toStartOfHour(start_time), 9, 'UTC') as hour,
+    id,
+    CAST(usage, 'Map(String, Int64)') as usage,
+    total_estimated_cost,
+    last_updated_at,
+    0 as is_deleted
+FROM (
+    SELECT
+        *
+    FROM ${ANALYTICS_DB_DATABASE_NAME}.spans
+    WHERE workspace_id = :workspace_id
+    AND project_id = :project_id
+    ORDER BY id DESC, last_updated_at DESC
+    LIMIT 1 BY id
+);
+
+INSERT INTO ${ANALYTICS_DB_DATABASE_NAME}.trace_durations_hourly
+SELECT
+    workspace_id,
+    toUUID(toString(project_id)) as project_id,
+    toDateTime64(toStartOfHour(start_time), 9, 'UTC') as hour,
+    id,
+    if(end_time IS NOT NULL, dateDiff('microsecond', start_time, end_time) / 1000.0, NULL) as duration,
+    last_updated_at,
+    0 as is_deleted
+FROM (
+    SELECT
+        *
+    FROM ${ANALYTICS_DB_DATABASE_NAME}.traces
+    WHERE workspace_id = :workspace_id
+    AND project_id = :project_id
+    ORDER BY id DESC, last_updated_at DESC
+    LIMIT 1 BY id
+);
+
+-- rollback empty
@@ -0,0 +1,181 @@
+-- changeset agent:data_migration_project_ids_to_uuid
+-- version 1.1.13
+
+-- Step 1: Replace the ${ANALYTICS_DB_DATABASE_NAME} variable with the actual database name.
+-- Ps: Run the data migrations 000001 and 000002 first, if your installation needs them.
+
+-- Step 2: Run the following SQL to list the projects to migrate.
+
+SELECT
+    workspace_id,
+    project_id,
+    count() as row_count
+FROM (
+    SELECT workspace_id, project_id FROM ${ANALYTICS_DB_DATABASE_NAME}.traces
+    UNION ALL
+    SELECT workspace_id, project_id FROM ${ANALYTICS_DB_DATABASE_NAME}.spans
+    UNION ALL
+    SELECT workspace_id, project_id FROM ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores
+)
+GROUP BY workspace_id, project_id
+ORDER BY row_count DESC;
+
+-- Step 3: Run the following SQL once per project obtained in the previous step.
+-- Ps: Replace the :workspace_id and :project_id with the values of the project. The latest version of each trace, span
+-- and score is copied with its own version, so running a project again only adds duplicates that are merged away. The
+-- rollups keep the latest row of each of them, which the copies write again, so they are left unchanged. The
+-- previous_* columns are set to the current values, as the rollups have no row left in the previous hour of a copied
+-- version. The location tables of the new tables are filled by their views.
+-- If a project has more than 1M traces, insert pauses of 1 or 2 minutes between projects. This will give time for the merging task to kick off.
+
+INSERT INTO ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid
+SELECT * REPLACE (
+    toUUID(toString(project_id)) as project_id,
+    start_time as previous_start_time
+)
+FROM ${ANALYTICS_DB_DATABASE_NAME}.traces
+WHERE workspace_id = :workspace_id
+AND project_id = :project_id
+ORDER BY id DESC, last_updated_at DESC
+LIMIT 1 BY id;
+
+INSERT INTO ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid
+SELECT * REPLACE (
+    toUUID(toString(project_id)) as project_id,
+    start_time as previous_start_time
+)
+FROM ${ANALYTICS_DB_DATABASE_NAME}.spans
+WHERE workspace_id = :workspace_id
+AND project_id = :project_id
+ORDER BY id DESC, last_updated_at DESC
+LIMIT 1 BY id;
+
+INSERT INTO ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_uuid
+SELECT * REPLACE (
+    toUUID(toString(project_id)) as project_id,
+    created_at as previous_created_at
+)
+FROM ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores
+WHERE workspace_id = :workspace_id
+AND project_id = :project_id
+ORDER BY entity_type DESC, entity_id DESC, name DESC, last_updated_at DESC
+LIMIT 1 BY entity_type, entity_id, name;
+
+INSERT INTO ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries_uuid
+SELECT * REPLACE (toUUID(toString(project_id)) as project_id)
+FROM ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries
+WHERE workspace_id = :workspace_id
+AND project_id = :project_id;
+
+-- Step 4: Run the following SQL to check the copies. Every table must return the same number of ids on both sides
+-- before moving on. A difference of a few rows on a project written to right now is expected, run it again later.
+
+SELECT
+    'traces' as table_name,
+    (SELECT uniqExact(workspace_id, id) FROM ${ANALYTICS_DB_DATABASE_NAME}.traces) as live_ids,
+    (SELECT uniqExact(workspace_id, id) FROM ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid) as copied_ids
+UNION ALL
+SELECT
+    'spans' as table_name,
+    (SELECT uniqExact(workspace_id, id) FROM ${ANALYTICS_DB_DATABASE_NAME}.spans) as live_ids,
+    (SELECT uniqExact(workspace_id, id) FROM ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid) as copied_ids
+UNION ALL
+SELECT
+    'feedback_scores' as table_name,
+    (SELECT uniqExact(workspace_id, entity_type, entity_id, name) FROM ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores) as live_ids,
+    (SELECT uniqExact(workspace_id, entity_type, entity_id, name) FROM ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_uuid) as copied_ids
+UNION ALL
+SELECT
+    'trace_summaries' as table_name,
+    (SELECT uniqExact(workspace_id, trace_id) FROM ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries) as live_ids,
+    (SELECT uniqExact(workspace_id, trace_id) FROM ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries_uuid) as copied_ids
+UNION ALL
+SELECT
+    'trace_locations' as table_name,
+    (SELECT uniqExact(workspace_id, id) FROM ${ANALYTICS_DB_DATABASE_NAME}.traces) as live_ids,
+    (SELECT uniqExact(workspace_id, id) FROM ${ANALYTICS_DB_DATABASE_NAME}.trace_locations_uuid) as copied_ids
+UNION ALL
+SELECT
+    'span_locations' as table_name,
+    (SELECT uniqExact(workspace_id, id) FROM ${ANALYTICS_DB_DATABASE_NAME}.spans) as live_ids,
+    (SELECT uniqExact(workspace_id, id) FROM ${ANALYTICS_DB_DATABASE_NAME}.span_locations_uuid) as copied_ids;
+
+-- Step 5: Run the following SQL to determine the swap time. Rows deleted from the live tables after the copy are
+-- removed from the new tables in step 7, up to this time.
+
+SELECT now64(9) as swap_time;
+
+-- Step 6: Run the following SQL to check that the tables are not swapped yet. It must return FixedString(36), if it
+-- returns UUID the swap already ran: skip to step 7.
+
+SELECT type
+FROM system.columns
+WHERE database = '${ANALYTICS_DB_DATABASE_NAME}'
+AND table = 'traces'
+AND name = 'project_id';
+
+-- Then run the swap, all statements back to back. From here the writes go to the new tables and feed the rollups and
+-- the location tables through their views, the views of the old tables no longer see any write.
+
+EXCHANGE TABLES ${ANALYTICS_DB_DATABASE_NAME}.traces AND ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid;
+EXCHANGE TABLES ${ANALYTICS_DB_DATABASE_NAME}.trace_locations AND ${ANALYTICS_DB_DATABASE_NAME}.trace_locations_uuid;
+EXCHANGE TABLES ${ANALYTICS_DB_DATABASE_NAME}.spans AND ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid;
+EXCHANGE TABLES ${ANALYTICS_DB_DATABASE_NAME}.span_locations AND ${ANALYTICS_DB_DATABASE_NAME}.span_locations_uuid;
+EXCHANGE TABLES ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores AND ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_uuid;
+EXCHANGE TABLES ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries AND ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries_uuid;
+
+-- Step 7: Run the following SQL to remove from the new tables the rows deleted from the old ones during the copy,
+-- which the bridge views don't forward.
+-- Ps: Replace the :swap_time with the value obtained in step 5. After the swap, the old tables are the *_uuid ones.
+
+DELETE FROM ${ANALYTICS_DB_DATABASE_NAME}.traces
+WHERE last_updated_at < parseDateTime64BestEffort(:swap_time, 9)
+AND (workspace_id, id) NOT IN (SELECT workspace_id, id FROM ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid);
+
+DELETE FROM ${ANALYTICS_DB_DATABASE_NAME}.spans
+WHERE last_updated_at < parseDateTime64BestEffort(:swap_time, 9)
+AND (workspace_id, id) NOT IN (SELECT workspace_id, id FROM ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid);
+
+DELETE FROM ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores
+WHERE last_updated_at < parseDateTime64BestEffort(:swap_time, 9)
+AND (workspace_id, entity_type, entity_id, name) NOT IN (
+    SELECT workspace_id, entity_type, entity_id, name FROM ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_uuid
+);
+
+DELETE FROM ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries
+WHERE last_updated_at < parseDateTime64BestEffort(:swap_time, 9)
+AND (workspace_id, trace_id) NOT IN (SELECT workspace_id, trace_id FROM ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries_uuid);
+
+-- Step 8: Run the following SQL to drop the views of the old tables, give the views of the new tables their usual
+-- names and drop the old tables.
+
+DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.traces_bridge_mv;
+DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.spans_bridge_mv;
+DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_bridge_mv;
+DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries_bridge_mv;
+
+DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_metrics_mv;
+DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_metrics_mv;
+DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.feedback_score_metrics_mv;
+DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_usage_hourly_mv;
+DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_durations_hourly_mv;
+DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_locations_mv;
+DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_locations_mv;
+
+RENAME TABLE
+    ${ANALYTICS_DB_DATABASE_NAME}.trace_metrics_uuid_mv TO ${ANALYTICS_DB_DATABASE_NAME}.trace_metrics_mv,
+    ${ANALYTICS_DB_DATABASE_NAME}.span_metrics_uuid_mv TO ${ANALYTICS_DB_DATABASE_NAME}.span_metrics_mv,
+    ${ANALYTICS_DB_DATABASE_NAME}.feedback_score_metrics_uuid_mv TO ${ANALYTICS_DB_DATABASE_NAME}.feedback_score_metrics_mv,
+    ${ANALYTICS_DB_DATABASE_NAME}.span_usage_hourly_uuid_mv TO ${ANALYTICS_DB_DATABASE_NAME}.span_usage_hourly_mv,
+    ${ANALYTICS_DB_DATABASE_NAME}.trace_durations_hourly_uuid_mv TO ${ANALYTICS_DB_DATABASE_NAME}.trace_durations_hourly_mv,
+    ${ANALYTICS_DB_DATABASE_NAME}.trace_locations_uuid_mv TO ${ANALYTICS_DB_DATABASE_NAME}.trace_locations_mv,
+    ${ANALYTICS_DB_DATABASE_NAME}.span_locations_uuid_mv TO ${ANALYTICS_DB_DATABASE_NAME}.span_locations_mv;
+
+DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid;
+DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid;
+DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_uuid;
+DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries_uuid;
+DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_locations_uuid;
+DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_locations_uuid;
+
+-- rollback empty
@@ -0,0 +1,300 @@
+package com.comet.opik.domain;
+
+import com.clickhouse.client.ClickHouseClient;
+import com.clickhouse.client.ClickHouseProtocol;
+import com.comet.opik.api.ProjectStats;
+import com.comet.opik.api.Span;
+import com.comet.opik.api.SpanSearchCriteria;
+import com.comet.opik.api.Trace;
+import com.comet.opik.api.TraceSearchCriteria;
+import com.comet.opik.api.filter.Operator;
+import com.comet.opik.api.filter.TraceField;
+import com.comet.opik.api.filter.TraceFilter;
+import com.comet.opik.api.resources.utils.ClickHouseContainerUtils;
+import com.comet.opik.api.resources.utils.MigrationUtils;
+import com.comet.opik.domain.cost.ModelPriceRegistry;
+import com.comet.opik.domain.filter.FilterQueryBuilder;
+import com.comet.opik.infrastructure.ModelPricesConfig;
+import com.comet.opik.infrastructure.auth.RequestContext;
+import com.comet.opik.infrastructure.db.RowBinaryInsertTemplate;
+import com.comet.opik.infrastructure.db.TransactionTemplateAsync;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.clickhouse.ClickHouseContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.comet.opik.api.resources.utils.ClickHouseContainerUtils.DATABASE_NAME;
+
+/**
+ * Query time of the trace and span DAOs on the tables of the analytics migrations, with the plain layout of the live
+ * tables, or with the compact one of their copies swapped in as the data migrations of 1.1.13 do, on a throwaway
+ * ClickHouse container. Rows are spread over the last year, ten spans per trace.
+ * The compressed bytes of every column and the rows, bytes and marks read by every DAO query are printed once the
+ * tables are loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AnalyticsSchemaBenchmark {
+
+    private static final int WORKSPACES = 10;
+    private static final int PROJECTS = 100;
+    private static final String WORKSPACE_ID = "workspace-1";
+    private static final List<String> SWAPPED_TABLES = List.of(
+            "traces", "trace_locations", "spans", "span_locations", "feedback_scores", "trace_summaries");
+
+    @Param({"plain", "compact"})
+    private String layout;
+
+    @Param({"2000000"})
+    private int spans;
+
+    private ClickHouseContainer clickHouse;
+    private ConnectionPool connectionPool;
+    private ClickHouseClient clickHouseClient;
+    private TraceDAO traceDAO;
+    private SpanDAO spanDAO;
+    private TransactionTemplateAsync template;
+    private UUID projectId;
+    private UUID spanId;
+
+    @Setup
+    public void setUp() throws Exception {
+        clickHouse = ClickHouseContainerUtils.newClickHouseContainer(false);
+        clickHouse.start();
+        try (var connection = clickHouse.createConnection("")) {
+            MigrationUtils.runDbMigration(connection, MigrationUtils.CLICKHOUSE_CHANGELOG_FILE,
+                    ClickHouseContainerUtils.migrationParameters());
+        }
+
+        var databaseAnalyticsFactory = ClickHouseContainerUtils.newDatabaseAnalyticsFactory(clickHouse, DATABASE_NAME);
+        connectionPool = databaseAnalyticsFactory.build();
+        clickHouseClient = ClickHouseClient.newInstance(ClickHouseProtocol.HTTP);
+        template = TransactionTemplateAsync.create(connectionPool);
+
+        var rowBinaryInsertTemplate = RowBinaryInsertTemplate.create(false, clickHouseClient,
+                databaseAnalyticsFactory.buildNode());
+        var feedbackScoreDAO = new FeedbackScoreDAOImpl(template);
+        var filterQueryBuilder = new FilterQueryBuilder();
+        traceDAO = new TraceDAOImpl(feedbackScoreDAO, filterQueryBuilder, template, rowBinaryInsertTemplate);
+        spanDAO = new SpanDAO(connectionPool, feedbackScoreDAO, filterQueryBuilder, rowBinaryInsertTemplate,
+                new ModelPriceRegistry(new ModelPricesConfig()), new TraceSummaryDAO());
+
+        var projectIds = IntStream.range(0, PROJECTS).mapToObj(i -> UUID.randomUUID()).toList();
+        projectId = projectIds.get(1);
+        load(projectIds);
+
+        // the bridge views of 000012 have copied every row, as the copy of the data migration would
+        if (layout.equals("compact")) {
+            SWAPPED_TABLES.forEach(table -> execute("EXCHANGE TABLES %1$s AND %1$s_uuid".formatted(table)));
+        }
+        execute("OPTIMIZE TABLE traces FINAL");
+        execute("OPTIMIZE TABLE spans FINAL");
+
+        spanId = UUID.fromString(query("""
+                SELECT id FROM spans WHERE workspace_id = '%s' AND project_id = '%s' ORDER BY id DESC LIMIT 1
+                """.formatted(WORKSPACE_ID, projectId)).getFirst().getFirst());
+
+        printStorage();
+        traceList();
+        traceListLastWeek();
+        traceStats();
+        spanList();
+        spanById();
+        printQueries();
+    }
+
+    @TearDown
+    public void tearDown() {
+        clickHouseClient.close();
+        connectionPool.dispose();
+        clickHouse.stop();
+    }
+
+    @Benchmark
+    public List<Trace> traceList() {
+        return withWorkspace(template.nonTransaction(connection -> traceDAO.find(10, 1, traceCriteria(List.of()),
+                connection)));
+    }
+
+    @Benchmark
+    public List<Trace> traceListLastWeek() {
+        var lastWeek = TraceFilter.builder()
+                .field(TraceField.START_TIME)
+                .operator(Operator.GREATER_THAN_EQUAL)
+                .value(Instant.now().minus(7, ChronoUnit.DAYS).toString())
+                .build();
+        return withWorkspace(template.nonTransaction(connection -> traceDAO.find(10, 1,
+                traceCriteria(List.of(lastWeek)), connection)));
+    }
+
+    @Benchmark
+    public ProjectStats traceStats() {
+        return withWorkspace(traceDAO.getStats(traceCriteria(List.of())));
+    }
+
+    @Benchmark
+    public Span.SpanPage spanList() {
+        return withWorkspace(spanDAO.find(1, 10, SpanSearchCriteria.builder().projectId(projectId).build()));
+    }
+
+    @Benchmark
+    public Span spanById() {
+        return withWorkspace(spanDAO.getById(spanId));
+    }
+
+    private TraceSearchCriteria traceCriteria(List<TraceFilter> filters) {
+        return TraceSearchCriteria.builder().projectId(projectId).filters(filters).build();
+    }
+
+    private <T> T withWorkspace(Mono<T> mono) {
+        return mono.contextWrite(Context.of(RequestContext.WORKSPACE_ID, WORKSPACE_ID,
+                RequestContext.USER_NAME, "benchmark"))
+                .block();
+    }
+
+    private void load(List<UUID> projectIds) {
+        var projects = projectIds.stream()
+                .map("'%s'"::formatted)
+                .collect(Collectors.joining(", ", "[", "]"));
+        var traces = spans / 10;
+        // ids and timestamps grow together as with UUIDv7, a trace every ~150 seconds
+        execute("""
+                INSERT INTO traces (id, workspace_id, project_id, name, start_time, end_time, input, output, metadata,
+                                    tags, created_at, last_updated_at, created_by, last_updated_by)
+                WITH now64(9) - toIntervalSecond(intDiv((%2$d - number) * 365 * 86400, %2$d)) AS time
+                SELECT
+                    %3$s,
+                    concat('workspace-', toString(number %% %4$d)),
+                    %1$s[number %% %5$d + 1],
+                    ['retrieve', 'rerank', 'generate', 'summarize', 'classify'][number %% 5 + 1],
+                    time,
+                    time + toIntervalMillisecond(number %% 5000),
+                    concat('{"question":"Question ', toString(number %% 5000), ' about ',
+                           ['billing', 'shipping', 'returns', 'accounts'][number %% 4 + 1], '"}'),
+                    concat('{"answer":"Answer ', toString(number %% 7000), '"}'),
+                    '{"environment":"production"}',
+                    [['production', 'staging'][number %% 2 + 1], ['v1', 'v2', 'v3'][number %% 3 + 1]],
+                    time,
+                    time,
+                    ['alice', 'bob', 'carol'][number %% 3 + 1],
+                    ['alice', 'bob', 'carol'][number %% 3 + 1]
+                FROM numbers(%2$d)
+                """.formatted(projects, traces, id("8000", "number"), WORKSPACES, PROJECTS));
+        execute("""
+                INSERT INTO spans (id, workspace_id, project_id, trace_id, parent_span_id, name, type, start_time,
+                                   end_time, input, output, metadata, tags, usage, created_at, last_updated_at,
+                                   created_by, last_updated_by, model, provider, total_estimated_cost)
+                WITH intDiv(number, 10) AS trace,
+                     now64(9) - toIntervalSecond(intDiv((%2$d - trace) * 365 * 86400, %2$d)) AS time
+                SELECT
+                    %3$s,
+                    concat('workspace-', toString(trace %% %5$d)),
+                    %1$s[trace %% %6$d + 1],
+                    %4$s,
+                    '',
+                    ['retrieve', 'rerank', 'generate', 'summarize', 'classify'][number %% 5 + 1],
+                    ['general', 'tool', 'llm'][number %% 3 + 1],
+                    time,
+                    time + toIntervalMillisecond(number %% 500),
+                    concat('{"messages":[{"role":"system","content":"You are a helpful assistant."},',
+                           '{"role":"user","content":"Question ', toString(number %% 5000), ' about ',
+                           ['billing', 'shipping', 'returns', 'accounts'][number %% 4 + 1], '"}]}'),
+                    concat('{"choices":[{"message":{"role":"assistant","content":"Answer ',
+                           toString(number %% 7000), '"},"finish_reason":"stop"}]}'),
+                    '{"temperature":0.7}',
+                    [['production', 'staging'][number %% 2 + 1], ['v1', 'v2', 'v3'][number %% 3 + 1]],
+                    map('prompt_tokens', toInt32(number %% 500), 'completion_tokens', toInt32(number %% 300)),
+                    time,
+                    time,
+                    ['alice', 'bob', 'carol'][number %% 3 + 1],
+                    ['alice', 'bob', 'carol'][number %% 3 + 1],
+                    ['gpt-4o', 'gpt-4o-mini', 'claude-3-5-sonnet'][number %% 3 + 1],
+                    ['openai', 'openai', 'anthropic'][number %% 3 + 1],
+                    toDecimal64(number %% 100 / 10000, 8)
+                FROM numbers(%7$d)
+                """.formatted(projects, traces, id("9000", "number"), id("8000", "trace"), WORKSPACES, PROJECTS,
+                spans));
+    }
+
+    // A UUID string that sorts as its number, the variant group tells traces from spans
+    private static String id(String variant, String number) {
+        return "concat('00000000-0000-7000-%s-', lower(substring(hex(toUInt64(%s) + 281474976710656), 3)))"
+                .formatted(variant, number);
+    }
+
+    private void printStorage() {
+        query("""
+                SELECT table, name, toString(data_compressed_bytes), toString(data_uncompressed_bytes)
+                FROM system.columns
+                WHERE database = '%s' AND table IN ('traces', 'spans')
+                ORDER BY data_compressed_bytes DESC
+                """.formatted(DATABASE_NAME)).forEach(values -> System.out.printf(
+                "%s: %s.%s %s compressed bytes (%s uncompressed)%n",
+                layout, values.get(0), values.get(1), values.get(2), values.get(3)));
+    }
+
+    private void printQueries() {
+        execute("SYSTEM FLUSH LOGS");
+        query("""
+                SELECT substring(normalizeQuery(query), 1, 120),
+                       toString(read_rows),
+                       toString(read_bytes),
+                       toString(ProfileEvents['SelectedMarks'])
+                FROM system.query_log
+                WHERE type = 'QueryFinish'
+                    AND query_kind = 'Select'
+                    AND has(databases, '%s')
+                    AND event_time >= now() - INTERVAL 10 MINUTE
+                ORDER BY event_time_microseconds
+                """.formatted(DATABASE_NAME)).forEach(values -> System.out.printf(
+                "%s: %s rows, %s bytes, %s marks read by %s%n",
+                layout, values.get(1), values.get(2), values.get(3), values.get(0)));
+    }
+
+    private void execute(String sql) {
+        Flux.usingWhen(connectionPool.create(),
+                connection -> Flux.from(connection.createStatement(sql).execute()).flatMap(Result::getRowsUpdated),
+                Connection::close)
+                .then()
+                .block();
+    }
+
+    private List<List<String>> query(String sql) {
+        return Flux.usingWhen(connectionPool.create(),
+                connection -> Flux.from(connection.createStatement(sql).execute())
+                        .flatMap(result -> result.map((row, metadata) -> IntStream
+                                .range(0, metadata.getColumnMetadatas().size())
+                                .mapToObj(index -> String.valueOf(row.get(index)))
+                                .toList())),
+                Connection::close)
+                .collectList()
+                .block();
+    }
+}
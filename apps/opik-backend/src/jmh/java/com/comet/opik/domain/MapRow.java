@@ -0,0 +1,53 @@
+package com.comet.opik.domain;
+
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory R2DBC row, so that the row mapping can be measured without a ClickHouse round trip.
+ * */
+@RequiredArgsConstructor
+class MapRow implements Row {
+
+    private final Map<String, Object> values;
+
+    @Override
+    public RowMetadata getMetadata() {
+        return new RowMetadata() {
+            @Override
+            public ColumnMetadata getColumnMetadata(int index) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ColumnMetadata getColumnMetadata(String name) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<? extends ColumnMetadata> getColumnMetadatas() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean contains(String columnName) {
+                return values.containsKey(columnName);
+            }
+        };
+    }
+
+    @Override
+    public <T> T get(int index, Class<T> type) {
+        return get(List.copyOf(values.keySet()).get(index), type);
+    }
+
+    @Override
+    public <T> T get(String name, Class<T> type) {
+        return type.cast(values.get(name));
+    }
+}
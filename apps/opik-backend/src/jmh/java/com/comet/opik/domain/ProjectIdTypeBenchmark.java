@@ -0,0 +1,169 @@
+package com.comet.opik.domain;
+
+import com.comet.opik.api.resources.utils.ClickHouseContainerUtils;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.clickhouse.ClickHouseContainer;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Storage and query time of a spans-like table keyed by project_id as FixedString(36) or as UUID, on a throwaway
+ * ClickHouse container. The storage of each variant is printed once its table is loaded, compare the
+ * {@code primary_key_bytes_in_memory} and the compressed bytes of the project_id column.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProjectIdTypeBenchmark {
+
+    private static final String TABLE = "spans_by_project";
+    private static final int PROJECTS = 1_000;
+
+    @Param({"FixedString(36)", "UUID"})
+    private String projectIdType;
+
+    @Param({"5000000"})
+    private int rows;
+
+    private ClickHouseContainer clickHouse;
+    private ConnectionPool connectionPool;
+    private String projectId;
+
+    @Setup
+    public void setUp() {
+        clickHouse = ClickHouseContainerUtils.newClickHouseContainer(false);
+        clickHouse.start();
+        connectionPool = ClickHouseContainerUtils.newDatabaseAnalyticsFactory(clickHouse, "default").build();
+
+        execute("""
+                CREATE TABLE %s
+                (
+                    id              FixedString(36),
+                    workspace_id    String,
+                    project_id      %s,
+                    trace_id        FixedString(36),
+                    last_updated_at DateTime64(9, 'UTC') DEFAULT now64(9)
+                ) ENGINE = ReplacingMergeTree(last_updated_at)
+                  ORDER BY (workspace_id, project_id, trace_id, id)
+                """.formatted(TABLE, projectIdType));
+        execute("""
+                INSERT INTO %s (id, workspace_id, project_id, trace_id)
+                WITH arrayMap(i -> toString(generateUUIDv4(i)), range(%d)) AS projects
+                SELECT
+                    toString(generateUUIDv4(number)),
+                    concat('workspace-', toString(number %% 10)),
+                    CAST(projects[number %% %d + 1], '%s'),
+                    toString(generateUUIDv4(intDiv(number, 10)))
+                FROM numbers(%d)
+                """.formatted(TABLE, PROJECTS, PROJECTS, projectIdType, rows));
+        execute("OPTIMIZE TABLE %s FINAL".formatted(TABLE));
+
+        projectId = query("SELECT toString(any(project_id)) FROM %s WHERE workspace_id = 'workspace-1'"
+                .formatted(TABLE)).getFirst().getFirst();
+
+        query("""
+                SELECT
+                    toString(sum(primary_key_bytes_in_memory)),
+                    toString(sum(data_compressed_bytes)),
+                    toString(sum(data_uncompressed_bytes))
+                FROM system.parts
+                WHERE table = '%s' AND active
+                """.formatted(TABLE)).forEach(values -> System.out.printf(
+                "%n%s: primary key in memory %s bytes, table %s compressed bytes (%s uncompressed)%n",
+                projectIdType, values.get(0), values.get(1), values.get(2)));
+        query("""
+                SELECT toString(data_compressed_bytes), toString(data_uncompressed_bytes)
+                FROM system.columns
+                WHERE table = '%s' AND name = 'project_id'
+                """.formatted(TABLE)).forEach(values -> System.out.printf(
+                "%s: project_id column %s compressed bytes (%s uncompressed)%n",
+                projectIdType, values.get(0), values.get(1)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionPool.dispose();
+        clickHouse.stop();
+    }
+
+    @Benchmark
+    public Object pointQueryByProject() {
+        return query("""
+                SELECT toString(count())
+                FROM %s
+                WHERE workspace_id = 'workspace-1' AND project_id = '%s'
+                """.formatted(TABLE, projectId));
+    }
+
+    @Benchmark
+    public Object groupByProject() {
+        return query("""
+                SELECT toString(project_id), toString(count())
+                FROM %s
+                GROUP BY project_id
+                """.formatted(TABLE));
+    }
+
+    @Benchmark
+    public Object joinOnProject() {
+        return query("""
+                SELECT toString(count())
+                FROM %1$s AS s
+                INNER JOIN (
+                    SELECT workspace_id, project_id, max(last_updated_at) AS last_updated_at
+                    FROM %1$s
+                    GROUP BY workspace_id, project_id
+                ) AS p ON s.workspace_id = p.workspace_id AND s.project_id = p.project_id
+                """.formatted(TABLE));
+    }
+
+    @Benchmark
+    public Object latestRowPerProject() {
+        return query("""
+                SELECT toString(project_id), id
+                FROM %s
+                ORDER BY project_id, last_updated_at DESC
+                LIMIT 1 BY project_id
+                """.formatted(TABLE));
+    }
+
+    private void execute(String sql) {
+        Flux.usingWhen(connectionPool.create(),
+                connection -> Flux.from(connection.createStatement(sql).execute()).flatMap(Result::getRowsUpdated),
+                Connection::close)
+                .then()
+                .block();
+    }
+
+    private List<List<String>> query(String sql) {
+        return Flux.usingWhen(connectionPool.create(),
+                connection -> Flux.from(connection.createStatement(sql).execute())
+                        .flatMap(result -> result.map((row, metadata) -> IntStream
+                                .range(0, metadata.getColumnMetadatas().size())
+                                .mapToObj(index -> row.get(index, String.class))
+                                .toList())),
+                Connection::close)
+                .collectList()
+                .block();
+    }
+}
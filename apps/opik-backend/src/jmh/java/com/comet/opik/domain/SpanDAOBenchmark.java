@@ -0,0 +1,70 @@
+package com.comet.opik.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SpanDAOBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int rows;
+
+    private MapRow row;
+
+    @Setup
+    public void setUp() {
+        var values = new HashMap<String, Object>();
+        values.put("id", UUID.randomUUID());
+        values.put("project_id", UUID.randomUUID());
+        values.put("trace_id", UUID.randomUUID());
+        values.put("parent_span_id", UUID.randomUUID().toString());
+        values.put("name", "llm-call");
+        values.put("type", SpanType.llm.toString());
+        values.put("start_time", Instant.now());
+        values.put("end_time", Instant.now());
+        values.put("input", "{\"messages\":[{\"role\":\"user\",\"content\":\"%s\"}]}".formatted("x".repeat(1_000)));
+        values.put("output", "{\"choices\":[{\"message\":{\"content\":\"%s\"}}]}".formatted("y".repeat(1_000)));
+        values.put("metadata", "{\"model\":\"gpt-4o\",\"temperature\":0.7}");
+        values.put("model", "gpt-4o");
+        values.put("provider", "openai");
+        values.put("total_estimated_cost", new BigDecimal("0.00125"));
+        values.put("tags", new String[]{"benchmark", "llm"});
+        values.put("usage", Map.of("prompt_tokens", 250, "completion_tokens", 125, "total_tokens", 375));
+        values.put("created_at", Instant.now());
+        values.put("last_updated_at", Instant.now());
+        values.put("created_by", "user");
+        values.put("last_updated_by", "user");
+        row = new MapRow(values);
+    }
+
+    @Benchmark
+    public Object mapToDto() {
+        return SpanDAO.mapRowToDto(row, row.getMetadata());
+    }
+
+    @Benchmark
+    public String renderBulkInsert() {
+        return SpanDAO.renderBulkInsert(rows);
+    }
+}
@@ -0,0 +1,64 @@
+package com.comet.opik.domain;
+
+import com.comet.opik.api.Span;
+import com.comet.opik.utils.JsonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StreamerBenchmark {
+
+    private final Streamer streamer = new Streamer();
+
+    @Param({"1", "1000"})
+    private int items;
+
+    private List<Span> spans;
+
+    @Setup
+    public void setUp() {
+        var span = Span.builder()
+                .id(UUID.randomUUID())
+                .projectId(UUID.randomUUID())
+                .traceId(UUID.randomUUID())
+                .name("llm-call")
+                .type(SpanType.llm)
+                .startTime(Instant.now())
+                .endTime(Instant.now())
+                .input(JsonUtils.getJsonNodeFromString("{\"prompt\":\"%s\"}".formatted("x".repeat(1_000))))
+                .output(JsonUtils.getJsonNodeFromString("{\"completion\":\"%s\"}".formatted("y".repeat(1_000))))
+                .usage(Map.of("prompt_tokens", 250, "completion_tokens", 125))
+                .build();
+        spans = Collections.nCopies(items, span);
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        // the bytes are discarded instead of being sent to a client connection
+        streamer.write(Flux.fromIterable(spans), OutputStream.nullOutputStream());
+    }
+}
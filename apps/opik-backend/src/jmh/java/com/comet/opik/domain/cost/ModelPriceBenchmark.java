@@ -0,0 +1,44 @@
+package com.comet.opik.domain.cost;
+
+import com.comet.opik.infrastructure.ModelPricesConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ModelPriceBenchmark {
+
+    // first entry, last entry and a miss that falls back to the default price
+    @Param({"gpt-4o", "babbage-002", "unknown-model"})
+    private String model;
+
+    private final Map<String, Integer> usage = Map.of("prompt_tokens", 250, "completion_tokens", 125);
+
+    private final ModelPriceRegistry registry = new ModelPriceRegistry(new ModelPricesConfig());
+
+    @Benchmark
+    public BigDecimal fromStringAndCalculateCost() {
+        return ModelPrice.fromString(model).calculateCost(usage);
+    }
+
+    @Benchmark
+    public BigDecimal registryCalculateCost() {
+        return registry.calculateCost(model, usage);
+    }
+}
@@ -0,0 +1,47 @@
+package com.comet.opik.domain.filter;
+
+import com.comet.opik.api.filter.Operator;
+import com.comet.opik.api.filter.TraceField;
+import com.comet.opik.api.filter.TraceFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FilterQueryBuilderBenchmark {
+
+    private final FilterQueryBuilder filterQueryBuilder = new FilterQueryBuilder();
+
+    private final List<TraceFilter> filters = List.of(
+            new TraceFilter(TraceField.NAME, Operator.CONTAINS, null, "chat"),
+            new TraceFilter(TraceField.START_TIME, Operator.GREATER_THAN, null, "2024-01-01T00:00:00Z"),
+            new TraceFilter(TraceField.METADATA, Operator.EQUAL, "model", "gpt-4o"),
+            new TraceFilter(TraceField.TAGS, Operator.CONTAINS, null, "production"),
+            new TraceFilter(TraceField.USAGE_TOTAL_TOKENS, Operator.GREATER_THAN_EQUAL, null, "100"),
+            new TraceFilter(TraceField.FEEDBACK_SCORES, Operator.GREATER_THAN, "relevance", "0.5"));
+
+    @Benchmark
+    public Optional<String> toAnalyticsDbFilters() {
+        return filterQueryBuilder.toAnalyticsDbFilters(filters, FilterStrategy.TRACE);
+    }
+
+    @Benchmark
+    public Optional<String> toAnalyticsDbFeedbackScoreFilters() {
+        return filterQueryBuilder.toAnalyticsDbFilters(filters, FilterStrategy.FEEDBACK_SCORES);
+    }
+}
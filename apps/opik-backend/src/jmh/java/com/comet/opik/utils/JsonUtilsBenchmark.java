@@ -0,0 +1,42 @@
+package com.comet.opik.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonUtilsBenchmark {
+
+    // payload size in characters of the message content
+    @Param({"100", "10000", "1000000"})
+    private int size;
+
+    private String json;
+
+    @Setup
+    public void setUp() {
+        json = "{\"messages\":[{\"role\":\"user\",\"content\":\"%s\"}],\"temperature\":0.7}"
+                .formatted("x".repeat(size));
+    }
+
+    @Benchmark
+    public JsonNode getJsonNodeFromString() {
+        return JsonUtils.getJsonNodeFromString(json);
+    }
+}
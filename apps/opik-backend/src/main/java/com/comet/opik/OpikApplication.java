@@ -2,9 +2,11 @@ package com.comet.opik;
 
 import com.comet.opik.infrastructure.ConfigurationModule;
 import com.comet.opik.infrastructure.OpikConfiguration;
+import com.comet.opik.infrastructure.attachment.AttachmentModule;
 import com.comet.opik.infrastructure.auth.AuthModule;
 import com.comet.opik.infrastructure.bi.OpikGuiceyLifecycleEventListener;
 import com.comet.opik.infrastructure.bundle.LiquibaseBundle;
+import com.comet.opik.infrastructure.cache.CacheModule;
 import com.comet.opik.infrastructure.db.DatabaseAnalyticsModule;
 import com.comet.opik.infrastructure.db.IdGeneratorModule;
 import com.comet.opik.infrastructure.db.NameGeneratorModule;
@@ -22,13 +24,16 @@ import io.dropwizard.configuration.SubstitutingSourceProvider;
 import io.dropwizard.core.Application;
 import io.dropwizard.core.setup.Bootstrap;
 import io.dropwizard.core.setup.Environment;
+import jakarta.servlet.DispatcherType;
 import org.glassfish.jersey.server.ServerProperties;
 import org.jdbi.v3.jackson2.Jackson2Plugin;
 import org.jdbi.v3.sqlobject.SqlObjectPlugin;
 import ru.vyarus.dropwizard.guice.GuiceBundle;
+import ru.vyarus.dropwizard.guice.GuiceyOptions;
 import ru.vyarus.guicey.jdbi3.JdbiBundle;
 
 import java.math.BigDecimal;
+import java.util.EnumSet;
 
 import static com.comet.opik.infrastructure.bundle.LiquibaseBundle.DB_APP_ANALYTICS_MIGRATIONS_FILE_NAME;
 import static com.comet.opik.infrastructure.bundle.LiquibaseBundle.DB_APP_ANALYTICS_NAME;
@@ -66,8 +71,10 @@ public class OpikApplication extends Application<OpikConfiguration> {
                         .withPlugins(new SqlObjectPlugin(), new Jackson2Plugin()))
                 .modules(new DatabaseAnalyticsModule(), new IdGeneratorModule(), new AuthModule(), new RedisModule(),
                         new RateLimitModule(), new NameGeneratorModule(), new HttpModule(), new EventModule(),
-                        new ConfigurationModule())
+                        new ConfigurationModule(), new CacheModule(), new AttachmentModule())
                 .listen(new OpikGuiceyLifecycleEventListener())
+                // the request scope must also be open on the dispatch that resumes an authenticated request
+                .option(GuiceyOptions.GuiceFilterRegistration, EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC))
                 .enableAutoConfig()
                 .build());
     }
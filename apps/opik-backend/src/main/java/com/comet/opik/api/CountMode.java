@@ -0,0 +1,35 @@
+package com.comet.opik.api;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import jakarta.ws.rs.BadRequestException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+/**
+ * How the total of a paginated find is computed:
+ * <ul>
+ *     <li>{@code exact}: the default, the distinct ids of the latest rows are counted.</li>
+ *     <li>{@code approximate}: the distinct ids are estimated with {@code uniqCombined}, without de-duplicating the
+ *     rows first, which is much cheaper on large projects. The estimate is within a few percent.</li>
+ *     <li>{@code none}: the total isn't computed and is returned as {@link Page#UNKNOWN_TOTAL}, for clients paginating
+ *     with the cursor.</li>
+ * </ul>
+ * */
+@Getter
+@RequiredArgsConstructor
+public enum CountMode {
+
+    EXACT("exact"),
+    APPROXIMATE("approximate"),
+    NONE("none");
+
+    @JsonValue
+    private final String value;
+
+    public static CountMode fromString(String value) {
+        return Arrays.stream(values()).filter(v -> v.value.equalsIgnoreCase(value)).findFirst()
+                .orElseThrow(() -> new BadRequestException("invalid value for count '%s'".formatted(value)));
+    }
+}
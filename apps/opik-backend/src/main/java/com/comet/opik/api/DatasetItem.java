@@ -48,13 +48,18 @@ public record DatasetItem(
                 DatasetItem.View.Public.class}) @Schema(accessMode = Schema.AccessMode.READ_ONLY) String lastUpdatedBy){
 
     @Builder(toBuilder = true)
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
     public record DatasetItemPage(
             @JsonView( {
                     DatasetItem.View.Public.class}) List<DatasetItem> content,
             @JsonView({DatasetItem.View.Public.class}) int page,
             @JsonView({DatasetItem.View.Public.class}) int size,
             @JsonView({DatasetItem.View.Public.class}) long total,
-            @JsonView({DatasetItem.View.Public.class}) Set<Column> columns) implements Page<DatasetItem>{
+            @JsonView({DatasetItem.View.Public.class}) Set<Column> columns,
+            @JsonView({
+                    DatasetItem.View.Public.class}) @Schema(description = "Cursor to the next page, null on the last one") String nextCursor)
+            implements
+                Page<DatasetItem>{
 
         public record Column(String name, Set<ColumnType> types) {
 
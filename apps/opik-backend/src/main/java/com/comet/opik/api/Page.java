@@ -4,6 +4,8 @@ import java.util.List;
 
 public interface Page<T> {
 
+    long UNKNOWN_TOTAL = -1;
+
     int size();
     int page();
     List<T> content();
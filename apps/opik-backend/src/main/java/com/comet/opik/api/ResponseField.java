@@ -0,0 +1,70 @@
+package com.comet.opik.api;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import jakarta.ws.rs.BadRequestException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The fields of the trace and span lists that can be left out of the response, so they're neither read from the
+ * database nor enriched. The other fields, e.g. the id, name and times, are always returned.
+ * */
+@Getter
+@RequiredArgsConstructor
+public enum ResponseField {
+
+    INPUT("input"),
+    OUTPUT("output"),
+    METADATA("metadata"),
+    USAGE("usage"),
+    TOTAL_ESTIMATED_COST("total_estimated_cost"),
+    FEEDBACK_SCORES("feedback_scores");
+
+    @JsonValue
+    private final String value;
+
+    public static ResponseField fromString(String value) {
+        return Arrays.stream(values()).filter(v -> v.value.equals(value)).findFirst()
+                .orElseThrow(() -> new BadRequestException("invalid value for exclude '%s'".formatted(value)));
+    }
+
+    /**
+     * @param fields comma separated fields to return, all of them when blank. Fields that are always returned are
+     *               accepted and ignored.
+     * @param exclude comma separated fields not to return.
+     * @return the fields left out of the response.
+     */
+    public static Set<ResponseField> excluded(String fields, String exclude) {
+        var excluded = EnumSet.noneOf(ResponseField.class);
+
+        if (StringUtils.isNotBlank(fields)) {
+            Set<String> requested = split(fields);
+            Arrays.stream(values())
+                    .filter(field -> !requested.contains(field.value))
+                    .forEach(excluded::add);
+        }
+
+        split(exclude).stream()
+                .map(ResponseField::fromString)
+                .forEach(excluded::add);
+
+        return excluded;
+    }
+
+    private static Set<String> split(String value) {
+        if (StringUtils.isBlank(value)) {
+            return Set.of();
+        }
+
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(StringUtils::isNotEmpty)
+                .collect(Collectors.toSet());
+    }
+}
@@ -53,13 +53,17 @@ public record Span(
         @JsonView({
                 Span.View.Public.class}) @Schema(accessMode = Schema.AccessMode.READ_ONLY) BigDecimal totalEstimatedCost){
 
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
     public record SpanPage(
             @JsonView(Span.View.Public.class) int page,
             @JsonView(Span.View.Public.class) int size,
             @JsonView(Span.View.Public.class) long total,
-            @JsonView(Span.View.Public.class) List<Span> content) implements com.comet.opik.api.Page<Span> {
+            @JsonView(Span.View.Public.class) List<Span> content,
+            @JsonView(Span.View.Public.class) @Schema(description = "Cursor to the next page, null on the last one") String nextCursor)
+            implements
+                com.comet.opik.api.Page<Span> {
         public static SpanPage empty(int page) {
-            return new SpanPage(page, 0, 0, List.of());
+            return new SpanPage(page, 0, 0, List.of(), null);
         }
     }
 
@@ -5,6 +5,7 @@ import com.comet.opik.domain.SpanType;
 import lombok.Builder;
 
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Builder(toBuilder = true)
@@ -14,5 +15,9 @@ public record SpanSearchCriteria(
         UUID traceId,
         SpanType type,
         List<? extends Filter> filters,
-        boolean truncate) {
+        String search,
+        boolean truncate,
+        UUID lastRetrievedId,
+        CountMode countMode,
+        Set<ResponseField> exclude) {
 }
@@ -47,14 +47,18 @@ public record Trace(
         @JsonView({
                 Trace.View.Public.class}) @Schema(accessMode = Schema.AccessMode.READ_ONLY) BigDecimal totalEstimatedCost){
 
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
     public record TracePage(
             @JsonView(Trace.View.Public.class) int page,
             @JsonView(Trace.View.Public.class) int size,
             @JsonView(Trace.View.Public.class) long total,
-            @JsonView(Trace.View.Public.class) List<Trace> content) implements com.comet.opik.api.Page<Trace> {
+            @JsonView(Trace.View.Public.class) List<Trace> content,
+            @JsonView(Trace.View.Public.class) @Schema(description = "Cursor to the next page, null on the last one") String nextCursor)
+            implements
+                com.comet.opik.api.Page<Trace> {
 
         public static TracePage empty(int page) {
-            return new TracePage(page, 0, 0, List.of());
+            return new TracePage(page, 0, 0, List.of(), null);
         }
     }
 
@@ -4,6 +4,7 @@ import com.comet.opik.api.filter.Filter;
 import lombok.Builder;
 
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Builder(toBuilder = true)
@@ -11,5 +12,9 @@ public record TraceSearchCriteria(
         String projectName,
         UUID projectId,
         List<? extends Filter> filters,
-        boolean truncate) {
+        String search,
+        boolean truncate,
+        UUID lastRetrievedId,
+        CountMode countMode,
+        Set<ResponseField> exclude) {
 }
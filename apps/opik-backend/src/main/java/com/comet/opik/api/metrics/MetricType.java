@@ -3,5 +3,8 @@ package com.comet.opik.api.metrics;
 public enum MetricType {
     FEEDBACK_SCORES,
     TRACE_COUNT,
+    SPAN_COUNT,
     TOKEN_USAGE,
+    COST,
+    DURATION,
 }
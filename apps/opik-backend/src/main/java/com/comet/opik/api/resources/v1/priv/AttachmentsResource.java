@@ -0,0 +1,60 @@
+package com.comet.opik.api.resources.v1.priv;
+
+import com.codahale.metrics.annotation.Timed;
+import com.comet.opik.api.error.ErrorMessage;
+import com.comet.opik.domain.AttachmentService;
+import com.comet.opik.infrastructure.auth.RequestContext;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+@Path("/v1/private/attachments")
+@Timed
+@Slf4j
+@RequiredArgsConstructor(onConstructor_ = @Inject)
+@Tag(name = "Attachments", description = "Attachment related resources")
+public class AttachmentsResource {
+
+    private static final String IMMUTABLE = "private, max-age=%d, immutable".formatted(TimeUnit.DAYS.toSeconds(365));
+
+    private final @NonNull AttachmentService attachmentService;
+    private final @NonNull Provider<RequestContext> requestContext;
+
+    @GET
+    @Path("{key}")
+    @Operation(operationId = "getAttachment", summary = "Get attachment", description = "Get an image or payload offloaded from a trace or span, referenced as [attachment:{key}]", responses = {
+            @ApiResponse(responseCode = "200", description = "Attachment content"),
+            @ApiResponse(responseCode = "404", description = "Not found", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))})
+    public Response get(@PathParam("key") String key) {
+
+        String workspaceId = requestContext.get().getWorkspaceId();
+
+        log.info("Getting attachment '{}' on workspace_id '{}'", key, workspaceId);
+
+        var attachment = attachmentService.get(workspaceId, key)
+                .orElseThrow(() -> new NotFoundException("Attachment not found"));
+
+        log.info("Got attachment '{}', size '{}' on workspace_id '{}'", key, attachment.content().length,
+                workspaceId);
+
+        // attachments are keyed by content, so they never change
+        return Response.ok(attachment.content(), attachment.mediaType())
+                .header(HttpHeaders.CACHE_CONTROL, IMMUTABLE)
+                .build();
+    }
+}
@@ -1,6 +1,7 @@
 package com.comet.opik.api.resources.v1.priv;
 
 import com.codahale.metrics.annotation.Timed;
+import com.comet.opik.api.CountMode;
 import com.comet.opik.api.Dataset;
 import com.comet.opik.api.DatasetCriteria;
 import com.comet.opik.api.DatasetIdentifier;
@@ -22,9 +23,9 @@ import com.comet.opik.infrastructure.auth.RequestContext;
 import com.comet.opik.infrastructure.ratelimit.RateLimited;
 import com.comet.opik.utils.AsyncUtils;
 import com.comet.opik.utils.JsonUtils;
+import com.comet.opik.utils.PaginationUtils;
 import com.fasterxml.jackson.annotation.JsonView;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
 import io.dropwizard.jersey.errors.ErrorMessage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.headers.Header;
@@ -54,11 +55,11 @@ import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriInfo;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.glassfish.jersey.server.ChunkedOutput;
 
 import java.net.URI;
 import java.util.List;
@@ -252,12 +253,15 @@ public class DatasetsResource {
             @PathParam("id") UUID id,
             @QueryParam("page") @Min(1) @DefaultValue("1") int page,
             @QueryParam("size") @Min(1) @DefaultValue("10") int size,
-            @QueryParam("truncate") boolean truncate) {
+            @QueryParam("truncate") boolean truncate,
+            @QueryParam("cursor") @Schema(description = "The next_cursor of the previous page, takes precedence over page") String cursor,
+            @QueryParam("count") @DefaultValue("exact") @Schema(description = "How the total is computed: exact, approximate or none") CountMode count) {
 
         String workspaceId = requestContext.get().getWorkspaceId();
+        UUID lastRetrievedId = PaginationUtils.decodeCursor(cursor);
         log.info("Finding dataset items by id '{}', page '{}', size '{} on workspace_id '{}''", id, page, size,
                 workspaceId);
-        DatasetItem.DatasetItemPage datasetItemPage = itemService.getItems(id, page, size, truncate)
+        DatasetItem.DatasetItemPage datasetItemPage = itemService.getItems(id, page, size, truncate, lastRetrievedId, count)
                 .contextWrite(ctx -> setRequestContext(ctx, requestContext))
                 .block();
         log.info("Found dataset items by id '{}', count '{}', page '{}', size '{} on workspace_id '{}''", id,
@@ -275,7 +279,7 @@ public class DatasetsResource {
                     ErrorMessage.class
             }), maxItems = 2000)))
     })
-    public ChunkedOutput<JsonNode> streamDatasetItems(
+    public StreamingOutput streamDatasetItems(
             @RequestBody(content = @Content(schema = @Schema(implementation = DatasetItemStreamRequest.class))) @NotNull @Valid DatasetItemStreamRequest request) {
         var workspaceId = requestContext.get().getWorkspaceId();
         var userName = requestContext.get().getUserName();
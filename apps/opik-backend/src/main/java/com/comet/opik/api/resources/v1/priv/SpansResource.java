@@ -1,12 +1,14 @@
 package com.comet.opik.api.resources.v1.priv;
 
 import com.codahale.metrics.annotation.Timed;
+import com.comet.opik.api.CountMode;
 import com.comet.opik.api.DeleteFeedbackScore;
 import com.comet.opik.api.FeedbackDefinition;
 import com.comet.opik.api.FeedbackScore;
 import com.comet.opik.api.FeedbackScoreBatch;
 import com.comet.opik.api.FeedbackScoreNames;
 import com.comet.opik.api.ProjectStats;
+import com.comet.opik.api.ResponseField;
 import com.comet.opik.api.Span;
 import com.comet.opik.api.SpanBatch;
 import com.comet.opik.api.SpanSearchCriteria;
@@ -16,9 +18,11 @@ import com.comet.opik.api.filter.SpanFilter;
 import com.comet.opik.domain.FeedbackScoreService;
 import com.comet.opik.domain.SpanService;
 import com.comet.opik.domain.SpanType;
+import com.comet.opik.infrastructure.IngestionBufferConfig;
 import com.comet.opik.infrastructure.auth.RequestContext;
 import com.comet.opik.infrastructure.ratelimit.RateLimited;
 import com.comet.opik.utils.AsyncUtils;
+import com.comet.opik.utils.PaginationUtils;
 import com.fasterxml.jackson.annotation.JsonView;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.headers.Header;
@@ -53,6 +57,7 @@ import jakarta.ws.rs.core.UriInfo;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ru.vyarus.dropwizard.guice.module.yaml.bind.Config;
 
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -74,6 +79,7 @@ public class SpansResource {
     private final @NonNull FeedbackScoreService feedbackScoreService;
     private final @NonNull FiltersFactory filtersFactory;
     private final @NonNull Provider<RequestContext> requestContext;
+    private final @NonNull @Config("ingestionBuffer") IngestionBufferConfig ingestionBufferConfig;
 
     @GET
     @Operation(operationId = "getSpansByProject", summary = "Get spans by project_name or project_id and optionally by trace_id and/or type", description = "Get spans by project_name or project_id and optionally by trace_id and/or type", responses = {
@@ -87,7 +93,12 @@ public class SpansResource {
             @QueryParam("trace_id") UUID traceId,
             @QueryParam("type") SpanType type,
             @QueryParam("filters") String filters,
-            @QueryParam("truncate") boolean truncate) {
+            @QueryParam("search") @Schema(description = "Words to find in the input or output, whole words and case-insensitive, the most recent first") String search,
+            @QueryParam("truncate") boolean truncate,
+            @QueryParam("cursor") @Schema(description = "The next_cursor of the previous page, takes precedence over page") String cursor,
+            @QueryParam("count") @DefaultValue("exact") @Schema(description = "How the total is computed: exact, approximate or none") CountMode count,
+            @QueryParam("fields") @Schema(description = "Comma separated fields to return, among input, output, metadata, usage, total_estimated_cost and feedback_scores, all by default") String fields,
+            @QueryParam("exclude") @Schema(description = "Comma separated fields to leave out, among input, output, metadata, usage, total_estimated_cost and feedback_scores") String exclude) {
 
         validateProjectNameAndProjectId(projectName, projectId);
         var spanFilters = filtersFactory.newFilters(filters, SpanFilter.LIST_TYPE_REFERENCE);
@@ -97,7 +108,11 @@ public class SpansResource {
                 .traceId(traceId)
                 .type(type)
                 .filters(spanFilters)
+                .search(search)
                 .truncate(truncate)
+                .lastRetrievedId(PaginationUtils.decodeCursor(cursor))
+                .countMode(count)
+                .exclude(ResponseField.excluded(fields, exclude))
                 .build();
 
         String workspaceId = requestContext.get().getWorkspaceId();
@@ -156,7 +171,8 @@ public class SpansResource {
     @POST
     @Path("/batch")
     @Operation(operationId = "createSpans", summary = "Create spans", description = "Create spans", responses = {
-            @ApiResponse(responseCode = "204", description = "No Content")})
+            @ApiResponse(responseCode = "204", description = "No Content"),
+            @ApiResponse(responseCode = "202", description = "Accepted")})
     @RateLimited
     public Response createSpans(
             @RequestBody(content = @Content(schema = @Schema(implementation = SpanBatch.class))) @JsonView(Span.View.Write.class) @NotNull @Valid SpanBatch spans) {
@@ -175,7 +191,7 @@ public class SpansResource {
                 .contextWrite(ctx -> setRequestContext(ctx, requestContext))
                 .block();
 
-        return Response.noContent().build();
+        return batchResponse();
     }
 
     @PATCH
@@ -247,7 +263,8 @@ public class SpansResource {
     @PUT
     @Path("/feedback-scores")
     @Operation(operationId = "scoreBatchOfSpans", summary = "Batch feedback scoring for spans", description = "Batch feedback scoring for spans", responses = {
-            @ApiResponse(responseCode = "204", description = "No Content")})
+            @ApiResponse(responseCode = "204", description = "No Content"),
+            @ApiResponse(responseCode = "202", description = "Accepted")})
     @RateLimited
     public Response scoreBatchOfSpans(
             @RequestBody(content = @Content(schema = @Schema(implementation = FeedbackScoreBatch.class))) @NotNull @Valid FeedbackScoreBatch batch) {
@@ -260,7 +277,7 @@ public class SpansResource {
                 .retryWhen(AsyncUtils.handleConnectionError())
                 .block();
         log.info("Scored batch for spans, size {} on workspaceId '{}'", batch.scores().size(), workspaceId);
-        return Response.noContent().build();
+        return batchResponse();
     }
 
     @GET
@@ -273,7 +290,8 @@ public class SpansResource {
             @QueryParam("project_name") String projectName,
             @QueryParam("trace_id") UUID traceId,
             @QueryParam("type") SpanType type,
-            @QueryParam("filters") String filters) {
+            @QueryParam("filters") String filters,
+            @QueryParam("search") @Schema(description = "Words to find in the input or output, whole words and case-insensitive") String search) {
 
         validateProjectNameAndProjectId(projectName, projectId);
         var spanFilters = filtersFactory.newFilters(filters, SpanFilter.LIST_TYPE_REFERENCE);
@@ -281,6 +299,7 @@ public class SpansResource {
                 .projectName(projectName)
                 .projectId(projectId)
                 .filters(spanFilters)
+                .search(search)
                 .traceId(traceId)
                 .type(type)
                 .build();
@@ -326,4 +345,11 @@ public class SpansResource {
         return Response.ok(feedbackScoreNames).build();
     }
 
+    private Response batchResponse() {
+        // rows are only queued for the next flush when the ingestion buffer acknowledges on enqueue
+        return ingestionBufferConfig.acknowledgesOnEnqueue()
+                ? Response.accepted().build()
+                : Response.noContent().build();
+    }
+
 }
@@ -1,12 +1,14 @@
 package com.comet.opik.api.resources.v1.priv;
 
 import com.codahale.metrics.annotation.Timed;
+import com.comet.opik.api.CountMode;
 import com.comet.opik.api.DeleteFeedbackScore;
 import com.comet.opik.api.FeedbackDefinition;
 import com.comet.opik.api.FeedbackScore;
 import com.comet.opik.api.FeedbackScoreBatch;
 import com.comet.opik.api.FeedbackScoreNames;
 import com.comet.opik.api.ProjectStats;
+import com.comet.opik.api.ResponseField;
 import com.comet.opik.api.Trace;
 import com.comet.opik.api.Trace.TracePage;
 import com.comet.opik.api.TraceBatch;
@@ -17,9 +19,11 @@ import com.comet.opik.api.filter.FiltersFactory;
 import com.comet.opik.api.filter.TraceFilter;
 import com.comet.opik.domain.FeedbackScoreService;
 import com.comet.opik.domain.TraceService;
+import com.comet.opik.infrastructure.IngestionBufferConfig;
 import com.comet.opik.infrastructure.auth.RequestContext;
 import com.comet.opik.infrastructure.ratelimit.RateLimited;
 import com.comet.opik.utils.AsyncUtils;
+import com.comet.opik.utils.PaginationUtils;
 import com.fasterxml.jackson.annotation.JsonView;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.headers.Header;
@@ -53,6 +57,7 @@ import jakarta.ws.rs.core.UriInfo;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ru.vyarus.dropwizard.guice.module.yaml.bind.Config;
 
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -73,6 +78,7 @@ public class TracesResource {
     private final @NonNull FeedbackScoreService feedbackScoreService;
     private final @NonNull FiltersFactory filtersFactory;
     private final @NonNull Provider<RequestContext> requestContext;
+    private final @NonNull @Config("ingestionBuffer") IngestionBufferConfig ingestionBufferConfig;
 
     @GET
     @Operation(operationId = "getTracesByProject", summary = "Get traces by project_name or project_id", description = "Get traces by project_name or project_id", responses = {
@@ -84,7 +90,12 @@ public class TracesResource {
             @QueryParam("project_name") String projectName,
             @QueryParam("project_id") UUID projectId,
             @QueryParam("filters") String filters,
-            @QueryParam("truncate") boolean truncate) {
+            @QueryParam("search") @Schema(description = "Words to find in the input or output, whole words and case-insensitive, the most recent first") String search,
+            @QueryParam("truncate") boolean truncate,
+            @QueryParam("cursor") @Schema(description = "The next_cursor of the previous page, takes precedence over page") String cursor,
+            @QueryParam("count") @DefaultValue("exact") @Schema(description = "How the total is computed: exact, approximate or none") CountMode count,
+            @QueryParam("fields") @Schema(description = "Comma separated fields to return, among input, output, metadata, usage, total_estimated_cost and feedback_scores, all by default") String fields,
+            @QueryParam("exclude") @Schema(description = "Comma separated fields to leave out, among input, output, metadata, usage, total_estimated_cost and feedback_scores") String exclude) {
 
         validateProjectNameAndProjectId(projectName, projectId);
         var traceFilters = filtersFactory.newFilters(filters, TraceFilter.LIST_TYPE_REFERENCE);
@@ -92,7 +103,11 @@ public class TracesResource {
                 .projectName(projectName)
                 .projectId(projectId)
                 .filters(traceFilters)
+                .search(search)
                 .truncate(truncate)
+                .lastRetrievedId(PaginationUtils.decodeCursor(cursor))
+                .countMode(count)
+                .exclude(ResponseField.excluded(fields, exclude))
                 .build();
 
         String workspaceId = requestContext.get().getWorkspaceId();
@@ -158,7 +173,8 @@ public class TracesResource {
     @POST
     @Path("/batch")
     @Operation(operationId = "createTraces", summary = "Create traces", description = "Create traces", responses = {
-            @ApiResponse(responseCode = "204", description = "No Content")})
+            @ApiResponse(responseCode = "204", description = "No Content"),
+            @ApiResponse(responseCode = "202", description = "Accepted")})
     @RateLimited
     public Response createTraces(
             @RequestBody(content = @Content(schema = @Schema(implementation = TraceBatch.class))) @JsonView(Trace.View.Write.class) @NotNull @Valid TraceBatch traces) {
@@ -177,7 +193,7 @@ public class TracesResource {
                 .contextWrite(ctx -> setRequestContext(ctx, requestContext))
                 .block();
 
-        return Response.noContent().build();
+        return batchResponse();
     }
 
     @PATCH
@@ -276,7 +292,8 @@ public class TracesResource {
     @PUT
     @Path("/feedback-scores")
     @Operation(operationId = "scoreBatchOfTraces", summary = "Batch feedback scoring for traces", description = "Batch feedback scoring for traces", responses = {
-            @ApiResponse(responseCode = "204", description = "No Content")})
+            @ApiResponse(responseCode = "204", description = "No Content"),
+            @ApiResponse(responseCode = "202", description = "Accepted")})
     @RateLimited
     public Response scoreBatchOfTraces(
             @RequestBody(content = @Content(schema = @Schema(implementation = FeedbackScoreBatch.class))) @NotNull @Valid FeedbackScoreBatch batch) {
@@ -292,7 +309,7 @@ public class TracesResource {
 
         log.info("Feedback scores batch for traces, size {} on  workspaceId '{}'", batch.scores().size(), workspaceId);
 
-        return Response.noContent().build();
+        return batchResponse();
     }
 
     @GET
@@ -303,7 +320,8 @@ public class TracesResource {
     @JsonView({ProjectStats.ProjectStatItem.View.Public.class})
     public Response getStats(@QueryParam("project_id") UUID projectId,
             @QueryParam("project_name") String projectName,
-            @QueryParam("filters") String filters) {
+            @QueryParam("filters") String filters,
+            @QueryParam("search") @Schema(description = "Words to find in the input or output, whole words and case-insensitive") String search) {
 
         validateProjectNameAndProjectId(projectName, projectId);
         var traceFilters = filtersFactory.newFilters(filters, TraceFilter.LIST_TYPE_REFERENCE);
@@ -311,6 +329,7 @@ public class TracesResource {
                 .projectName(projectName)
                 .projectId(projectId)
                 .filters(traceFilters)
+                .search(search)
                 .build();
 
         String workspaceId = requestContext.get().getWorkspaceId();
@@ -353,4 +372,11 @@ public class TracesResource {
         return Response.ok(feedbackScoreNames).build();
     }
 
+    private Response batchResponse() {
+        // rows are only queued for the next flush when the ingestion buffer acknowledges on enqueue
+        return ingestionBufferConfig.acknowledgesOnEnqueue()
+                ? Response.accepted().build()
+                : Response.noContent().build();
+    }
+
 }
@@ -0,0 +1,294 @@
+package com.comet.opik.domain;
+
+import com.comet.opik.api.Span;
+import com.comet.opik.api.SpanUpdate;
+import com.comet.opik.api.Trace;
+import com.comet.opik.api.TraceUpdate;
+import com.comet.opik.infrastructure.AttachmentsConfig;
+import com.comet.opik.infrastructure.attachment.AttachmentStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.ws.rs.core.MediaType;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.vyarus.dropwizard.guice.module.yaml.bind.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import static com.comet.opik.utils.AsyncUtils.makeMonoContextAware;
+
+/**
+ * Moves base64 images and oversized payloads out of the input, output and metadata of traces and spans at ingestion,
+ * so they don't inflate the ClickHouse rows, their merges and every scan of the columns.
+ * <br>
+ * Each image, and each input, output or metadata larger than the configured size, is stored in the
+ * {@link AttachmentStore} and replaced in the row by a reference string, {@code [attachment:<key>]}. Keys are the SHA-256
+ * of the content plus its type, so the same image logged by many spans, e.g. along a conversation, is stored once per
+ * workspace. Attachments are fetched with {@code GET /v1/private/attachments/{key}}.
+ * */
+@Singleton
+@Slf4j
+@RequiredArgsConstructor(onConstructor_ = @Inject)
+public class AttachmentService {
+
+    public record Attachment(byte[] content, String mediaType) {
+    }
+
+    private record Payload(JsonNode input, JsonNode output, JsonNode metadata) {
+    }
+
+    public static final String REFERENCE_PREFIX = "[attachment:";
+    public static final String REFERENCE_SUFFIX = "]";
+
+    private static final String JSON_TYPE = "json";
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}\\.(jpeg|png|gif|bmp|tiff|webp|json)");
+
+    private final @NonNull @Config("attachments") AttachmentsConfig config;
+    private final @NonNull AttachmentStore store;
+
+    public Mono<Trace> offload(@NonNull Trace trace) {
+        return offloadTraces(List.of(trace)).map(List::getFirst);
+    }
+
+    @WithSpan
+    public Mono<List<Trace>> offloadTraces(@NonNull List<Trace> traces) {
+        return offload(traces, trace -> new Payload(trace.input(), trace.output(), trace.metadata()),
+                (trace, payload) -> trace.toBuilder()
+                        .input(payload.input())
+                        .output(payload.output())
+                        .metadata(payload.metadata())
+                        .build());
+    }
+
+    public Mono<TraceUpdate> offload(@NonNull TraceUpdate traceUpdate) {
+        return offload(List.of(traceUpdate),
+                update -> new Payload(update.input(), update.output(), update.metadata()),
+                (update, payload) -> update.toBuilder()
+                        .input(payload.input())
+                        .output(payload.output())
+                        .metadata(payload.metadata())
+                        .build())
+                .map(List::getFirst);
+    }
+
+    public Mono<Span> offload(@NonNull Span span) {
+        return offloadSpans(List.of(span)).map(List::getFirst);
+    }
+
+    @WithSpan
+    public Mono<List<Span>> offloadSpans(@NonNull List<Span> spans) {
+        return offload(spans, span -> new Payload(span.input(), span.output(), span.metadata()),
+                (span, payload) -> span.toBuilder()
+                        .input(payload.input())
+                        .output(payload.output())
+                        .metadata(payload.metadata())
+                        .build());
+    }
+
+    public Mono<SpanUpdate> offload(@NonNull SpanUpdate spanUpdate) {
+        return offload(List.of(spanUpdate),
+                update -> new Payload(update.input(), update.output(), update.metadata()),
+                (update, payload) -> update.toBuilder()
+                        .input(payload.input())
+                        .output(payload.output())
+                        .metadata(payload.metadata())
+                        .build())
+                .map(List::getFirst);
+    }
+
+    public Optional<Attachment> get(@NonNull String workspaceId, @NonNull String key) {
+        if (!KEY_PATTERN.matcher(key).matches()) {
+            return Optional.empty();
+        }
+
+        String type = key.substring(key.lastIndexOf('.') + 1);
+        String mediaType = JSON_TYPE.equals(type) ? MediaType.APPLICATION_JSON : "image/" + type;
+
+        return store.get(workspaceId, key).map(content -> new Attachment(content, mediaType));
+    }
+
+    private <T> Mono<List<T>> offload(List<T> values, Function<T, Payload> getPayload,
+            BiFunction<T, Payload, T> setPayload) {
+        if (!config.isEnabled()) {
+            return Mono.just(values);
+        }
+
+        return Mono.fromCallable(() -> {
+            Map<String, byte[]> attachments = new HashMap<>();
+            List<T> offloaded = new ArrayList<>(values.size());
+
+            for (T value : values) {
+                Payload payload = getPayload.apply(value);
+                var offloadedPayload = new Payload(
+                        extract(payload.input(), attachments),
+                        extract(payload.output(), attachments),
+                        extract(payload.metadata(), attachments));
+
+                boolean unchanged = offloadedPayload.input() == payload.input()
+                        && offloadedPayload.output() == payload.output()
+                        && offloadedPayload.metadata() == payload.metadata();
+
+                offloaded.add(unchanged ? value : setPayload.apply(value, offloadedPayload));
+            }
+
+            return Map.entry(offloaded, attachments);
+        }).flatMap(result -> {
+            if (result.getValue().isEmpty()) {
+                return Mono.just(values);
+            }
+
+            return store(result.getValue()).thenReturn(result.getKey());
+        });
+    }
+
+    private Mono<Void> store(Map<String, byte[]> attachments) {
+        return makeMonoContextAware((userName, workspaceId) -> Mono
+                .fromRunnable(() -> attachments.forEach((key, content) -> store.put(workspaceId, key, content)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnSuccess(__ -> log.info("Stored '{}' attachments on workspace_id '{}'", attachments.size(),
+                        workspaceId))
+                .then());
+    }
+
+    private JsonNode extract(JsonNode node, Map<String, byte[]> attachments) {
+        if (node == null) {
+            return null;
+        }
+
+        JsonNode extracted = extractImages(node, attachments);
+        if (estimateSize(extracted) <= config.getMaxPayloadSize()) {
+            return extracted;
+        }
+
+        return reference(extracted.toString().getBytes(StandardCharsets.UTF_8), JSON_TYPE, attachments);
+    }
+
+    /**
+     * @return the node itself if it has no images, otherwise a copy with the images replaced by references. Unchanged
+     * subtrees are shared with the original.
+     */
+    private JsonNode extractImages(JsonNode node, Map<String, byte[]> attachments) {
+        if (node.isTextual()) {
+            String text = node.textValue();
+            if (text.length() < config.getMinImageSize()) {
+                return node;
+            }
+
+            return ImageUtils.parseBase64Image(text)
+                    .flatMap(this::decode)
+                    .map(image -> reference(image.getValue(), image.getKey(), attachments))
+                    .orElse(node);
+        }
+
+        if (node.isObject()) {
+            Map<String, JsonNode> fields = new LinkedHashMap<>();
+            boolean changed = false;
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                JsonNode value = extractImages(field.getValue(), attachments);
+                changed |= value != field.getValue();
+                fields.put(field.getKey(), value);
+            }
+
+            if (!changed) {
+                return node;
+            }
+
+            ObjectNode copy = JsonNodeFactory.instance.objectNode();
+            copy.setAll(fields);
+            return copy;
+        }
+
+        if (node.isArray()) {
+            List<JsonNode> elements = new ArrayList<>(node.size());
+            boolean changed = false;
+            for (JsonNode element : node) {
+                JsonNode value = extractImages(element, attachments);
+                changed |= value != element;
+                elements.add(value);
+            }
+
+            if (!changed) {
+                return node;
+            }
+
+            ArrayNode copy = JsonNodeFactory.instance.arrayNode(elements.size());
+            copy.addAll(elements);
+            return copy;
+        }
+
+        return node;
+    }
+
+    private Optional<Map.Entry<String, byte[]>> decode(ImageUtils.Base64Image image) {
+        try {
+            return Optional.of(Map.entry(image.type(), Base64.getDecoder().decode(image.data())));
+        } catch (IllegalArgumentException exception) {
+            // looked like an image but isn't valid base64, kept inline
+            return Optional.empty();
+        }
+    }
+
+    private JsonNode reference(byte[] content, String type, Map<String, byte[]> attachments) {
+        String key = key(content, type);
+        attachments.putIfAbsent(key, content);
+        return TextNode.valueOf(REFERENCE_PREFIX + key + REFERENCE_SUFFIX);
+    }
+
+    static String key(byte[] content, String type) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(hash) + "." + type;
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Lower bound of the serialized size, in characters, without serializing the node.
+     */
+    private static long estimateSize(JsonNode node) {
+        if (node.isTextual()) {
+            return node.textValue().length() + 2;
+        }
+
+        if (node.isObject()) {
+            long size = 2;
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                size += field.getKey().length() + 4 + estimateSize(field.getValue());
+            }
+            return size;
+        }
+
+        if (node.isArray()) {
+            long size = 2;
+            for (JsonNode element : node) {
+                size += 1 + estimateSize(element);
+            }
+            return size;
+        }
+
+        return 1;
+    }
+}
@@ -1,11 +1,14 @@
 package com.comet.opik.domain;
 
 import com.clickhouse.client.ClickHouseException;
+import com.comet.opik.api.CountMode;
 import com.comet.opik.api.DatasetItem;
 import com.comet.opik.api.DatasetItemSearchCriteria;
+import com.comet.opik.api.Page;
 import com.comet.opik.domain.filter.FilterQueryBuilder;
 import com.comet.opik.domain.filter.FilterStrategy;
 import com.comet.opik.infrastructure.db.TransactionTemplateAsync;
+import com.comet.opik.utils.PaginationUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.inject.ImplementedBy;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
@@ -35,6 +38,7 @@ import static com.comet.opik.domain.AsyncContextUtils.bindWorkspaceIdToMono;
 import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.Segment;
 import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.endSegment;
 import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.startSegment;
+import static com.comet.opik.utils.AsyncUtils.countAndPage;
 import static com.comet.opik.utils.AsyncUtils.makeFluxContextAware;
 import static com.comet.opik.utils.AsyncUtils.makeMonoContextAware;
 import static com.comet.opik.utils.TemplateUtils.QueryItem;
@@ -46,7 +50,8 @@ public interface DatasetItemDAO {
 
     Mono<Long> delete(List<UUID> ids);
 
-    Mono<DatasetItemPage> getItems(UUID datasetId, int page, int size, boolean truncate);
+    Mono<DatasetItemPage> getItems(UUID datasetId, int page, int size, boolean truncate, UUID lastRetrievedId,
+            CountMode countMode);
 
     Mono<DatasetItemPage> getItems(DatasetItemSearchCriteria datasetItemSearchCriteria, int page, int size);
 
@@ -156,6 +161,7 @@ class DatasetItemDAOImpl implements DatasetItemDAO {
                 FROM dataset_items
                 WHERE dataset_id = :datasetId
                 AND workspace_id = :workspace_id
+                <if(lastRetrievedId)>AND id \\< :lastRetrievedId <endif>
                 ORDER BY id DESC, last_updated_at DESC
                 LIMIT 1 BY id
                 LIMIT :limit OFFSET :offset
@@ -669,39 +675,72 @@ class DatasetItemDAOImpl implements DatasetItemDAO {
 
     @Override
     @WithSpan
-    public Mono<DatasetItemPage> getItems(@NonNull UUID datasetId, int page, int size, boolean truncate) {
+    public Mono<DatasetItemPage> getItems(
+            @NonNull UUID datasetId, int page, int size, boolean truncate, UUID lastRetrievedId,
+            CountMode countMode) {
+
+        return makeMonoContextAware((userName, workspaceId) -> countAndPage(
+                getCountAndColumns(datasetId, workspaceId, countMode),
+                getItems(datasetId, workspaceId, page, size, truncate, lastRetrievedId),
+                (countAndColumns, items) -> new DatasetItemPage(items, page, items.size(), countAndColumns.getKey(),
+                        countAndColumns.getValue(), PaginationUtils.nextCursor(items, size, DatasetItem::id))));
+    }
+
+    /**
+     * The columns are computed from the latest version of every item, which already scans the whole dataset, so the
+     * total comes with them at no extra cost and the approximate mode is exact. Only skipping it saves work.
+     * */
+    private Mono<Map.Entry<Long, Set<Column>>> getCountAndColumns(
+            UUID datasetId, String workspaceId, CountMode countMode) {
 
         Segment segmentCount = startSegment("dataset_items", "Clickhouse", "select_dataset_items_page_count");
 
-        return makeMonoContextAware((userName, workspaceId) -> asyncTemplate.nonTransaction(connection -> Flux
+        if (countMode == CountMode.NONE) {
+            return asyncTemplate.nonTransaction(connection -> Mono
+                    .from(connection.createStatement(SELECT_DATASET_ITEMS_COLUMNS_BY_DATASET_ID)
+                            .bind("datasetId", datasetId)
+                            .bind("workspace_id", workspaceId)
+                            .execute())
+                    .flatMap(DatasetItemResultMapper::mapColumns)
+                    .map(columns -> Map.entry(Page.UNKNOWN_TOTAL, columns))
+                    .doFinally(signalType -> endSegment(segmentCount)));
+        }
+
+        return asyncTemplate.nonTransaction(connection -> Flux
                 .from(connection.createStatement(SELECT_DATASET_ITEMS_COUNT)
                         .bind("datasetId", datasetId)
                         .bind("workspace_id", workspaceId)
                         .execute())
-                .doFinally(signalType -> endSegment(segmentCount))
                 .flatMap(DatasetItemResultMapper::mapCountAndColumns)
                 .reduce(DatasetItemResultMapper::groupResults)
-                .flatMap(result -> {
+                .doFinally(signalType -> endSegment(segmentCount)));
+    }
 
-                    Segment segment = startSegment("dataset_items", "Clickhouse", "select_dataset_items_page");
+    private Mono<List<DatasetItem>> getItems(
+            UUID datasetId, String workspaceId, int page, int size, boolean truncate, UUID lastRetrievedId) {
 
-                    long total = result.getKey();
-                    Set<Column> columns = result.getValue();
+        Segment segment = startSegment("dataset_items", "Clickhouse", "select_dataset_items_page");
 
-                    ST template = ImageUtils.addTruncateToTemplate(new ST(SELECT_DATASET_ITEMS), truncate);
+        ST template = ImageUtils.addTruncateToTemplate(new ST(SELECT_DATASET_ITEMS), truncate);
+        if (lastRetrievedId != null) {
+            template.add("lastRetrievedId", lastRetrievedId);
+        }
 
-                    return Flux.from(connection.createStatement(template.render())
-                            .bind("workspace_id", workspaceId)
-                            .bind("datasetId", datasetId)
-                            .bind("limit", size)
-                            .bind("offset", (page - 1) * size)
-                            .execute())
-                            .flatMap(DatasetItemResultMapper::mapItem)
-                            .collectList()
-                            .flatMap(items -> Mono
-                                    .just(new DatasetItemPage(items, page, items.size(), total, columns)))
-                            .doFinally(signalType -> endSegment(segment));
-                })));
+        return asyncTemplate.nonTransaction(connection -> {
+            var statement = connection.createStatement(template.render())
+                    .bind("workspace_id", workspaceId)
+                    .bind("datasetId", datasetId)
+                    .bind("limit", size)
+                    .bind("offset", lastRetrievedId == null ? (page - 1) * size : 0);
+            if (lastRetrievedId != null) {
+                statement.bind("lastRetrievedId", lastRetrievedId);
+            }
+
+            return Flux.from(statement.execute())
+                    .flatMap(DatasetItemResultMapper::mapItem)
+                    .collectList()
+                    .doFinally(signalType -> endSegment(segment));
+        });
     }
 
     private ST newFindTemplate(String query, DatasetItemSearchCriteria datasetItemSearchCriteria) {
@@ -775,7 +814,8 @@ class DatasetItemDAOImpl implements DatasetItemDAO {
                             .collectList()
                             .onErrorResume(e -> handleSqlError(e, List.of()))
                             .flatMap(
-                                    items -> Mono.just(new DatasetItemPage(items, page, items.size(), total, columns)));
+                                    items -> Mono.just(
+                                            new DatasetItemPage(items, page, items.size(), total, columns, null)));
                 }));
     }
 
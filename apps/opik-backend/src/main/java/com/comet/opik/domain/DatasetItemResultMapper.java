@@ -5,7 +5,7 @@ import com.comet.opik.api.DatasetItemSource;
 import com.comet.opik.api.ExperimentItem;
 import com.comet.opik.api.FeedbackScore;
 import com.comet.opik.api.ScoreSource;
-import com.comet.opik.utils.JsonUtils;
+import com.comet.opik.utils.RawJsonNode;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.Sets;
 import io.r2dbc.spi.Result;
@@ -68,7 +68,7 @@ class DatasetItemResultMapper {
         if (null == field || StringUtils.isBlank(field.toString())) {
             return null;
         }
-        return JsonUtils.getJsonNodeFromString(field.toString());
+        return new RawJsonNode(field.toString());
     }
 
     private static List<FeedbackScore> getFeedbackScores(Object feedbackScoresRaw) {
@@ -172,7 +172,7 @@ class DatasetItemResultMapper {
                 .stream()
                 .map(Map::entrySet)
                 .flatMap(Collection::stream)
-                .map(entry -> Map.entry(entry.getKey(), JsonUtils.getJsonNodeFromString(entry.getValue())))
+                .map(entry -> Map.entry(entry.getKey(), (JsonNode) new RawJsonNode(entry.getValue())))
                 .collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
@@ -186,7 +186,7 @@ class DatasetItemResultMapper {
         if (json == null) {
             json = Optional.ofNullable(row.get(key, String.class))
                     .filter(s -> !s.isBlank())
-                    .map(JsonUtils::getJsonNodeFromString).orElse(null);
+                    .map(RawJsonNode::new).orElse(null);
         }
 
         return json;
@@ -1,5 +1,6 @@
 package com.comet.opik.domain;
 
+import com.comet.opik.api.CountMode;
 import com.comet.opik.api.Dataset;
 import com.comet.opik.api.DatasetItem;
 import com.comet.opik.api.DatasetItemBatch;
@@ -39,7 +40,8 @@ public interface DatasetItemService {
 
     Mono<Void> delete(List<UUID> ids);
 
-    Mono<DatasetItemPage> getItems(UUID datasetId, int page, int size, boolean truncate);
+    Mono<DatasetItemPage> getItems(UUID datasetId, int page, int size, boolean truncate, UUID lastRetrievedId,
+            CountMode countMode);
 
     Mono<DatasetItemPage> getItems(int page, int size, DatasetItemSearchCriteria datasetItemSearchCriteria);
 
@@ -198,8 +200,10 @@ class DatasetItemServiceImpl implements DatasetItemService {
 
     @Override
     @WithSpan
-    public Mono<DatasetItemPage> getItems(@NonNull UUID datasetId, int page, int size, boolean truncate) {
-        return dao.getItems(datasetId, page, size, truncate);
+    public Mono<DatasetItemPage> getItems(
+            @NonNull UUID datasetId, int page, int size, boolean truncate, UUID lastRetrievedId,
+            CountMode countMode) {
+        return dao.getItems(datasetId, page, size, truncate, lastRetrievedId, countMode);
     }
 
     @Override
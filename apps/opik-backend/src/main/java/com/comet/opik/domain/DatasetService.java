@@ -10,12 +10,14 @@ import com.comet.opik.api.error.EntityAlreadyExistsException;
 import com.comet.opik.api.error.ErrorMessage;
 import com.comet.opik.infrastructure.BatchOperationsConfig;
 import com.comet.opik.infrastructure.auth.RequestContext;
+import com.comet.opik.infrastructure.cache.WorkspaceNameCache;
 import com.comet.opik.utils.AsyncUtils;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.inject.ImplementedBy;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 import jakarta.ws.rs.NotFoundException;
@@ -39,6 +41,7 @@ import java.util.function.Function;
 
 import static com.comet.opik.api.Dataset.DatasetPage;
 import static com.comet.opik.domain.ExperimentItemDAO.ExperimentSummary;
+import static com.comet.opik.infrastructure.cache.CacheModule.DATASET_IDS_BY_NAME;
 import static com.comet.opik.infrastructure.db.TransactionTemplateAsync.READ_ONLY;
 import static com.comet.opik.infrastructure.db.TransactionTemplateAsync.WRITE;
 import static java.util.stream.Collectors.toMap;
@@ -88,6 +91,7 @@ class DatasetServiceImpl implements DatasetService {
     private final @NonNull DatasetItemDAO datasetItemDAO;
     private final @NonNull ExperimentDAO experimentDAO;
     private final @NonNull @Config BatchOperationsConfig batchOperationsConfig;
+    private final @NonNull @Named(DATASET_IDS_BY_NAME) WorkspaceNameCache<UUID> datasetIdCache;
 
     @Override
     public Dataset save(@NonNull Dataset dataset) {
@@ -126,6 +130,10 @@ class DatasetServiceImpl implements DatasetService {
 
     @Override
     public UUID getOrCreate(@NonNull String workspaceId, @NonNull String name, @NonNull String userName) {
+        return datasetIdCache.get(workspaceId, name, () -> findOrCreate(workspaceId, name, userName));
+    }
+
+    private UUID findOrCreate(String workspaceId, String name, String userName) {
         var dataset = template.inTransaction(READ_ONLY,
                 handle -> handle.attach(DatasetDAO.class).findByName(workspaceId, name));
 
@@ -179,6 +187,8 @@ class DatasetServiceImpl implements DatasetService {
 
             return null;
         });
+
+        datasetIdCache.invalidate(workspaceId, id);
     }
 
     @Override
@@ -240,6 +250,8 @@ class DatasetServiceImpl implements DatasetService {
             dao.delete(workspaceId, identifier.datasetName());
             return null;
         });
+
+        datasetIdCache.invalidate(workspaceId, identifier.datasetName());
     }
 
     private NotFoundException newNotFoundException() {
@@ -263,6 +275,8 @@ class DatasetServiceImpl implements DatasetService {
             dao.delete(id, workspaceId);
             return null;
         });
+
+        datasetIdCache.invalidate(workspaceId, id);
     }
 
     @Override
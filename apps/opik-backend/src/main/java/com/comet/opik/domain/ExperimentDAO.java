@@ -1,12 +1,14 @@
 package com.comet.opik.domain;
 
 import com.comet.opik.api.BiInformationResponse;
+import com.comet.opik.api.CountMode;
 import com.comet.opik.api.DatasetCriteria;
 import com.comet.opik.api.DatasetLastExperimentCreated;
 import com.comet.opik.api.Experiment;
 import com.comet.opik.api.ExperimentSearchCriteria;
 import com.comet.opik.api.FeedbackScoreAverage;
-import com.comet.opik.utils.JsonUtils;
+import com.comet.opik.api.Page;
+import com.comet.opik.utils.RawJsonNode;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.base.Preconditions;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
@@ -37,6 +39,7 @@ import java.util.Set;
 import java.util.UUID;
 
 import static com.comet.opik.domain.AsyncContextUtils.bindWorkspaceIdToFlux;
+import static com.comet.opik.utils.AsyncUtils.countAndPage;
 import static com.comet.opik.utils.AsyncUtils.makeFluxContextAware;
 
 @Singleton
@@ -347,7 +350,7 @@ class ExperimentDAO {
             """;
 
     private static final String FIND_COUNT = """
-            SELECT count(id) as count
+            SELECT <if(approximate)> uniqCombined(id) <else> count(id) <endif> as count
             FROM
             (
                 SELECT id
@@ -357,8 +360,10 @@ class ExperimentDAO {
                 <if(name)> AND ilike(name, CONCAT('%', :name, '%')) <endif>
                 <if(dataset_ids)> AND dataset_id IN :dataset_ids <endif>
                 <if(prompt_ids)> AND prompt_id IN :prompt_ids <endif>
+                <if(!approximate)>
                 ORDER BY id DESC, last_updated_at DESC
                 LIMIT 1 BY id
+                <endif>
             ) as latest_rows
             ;
             """;
@@ -437,9 +442,9 @@ class ExperimentDAO {
 
     @WithSpan
     Mono<Void> insert(@NonNull Experiment experiment) {
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> insert(experiment, connection))
-                .then();
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(insert(experiment, connection)).flatMap(Result::getRowsUpdated).then(),
+                Connection::close);
     }
 
     private Publisher<? extends Result> insert(Experiment experiment, Connection connection) {
@@ -473,9 +478,9 @@ class ExperimentDAO {
 
     @WithSpan
     Mono<Experiment> getById(@NonNull UUID id) {
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> getById(id, connection))
-                .flatMap(this::mapToDto)
+        return Flux.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(getById(id, connection)).flatMap(this::mapToDto),
+                Connection::close)
                 .singleOrEmpty();
     }
 
@@ -509,7 +514,7 @@ class ExperimentDAO {
     private JsonNode getOrDefault(String field) {
         return Optional.ofNullable(field)
                 .filter(s -> !s.isBlank())
-                .map(JsonUtils::getJsonNodeFromString)
+                .map(RawJsonNode::new)
                 .orElse(null);
     }
 
@@ -528,16 +533,17 @@ class ExperimentDAO {
     @WithSpan
     Mono<Experiment.ExperimentPage> find(
             int page, int size, @NonNull ExperimentSearchCriteria experimentSearchCriteria) {
-        return countTotal(experimentSearchCriteria).flatMap(total -> find(page, size, experimentSearchCriteria, total));
+        return countAndPage(countTotal(experimentSearchCriteria), findExperiments(page, size, experimentSearchCriteria),
+                (total, experiments) -> new Experiment.ExperimentPage(page, experiments.size(), total, experiments));
     }
 
-    private Mono<Experiment.ExperimentPage> find(
-            int page, int size, ExperimentSearchCriteria experimentSearchCriteria, Long total) {
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> find(page, size, experimentSearchCriteria, connection))
-                .flatMap(this::mapToDto)
-                .collectList()
-                .map(experiments -> new Experiment.ExperimentPage(page, experiments.size(), total, experiments));
+    private Mono<List<Experiment>> findExperiments(
+            int page, int size, ExperimentSearchCriteria experimentSearchCriteria) {
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(find(page, size, experimentSearchCriteria, connection))
+                        .flatMap(this::mapToDto)
+                        .collectList(),
+                Connection::close);
     }
 
     private Publisher<? extends Result> find(
@@ -552,16 +558,24 @@ class ExperimentDAO {
     }
 
     private Mono<Long> countTotal(ExperimentSearchCriteria experimentSearchCriteria) {
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> countTotal(experimentSearchCriteria, connection))
-                .flatMap(result -> result.map((row, rowMetadata) -> row.get("count", Long.class)))
-                .reduce(0L, Long::sum);
+        if (experimentSearchCriteria.countMode() == CountMode.NONE) {
+            return Mono.just(Page.UNKNOWN_TOTAL);
+        }
+
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(countTotal(experimentSearchCriteria, connection))
+                        .flatMap(result -> result.map((row, rowMetadata) -> row.get("count", Long.class)))
+                        .reduce(0L, Long::sum),
+                Connection::close);
     }
 
     private Publisher<? extends Result> countTotal(
             ExperimentSearchCriteria experimentSearchCriteria, Connection connection) {
         log.info("Counting experiments by '{}'", experimentSearchCriteria);
         var template = newFindTemplate(FIND_COUNT, experimentSearchCriteria);
+        if (experimentSearchCriteria.countMode() == CountMode.APPROXIMATE) {
+            template.add("approximate", true);
+        }
         var statement = connection.createStatement(template.render());
         bindSearchCriteria(statement, experimentSearchCriteria, true);
         return makeFluxContextAware(bindWorkspaceIdToFlux(statement));
@@ -597,9 +611,9 @@ class ExperimentDAO {
     @WithSpan
     Flux<Experiment> findByName(String name) {
         Preconditions.checkArgument(StringUtils.isNotBlank(name), "Argument 'name' must not be blank");
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> findByName(name, connection))
-                .flatMap(this::mapToDto);
+        return Flux.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(findByName(name, connection)).flatMap(this::mapToDto),
+                Connection::close);
     }
 
     private Publisher<? extends Result> findByName(String name, Connection connection) {
@@ -613,15 +627,14 @@ class ExperimentDAO {
         if (experimentIds.isEmpty()) {
             return Flux.empty();
         }
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> {
-                    var statement = connection.createStatement(FIND_EXPERIMENT_AND_WORKSPACE_BY_EXPERIMENT_IDS);
-                    statement.bind("experiment_ids", experimentIds.toArray(UUID[]::new));
-                    return statement.execute();
-                })
-                .flatMap(result -> result.map((row, rowMetadata) -> new WorkspaceAndResourceId(
-                        row.get("workspace_id", String.class),
-                        row.get("id", UUID.class))));
+        return Flux.usingWhen(connectionFactory.create(), connection -> {
+            var statement = connection.createStatement(FIND_EXPERIMENT_AND_WORKSPACE_BY_EXPERIMENT_IDS);
+            statement.bind("experiment_ids", experimentIds.toArray(UUID[]::new));
+            return Flux.from(statement.execute())
+                    .flatMap(result -> result.map((row, rowMetadata) -> new WorkspaceAndResourceId(
+                            row.get("workspace_id", String.class),
+                            row.get("id", UUID.class))));
+        }, Connection::close);
     }
 
     @WithSpan
@@ -631,10 +644,11 @@ class ExperimentDAO {
 
         log.info("Deleting experiments by ids [{}]", Arrays.toString(ids.toArray()));
 
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> delete(ids, connection))
-                .flatMap(Result::getRowsUpdated)
-                .reduce(Long::sum)
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> delete(ids, connection)
+                        .flatMap(Result::getRowsUpdated)
+                        .reduce(Long::sum),
+                Connection::close)
                 .doFinally(signalType -> {
                     if (signalType == SignalType.ON_COMPLETE) {
                         log.info("Deleted experiments by ids [{}]", Arrays.toString(ids.toArray()));
@@ -644,12 +658,14 @@ class ExperimentDAO {
 
     @WithSpan
     Flux<BiInformationResponse.BiInformation> getExperimentBIInformation() {
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(this::getBiDailyData)
-                .flatMap(result -> result.map((row, rowMetadata) -> BiInformationResponse.BiInformation.builder()
-                        .workspaceId(row.get("workspace_id", String.class))
-                        .user(row.get("user", String.class))
-                        .count(row.get("experiment_count", Long.class)).build()));
+        return Flux.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(getBiDailyData(connection))
+                        .flatMap(result -> result.map((row, rowMetadata) -> BiInformationResponse.BiInformation
+                                .builder()
+                                .workspaceId(row.get("workspace_id", String.class))
+                                .user(row.get("user", String.class))
+                                .count(row.get("experiment_count", Long.class)).build())),
+                Connection::close);
     }
 
     private Publisher<? extends Result> getBiDailyData(Connection connection) {
@@ -669,49 +685,46 @@ class ExperimentDAO {
     public Flux<DatasetLastExperimentCreated> getMostRecentCreatedExperimentFromDatasets(Set<UUID> datasetIds) {
         Preconditions.checkArgument(CollectionUtils.isNotEmpty(datasetIds), "Argument 'datasetIds' must not be empty");
 
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> {
-                    var statement = connection.createStatement(FIND_MOST_RECENT_CREATED_EXPERIMENT_BY_EXPERIMENT_IDS);
-                    statement.bind("dataset_ids", datasetIds.toArray(UUID[]::new));
-                    return makeFluxContextAware(bindWorkspaceIdToFlux(statement));
-                })
-                .flatMap(result -> result.map((row, rowMetadata) -> new DatasetLastExperimentCreated(
-                        row.get("dataset_id", UUID.class),
-                        row.get("created_at", Instant.class))));
+        return Flux.usingWhen(connectionFactory.create(), connection -> {
+            var statement = connection.createStatement(FIND_MOST_RECENT_CREATED_EXPERIMENT_BY_EXPERIMENT_IDS);
+            statement.bind("dataset_ids", datasetIds.toArray(UUID[]::new));
+            return makeFluxContextAware(bindWorkspaceIdToFlux(statement))
+                    .flatMap(result -> result.map((row, rowMetadata) -> new DatasetLastExperimentCreated(
+                            row.get("dataset_id", UUID.class),
+                            row.get("created_at", Instant.class))));
+        }, Connection::close);
     }
 
     @WithSpan
     public Mono<List<ExperimentDatasetId>> getExperimentsDatasetIds(Set<UUID> ids) {
         Preconditions.checkArgument(CollectionUtils.isNotEmpty(ids), "Argument 'ids' must not be empty");
 
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> {
-                    ST template = new ST(FIND_EXPERIMENT_DATASET_ID_EXPERIMENT_IDS);
-                    template.add("experiment_ids", ids);
-                    var statement = connection.createStatement(template.render());
-                    statement.bind("experiment_ids", ids.toArray(UUID[]::new));
-                    return makeFluxContextAware(bindWorkspaceIdToFlux(statement));
-                })
-                .flatMap(this::mapDatasetId)
-                .collectList();
+        return Mono.usingWhen(connectionFactory.create(), connection -> {
+            ST template = new ST(FIND_EXPERIMENT_DATASET_ID_EXPERIMENT_IDS);
+            template.add("experiment_ids", ids);
+            var statement = connection.createStatement(template.render());
+            statement.bind("experiment_ids", ids.toArray(UUID[]::new));
+            return makeFluxContextAware(bindWorkspaceIdToFlux(statement))
+                    .flatMap(this::mapDatasetId)
+                    .collectList();
+        }, Connection::close);
     }
 
     @WithSpan
     public Mono<List<ExperimentDatasetId>> findAllDatasetIds(@NonNull DatasetCriteria criteria) {
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> {
-                    ST template = new ST(FIND_EXPERIMENT_DATASET_ID_EXPERIMENT_IDS);
+        return Mono.usingWhen(connectionFactory.create(), connection -> {
+            ST template = new ST(FIND_EXPERIMENT_DATASET_ID_EXPERIMENT_IDS);
 
-                    bindFindAllDatasetIdsTemplateParams(criteria, template);
+            bindFindAllDatasetIdsTemplateParams(criteria, template);
 
-                    var statement = connection.createStatement(template.render());
+            var statement = connection.createStatement(template.render());
 
-                    bindFindAllDatasetIdsParams(criteria, statement);
+            bindFindAllDatasetIdsParams(criteria, statement);
 
-                    return makeFluxContextAware(bindWorkspaceIdToFlux(statement));
-                })
-                .flatMap(this::mapDatasetId)
-                .collectList();
+            return makeFluxContextAware(bindWorkspaceIdToFlux(statement))
+                    .flatMap(this::mapDatasetId)
+                    .collectList();
+        }, Connection::close);
     }
 
     private void bindFindAllDatasetIdsTemplateParams(DatasetCriteria criteria, ST template) {
@@ -136,18 +136,17 @@ class ExperimentItemDAO {
             return Flux.empty();
         }
 
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> {
-                    Statement statement = connection.createStatement(FIND_EXPERIMENT_SUMMARY_BY_DATASET_IDS);
-
-                    statement.bind("dataset_ids", datasetIds.stream().map(UUID::toString).toArray(String[]::new));
-
-                    return makeFluxContextAware(bindWorkspaceIdToFlux(statement));
-                })
-                .flatMap(result -> result.map((row, rowMetadata) -> new ExperimentSummary(
-                        row.get("dataset_id", UUID.class),
-                        row.get("experiment_count", Long.class),
-                        row.get("most_recent_experiment_at", Instant.class))));
+        return Flux.usingWhen(connectionFactory.create(), connection -> {
+            Statement statement = connection.createStatement(FIND_EXPERIMENT_SUMMARY_BY_DATASET_IDS);
+
+            statement.bind("dataset_ids", datasetIds.stream().map(UUID::toString).toArray(String[]::new));
+
+            return makeFluxContextAware(bindWorkspaceIdToFlux(statement))
+                    .flatMap(result -> result.map((row, rowMetadata) -> new ExperimentSummary(
+                            row.get("dataset_id", UUID.class),
+                            row.get("experiment_count", Long.class),
+                            row.get("most_recent_experiment_at", Instant.class))));
+        }, Connection::close);
     }
 
     @WithSpan
@@ -161,8 +160,9 @@ class ExperimentItemDAO {
             return Mono.just(0L);
         }
 
-        return Mono.from(connectionFactory.create())
-                .flatMap(connection -> insert(experimentItems, connection));
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> insert(experimentItems, connection),
+                Connection::close);
     }
 
     private Mono<Long> insert(Collection<ExperimentItem> experimentItems, Connection connection) {
@@ -212,9 +212,9 @@ class ExperimentItemDAO {
 
     @WithSpan
     public Mono<ExperimentItem> get(@NonNull UUID id) {
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> get(id, connection))
-                .flatMap(this::mapToExperimentItem)
+        return Flux.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(get(id, connection)).flatMap(this::mapToExperimentItem),
+                Connection::close)
                 .singleOrEmpty();
     }
 
@@ -233,9 +233,10 @@ class ExperimentItemDAO {
                     limit, lastRetrievedId);
             return Flux.empty();
         }
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> getItems(experimentIds, limit, lastRetrievedId, connection))
-                .flatMap(this::mapToExperimentItem);
+        return Flux.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(getItems(experimentIds, limit, lastRetrievedId, connection))
+                        .flatMap(this::mapToExperimentItem),
+                Connection::close);
     }
 
     private Publisher<? extends Result> getItems(
@@ -260,10 +261,11 @@ class ExperimentItemDAO {
         Preconditions.checkArgument(CollectionUtils.isNotEmpty(ids),
                 "Argument 'ids' must not be empty");
 
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> delete(ids, connection))
-                .flatMap(Result::getRowsUpdated)
-                .reduce(0L, Long::sum);
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(delete(ids, connection))
+                        .flatMap(Result::getRowsUpdated)
+                        .reduce(0L, Long::sum),
+                Connection::close);
     }
 
     private Publisher<? extends Result> delete(Set<UUID> ids, Connection connection) {
@@ -283,10 +285,11 @@ class ExperimentItemDAO {
 
         log.info("Deleting experiment items by experiment ids [{}]", Arrays.toString(experimentIds.toArray()));
 
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> deleteByExperimentIds(experimentIds, connection))
-                .flatMap(Result::getRowsUpdated)
-                .reduce(0L, Long::sum)
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> deleteByExperimentIds(experimentIds, connection)
+                        .flatMap(Result::getRowsUpdated)
+                        .reduce(0L, Long::sum),
+                Connection::close)
                 .doFinally(signalType -> {
                     if (signalType == SignalType.ON_COMPLETE) {
                         log.info("Deleted experiment items by experiment ids [{}]",
@@ -27,14 +27,15 @@ import reactor.core.publisher.Mono;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import static com.comet.opik.domain.AsyncContextUtils.bindUserNameAndWorkspaceContextToStream;
 import static com.comet.opik.domain.AsyncContextUtils.bindWorkspaceIdToFlux;
 import static com.comet.opik.domain.AsyncContextUtils.bindWorkspaceIdToMono;
 import static com.comet.opik.utils.AsyncUtils.makeFluxContextAware;
@@ -54,6 +55,9 @@ public interface FeedbackScoreDAO {
         private final String tableName;
     }
 
+    record EntityScore(@NonNull EntityType entityType, @NonNull FeedbackScoreBatchItem score) {
+    }
+
     Mono<Map<UUID, List<FeedbackScore>>> getScores(EntityType entityType, List<UUID> entityIds);
 
     Mono<Long> scoreEntity(EntityType entityType, UUID entityId, FeedbackScore score,
@@ -67,6 +71,8 @@ public interface FeedbackScoreDAO {
 
     Mono<Long> scoreBatchOf(EntityType entityType, List<FeedbackScoreBatchItem> scores);
 
+    Mono<Long> scoreBatchOfRows(List<IngestionRow<EntityScore>> rows);
+
     Mono<List<String>> getTraceFeedbackScoreNames(UUID projectId);
 
     Mono<List<String>> getSpanFeedbackScoreNames(@NonNull UUID projectId, SpanType type);
@@ -82,6 +88,10 @@ class FeedbackScoreDAOImpl implements FeedbackScoreDAO {
     record FeedbackScoreDto(UUID entityId, FeedbackScore score) {
     }
 
+    /**
+     * Every score carries the creation time of the score it replaces, for the hourly rollup of the trace scores to mark
+     * it as deleted when it falls in another hour, see feedback_score_metrics_mv.
+     **/
     private static final String BULK_INSERT_FEEDBACK_SCORE = """
             INSERT INTO feedback_scores(
                 entity_type,
@@ -94,27 +104,58 @@ class FeedbackScoreDAOImpl implements FeedbackScoreDAO {
                 reason,
                 source,
                 created_by,
-                last_updated_by
+                last_updated_by,
+                previous_created_at
             )
-            VALUES
+            SELECT
+                new_score.entity_type,
+                new_score.entity_id,
+                new_score.project_id,
+                new_score.workspace_id,
+                new_score.name,
+                new_score.category_name,
+                new_score.value,
+                new_score.reason,
+                new_score.source,
+                new_score.created_by,
+                new_score.last_updated_by,
+                if(LENGTH(old_score.workspace_id) > 0, old_score.created_at, NULL) as previous_created_at
+            FROM (
                 <items:{item |
-                    (
-                         :entity_type<item.index>,
-                         :entity_id<item.index>,
-                         :project_id<item.index>,
-                         :workspace_id,
-                         :name<item.index>,
-                         :category_name<item.index>,
-                         :value<item.index>,
-                         :reason<item.index>,
-                         :source<item.index>,
-                         :user_name,
-                         :user_name
-                     )
-                     <if(item.hasNext)>
-                        ,
-                     <endif>
+                    SELECT
+                        :entity_type<item.index> as entity_type,
+                        :entity_id<item.index> as entity_id,
+                        :project_id<item.index> as project_id,
+                        :workspace_id<item.index> as workspace_id,
+                        :name<item.index> as name,
+                        :category_name<item.index> as category_name,
+                        toDecimal64(:value<item.index>, 9) as value,
+                        :reason<item.index> as reason,
+                        :source<item.index> as source,
+                        :user_name<item.index> as created_by,
+                        :user_name<item.index> as last_updated_by
+                    <if(item.hasNext)>
+                        UNION ALL
+                    <endif>
                 }>
+            ) as new_score
+            LEFT JOIN (
+                SELECT
+                    workspace_id,
+                    toString(entity_type) as entity_type_name,
+                    entity_id,
+                    name,
+                    created_at
+                FROM feedback_scores
+                WHERE workspace_id IN (<items:{item | :workspace_id<item.index><if(item.hasNext)>, <endif>}>)
+                AND entity_id IN (<items:{item | :entity_id<item.index><if(item.hasNext)>, <endif>}>)
+                ORDER BY entity_id DESC, last_updated_at DESC
+                LIMIT 1 BY workspace_id, entity_type, entity_id, name
+            ) as old_score
+            ON new_score.workspace_id = old_score.workspace_id
+            AND new_score.entity_type = old_score.entity_type_name
+            AND new_score.entity_id = old_score.entity_id
+            AND new_score.name = old_score.name
             ;
             """;
 
@@ -139,6 +180,35 @@ class FeedbackScoreDAOImpl implements FeedbackScoreDAO {
             ;
             """;
 
+    /**
+     * Marks the latest trace scores as deleted in the hourly rollup, before they are deleted. Only the scores of the
+     * given name are marked when it's set.
+     **/
+    private static final String DELETE_TRACE_FEEDBACK_SCORE_METRICS = """
+            INSERT INTO feedback_score_metrics
+            SELECT
+                workspace_id,
+                toUUID(toString(project_id)) AS project_id,
+                toDateTime64(toStartOfHour(created_at), 9, 'UTC') AS hour,
+                name,
+                entity_id,
+                value,
+                now64(9) AS last_updated_at,
+                1 AS is_deleted
+            FROM (
+                SELECT
+                    *
+                FROM feedback_scores
+                WHERE entity_type = 'trace'
+                AND entity_id IN :entity_ids
+                <if(name)>AND name = :name<endif>
+                AND workspace_id = :workspace_id
+                ORDER BY entity_id DESC, last_updated_at DESC
+                LIMIT 1 BY entity_id, name
+            )
+            ;
+            """;
+
     private static final String DELETE_SPANS_CASCADE_FEEDBACK_SCORE = """
             DELETE FROM feedback_scores
             WHERE entity_type = 'span'
@@ -321,34 +391,58 @@ class FeedbackScoreDAOImpl implements FeedbackScoreDAO {
 
         Preconditions.checkArgument(CollectionUtils.isNotEmpty(scores), "Argument 'scores' must not be empty");
 
+        return makeMonoContextAware((userName, workspaceId) -> scoreBatchOfRows(scores.stream()
+                .map(score -> new IngestionRow<>(workspaceId, userName, new EntityScore(entityType, score)))
+                .toList()));
+    }
+
+    @Override
+    @WithSpan
+    public Mono<Long> scoreBatchOfRows(@NonNull List<IngestionRow<EntityScore>> rows) {
+
+        Preconditions.checkArgument(CollectionUtils.isNotEmpty(rows), "Argument 'scores' must not be empty");
+
+        // the rows of a score repeated in the batch get the same last_updated_at, only its last value is kept
+        var latestRows = List.copyOf(rows.stream()
+                .collect(Collectors.toMap(
+                        row -> List.of(row.workspaceId(), row.value().entityType(), row.value().score().id(),
+                                row.value().score().name()),
+                        Function.identity(),
+                        (previous, latest) -> latest,
+                        LinkedHashMap::new))
+                .values());
+
         return asyncTemplate.nonTransaction(connection -> {
 
-            ST template = getBatchSql(BULK_INSERT_FEEDBACK_SCORE, scores.size());
+            ST template = getBatchSql(BULK_INSERT_FEEDBACK_SCORE, latestRows.size());
 
             var statement = connection.createStatement(template.render());
 
-            bindParameters(entityType, scores, statement);
+            bindParameters(latestRows, statement);
 
-            return makeFluxContextAware(bindUserNameAndWorkspaceContextToStream(statement))
+            return Flux.from(statement.execute())
                     .flatMap(Result::getRowsUpdated)
                     .reduce(Long::sum);
         });
 
     }
 
-    private void bindParameters(EntityType entityType, List<FeedbackScoreBatchItem> scores, Statement statement) {
-        for (var i = 0; i < scores.size(); i++) {
+    private void bindParameters(List<IngestionRow<EntityScore>> rows, Statement statement) {
+        for (var i = 0; i < rows.size(); i++) {
 
-            var feedbackScoreBatchItem = scores.get(i);
+            var row = rows.get(i);
+            var feedbackScoreBatchItem = row.value().score();
 
-            statement.bind("entity_type" + i, entityType.getType())
+            statement.bind("entity_type" + i, row.value().entityType().getType())
                     .bind("entity_id" + i, feedbackScoreBatchItem.id())
                     .bind("project_id" + i, feedbackScoreBatchItem.projectId())
+                    .bind("workspace_id" + i, row.workspaceId())
                     .bind("name" + i, feedbackScoreBatchItem.name())
                     .bind("value" + i, feedbackScoreBatchItem.value().toString())
                     .bind("source" + i, feedbackScoreBatchItem.source().getValue())
                     .bind("reason" + i, getValueOrDefault(feedbackScoreBatchItem.reason()))
-                    .bind("category_name" + i, getValueOrDefault(feedbackScoreBatchItem.categoryName()));
+                    .bind("category_name" + i, getValueOrDefault(feedbackScoreBatchItem.categoryName()))
+                    .bind("user_name" + i, row.userName());
         }
     }
 
@@ -364,7 +458,10 @@ class FeedbackScoreDAOImpl implements FeedbackScoreDAO {
                     .bind("entity_type", entityType.getType())
                     .bind("name", name);
 
-            return makeMonoContextAware(bindWorkspaceIdToMono(statement))
+            return (entityType == EntityType.TRACE
+                    ? deleteTraceScoreMetrics(Set.of(id), name, connection)
+                    : Mono.<Void>empty())
+                    .then(Mono.defer(() -> makeMonoContextAware(bindWorkspaceIdToMono(statement))))
                     .flatMap(result -> Mono.from(result.getRowsUpdated()))
                     .then();
         });
@@ -497,7 +594,22 @@ class FeedbackScoreDAOImpl implements FeedbackScoreDAO {
         var statement = connection.createStatement(DELETE_FEEDBACK_SCORE_BY_ENTITY_IDS)
                 .bind("entity_ids", entityIds.toArray(UUID[]::new))
                 .bind("entity_type", entityType.getType());
-        return makeMonoContextAware(bindWorkspaceIdToMono(statement))
+        return (entityType == EntityType.TRACE
+                ? deleteTraceScoreMetrics(entityIds, null, connection)
+                : Mono.<Void>empty())
+                .then(Mono.defer(() -> makeMonoContextAware(bindWorkspaceIdToMono(statement))))
                 .flatMap(result -> Mono.from(result.getRowsUpdated()));
     }
+
+    // feedback_score_metrics only holds the trace scores, see ProjectMetricsDAO
+    private Mono<Void> deleteTraceScoreMetrics(Set<UUID> traceIds, String name, Connection connection) {
+        var template = new ST(DELETE_TRACE_FEEDBACK_SCORE_METRICS);
+        Optional.ofNullable(name).ifPresent(scoreName -> template.add("name", scoreName));
+        var statement = connection.createStatement(template.render())
+                .bind("entity_ids", traceIds.toArray(UUID[]::new));
+        Optional.ofNullable(name).ifPresent(scoreName -> statement.bind("name", scoreName));
+        return makeMonoContextAware(bindWorkspaceIdToMono(statement))
+                .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                .then();
+    }
 }
@@ -4,7 +4,9 @@ import com.comet.opik.api.FeedbackScore;
 import com.comet.opik.api.FeedbackScoreBatchItem;
 import com.comet.opik.api.FeedbackScoreNames;
 import com.comet.opik.api.Project;
+import com.comet.opik.api.error.EntityAlreadyExistsException;
 import com.comet.opik.api.error.ErrorMessage;
+import com.comet.opik.domain.stats.ProjectStatsCache;
 import com.comet.opik.infrastructure.auth.RequestContext;
 import com.comet.opik.utils.WorkspaceUtils;
 import com.google.inject.ImplementedBy;
@@ -15,24 +17,17 @@ import jakarta.ws.rs.core.Response;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.jdbi.v3.core.statement.UnableToExecuteStatementException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
-import ru.vyarus.guicey.jdbi3.tx.TransactionTemplate;
 
-import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.function.Function;
 
 import static com.comet.opik.domain.FeedbackScoreDAO.EntityType;
-import static com.comet.opik.infrastructure.db.TransactionTemplateAsync.READ_ONLY;
-import static com.comet.opik.infrastructure.db.TransactionTemplateAsync.WRITE;
 import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toMap;
 
 @ImplementedBy(FeedbackScoreServiceImpl.class)
 public interface FeedbackScoreService {
@@ -59,10 +54,11 @@ public interface FeedbackScoreService {
 class FeedbackScoreServiceImpl implements FeedbackScoreService {
 
     private final @NonNull FeedbackScoreDAO dao;
-    private final @NonNull TransactionTemplate syncTemplate;
     private final @NonNull SpanDAO spanDAO;
     private final @NonNull TraceDAO traceDAO;
-    private final @NonNull IdGenerator idGenerator;
+    private final @NonNull IngestionBuffer ingestionBuffer;
+    private final @NonNull ProjectService projectService;
+    private final @NonNull ProjectStatsCache statsCache;
 
     record ProjectDto(Project project, List<FeedbackScoreBatchItem> scores) {
     }
@@ -78,7 +74,7 @@ class FeedbackScoreServiceImpl implements FeedbackScoreService {
 
                     return dao.scoreEntity(EntityType.TRACE, traceId, score, traceProjectIdMap)
                             .flatMap(this::extractResult)
-                            .then();
+                            .then(Mono.defer(() -> statsCache.invalidate(traceProjectIdMap.get(traceId))));
                 });
     }
 
@@ -94,7 +90,7 @@ class FeedbackScoreServiceImpl implements FeedbackScoreService {
 
                     return dao.scoreEntity(EntityType.SPAN, spanId, score, spanProjectIdMap)
                             .flatMap(this::extractResult)
-                            .then();
+                            .then(Mono.defer(() -> statsCache.invalidate(spanProjectIdMap.get(spanId))));
                 });
     }
 
@@ -127,35 +123,37 @@ class FeedbackScoreServiceImpl implements FeedbackScoreService {
                 .collect(groupingBy(FeedbackScoreBatchItem::projectName));
 
         return handleProjectRetrieval(scoresPerProject)
-                .map(this::groupByName)
                 .map(projectMap -> mergeProjectsAndScores(projectMap, scoresPerProject))
-                .flatMap(projects -> processScoreBatch(entityType, projects, scores.size())) // score all scores
-                .then();
+                .flatMap(projects -> processScoreBatch(entityType, projects, scores.size()) // score all scores
+                        .then(Mono.defer(() -> statsCache.invalidate(projects.stream()
+                                .map(projectDto -> projectDto.project().id())
+                                .toList()))));
     }
 
-    private Mono<List<Project>> handleProjectRetrieval(Map<String, List<FeedbackScoreBatchItem>> scoresPerProject) {
+    private Mono<Map<String, Project>> handleProjectRetrieval(
+            Map<String, List<FeedbackScoreBatchItem>> scoresPerProject) {
         return Mono.deferContextual(ctx -> {
             String workspaceId = ctx.get(RequestContext.WORKSPACE_ID);
             String userName = ctx.get(RequestContext.USER_NAME);
 
-            return checkIfNeededToCreateProjectsWithContext(workspaceId, userName, scoresPerProject) // create projects if needed
-                    .then(Mono.fromCallable(() -> getAllProjectsByName(workspaceId, scoresPerProject))
-                            .subscribeOn(Schedulers.boundedElastic())); // get all project itemIds
+            return Flux.fromIterable(scoresPerProject.keySet())
+                    .flatMap(projectName -> getOrCreateProject(workspaceId, projectName, userName)
+                            .map(project -> Map.entry(projectName, project)))
+                    .collectMap(Map.Entry::getKey, Map.Entry::getValue); // create projects if needed
         });
     }
 
-    private Mono<Void> checkIfNeededToCreateProjectsWithContext(String workspaceId,
-            String userName,
-            Map<String, List<FeedbackScoreBatchItem>> scoresPerProject) {
-
-        return Mono.fromRunnable(() -> checkIfNeededToCreateProjects(scoresPerProject, userName, workspaceId))
-                .publishOn(Schedulers.boundedElastic())
-                .then();
+    private Mono<Project> getOrCreateProject(String workspaceId, String projectName, String userName) {
+        return Mono.fromCallable(() -> projectService.getOrCreate(workspaceId, projectName, userName))
+                .onErrorResume(EntityAlreadyExistsException.class, __ -> Mono.fromCallable(
+                        () -> projectService.findByNames(workspaceId, List.of(projectName)).stream().findFirst()
+                                .orElseThrow()))
+                .subscribeOn(Schedulers.boundedElastic());
     }
 
     private Mono<Long> processScoreBatch(EntityType entityType, List<ProjectDto> projects, int actualBatchSize) {
         return Flux.fromIterable(projects)
-                .flatMap(projectDto -> dao.scoreBatchOf(entityType, projectDto.scores()))
+                .flatMap(projectDto -> ingestionBuffer.enqueueFeedbackScores(entityType, projectDto.scores()))
                 .reduce(0L, Long::sum)
                 .flatMap(rowsUpdated -> rowsUpdated == actualBatchSize ? Mono.just(rowsUpdated) : Mono.empty())
                 .switchIfEmpty(Mono.defer(() -> failWithNotFound("Error while processing scores batch")));
@@ -174,65 +172,16 @@ class FeedbackScoreServiceImpl implements FeedbackScoreService {
                 .toList();
     }
 
-    private Map<String, Project> groupByName(List<Project> projects) {
-        return projects.stream().collect(toMap(Project::name, Function.identity()));
-    }
-
-    private List<Project> getAllProjectsByName(String workspaceId,
-            Map<String, List<FeedbackScoreBatchItem>> scoresPerProject) {
-        return syncTemplate.inTransaction(READ_ONLY, handle -> {
-
-            var projectDAO = handle.attach(ProjectDAO.class);
-
-            return projectDAO.findByNames(workspaceId, scoresPerProject.keySet());
-        });
-    }
-
-    private void checkIfNeededToCreateProjects(Map<String, List<FeedbackScoreBatchItem>> scoresPerProject,
-            String userName, String workspaceId) {
-
-        Map<String, Project> projectsPerName = groupByName(getAllProjectsByName(workspaceId, scoresPerProject));
-
-        syncTemplate.inTransaction(WRITE, handle -> {
-
-            var projectDAO = handle.attach(ProjectDAO.class);
-
-            scoresPerProject
-                    .keySet()
-                    .stream()
-                    .filter(projectName -> !projectsPerName.containsKey(projectName))
-                    .forEach(projectName -> {
-                        UUID projectId = idGenerator.generateId();
-                        var newProject = Project.builder()
-                                .name(projectName)
-                                .id(projectId)
-                                .createdBy(userName)
-                                .lastUpdatedBy(userName)
-                                .build();
-
-                        try {
-                            projectDAO.save(workspaceId, newProject);
-                        } catch (UnableToExecuteStatementException e) {
-                            if (e.getCause() instanceof SQLIntegrityConstraintViolationException) {
-                                log.warn("Project {} already exists", projectName);
-                            } else {
-                                throw e;
-                            }
-                        }
-                    });
-
-            return null;
-        });
-    }
-
     @Override
     public Mono<Void> deleteSpanScore(UUID id, String name) {
-        return dao.deleteScoreFrom(EntityType.SPAN, id, name);
+        return dao.deleteScoreFrom(EntityType.SPAN, id, name)
+                .then(Mono.defer(statsCache::invalidateWorkspace));
     }
 
     @Override
     public Mono<Void> deleteTraceScore(UUID id, String name) {
-        return dao.deleteScoreFrom(EntityType.TRACE, id, name);
+        return dao.deleteScoreFrom(EntityType.TRACE, id, name)
+                .then(Mono.defer(statsCache::invalidateWorkspace));
     }
 
     @Override
@@ -2,6 +2,11 @@ package com.comet.opik.domain;
 
 import org.stringtemplate.v4.ST;
 
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 public class ImageUtils {
     public static final String PREFIX_JPEG = "/9j/";
     public static final String PREFIX_PNG = "iVBORw0KGgo";
@@ -32,6 +37,36 @@ public class ImageUtils {
                     // capture the rest of the image characters
                     + IMAGE_CHARS + "\"";
 
+    private static final Map<String, String> TYPES_BY_PREFIX = Map.of(
+            PREFIX_JPEG, "jpeg",
+            PREFIX_PNG, "png",
+            PREFIX_GIF0, "gif",
+            PREFIX_GIF1, "gif",
+            PREFIX_BMP, "bmp",
+            PREFIX_TIFF0, "tiff",
+            PREFIX_TIFF1, "tiff",
+            PREFIX_WEBP, "webp");
+
+    // the same images as the truncation regex, matched on a whole JSON string value instead of inside a document
+    private static final Pattern IMAGE_PATTERN = Pattern.compile(
+            "(?:data:image/[^;]{3,4};base64,)?"
+                    + "(?<data>(?<prefix>" + String.join("|", TYPES_BY_PREFIX.keySet()) + ")"
+                    + "={0,2}[A-Za-z0-9+/]++={0,2})");
+
+    public record Base64Image(String type, String data) {
+    }
+
+    /**
+     * @return the image of a base64 string, optionally a data URL, or empty if the value isn't an image.
+     */
+    public static Optional<Base64Image> parseBase64Image(String value) {
+        Matcher matcher = IMAGE_PATTERN.matcher(value);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        return Optional.of(new Base64Image(TYPES_BY_PREFIX.get(matcher.group("prefix")), matcher.group("data")));
+    }
+
     public static ST addTruncateToTemplate(ST template, boolean truncate) {
         return template.add("truncate", truncate ? ImageUtils.IMAGE_TRUNCATION_REGEX : null);
     }
@@ -0,0 +1,293 @@
+package com.comet.opik.domain;
+
+import com.comet.opik.api.FeedbackScoreBatchItem;
+import com.comet.opik.api.Span;
+import com.comet.opik.api.Trace;
+import com.comet.opik.infrastructure.IngestionBufferConfig;
+import com.comet.opik.infrastructure.db.TransactionTemplateAsync;
+import com.google.inject.ImplementedBy;
+import io.dropwizard.lifecycle.Managed;
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.ws.rs.ClientErrorException;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.core5.http.HttpStatus;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import ru.vyarus.dropwizard.guice.module.yaml.bind.Config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.comet.opik.domain.FeedbackScoreDAO.EntityScore;
+import static com.comet.opik.domain.FeedbackScoreDAO.EntityType;
+import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.TRACER_NAME;
+import static com.comet.opik.utils.AsyncUtils.makeMonoContextAware;
+
+/**
+ * Write-behind buffer for the batch ingestion endpoints. Rows accepted by the batch endpoints are queued per table,
+ * coalesced across requests and workspaces, and flushed as a single bulk INSERT once the queue reaches
+ * {@link IngestionBufferConfig#getMaxBatchSize()} rows or every {@link IngestionBufferConfig#getFlushIntervalMs()}.
+ * <br>
+ * Unless {@link IngestionBufferConfig#isAcknowledgeOnEnqueue()} is set, the returned publishers complete only once the
+ * rows have been flushed, so callers observe the same errors as with a direct insert.
+ * */
+@ImplementedBy(IngestionBufferImpl.class)
+public interface IngestionBuffer {
+
+    Mono<Long> enqueueSpans(List<Span> spans);
+
+    Mono<Long> enqueueTraces(List<Trace> traces);
+
+    Mono<Long> enqueueFeedbackScores(EntityType entityType, List<FeedbackScoreBatchItem> scores);
+}
+
+@Singleton
+@Slf4j
+class IngestionBufferImpl implements IngestionBuffer, Managed {
+
+    private static final AttributeKey<String> TABLE = AttributeKey.stringKey("table");
+
+    private final IngestionBufferConfig config;
+    private final Lane<Span> spans;
+    private final Lane<Trace> traces;
+    private final Lane<EntityScore> feedbackScores;
+    private final Scheduler scheduler = Schedulers.newSingle("ingestion-buffer", true);
+
+    @Inject
+    IngestionBufferImpl(@NonNull @Config("ingestionBuffer") IngestionBufferConfig config,
+            @NonNull SpanDAO spanDAO,
+            @NonNull TraceDAO traceDAO,
+            @NonNull FeedbackScoreDAO feedbackScoreDAO,
+            @NonNull TransactionTemplateAsync template) {
+        this.config = config;
+
+        Meter meter = GlobalOpenTelemetry.get().getMeter(TRACER_NAME);
+        DoubleHistogram flushLatency = meter.histogramBuilder("opik.ingestion.buffer.flush.latency")
+                .setDescription("Time taken to flush a coalesced batch to the analytics database")
+                .setUnit("ms")
+                .build();
+        LongCounter flushErrors = meter.counterBuilder("opik.ingestion.buffer.flush.error")
+                .setDescription("Rows dropped or failed by an ingestion buffer flush")
+                .build();
+
+        this.spans = new Lane<>("spans", Span::id, spanDAO::batchInsertRows, flushLatency, flushErrors);
+        this.traces = new Lane<>("traces", Trace::id,
+                rows -> template.nonTransaction(connection -> traceDAO.batchInsertRows(rows, connection)),
+                flushLatency, flushErrors);
+        this.feedbackScores = new Lane<>("feedback_scores",
+                score -> List.of(score.entityType(), score.score().id(), score.score().name()),
+                feedbackScoreDAO::scoreBatchOfRows, flushLatency, flushErrors);
+
+        meter.gaugeBuilder("opik.ingestion.buffer.queue.depth")
+                .setDescription("Rows waiting in the ingestion buffer to be flushed")
+                .ofLongs()
+                .buildWithCallback(measurement -> List.of(spans, traces, feedbackScores)
+                        .forEach(lane -> measurement.record(lane.depth.get(), lane.attributes)));
+    }
+
+    @Override
+    public Mono<Long> enqueueSpans(@NonNull List<Span> items) {
+        return enqueue(spans, items);
+    }
+
+    @Override
+    public Mono<Long> enqueueTraces(@NonNull List<Trace> items) {
+        return enqueue(traces, items);
+    }
+
+    @Override
+    public Mono<Long> enqueueFeedbackScores(@NonNull EntityType entityType,
+            @NonNull List<FeedbackScoreBatchItem> scores) {
+        return enqueue(feedbackScores, scores.stream().map(score -> new EntityScore(entityType, score)).toList());
+    }
+
+    private <T> Mono<Long> enqueue(Lane<T> lane, List<T> items) {
+        return makeMonoContextAware((userName, workspaceId) -> {
+            List<IngestionRow<T>> rows = items.stream()
+                    .map(item -> new IngestionRow<>(workspaceId, userName, item))
+                    .toList();
+
+            if (!config.isEnabled()) {
+                return lane.writer.apply(rows);
+            }
+
+            return lane.offer(rows);
+        });
+    }
+
+    @Override
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        log.info("Starting ingestion buffer, maxBatchSize '{}', flushIntervalMs '{}', capacity '{}'",
+                config.getMaxBatchSize(), config.getFlushIntervalMs(), config.getCapacity());
+
+        List.of(spans, traces, feedbackScores).forEach(Lane::start);
+    }
+
+    @Override
+    public void stop() {
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        log.info("Stopping ingestion buffer, flushing pending rows");
+
+        List.of(spans, traces, feedbackScores).forEach(Lane::stop);
+        scheduler.dispose();
+    }
+
+    private record Pending<T>(List<IngestionRow<T>> rows, Sinks.One<Long> result) {
+    }
+
+    private class Lane<T> {
+
+        private final String table;
+        private final Attributes attributes;
+        private final Function<T, Object> id;
+        private final Function<List<IngestionRow<T>>, Mono<Long>> writer;
+        private final DoubleHistogram flushLatency;
+        private final LongCounter flushErrors;
+
+        private final Queue<Pending<T>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final Sinks.Many<Boolean> sizeTrigger = Sinks.many().unicast().onBackpressureBuffer();
+        private Disposable flusher;
+
+        Lane(String table, Function<T, Object> id, Function<List<IngestionRow<T>>, Mono<Long>> writer,
+                DoubleHistogram flushLatency, LongCounter flushErrors) {
+            this.table = table;
+            this.attributes = Attributes.of(TABLE, table);
+            this.id = id;
+            this.writer = writer;
+            this.flushLatency = flushLatency;
+            this.flushErrors = flushErrors;
+        }
+
+        Mono<Long> offer(List<IngestionRow<T>> rows) {
+            return Mono.defer(() -> {
+                if (!reserve(rows.size())) {
+                    log.warn("Ingestion buffer for '{}' is full, rejecting '{}' rows", table, rows.size());
+                    return Mono.error(new ClientErrorException("Ingestion buffer is full, retry later",
+                            HttpStatus.SC_TOO_MANY_REQUESTS));
+                }
+
+                var pending = new Pending<>(rows, Sinks.<Long>one());
+                queue.add(pending);
+
+                if (depth.get() >= config.getMaxBatchSize()) {
+                    // A failed emission means another thread is already signalling a flush
+                    sizeTrigger.tryEmitNext(true);
+                }
+
+                if (config.isAcknowledgeOnEnqueue()) {
+                    return Mono.just((long) rows.size());
+                }
+
+                return pending.result().asMono();
+            });
+        }
+
+        private boolean reserve(int size) {
+            int current;
+            do {
+                current = depth.get();
+                if (current + size > config.getCapacity()) {
+                    return false;
+                }
+            } while (!depth.compareAndSet(current, current + size));
+
+            return true;
+        }
+
+        void start() {
+            flusher = Flux.merge(
+                    Flux.interval(Duration.ofMillis(config.getFlushIntervalMs()), scheduler),
+                    sizeTrigger.asFlux())
+                    .onBackpressureDrop()
+                    .concatMap(tick -> flushAll(), 1)
+                    .subscribe();
+        }
+
+        void stop() {
+            if (flusher != null) {
+                flusher.dispose();
+            }
+
+            flushAll().block();
+        }
+
+        private Mono<Void> flushAll() {
+            return Mono.defer(this::flushOnce)
+                    .repeat(() -> !queue.isEmpty())
+                    .then();
+        }
+
+        private Mono<Void> flushOnce() {
+            List<Pending<T>> batch = drain();
+
+            if (batch.isEmpty()) {
+                return Mono.empty();
+            }
+
+            // rows of one flush share the same last_updated_at, so only the last enqueued row of each id is kept
+            List<IngestionRow<T>> rows = List.copyOf(batch.stream()
+                    .flatMap(pending -> pending.rows().stream())
+                    .collect(Collectors.toMap(row -> List.of(row.workspaceId(), id.apply(row.value())),
+                            Function.identity(), (first, last) -> last, LinkedHashMap::new))
+                    .values());
+
+            long start = System.nanoTime();
+
+            return writer.apply(rows)
+                    .doOnSuccess(__ -> {
+                        flushLatency.record((System.nanoTime() - start) / 1_000_000.0, attributes);
+                        batch.forEach(pending -> pending.result().tryEmitValue((long) pending.rows().size()));
+                        log.debug("Flushed '{}' rows into '{}'", rows.size(), table);
+                    })
+                    .doOnError(error -> {
+                        flushErrors.add(rows.size(), attributes);
+                        batch.forEach(pending -> pending.result().tryEmitError(error));
+                        log.error("Failed to flush '{}' rows into '{}'", rows.size(), table, error);
+                    })
+                    .onErrorResume(__ -> Mono.empty())
+                    .then();
+        }
+
+        private List<Pending<T>> drain() {
+            List<Pending<T>> batch = new ArrayList<>();
+            int size = 0;
+            Pending<T> next;
+
+            // always take at least one entry, so a single request larger than the batch size is not stuck
+            while (size < config.getMaxBatchSize() && (next = queue.poll()) != null) {
+                batch.add(next);
+                size += next.rows().size();
+            }
+
+            depth.addAndGet(-size);
+            return batch;
+        }
+    }
+}
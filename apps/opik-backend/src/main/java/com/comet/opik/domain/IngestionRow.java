@@ -0,0 +1,10 @@
+package com.comet.opik.domain;
+
+import lombok.NonNull;
+
+/**
+ * A row queued for a bulk insert, carrying the workspace and author captured from the request that produced it, so
+ * rows coming from different requests and workspaces can be written by a single statement.
+ * */
+public record IngestionRow<T>(@NonNull String workspaceId, @NonNull String userName, @NonNull T value) {
+}
@@ -0,0 +1,156 @@
+package com.comet.opik.domain;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Statement;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.UtilityClass;
+import org.stringtemplate.v4.ST;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Point queries by id resolve the workspace, project and trace of the row in trace_locations or span_locations first,
+ * in a query of their own, and filter the main table by them as plain parameters, so its primary key skips every other
+ * granule. Templates take the predicate as {@code <if(location)> AND <location> <endif>}.
+ * <br>
+ * Until the data migrations of 1.1.13 backfill these tables, the rows written before them have no location, so an id
+ * without one is only known not to exist when it's newer than the oldest located id, as ids are time based. Otherwise,
+ * the query falls back to reading every granule for it.
+ */
+@UtilityClass
+class LocationUtils {
+
+    @RequiredArgsConstructor
+    enum LocationTable {
+        TRACE_LOCATIONS("trace_locations"),
+        SPAN_LOCATIONS("span_locations");
+
+        private final String tableName;
+    }
+
+    private static final String SELECT_LOCATIONS = """
+            SELECT DISTINCT
+                id,
+                workspace_id,
+                toString(project_id) AS project_id
+                <if(trace_id)>, trace_id <endif>
+            FROM <table>
+            WHERE id IN :ids
+            ;
+            """;
+
+    private static final String SELECT_OLDEST_LOCATED_ID = """
+            SELECT id FROM <table> ORDER BY id LIMIT 1
+            ;
+            """;
+
+    private static final String LOCATED =
+            "workspace_id IN :location_workspace_ids AND project_id IN :location_project_ids";
+    private static final String LOCATED_WITH_TRACE = LOCATED + " AND trace_id IN :location_trace_ids";
+    // every id is newer than the oldest location and has none, so it has no row yet
+    private static final String MISSING = "0";
+
+    private record Location(String id, String workspaceId, UUID projectId, UUID traceId) {
+    }
+
+    /**
+     * The sorting key prefixes of the ids, empty when some of them may have a row without a location.
+     */
+    record Locations(Optional<String> predicate, Set<String> workspaceIds, Set<UUID> projectIds, Set<UUID> traceIds) {
+
+        private static final Locations UNKNOWN = new Locations(Optional.empty(), Set.of(), Set.of(), Set.of());
+
+        public ST addTo(@NonNull ST template) {
+            predicate.ifPresent(predicate -> template.add("location", predicate));
+            return template;
+        }
+
+        public Statement bind(@NonNull Statement statement) {
+            if (!workspaceIds.isEmpty()) {
+                statement.bind("location_workspace_ids", workspaceIds.toArray(String[]::new))
+                        .bind("location_project_ids", projectIds.toArray(UUID[]::new));
+            }
+            if (!traceIds.isEmpty()) {
+                statement.bind("location_trace_ids", traceIds.toArray(UUID[]::new));
+            }
+            return statement;
+        }
+    }
+
+    public Mono<Locations> resolve(@NonNull Connection connection, @NonNull LocationTable table,
+            @NonNull Collection<UUID> ids) {
+        var withTraceId = table == LocationTable.SPAN_LOCATIONS;
+        var select = new ST(SELECT_LOCATIONS).add("table", table.tableName);
+        if (withTraceId) {
+            select.add("trace_id", true);
+        }
+
+        var statement = connection.createStatement(select.render())
+                .bind("ids", ids.toArray(UUID[]::new));
+
+        return Flux.from(statement.execute())
+                .flatMap(result -> result.map((row, rowMetadata) -> new Location(
+                        row.get("id", String.class),
+                        row.get("workspace_id", String.class),
+                        UUID.fromString(row.get("project_id", String.class)),
+                        withTraceId ? UUID.fromString(row.get("trace_id", String.class)) : null)))
+                .collectList()
+                .flatMap(locations -> {
+                    var unlocated = unlocatedIds(ids, locations);
+                    if (unlocated.isEmpty()) {
+                        return Mono.just(located(locations, withTraceId));
+                    }
+
+                    return oldestLocatedId(connection, table)
+                            .filter(oldestLocatedId -> oldestId(unlocated).compareTo(oldestLocatedId) >= 0)
+                            .map(__ -> locations.isEmpty()
+                                    ? new Locations(Optional.of(MISSING), Set.of(), Set.of(), Set.of())
+                                    : located(locations, withTraceId))
+                            .defaultIfEmpty(Locations.UNKNOWN);
+                });
+    }
+
+    private List<UUID> unlocatedIds(Collection<UUID> ids, List<Location> locations) {
+        var locatedIds = locations.stream().map(Location::id).collect(Collectors.toSet());
+        return ids.stream()
+                .filter(id -> !locatedIds.contains(id.toString()))
+                .toList();
+    }
+
+    private Locations located(List<Location> locations, boolean withTraceId) {
+        return new Locations(
+                Optional.of(withTraceId ? LOCATED_WITH_TRACE : LOCATED),
+                locations.stream().map(Location::workspaceId).collect(Collectors.toSet()),
+                locations.stream().map(Location::projectId).collect(Collectors.toSet()),
+                withTraceId ? locations.stream().map(Location::traceId).collect(Collectors.toSet()) : Set.of());
+    }
+
+    private Mono<String> oldestLocatedId(Connection connection, LocationTable table) {
+        var statement = connection.createStatement(new ST(SELECT_OLDEST_LOCATED_ID)
+                .add("table", table.tableName)
+                .render());
+
+        return Flux.from(statement.execute())
+                .flatMap(result -> result.map((row, rowMetadata) -> row.get("id", String.class)))
+                .next();
+    }
+
+    /**
+     * The oldest of the ids, in the order of the id columns of the location tables.
+     */
+    private String oldestId(Collection<UUID> ids) {
+        return ids.stream()
+                .map(UUID::toString)
+                .min(Comparator.naturalOrder())
+                .orElseThrow();
+    }
+}
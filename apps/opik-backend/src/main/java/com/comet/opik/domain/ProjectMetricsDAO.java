@@ -38,9 +38,23 @@ public interface ProjectMetricsDAO {
     }
 
     Mono<List<Entry>> getTraceCount(@NonNull UUID projectId, @NonNull ProjectMetricRequest request);
+    Mono<List<Entry>> getSpanCount(@NonNull UUID projectId, @NonNull ProjectMetricRequest request);
     Mono<List<Entry>> getFeedbackScores(@NonNull UUID projectId, @NonNull ProjectMetricRequest request);
+    Mono<List<Entry>> getTokenUsage(@NonNull UUID projectId, @NonNull ProjectMetricRequest request);
+    Mono<List<Entry>> getCost(@NonNull UUID projectId, @NonNull ProjectMetricRequest request);
+    Mono<List<Entry>> getDuration(@NonNull UUID projectId, @NonNull ProjectMetricRequest request);
 }
 
+/**
+ * Reads every metric from hourly rollups kept up to date by materialized views on the raw tables, so the cost of a
+ * query follows the requested range instead of the size of the project: the trace and span counts from
+ * {@code trace_metrics} and {@code span_metrics}, the averages of the trace feedback scores from
+ * {@code feedback_score_metrics}, the token usage and cost from {@code span_usage_hourly}, and the p50, p90 and p99
+ * of the trace duration, in milliseconds, from {@code trace_durations_hourly}.
+ * <br>
+ * Every rollup holds one row per entity and hour, replaced by its next version: the queries keep the latest row of
+ * each and skip the ones marked deleted, so a re-sent batch or an updated span is counted once, with its latest values.
+ * */
 @Slf4j
 @Singleton
 @RequiredArgsConstructor(onConstructor_ = @Inject)
@@ -48,15 +62,25 @@ class ProjectMetricsDAOImpl implements ProjectMetricsDAO {
     private final @NonNull TransactionTemplateAsync template;
 
     public static final String NAME_TRACES = "traces";
+    public static final String NAME_SPANS = "spans";
+    public static final String NAME_COST = "cost";
 
     private static final String GET_TRACE_COUNT = """
-            SELECT toStartOfInterval(start_time, <convert_interval>) AS bucket,
-                   nullIf(count(DISTINCT id), 0) as count
-            FROM traces
-            WHERE project_id = :project_id
-                AND workspace_id = :workspace_id
-                AND start_time >= parseDateTime64BestEffort(:start_time, 9)
-                AND start_time \\<= parseDateTime64BestEffort(:end_time, 9)
+            SELECT toStartOfInterval(hour, <convert_interval>) AS bucket,
+                   nullIf(count(), 0) AS count
+            FROM (
+                SELECT hour,
+                        id,
+                        is_deleted
+                FROM trace_metrics
+                WHERE project_id = :project_id
+                    AND workspace_id = :workspace_id
+                    AND hour >= toStartOfHour(parseDateTime64BestEffort(:start_time, 9))
+                    AND hour \\<= parseDateTime64BestEffort(:end_time, 9)
+                ORDER BY last_updated_at DESC
+                LIMIT 1 BY hour, id
+            )
+            WHERE is_deleted = 0
             GROUP BY bucket
             ORDER BY bucket
             WITH FILL
@@ -70,24 +94,54 @@ class ProjectMetricsDAOImpl implements ProjectMetricsDAO {
                 STEP <convert_interval>;
             """;
 
-    private static final String GET_FEEDBACK_SCORES = """
-            WITH feedback_scores_deduplication AS (
-                SELECT created_at,
-                        name,
-                        value
-                FROM feedback_scores
+    private static final String GET_SPAN_COUNT = """
+            SELECT toStartOfInterval(hour, <convert_interval>) AS bucket,
+                   nullIf(count(), 0) AS count
+            FROM (
+                SELECT hour,
+                        id,
+                        is_deleted
+                FROM span_metrics
                 WHERE project_id = :project_id
                     AND workspace_id = :workspace_id
-                    AND entity_type = 'trace'
-                ORDER BY entity_id DESC, last_updated_at DESC
-                LIMIT 1 BY entity_id, name
+                    AND hour >= toStartOfHour(parseDateTime64BestEffort(:start_time, 9))
+                    AND hour \\<= parseDateTime64BestEffort(:end_time, 9)
+                ORDER BY last_updated_at DESC
+                LIMIT 1 BY hour, id
             )
-            SELECT toStartOfInterval(created_at, <convert_interval>) AS bucket,
+            WHERE is_deleted = 0
+            GROUP BY bucket
+            ORDER BY bucket
+            WITH FILL
+            <if(is_weekly)>
+                FROM toStartOfWeek(parseDateTime64BestEffort(:start_time), 3)
+                TO toDate(formatDateTime(parseDateTime64BestEffort(:end_time), '%F'))
+            <else>
+                FROM parseDateTimeBestEffort(:start_time)
+                TO parseDateTimeBestEffort(:end_time)
+            <endif>
+                STEP <convert_interval>;
+            """;
+
+    private static final String GET_FEEDBACK_SCORES = """
+            SELECT toStartOfInterval(hour, <convert_interval>) AS bucket,
                     name,
                     nullIf(avg(value), 0) AS value
-            FROM feedback_scores_deduplication
-            WHERE created_at >= parseDateTime64BestEffort(:start_time, 9)
-                AND created_at \\<= parseDateTime64BestEffort(:end_time, 9)
+            FROM (
+                SELECT hour,
+                        name,
+                        entity_id,
+                        value,
+                        is_deleted
+                FROM feedback_score_metrics
+                WHERE project_id = :project_id
+                    AND workspace_id = :workspace_id
+                    AND hour >= toStartOfHour(parseDateTime64BestEffort(:start_time, 9))
+                    AND hour \\<= parseDateTime64BestEffort(:end_time, 9)
+                ORDER BY last_updated_at DESC
+                LIMIT 1 BY hour, name, entity_id
+            )
+            WHERE is_deleted = 0
             GROUP BY name, bucket
             ORDER BY name, bucket
             WITH FILL
@@ -101,6 +155,109 @@ class ProjectMetricsDAOImpl implements ProjectMetricsDAO {
                 STEP <convert_interval>;
             """;
 
+    private static final String GET_TOKEN_USAGE = """
+            SELECT bucket,
+                    name,
+                    nullIf(usage_value, 0) AS value
+            FROM (
+                SELECT toStartOfInterval(hour, <convert_interval>) AS bucket,
+                        sumMap(usage) AS usage_by_name
+                FROM (
+                    SELECT hour,
+                            id,
+                            usage,
+                            is_deleted
+                    FROM span_usage_hourly
+                    WHERE project_id = :project_id
+                        AND workspace_id = :workspace_id
+                        AND hour >= toStartOfHour(parseDateTime64BestEffort(:start_time, 9))
+                        AND hour \\<= parseDateTime64BestEffort(:end_time, 9)
+                    ORDER BY last_updated_at DESC
+                    LIMIT 1 BY hour, id
+                )
+                WHERE is_deleted = 0
+                GROUP BY bucket
+            )
+            ARRAY JOIN mapKeys(usage_by_name) AS name, mapValues(usage_by_name) AS usage_value
+            ORDER BY name, bucket
+            WITH FILL
+            <if(is_weekly)>
+                FROM toStartOfWeek(parseDateTime64BestEffort(:start_time), 3)
+                TO toDate(formatDateTime(parseDateTime64BestEffort(:end_time), '%F'))
+            <else>
+                FROM parseDateTimeBestEffort(:start_time)
+                TO parseDateTimeBestEffort(:end_time)
+            <endif>
+                STEP <convert_interval>;
+            """;
+
+    private static final String GET_COST = """
+            SELECT toStartOfInterval(hour, <convert_interval>) AS bucket,
+                   nullIf(sum(total_estimated_cost), 0) AS value
+            FROM (
+                SELECT hour,
+                        id,
+                        total_estimated_cost,
+                        is_deleted
+                FROM span_usage_hourly
+                WHERE project_id = :project_id
+                    AND workspace_id = :workspace_id
+                    AND hour >= toStartOfHour(parseDateTime64BestEffort(:start_time, 9))
+                    AND hour \\<= parseDateTime64BestEffort(:end_time, 9)
+                ORDER BY last_updated_at DESC
+                LIMIT 1 BY hour, id
+            )
+            WHERE is_deleted = 0
+            GROUP BY bucket
+            ORDER BY bucket
+            WITH FILL
+            <if(is_weekly)>
+                FROM toStartOfWeek(parseDateTime64BestEffort(:start_time), 3)
+                TO toDate(formatDateTime(parseDateTime64BestEffort(:end_time), '%F'))
+            <else>
+                FROM parseDateTimeBestEffort(:start_time)
+                TO parseDateTimeBestEffort(:end_time)
+            <endif>
+                STEP <convert_interval>;
+            """;
+
+    private static final String GET_DURATION = """
+            SELECT bucket,
+                    name,
+                    value
+            FROM (
+                SELECT toStartOfInterval(hour, <convert_interval>) AS bucket,
+                        quantiles(0.5, 0.9, 0.99)(duration) AS durations
+                FROM (
+                    SELECT hour,
+                            id,
+                            duration,
+                            is_deleted
+                    FROM trace_durations_hourly
+                    WHERE project_id = :project_id
+                        AND workspace_id = :workspace_id
+                        AND hour >= toStartOfHour(parseDateTime64BestEffort(:start_time, 9))
+                        AND hour \\<= parseDateTime64BestEffort(:end_time, 9)
+                    ORDER BY last_updated_at DESC
+                    LIMIT 1 BY hour, id
+                )
+                WHERE is_deleted = 0
+                    AND duration IS NOT NULL
+                GROUP BY bucket
+            )
+            ARRAY JOIN ['p50', 'p90', 'p99'] AS name, durations AS value
+            ORDER BY name, bucket
+            WITH FILL
+            <if(is_weekly)>
+                FROM toStartOfWeek(parseDateTime64BestEffort(:start_time), 3)
+                TO toDate(formatDateTime(parseDateTime64BestEffort(:end_time), '%F'))
+            <else>
+                FROM parseDateTimeBestEffort(:start_time)
+                TO parseDateTimeBestEffort(:end_time)
+            <endif>
+                STEP <convert_interval>;
+            """;
+
     @Override
     public Mono<List<Entry>> getTraceCount(@NonNull UUID projectId, @NonNull ProjectMetricRequest request) {
         return template.nonTransaction(connection -> getMetric(projectId, request, connection,
@@ -110,6 +267,15 @@ class ProjectMetricsDAOImpl implements ProjectMetricsDAO {
                 .collectList());
     }
 
+    @Override
+    public Mono<List<Entry>> getSpanCount(@NonNull UUID projectId, @NonNull ProjectMetricRequest request) {
+        return template.nonTransaction(connection -> getMetric(projectId, request, connection,
+                GET_SPAN_COUNT, "spanCount")
+                .flatMapMany(result -> rowToDataPoint(result, request, row -> NAME_SPANS,
+                        row -> row.get("count", Integer.class)))
+                .collectList());
+    }
+
     @Override
     public Mono<List<Entry>> getFeedbackScores(@NonNull UUID projectId, @NonNull ProjectMetricRequest request) {
         return template.nonTransaction(connection -> getMetric(projectId, request, connection,
@@ -122,6 +288,39 @@ class ProjectMetricsDAOImpl implements ProjectMetricsDAO {
                 .collectList());
     }
 
+    @Override
+    public Mono<List<Entry>> getTokenUsage(@NonNull UUID projectId, @NonNull ProjectMetricRequest request) {
+        return template.nonTransaction(connection -> getMetric(projectId, request, connection,
+                GET_TOKEN_USAGE, "tokenUsage")
+                .flatMapMany(result -> rowToDataPoint(
+                        result,
+                        request,
+                        row -> row.get("name", String.class),
+                        row -> row.get("value", Long.class)))
+                .collectList());
+    }
+
+    @Override
+    public Mono<List<Entry>> getCost(@NonNull UUID projectId, @NonNull ProjectMetricRequest request) {
+        return template.nonTransaction(connection -> getMetric(projectId, request, connection,
+                GET_COST, "cost")
+                .flatMapMany(result -> rowToDataPoint(result, request, row -> NAME_COST,
+                        row -> row.get("value", BigDecimal.class)))
+                .collectList());
+    }
+
+    @Override
+    public Mono<List<Entry>> getDuration(@NonNull UUID projectId, @NonNull ProjectMetricRequest request) {
+        return template.nonTransaction(connection -> getMetric(projectId, request, connection,
+                GET_DURATION, "duration")
+                .flatMapMany(result -> rowToDataPoint(
+                        result,
+                        request,
+                        row -> row.get("name", String.class),
+                        row -> row.get("value", Double.class)))
+                .collectList());
+    }
+
     private Mono<? extends Result> getMetric(
             UUID projectId, ProjectMetricRequest request, Connection connection, String query, String segmentName) {
         var template = new ST(query)
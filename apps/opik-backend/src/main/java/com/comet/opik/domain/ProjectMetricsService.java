@@ -77,7 +77,11 @@ class ProjectMetricsServiceImpl implements ProjectMetricsService {
         Map<MetricType, BiFunction<UUID, ProjectMetricRequest, Mono<List<ProjectMetricsDAO.Entry>>>> HANDLER_BY_TYPE = Map
                 .of(
                         MetricType.TRACE_COUNT, projectMetricsDAO::getTraceCount,
-                        MetricType.FEEDBACK_SCORES, projectMetricsDAO::getFeedbackScores);
+                        MetricType.SPAN_COUNT, projectMetricsDAO::getSpanCount,
+                        MetricType.FEEDBACK_SCORES, projectMetricsDAO::getFeedbackScores,
+                        MetricType.TOKEN_USAGE, projectMetricsDAO::getTokenUsage,
+                        MetricType.COST, projectMetricsDAO::getCost,
+                        MetricType.DURATION, projectMetricsDAO::getDuration);
 
         return Optional.ofNullable(HANDLER_BY_TYPE.get(metricType));
     }
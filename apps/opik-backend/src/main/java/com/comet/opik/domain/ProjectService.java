@@ -15,10 +15,12 @@ import com.comet.opik.api.sorting.SortingFactoryProjects;
 import com.comet.opik.api.sorting.SortingField;
 import com.comet.opik.domain.sorting.SortingQueryBuilder;
 import com.comet.opik.infrastructure.auth.RequestContext;
+import com.comet.opik.infrastructure.cache.WorkspaceNameCache;
 import com.comet.opik.infrastructure.db.TransactionTemplateAsync;
 import com.comet.opik.utils.PaginationUtils;
 import com.google.inject.ImplementedBy;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 import jakarta.ws.rs.NotFoundException;
@@ -41,6 +43,7 @@ import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static com.comet.opik.infrastructure.cache.CacheModule.PROJECTS_BY_NAME;
 import static com.comet.opik.infrastructure.db.TransactionTemplateAsync.READ_ONLY;
 import static com.comet.opik.infrastructure.db.TransactionTemplateAsync.WRITE;
 import static java.util.Collections.reverseOrder;
@@ -90,6 +93,7 @@ class ProjectServiceImpl implements ProjectService {
     private final @NonNull TransactionTemplateAsync transactionTemplateAsync;
     private final @NonNull SortingFactoryProjects sortingFactory;
     private final @NonNull SortingQueryBuilder sortingQueryBuilder;
+    private final @NonNull @Named(PROJECTS_BY_NAME) WorkspaceNameCache<Project> projectCache;
 
     private NotFoundException createNotFoundError() {
         String message = "Project not found";
@@ -163,6 +167,8 @@ class ProjectServiceImpl implements ProjectService {
                 return null;
             });
 
+            projectCache.invalidate(workspaceId, id);
+
             return get(id, workspaceId);
         } catch (UnableToExecuteStatementException e) {
             if (e.getCause() instanceof SQLIntegrityConstraintViolationException) {
@@ -223,6 +229,8 @@ class ProjectServiceImpl implements ProjectService {
             // Void return
             return null;
         });
+
+        projectCache.invalidate(workspaceId, id);
     }
 
     @Override
@@ -348,6 +356,10 @@ class ProjectServiceImpl implements ProjectService {
     @Override
     public Project getOrCreate(@NonNull String workspaceId, @NonNull String projectName, @NonNull String userName) {
 
+        return projectCache.get(workspaceId, projectName, () -> findOrCreate(workspaceId, projectName, userName));
+    }
+
+    private Project findOrCreate(String workspaceId, String projectName, String userName) {
         return findByNames(workspaceId, List.of(projectName))
                 .stream()
                 .findFirst()
@@ -1,14 +1,20 @@
 package com.comet.opik.domain;
 
+import com.comet.opik.api.CountMode;
+import com.comet.opik.api.Page;
 import com.comet.opik.api.ProjectStats;
+import com.comet.opik.api.ResponseField;
 import com.comet.opik.api.Span;
 import com.comet.opik.api.SpanSearchCriteria;
 import com.comet.opik.api.SpanUpdate;
-import com.comet.opik.domain.cost.ModelPrice;
+import com.comet.opik.domain.cost.ModelPriceRegistry;
 import com.comet.opik.domain.filter.FilterQueryBuilder;
 import com.comet.opik.domain.filter.FilterStrategy;
 import com.comet.opik.domain.stats.StatsMapper;
-import com.comet.opik.utils.JsonUtils;
+import com.comet.opik.infrastructure.db.RowBinaryInsertTemplate;
+import com.comet.opik.infrastructure.db.RowBinaryWriter;
+import com.comet.opik.utils.RawJsonNode;
+import com.comet.opik.utils.PaginationUtils;
 import com.comet.opik.utils.TemplateUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.base.Preconditions;
@@ -16,6 +22,8 @@ import io.opentelemetry.instrumentation.annotations.WithSpan;
 import io.r2dbc.spi.Connection;
 import io.r2dbc.spi.ConnectionFactory;
 import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
 import io.r2dbc.spi.Statement;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
@@ -23,9 +31,11 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.SetUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.reactivestreams.Publisher;
 import org.stringtemplate.v4.ST;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
@@ -45,11 +55,16 @@ import static com.comet.opik.domain.AsyncContextUtils.bindUserNameAndWorkspaceCo
 import static com.comet.opik.domain.AsyncContextUtils.bindWorkspaceIdToFlux;
 import static com.comet.opik.domain.AsyncContextUtils.bindWorkspaceIdToMono;
 import static com.comet.opik.domain.FeedbackScoreDAO.EntityType;
+import static com.comet.opik.domain.LocationUtils.LocationTable.SPAN_LOCATIONS;
+import static com.comet.opik.domain.LocationUtils.resolve;
+import static com.comet.opik.domain.TraceSummaryDAO.TraceKey;
 import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.Segment;
 import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.endSegment;
 import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.startSegment;
+import static com.comet.opik.utils.AsyncUtils.countAndPage;
 import static com.comet.opik.utils.AsyncUtils.makeFluxContextAware;
 import static com.comet.opik.utils.AsyncUtils.makeMonoContextAware;
+import static com.comet.opik.utils.RowUtils.getIfPresent;
 import static com.comet.opik.utils.TemplateUtils.getQueryItemPlaceHolder;
 
 @Singleton
@@ -84,7 +99,7 @@ class SpanDAO {
                     (
                         :id<item.index>,
                         :project_id<item.index>,
-                        :workspace_id,
+                        :workspace_id<item.index>,
                         :trace_id<item.index>,
                         :parent_span_id<item.index>,
                         :name<item.index>,
@@ -108,6 +123,78 @@ class SpanDAO {
             ;
             """;
 
+    /**
+     * RowBinary counterpart of BULK_INSERT. Rows are streamed with the structure declared in input(), and converted
+     * into the column types of the table by the SELECT.
+     **/
+    private static final String BULK_INSERT_ROW_BINARY = """
+            INSERT INTO spans(
+                id,
+                project_id,
+                workspace_id,
+                trace_id,
+                parent_span_id,
+                name,
+                type,
+                start_time,
+                end_time,
+                input,
+                output,
+                metadata,
+                model,
+                provider,
+                total_estimated_cost,
+                total_estimated_cost_version,
+                tags,
+                usage,
+                created_by,
+                last_updated_by
+            )
+            SELECT
+                id,
+                project_id,
+                workspace_id,
+                trace_id,
+                parent_span_id,
+                name,
+                type,
+                fromUnixTimestamp64Nano(start_time, 'UTC'),
+                if(end_time IS NULL, NULL, fromUnixTimestamp64Nano(assumeNotNull(end_time), 'UTC')),
+                input,
+                output,
+                metadata,
+                model,
+                provider,
+                toDecimal64(total_estimated_cost, 8),
+                total_estimated_cost_version,
+                tags,
+                usage,
+                created_by,
+                last_updated_by
+            FROM input('
+                id String,
+                project_id String,
+                workspace_id String,
+                trace_id String,
+                parent_span_id String,
+                name String,
+                type String,
+                start_time Int64,
+                end_time Nullable(Int64),
+                input String,
+                output String,
+                metadata String,
+                model String,
+                provider String,
+                total_estimated_cost String,
+                total_estimated_cost_version String,
+                tags Array(String),
+                usage Map(String, Int32),
+                created_by String,
+                last_updated_by String
+            ')
+            """;
+
     /**
      * This query handles the insertion of a new span into the database in two cases:
      * 1. When the span does not exist in the database.
@@ -136,13 +223,14 @@ class SpanDAO {
                 usage,
                 created_at,
                 created_by,
-                last_updated_by
+                last_updated_by,
+                previous_start_time
             )
             SELECT
                 new_span.id as id,
-                multiIf(
-                    LENGTH(CAST(old_span.project_id AS Nullable(String))) > 0 AND notEquals(old_span.project_id, new_span.project_id), leftPad('', 40, '*'),
-                    LENGTH(CAST(old_span.project_id AS Nullable(String))) > 0, old_span.project_id,
+                if(
+                    throwIf(LENGTH(old_span.workspace_id) > 0 AND notEquals(toString(old_span.project_id), new_span.project_id), 'PROJECT_ID_MISMATCH'),
+                    '',
                     new_span.project_id
                 ) as project_id,
                 multiIf(
@@ -220,7 +308,8 @@ class SpanDAO {
                     LENGTH(old_span.created_by) > 0, old_span.created_by,
                     new_span.created_by
                 ) as created_by,
-                new_span.last_updated_by as last_updated_by
+                new_span.last_updated_by as last_updated_by,
+                if(LENGTH(old_span.workspace_id) > 0, old_span.start_time, NULL) as previous_start_time
             FROM (
                 SELECT
                     :id as id,
@@ -250,6 +339,7 @@ class SpanDAO {
                     *
                 FROM spans
                 WHERE id = :id
+                <if(location)> AND <location> <endif>
                 ORDER BY id DESC, last_updated_at DESC
                 LIMIT 1
             ) as old_span
@@ -283,7 +373,8 @@ class SpanDAO {
             	usage,
             	created_at,
             	created_by,
-            	last_updated_by
+            	last_updated_by,
+            	previous_start_time
             ) SELECT
             	id,
             	project_id,
@@ -305,12 +396,38 @@ class SpanDAO {
             	<if(usage)> CAST((:usageKeys, :usageValues), 'Map(String, Int64)') <else> usage <endif> as usage,
             	created_at,
             	created_by,
-                :user_name as last_updated_by
-            FROM spans
-            WHERE id = :id
-            AND workspace_id = :workspace_id
-            ORDER BY last_updated_at DESC
-            LIMIT 1
+                :user_name as last_updated_by,
+                old_start_time as previous_start_time
+            FROM (
+                SELECT
+                    id,
+                    project_id,
+                    workspace_id,
+                    trace_id,
+                    parent_span_id,
+                    name,
+                    type,
+                    start_time,
+                    end_time,
+                    input,
+                    output,
+                    metadata,
+                    model,
+                    provider,
+                    total_estimated_cost,
+                    total_estimated_cost_version,
+                    tags,
+                    usage,
+                    created_at,
+                    created_by,
+                    start_time as old_start_time
+                FROM spans
+                WHERE workspace_id = :workspace_id
+                <if(location)> AND <location> <endif>
+                AND id = :id
+                ORDER BY last_updated_at DESC
+                LIMIT 1
+            )
             ;
             """;
 
@@ -322,19 +439,22 @@ class SpanDAO {
      * <p>
      * This happens because the query is used in a patch endpoint which allows partial updates, so the query will update only the provided fields.
      * The remaining fields will be updated/inserted once the POST arrives with the all mandatory fields to create the trace.
+     * <p>
+     * With lock free upserts, it's also used for every update, as it merges with the latest stored span when it exists
+     * and fails on identifier mismatches in the same statement.
      */
     //TODO: refactor to implement proper conflict resolution
     private static final String PARTIAL_INSERT = """
             INSERT INTO spans(
                 id, project_id, workspace_id, trace_id, parent_span_id, name, type,
                 start_time, end_time, input, output, metadata, model, provider, total_estimated_cost, total_estimated_cost_version, tags, usage, created_at,
-                created_by, last_updated_by
+                created_by, last_updated_by, previous_start_time
             )
             SELECT
                 new_span.id as id,
-                multiIf(
-                    LENGTH(CAST(old_span.project_id AS Nullable(String))) > 0 AND notEquals(old_span.project_id, new_span.project_id), leftPad('', 40, '*'),
-                    LENGTH(CAST(old_span.project_id AS Nullable(String))) > 0, old_span.project_id,
+                if(
+                    throwIf(LENGTH(old_span.workspace_id) > 0 AND notEquals(toString(old_span.project_id), new_span.project_id), 'PROJECT_ID_MISMATCH'),
+                    '',
                     new_span.project_id
                 ) as project_id,
                 multiIf(
@@ -348,7 +468,7 @@ class SpanDAO {
                     new_span.trace_id
                 ) as trace_id,
                 multiIf(
-                    LENGTH(CAST(old_span.parent_span_id AS Nullable(String))) > 0 AND notEquals(old_span.parent_span_id, new_span.parent_span_id), leftPad('', 40, '*'),
+                    LENGTH(old_span.workspace_id) > 0 AND LENGTH(new_span.parent_span_id) > 0 AND notEquals(old_span.parent_span_id, new_span.parent_span_id), CAST(leftPad(new_span.parent_span_id, 40, '*') AS FixedString(19)),
                     LENGTH(CAST(old_span.parent_span_id AS Nullable(String))) > 0, old_span.parent_span_id,
                     new_span.parent_span_id
                 ) as parent_span_id,
@@ -422,7 +542,8 @@ class SpanDAO {
                     LENGTH(old_span.created_by) > 0, old_span.created_by,
                     new_span.created_by
                 ) as created_by,
-                new_span.last_updated_by as last_updated_by
+                new_span.last_updated_by as last_updated_by,
+                if(LENGTH(old_span.workspace_id) > 0, old_span.start_time, NULL) as previous_start_time
             FROM (
                 SELECT
                     :id as id,
@@ -452,6 +573,7 @@ class SpanDAO {
                     *
                 FROM spans
                 WHERE id = :id
+                <if(location)> AND <location> <endif>
                 ORDER BY id DESC, last_updated_at DESC
                 LIMIT 1
             ) as old_span
@@ -464,8 +586,9 @@ class SpanDAO {
             *
             FROM
             spans
-            WHERE id = :id
-            AND workspace_id = :workspace_id
+            WHERE workspace_id = :workspace_id
+            <if(location)> AND <location> <endif>
+            AND id = :id
             ORDER BY last_updated_at DESC
             LIMIT 1
             ;
@@ -482,14 +605,14 @@ class SpanDAO {
                  type,
                  start_time,
                  end_time,
-                 <if(truncate)> replaceRegexpAll(input, '<truncate>', '"[image]"') as input <else> input <endif>,
-                 <if(truncate)> replaceRegexpAll(output, '<truncate>', '"[image]"') as output <else> output <endif>,
-                 <if(truncate)> replaceRegexpAll(metadata, '<truncate>', '"[image]"') as metadata <else> metadata <endif>,
+                 <if(!exclude_input)> <if(truncate)> replaceRegexpAll(input, '<truncate>', '"[image]"') as input <else> input <endif>, <endif>
+                 <if(!exclude_output)> <if(truncate)> replaceRegexpAll(output, '<truncate>', '"[image]"') as output <else> output <endif>, <endif>
+                 <if(!exclude_metadata)> <if(truncate)> replaceRegexpAll(metadata, '<truncate>', '"[image]"') as metadata <else> metadata <endif>, <endif>
                  model,
                  provider,
-                 total_estimated_cost,
+                 <if(!exclude_total_estimated_cost)> total_estimated_cost, <endif>
                  tags,
-                 usage,
+                 <if(!exclude_usage)> usage, <endif>
                  created_at,
                  last_updated_at,
                  created_by,
@@ -497,9 +620,11 @@ class SpanDAO {
              FROM spans
              WHERE project_id = :project_id
              AND workspace_id = :workspace_id
+             <if(last_retrieved_id)> AND id \\< :last_retrieved_id <endif>
              <if(trace_id)> AND trace_id = :trace_id <endif>
              <if(type)> AND type = :type <endif>
              <if(filters)> AND <filters> <endif>
+             <if(search)> AND <search> <endif>
              <if(feedback_scores_filters)>
              AND id in (
                 SELECT
@@ -524,7 +649,7 @@ class SpanDAO {
 
     private static final String COUNT_BY_PROJECT_ID = """
             SELECT
-                count(id) as count
+                <if(approximate)> uniqCombined(id) <else> count(id) <endif> as count
             FROM
             (
                SELECT
@@ -535,6 +660,7 @@ class SpanDAO {
                 <if(trace_id)> AND trace_id = :trace_id <endif>
                 <if(type)> AND type = :type <endif>
                 <if(filters)> AND <filters> <endif>
+                <if(search)> AND <search> <endif>
                 <if(feedback_scores_filters)>
                 AND id in (
                 SELECT
@@ -551,8 +677,10 @@ class SpanDAO {
                 HAVING <feedback_scores_filters>
                 )
                 <endif>
+                <if(!approximate)>
                 ORDER BY last_updated_at DESC
                 LIMIT 1 BY id
+                <endif>
             ) AS latest_rows
             ;
             """;
@@ -561,11 +689,62 @@ class SpanDAO {
             DELETE FROM spans WHERE trace_id IN :trace_ids AND workspace_id = :workspace_id;
             """;
 
+    /**
+     * Marks the latest row of the spans as deleted in the hourly usage and cost rollup, before they are deleted.
+     **/
+    private static final String DELETE_USAGE_BY_TRACE_IDS = """
+            INSERT INTO span_usage_hourly
+            SELECT
+                workspace_id,
+                toUUID(toString(project_id)) AS project_id,
+                toDateTime64(toStartOfHour(start_time), 9, 'UTC') AS hour,
+                id,
+                CAST(usage, 'Map(String, Int64)') AS usage,
+                total_estimated_cost,
+                now64(9) AS last_updated_at,
+                1 AS is_deleted
+            FROM (
+                SELECT
+                    *
+                FROM spans
+                WHERE trace_id IN :trace_ids
+                AND workspace_id = :workspace_id
+                ORDER BY id DESC, last_updated_at DESC
+                LIMIT 1 BY id
+            )
+            ;
+            """;
+
+    /**
+     * Marks the latest row of the spans as deleted in the hourly span counts, before they are deleted.
+     **/
+    private static final String DELETE_COUNTS_BY_TRACE_IDS = """
+            INSERT INTO span_metrics
+            SELECT
+                workspace_id,
+                toUUID(toString(project_id)) AS project_id,
+                toDateTime64(toStartOfHour(start_time), 9, 'UTC') AS hour,
+                id,
+                now64(9) AS last_updated_at,
+                1 AS is_deleted
+            FROM (
+                SELECT
+                    *
+                FROM spans
+                WHERE trace_id IN :trace_ids
+                AND workspace_id = :workspace_id
+                ORDER BY id DESC, last_updated_at DESC
+                LIMIT 1 BY id
+            )
+            ;
+            """;
+
     private static final String SELECT_SPAN_ID_AND_WORKSPACE = """
             SELECT
                 id, workspace_id
             FROM spans
             WHERE id IN :spanIds
+            <if(location)> AND <location> <endif>
             ORDER BY last_updated_at DESC
             LIMIT 1 BY id
             ;
@@ -576,8 +755,9 @@ class SpanDAO {
                   id,
                   project_id
             FROM spans
-            WHERE id IN :ids
-            AND workspace_id = :workspace_id
+            WHERE workspace_id = :workspace_id
+            <if(location)> AND <location> <endif>
+            AND id IN :ids
             ORDER BY id DESC, last_updated_at DESC
             LIMIT 1 BY id
             """;
@@ -625,6 +805,7 @@ class SpanDAO {
                         <if(trace_id)> AND trace_id = :trace_id <endif>
                         <if(type)> AND type = :type <endif>
                         <if(filters)> AND <filters> <endif>
+                        <if(search)> AND <search> <endif>
                         <if(feedback_scores_filters)>
                         AND id in (
                             SELECT
@@ -678,12 +859,17 @@ class SpanDAO {
     private final @NonNull ConnectionFactory connectionFactory;
     private final @NonNull FeedbackScoreDAO feedbackScoreDAO;
     private final @NonNull FilterQueryBuilder filterQueryBuilder;
+    private final @NonNull RowBinaryInsertTemplate rowBinaryInsertTemplate;
+    private final @NonNull ModelPriceRegistry modelPriceRegistry;
+    private final @NonNull TraceSummaryDAO traceSummaryDAO;
 
     @WithSpan
     public Mono<Void> insert(@NonNull Span span) {
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> insert(span, connection))
-                .then();
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(insert(span, connection))
+                        .then(makeMonoContextAware((userName, workspaceId) -> traceSummaryDAO.refresh(
+                                List.of(new TraceKey(workspaceId, span.projectId(), span.traceId())), connection))),
+                Connection::close);
     }
 
     @WithSpan
@@ -691,29 +877,86 @@ class SpanDAO {
 
         Preconditions.checkArgument(!spans.isEmpty(), "Spans list must not be empty");
 
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> insert(spans, connection))
-                .flatMap(Result::getRowsUpdated)
-                .reduce(0L, Long::sum);
+        return makeMonoContextAware((userName, workspaceId) -> batchInsertRows(spans.stream()
+                .map(span -> new IngestionRow<>(workspaceId, userName, span))
+                .toList()));
     }
 
-    private Publisher<? extends Result> insert(List<Span> spans, Connection connection) {
+    @WithSpan
+    public Mono<Long> batchInsertRows(@NonNull List<IngestionRow<Span>> rows) {
 
-        return makeMonoContextAware((userName, workspaceId) -> {
-            List<TemplateUtils.QueryItem> queryItems = getQueryItemPlaceHolder(spans.size());
+        Preconditions.checkArgument(!rows.isEmpty(), "Spans list must not be empty");
 
-            var template = new ST(BULK_INSERT)
-                    .add("items", queryItems);
+        if (rowBinaryInsertTemplate.isEnabled()) {
+            return rowBinaryInsertTemplate.insert("spans", BULK_INSERT_ROW_BINARY, rows, this::encodeRow)
+                    .flatMap(count -> Mono.usingWhen(connectionFactory.create(),
+                            connection -> refreshTraceSummaries(rows, connection),
+                            Connection::close)
+                            .thenReturn(count));
+        }
 
-            Statement statement = connection.createStatement(template.render());
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(insert(rows, connection))
+                        .flatMap(Result::getRowsUpdated)
+                        .reduce(0L, Long::sum)
+                        .flatMap(count -> refreshTraceSummaries(rows, connection).thenReturn(count)),
+                Connection::close);
+    }
+
+    private Mono<Void> refreshTraceSummaries(List<IngestionRow<Span>> rows, Connection connection) {
+        return traceSummaryDAO.refresh(rows.stream()
+                .map(row -> new TraceKey(row.workspaceId(), row.value().projectId(), row.value().traceId()))
+                .toList(), connection);
+    }
+
+    private void encodeRow(RowBinaryWriter writer, IngestionRow<Span> row) {
+        Span span = row.value();
+        BigDecimal estimatedCost = calculateCost(span);
+
+        writer.writeString(span.id().toString())
+                .writeString(span.projectId().toString())
+                .writeString(row.workspaceId())
+                .writeString(span.traceId().toString())
+                .writeString(span.parentSpanId() != null ? span.parentSpanId().toString() : "")
+                .writeString(span.name())
+                .writeString(span.type().toString())
+                .writeEpochNanos(span.startTime())
+                .writeNullableEpochNanos(span.endTime())
+                .writeString(span.input() != null ? span.input().toString() : "")
+                .writeString(span.output() != null ? span.output().toString() : "")
+                .writeString(span.metadata() != null ? span.metadata().toString() : "")
+                .writeString(span.model() != null ? span.model() : "")
+                .writeString(span.provider() != null ? span.provider() : "")
+                .writeString(estimatedCost.toPlainString())
+                .writeString(estimatedCost.compareTo(BigDecimal.ZERO) > 0 ? ESTIMATED_COST_VERSION : "")
+                .writeStringArray(span.tags())
+                .writeStringInt32Map(span.usage())
+                .writeString(row.userName())
+                .writeString(row.userName());
+    }
+
+    static String renderBulkInsert(int size) {
+        List<TemplateUtils.QueryItem> queryItems = getQueryItemPlaceHolder(size);
+
+        return new ST(BULK_INSERT)
+                .add("items", queryItems)
+                .render();
+    }
+
+    private Publisher<? extends Result> insert(List<IngestionRow<Span>> rows, Connection connection) {
+
+        return Mono.defer(() -> {
+            Statement statement = connection.createStatement(renderBulkInsert(rows.size()));
 
             int i = 0;
-            for (Span span : spans) {
+            for (IngestionRow<Span> row : rows) {
 
+                Span span = row.value();
                 BigDecimal estimatedCost = calculateCost(span);
 
                 statement.bind("id" + i, span.id())
                         .bind("project_id" + i, span.projectId())
+                        .bind("workspace_id" + i, row.workspaceId())
                         .bind("trace_id" + i, span.traceId())
                         .bind("name" + i, span.name())
                         .bind("type" + i, span.type().toString())
@@ -724,12 +967,12 @@ class SpanDAO {
                         .bind("metadata" + i, span.metadata() != null ? span.metadata().toString() : "")
                         .bind("model" + i, span.model() != null ? span.model() : "")
                         .bind("provider" + i, span.provider() != null ? span.provider() : "")
-                        .bind("total_estimated_cost" + i, estimatedCost.toString())
+                        .bind("total_estimated_cost" + i, estimatedCost.toPlainString())
                         .bind("total_estimated_cost_version" + i,
                                 estimatedCost.compareTo(BigDecimal.ZERO) > 0 ? ESTIMATED_COST_VERSION : "")
                         .bind("tags" + i, span.tags() != null ? span.tags().toArray(String[]::new) : new String[]{})
-                        .bind("created_by" + i, userName)
-                        .bind("last_updated_by" + i, userName);
+                        .bind("created_by" + i, row.userName())
+                        .bind("last_updated_by" + i, row.userName());
 
                 if (span.endTime() != null) {
                     statement.bind("end_time" + i, span.endTime().toString());
@@ -758,8 +1001,6 @@ class SpanDAO {
                 i++;
             }
 
-            statement.bind("workspace_id", workspaceId);
-
             Segment segment = startSegment("spans", "Clickhouse", "batch_insert");
 
             return Mono.from(statement.execute())
@@ -768,8 +1009,14 @@ class SpanDAO {
     }
 
     private Publisher<? extends Result> insert(Span span, Connection connection) {
-        var template = newInsertTemplate(span);
-        var statement = connection.createStatement(template.render())
+        return resolve(connection, SPAN_LOCATIONS, List.of(span.id()))
+                .flatMapMany(locations -> insert(span, connection, locations));
+    }
+
+    private Publisher<? extends Result> insert(Span span, Connection connection,
+            LocationUtils.Locations locations) {
+        var template = locations.addTo(newInsertTemplate(span));
+        var statement = locations.bind(connection.createStatement(template.render()))
                 .bind("id", span.id())
                 .bind("project_id", span.projectId())
                 .bind("trace_id", span.traceId())
@@ -811,7 +1058,7 @@ class SpanDAO {
         }
 
         BigDecimal estimatedCost = calculateCost(span);
-        statement.bind("total_estimated_cost", estimatedCost.toString());
+        statement.bind("total_estimated_cost", estimatedCost.toPlainString());
         if (estimatedCost.compareTo(BigDecimal.ZERO) > 0) {
             statement.bind("total_estimated_cost_version", ESTIMATED_COST_VERSION);
         } else {
@@ -857,19 +1104,27 @@ class SpanDAO {
 
     @WithSpan
     public Mono<Long> update(@NonNull UUID id, @NonNull SpanUpdate spanUpdate) {
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> update(id, spanUpdate, connection))
-                .flatMap(Result::getRowsUpdated)
-                .reduce(0L, Long::sum);
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(update(id, spanUpdate, connection))
+                        .flatMap(Result::getRowsUpdated)
+                        .reduce(0L, Long::sum)
+                        .flatMap(count -> refreshTraceSummary(spanUpdate.projectId(), spanUpdate.traceId(), connection)
+                                .thenReturn(count)),
+                Connection::close);
+    }
+
+    private Mono<Void> refreshTraceSummary(UUID projectId, UUID traceId, Connection connection) {
+        return makeMonoContextAware((userName, workspaceId) -> traceSummaryDAO.refresh(
+                List.of(new TraceKey(workspaceId, projectId, traceId)), connection));
     }
 
     @WithSpan
     public Mono<Long> partialInsert(@NonNull UUID id, @NonNull UUID projectId, @NonNull SpanUpdate spanUpdate) {
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> {
-                    ST template = newUpdateTemplate(spanUpdate, PARTIAL_INSERT);
+        return Mono.usingWhen(connectionFactory.create(), connection -> resolve(connection, SPAN_LOCATIONS, List.of(id))
+                .flatMap(locations -> {
+                    ST template = locations.addTo(newUpdateTemplate(spanUpdate, PARTIAL_INSERT));
 
-                    var statement = connection.createStatement(template.render());
+                    var statement = locations.bind(connection.createStatement(template.render()));
 
                     statement.bind("id", id);
                     statement.bind("project_id", projectId);
@@ -886,22 +1141,27 @@ class SpanDAO {
                     Segment segment = startSegment("spans", "Clickhouse", "partial_insert");
 
                     return makeFluxContextAware(bindUserNameAndWorkspaceContextToStream(statement))
-                            .doFinally(signalType -> endSegment(segment));
-                })
-                .flatMap(Result::getRowsUpdated)
-                .reduce(0L, Long::sum);
+                            .doFinally(signalType -> endSegment(segment))
+                            .flatMap(Result::getRowsUpdated)
+                            .reduce(0L, Long::sum)
+                            .flatMap(count -> refreshTraceSummary(projectId, spanUpdate.traceId(), connection)
+                                    .thenReturn(count));
+                }), Connection::close);
     }
 
     private Publisher<? extends Result> update(UUID id, SpanUpdate spanUpdate, Connection connection) {
-        var template = newUpdateTemplate(spanUpdate, UPDATE);
-        var statement = connection.createStatement(template.render());
-        statement.bind("id", id);
-        bindUpdateParams(spanUpdate, statement);
+        return resolve(connection, SPAN_LOCATIONS, List.of(id)).flatMapMany(locations -> {
+            var template = locations.addTo(newUpdateTemplate(spanUpdate, UPDATE));
+            var statement = connection.createStatement(template.render());
+            statement.bind("id", id);
+            bindUpdateParams(spanUpdate, statement);
+            locations.bind(statement);
 
-        Segment segment = startSegment("spans", "Clickhouse", "update");
+            Segment segment = startSegment("spans", "Clickhouse", "update");
 
-        return makeFluxContextAware(bindUserNameAndWorkspaceContextToStream(statement))
-                .doFinally(signalType -> endSegment(segment));
+            return makeFluxContextAware(bindUserNameAndWorkspaceContextToStream(statement))
+                    .doFinally(signalType -> endSegment(segment));
+        });
     }
 
     private void bindUpdateParams(SpanUpdate spanUpdate, Statement statement) {
@@ -934,7 +1194,7 @@ class SpanDAO {
 
         if (StringUtils.isNotBlank(spanUpdate.model()) && Objects.nonNull(spanUpdate.usage())) {
             statement.bind("total_estimated_cost",
-                    ModelPrice.fromString(spanUpdate.model()).calculateCost(spanUpdate.usage()).toString());
+                    modelPriceRegistry.calculateCost(spanUpdate.model(), spanUpdate.usage()).toPlainString());
             statement.bind("total_estimated_cost_version", ESTIMATED_COST_VERSION);
         }
     }
@@ -967,21 +1227,24 @@ class SpanDAO {
     @WithSpan
     public Mono<Span> getById(@NonNull UUID id) {
         log.info("Getting span by id '{}'", id);
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> getById(id, connection))
-                .flatMap(this::mapToDto)
+        return Flux.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(getById(id, connection)).flatMap(this::mapToDto),
+                Connection::close)
                 .flatMap(span -> enhanceWithFeedbackScores(List.of(span)).map(List::getFirst))
                 .singleOrEmpty();
     }
 
     private Publisher<? extends Result> getById(UUID id, Connection connection) {
-        var statement = connection.createStatement(SELECT_BY_ID)
-                .bind("id", id);
+        return resolve(connection, SPAN_LOCATIONS, List.of(id)).flatMapMany(locations -> {
+            var statement = connection.createStatement(locations.addTo(new ST(SELECT_BY_ID)).render())
+                    .bind("id", id);
+            locations.bind(statement);
 
-        Segment segment = startSegment("spans", "Clickhouse", "get_by_id");
+            Segment segment = startSegment("spans", "Clickhouse", "get_by_id");
 
-        return makeFluxContextAware(bindWorkspaceIdToFlux(statement))
-                .doFinally(signalType -> endSegment(segment));
+            return makeFluxContextAware(bindWorkspaceIdToFlux(statement))
+                    .doFinally(signalType -> endSegment(segment));
+        });
     }
 
     @WithSpan
@@ -994,72 +1257,100 @@ class SpanDAO {
         Preconditions.checkArgument(
                 CollectionUtils.isNotEmpty(traceIds), "Argument 'traceIds' must not be empty");
         log.info("Deleting spans by traceIds, count '{}'", traceIds.size());
-        var statement = connection.createStatement(DELETE_BY_TRACE_IDS)
+        return deleteUsageByTraceIds(traceIds, connection)
+                .then(Mono.defer(() -> deleteCountsByTraceIds(traceIds, connection)))
+                .then(Mono.defer(() -> {
+                    var statement = connection.createStatement(DELETE_BY_TRACE_IDS)
+                            .bind("trace_ids", traceIds);
+                    var segment = startSegment("spans", "Clickhouse", "delete_by_trace_id");
+                    return makeMonoContextAware(bindWorkspaceIdToMono(statement))
+                            .doFinally(signalType -> endSegment(segment));
+                }))
+                .then(Mono.defer(() -> traceSummaryDAO.deleteByTraceIds(traceIds, connection)));
+    }
+
+    private Mono<Void> deleteUsageByTraceIds(Set<UUID> traceIds, Connection connection) {
+        var statement = connection.createStatement(DELETE_USAGE_BY_TRACE_IDS)
                 .bind("trace_ids", traceIds);
-        var segment = startSegment("spans", "Clickhouse", "delete_by_trace_id");
+        var segment = startSegment("span_usage_hourly", "Clickhouse", "delete_by_trace_id");
+        return makeMonoContextAware(bindWorkspaceIdToMono(statement))
+                .doFinally(signalType -> endSegment(segment))
+                .then();
+    }
+
+    private Mono<Void> deleteCountsByTraceIds(Set<UUID> traceIds, Connection connection) {
+        var statement = connection.createStatement(DELETE_COUNTS_BY_TRACE_IDS)
+                .bind("trace_ids", traceIds);
+        var segment = startSegment("span_metrics", "Clickhouse", "delete_by_trace_id");
         return makeMonoContextAware(bindWorkspaceIdToMono(statement))
                 .doFinally(signalType -> endSegment(segment))
                 .then();
     }
 
     private Publisher<Span> mapToDto(Result result) {
-        return result.map((row, rowMetadata) -> {
-            var parentSpanId = row.get("parent_span_id", String.class);
-            return Span.builder()
-                    .id(row.get("id", UUID.class))
-                    .projectId(row.get("project_id", UUID.class))
-                    .traceId(row.get("trace_id", UUID.class))
-                    .parentSpanId(Optional.ofNullable(parentSpanId)
-                            .filter(str -> !str.isBlank())
-                            .map(UUID::fromString)
-                            .orElse(null))
-                    .name(row.get("name", String.class))
-                    .type(SpanType.fromString(row.get("type", String.class)))
-                    .startTime(row.get("start_time", Instant.class))
-                    .endTime(row.get("end_time", Instant.class))
-                    .input(Optional.ofNullable(row.get("input", String.class))
-                            .filter(str -> !str.isBlank())
-                            .map(JsonUtils::getJsonNodeFromString)
-                            .orElse(null))
-                    .output(Optional.ofNullable(row.get("output", String.class))
-                            .filter(str -> !str.isBlank())
-                            .map(JsonUtils::getJsonNodeFromString)
-                            .orElse(null))
-                    .metadata(Optional.ofNullable(row.get("metadata", String.class))
-                            .filter(str -> !str.isBlank())
-                            .map(JsonUtils::getJsonNodeFromString)
-                            .orElse(null))
-                    .model(row.get("model", String.class))
-                    .provider(row.get("provider", String.class))
-                    .totalEstimatedCost(
-                            row.get("total_estimated_cost", BigDecimal.class).compareTo(BigDecimal.ZERO) == 0
-                                    ? null
-                                    : row.get("total_estimated_cost", BigDecimal.class))
-                    .tags(Optional.of(Arrays.stream(row.get("tags", String[].class)).collect(Collectors.toSet()))
-                            .filter(set -> !set.isEmpty())
-                            .orElse(null))
-                    .usage(row.get("usage", Map.class))
-                    .createdAt(row.get("created_at", Instant.class))
-                    .lastUpdatedAt(row.get("last_updated_at", Instant.class))
-                    .createdBy(row.get("created_by", String.class))
-                    .lastUpdatedBy(row.get("last_updated_by", String.class))
-                    .build();
-        });
+        return result.map(SpanDAO::mapRowToDto);
+    }
+
+    static Span mapRowToDto(Row row, RowMetadata rowMetadata) {
+        var parentSpanId = row.get("parent_span_id", String.class);
+        return Span.builder()
+                .id(row.get("id", UUID.class))
+                .projectId(row.get("project_id", UUID.class))
+                .traceId(row.get("trace_id", UUID.class))
+                .parentSpanId(Optional.ofNullable(parentSpanId)
+                        .filter(str -> !str.isBlank())
+                        .map(UUID::fromString)
+                        .orElse(null))
+                .name(row.get("name", String.class))
+                .type(SpanType.fromString(row.get("type", String.class)))
+                .startTime(row.get("start_time", Instant.class))
+                .endTime(row.get("end_time", Instant.class))
+                .input(Optional.ofNullable(getIfPresent(row, rowMetadata, "input", String.class))
+                        .filter(str -> !str.isBlank())
+                        .map(RawJsonNode::new)
+                        .orElse(null))
+                .output(Optional.ofNullable(getIfPresent(row, rowMetadata, "output", String.class))
+                        .filter(str -> !str.isBlank())
+                        .map(RawJsonNode::new)
+                        .orElse(null))
+                .metadata(Optional.ofNullable(getIfPresent(row, rowMetadata, "metadata", String.class))
+                        .filter(str -> !str.isBlank())
+                        .map(RawJsonNode::new)
+                        .orElse(null))
+                .model(row.get("model", String.class))
+                .provider(row.get("provider", String.class))
+                .totalEstimatedCost(Optional.ofNullable(
+                        getIfPresent(row, rowMetadata, "total_estimated_cost", BigDecimal.class))
+                        .filter(cost -> cost.compareTo(BigDecimal.ZERO) != 0)
+                        .orElse(null))
+                .tags(Optional.of(Arrays.stream(row.get("tags", String[].class)).collect(Collectors.toSet()))
+                        .filter(set -> !set.isEmpty())
+                        .orElse(null))
+                .usage(getIfPresent(row, rowMetadata, "usage", Map.class))
+                .createdAt(row.get("created_at", Instant.class))
+                .lastUpdatedAt(row.get("last_updated_at", Instant.class))
+                .createdBy(row.get("created_by", String.class))
+                .lastUpdatedBy(row.get("last_updated_by", String.class))
+                .build();
     }
 
     @WithSpan
     public Mono<Span.SpanPage> find(int page, int size, @NonNull SpanSearchCriteria spanSearchCriteria) {
         log.info("Finding span by '{}'", spanSearchCriteria);
-        return countTotal(spanSearchCriteria).flatMap(total -> find(page, size, spanSearchCriteria, total));
+        return countAndPage(countTotal(spanSearchCriteria), findSpans(page, size, spanSearchCriteria),
+                (total, spans) -> new Span.SpanPage(page, spans.size(), total, spans,
+                        PaginationUtils.nextCursor(spans, size, Span::id)));
     }
 
-    private Mono<Span.SpanPage> find(int page, int size, SpanSearchCriteria spanSearchCriteria, Long total) {
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> find(page, size, spanSearchCriteria, connection))
-                .flatMap(this::mapToDto)
-                .collectList()
-                .flatMap(this::enhanceWithFeedbackScores)
-                .map(spans -> new Span.SpanPage(page, spans.size(), total, spans));
+    private Mono<List<Span>> findSpans(int page, int size, SpanSearchCriteria spanSearchCriteria) {
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(find(page, size, spanSearchCriteria, connection))
+                        .flatMap(this::mapToDto)
+                        .collectList(),
+                Connection::close)
+                .flatMap(spans -> excluded(spanSearchCriteria).contains(ResponseField.FEEDBACK_SCORES)
+                        ? Mono.just(spans)
+                        : enhanceWithFeedbackScores(spans));
     }
 
     private Mono<List<Span>> enhanceWithFeedbackScores(List<Span> spans) {
@@ -1082,7 +1373,7 @@ class SpanDAO {
                         .map(metadata -> metadata.get("model"))
                         .map(JsonNode::asText).orElse("");
 
-        return ModelPrice.fromString(model).calculateCost(span.usage());
+        return modelPriceRegistry.calculateCost(model, span.usage());
     }
 
     private Publisher<? extends Result> find(int page, int size, SpanSearchCriteria spanSearchCriteria,
@@ -1090,10 +1381,21 @@ class SpanDAO {
 
         var template = newFindTemplate(SELECT_BY_PROJECT_ID, spanSearchCriteria);
         template = ImageUtils.addTruncateToTemplate(template, spanSearchCriteria.truncate());
+        // sparse fieldsets: the excluded columns are left out of the projection, they're the largest ones
+        for (ResponseField field : excluded(spanSearchCriteria)) {
+            template.add("exclude_" + field.getValue(), true);
+        }
+        // keyset pagination: with a cursor, the page starts right after the last id retrieved instead of at an offset
+        if (spanSearchCriteria.lastRetrievedId() != null) {
+            template.add("last_retrieved_id", true);
+        }
         var statement = connection.createStatement(template.render())
                 .bind("project_id", spanSearchCriteria.projectId())
                 .bind("limit", size)
-                .bind("offset", (page - 1) * size);
+                .bind("offset", spanSearchCriteria.lastRetrievedId() == null ? (page - 1) * size : 0);
+        if (spanSearchCriteria.lastRetrievedId() != null) {
+            statement.bind("last_retrieved_id", spanSearchCriteria.lastRetrievedId());
+        }
 
         bindSearchCriteria(statement, spanSearchCriteria);
 
@@ -1104,14 +1406,22 @@ class SpanDAO {
     }
 
     private Mono<Long> countTotal(SpanSearchCriteria spanSearchCriteria) {
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> countTotal(spanSearchCriteria, connection))
-                .flatMap(result -> result.map((row, rowMetadata) -> row.get("count", Long.class)))
-                .reduce(0L, Long::sum);
+        if (spanSearchCriteria.countMode() == CountMode.NONE) {
+            return Mono.just(Page.UNKNOWN_TOTAL);
+        }
+
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(countTotal(spanSearchCriteria, connection))
+                        .flatMap(result -> result.map((row, rowMetadata) -> row.get("count", Long.class)))
+                        .reduce(0L, Long::sum),
+                Connection::close);
     }
 
     private Publisher<? extends Result> countTotal(SpanSearchCriteria spanSearchCriteria, Connection connection) {
         var template = newFindTemplate(COUNT_BY_PROJECT_ID, spanSearchCriteria);
+        if (spanSearchCriteria.countMode() == CountMode.APPROXIMATE) {
+            template.add("approximate", true);
+        }
         var statement = connection.createStatement(template.render())
                 .bind("project_id", spanSearchCriteria.projectId());
 
@@ -1123,6 +1433,10 @@ class SpanDAO {
                 .doFinally(signalType -> endSegment(segment));
     }
 
+    private Set<ResponseField> excluded(SpanSearchCriteria spanSearchCriteria) {
+        return SetUtils.emptyIfNull(spanSearchCriteria.exclude());
+    }
+
     private ST newFindTemplate(String query, SpanSearchCriteria spanSearchCriteria) {
         var template = new ST(query);
         Optional.ofNullable(spanSearchCriteria.traceId())
@@ -1136,6 +1450,8 @@ class SpanDAO {
                     filterQueryBuilder.toAnalyticsDbFilters(filters, FilterStrategy.FEEDBACK_SCORES)
                             .ifPresent(scoresFilters -> template.add("feedback_scores_filters", scoresFilters));
                 });
+        filterQueryBuilder.toAnalyticsDbSearch(spanSearchCriteria.search())
+                .ifPresent(search -> template.add("search", search));
         return template;
     }
 
@@ -1149,6 +1465,7 @@ class SpanDAO {
                     filterQueryBuilder.bind(statement, filters, FilterStrategy.SPAN);
                     filterQueryBuilder.bind(statement, filters, FilterStrategy.FEEDBACK_SCORES);
                 });
+        filterQueryBuilder.bindSearch(statement, spanSearchCriteria.search());
     }
 
     @WithSpan
@@ -1157,18 +1474,19 @@ class SpanDAO {
             return Mono.just(List.of());
         }
 
-        return Mono.from(connectionFactory.create())
-                .flatMap(connection -> {
-
-                    var statement = connection.createStatement(SELECT_SPAN_ID_AND_WORKSPACE)
+        return Mono.usingWhen(connectionFactory.create(), connection -> resolve(connection, SPAN_LOCATIONS, spanIds)
+                .flatMap(locations -> {
+                    var statement = connection
+                            .createStatement(locations.addTo(new ST(SELECT_SPAN_ID_AND_WORKSPACE)).render())
                             .bind("spanIds", spanIds.toArray(UUID[]::new));
-
-                    return Mono.from(statement.execute());
-                })
-                .flatMapMany(result -> result.map((row, rowMetadata) -> new WorkspaceAndResourceId(
-                        row.get("workspace_id", String.class),
-                        row.get("id", UUID.class))))
-                .collectList();
+                    locations.bind(statement);
+
+                    return Flux.from(statement.execute())
+                            .flatMap(result -> result.map((row, rowMetadata) -> new WorkspaceAndResourceId(
+                                    row.get("workspace_id", String.class),
+                                    row.get("id", UUID.class))))
+                            .collectList();
+                }), Connection::close);
     }
 
     @WithSpan
@@ -1178,39 +1496,39 @@ class SpanDAO {
             return Mono.just(Map.of());
         }
 
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> {
-
-                    var statement = connection.createStatement(SELECT_PROJECT_ID_FROM_SPANS)
+        return Mono.usingWhen(connectionFactory.create(), connection -> resolve(connection, SPAN_LOCATIONS, spanIds)
+                .flatMap(locations -> {
+                    var statement = connection
+                            .createStatement(locations.addTo(new ST(SELECT_PROJECT_ID_FROM_SPANS)).render())
                             .bind("ids", spanIds.toArray(UUID[]::new));
+                    locations.bind(statement);
 
-                    return makeFluxContextAware(bindWorkspaceIdToFlux(statement));
-                })
-                .flatMap(result -> result.map((row, rowMetadata) -> Map.entry(
-                        row.get("id", UUID.class),
-                        row.get("project_id", UUID.class))))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+                    return makeFluxContextAware(bindWorkspaceIdToFlux(statement))
+                            .flatMap(result -> result.map((row, rowMetadata) -> Map.entry(
+                                    row.get("id", UUID.class),
+                                    row.get("project_id", UUID.class))))
+                            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+                }), Connection::close);
     }
 
     @WithSpan
     public Mono<ProjectStats> getStats(@NonNull SpanSearchCriteria searchCriteria) {
 
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(connection -> {
-                    var template = newFindTemplate(SELECT_SPANS_STATS, searchCriteria);
+        return Mono.usingWhen(connectionFactory.create(), connection -> {
+            var template = newFindTemplate(SELECT_SPANS_STATS, searchCriteria);
 
-                    var statement = connection.createStatement(template.render())
-                            .bind("project_id", searchCriteria.projectId());
+            var statement = connection.createStatement(template.render())
+                    .bind("project_id", searchCriteria.projectId());
 
-                    bindSearchCriteria(statement, searchCriteria);
+            bindSearchCriteria(statement, searchCriteria);
 
-                    Segment segment = startSegment("spans", "Clickhouse", "stats");
+            Segment segment = startSegment("spans", "Clickhouse", "stats");
 
-                    return makeFluxContextAware(bindWorkspaceIdToFlux(statement))
-                            .doFinally(signalType -> endSegment(segment));
-                })
-                .flatMap(result -> result.map(((row, rowMetadata) -> StatsMapper.mapProjectStats(row, "span_count"))))
-                .singleOrEmpty();
+            return makeFluxContextAware(bindWorkspaceIdToFlux(statement))
+                    .flatMap(result -> result.map((row, rowMetadata) -> StatsMapper.mapProjectStats(row, "span_count")))
+                    .singleOrEmpty()
+                    .doFinally(signalType -> endSegment(segment));
+        }, Connection::close);
     }
 
 }
@@ -10,6 +10,8 @@ import com.comet.opik.api.SpanUpdate;
 import com.comet.opik.api.error.EntityAlreadyExistsException;
 import com.comet.opik.api.error.ErrorMessage;
 import com.comet.opik.api.error.IdentifierMismatchException;
+import com.comet.opik.domain.stats.ProjectStatsCache;
+import com.comet.opik.infrastructure.DistributedLockConfig;
 import com.comet.opik.infrastructure.auth.RequestContext;
 import com.comet.opik.infrastructure.lock.LockService;
 import com.comet.opik.utils.WorkspaceUtils;
@@ -24,6 +26,7 @@ import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
+import ru.vyarus.dropwizard.guice.module.yaml.bind.Config;
 
 import java.time.Instant;
 import java.util.List;
@@ -51,6 +54,10 @@ public class SpanService {
     private final @NonNull ProjectService projectService;
     private final @NonNull IdGenerator idGenerator;
     private final @NonNull LockService lockService;
+    private final @NonNull IngestionBuffer ingestionBuffer;
+    private final @NonNull AttachmentService attachmentService;
+    private final @NonNull ProjectStatsCache statsCache;
+    private final @NonNull @Config("distributedLock") DistributedLockConfig distributedLockConfig;
 
     @WithSpan
     public Mono<Span.SpanPage> find(int page, int size, @NonNull SpanSearchCriteria searchCriteria) {
@@ -90,10 +97,18 @@ public class SpanService {
 
         return IdGenerator
                 .validateVersionAsync(id, SPAN_KEY)
-                .then(getOrCreateProject(projectName))
-                .flatMap(project -> lockService.executeWithLock(
-                        new LockService.Lock(id, SPAN_KEY),
-                        Mono.defer(() -> insertSpan(span, project, id))));
+                .then(Mono.defer(() -> attachmentService.offload(span)))
+                .flatMap(offloadedSpan -> getOrCreateProject(projectName)
+                        .flatMap(project -> {
+                            Mono<UUID> insert = distributedLockConfig.isLockFreeUpserts()
+                                    // the insert statement merges with the latest stored span and fails on mismatches
+                                    ? create(offloadedSpan, project, id).onErrorResume(this::handleSpanDBError)
+                                    : lockService.executeWithLock(
+                                            new LockService.Lock(id, SPAN_KEY),
+                                            Mono.defer(() -> insertSpan(offloadedSpan, project, id)));
+
+                            return insert.delayUntil(__ -> statsCache.invalidate(project.id()));
+                        }));
     }
 
     private Mono<Project> getOrCreateProject(String projectName) {
@@ -164,6 +179,11 @@ public class SpanService {
 
     @WithSpan
     public Mono<Void> update(@NonNull UUID id, @NonNull SpanUpdate spanUpdate) {
+        return attachmentService.offload(spanUpdate)
+                .flatMap(offloadedUpdate -> applyUpdate(id, offloadedUpdate));
+    }
+
+    private Mono<Void> applyUpdate(UUID id, SpanUpdate spanUpdate) {
         log.info("Updating span with id '{}'", id);
 
         String projectName = WorkspaceUtils.getProjectName(spanUpdate.projectName());
@@ -174,14 +194,23 @@ public class SpanService {
                         .switchIfEmpty(Mono.defer(() -> getOrCreateProject(projectName)))
                         .subscribeOn(Schedulers.boundedElastic()))
                         //TODO: refactor to implement proper conflict resolution
-                        .flatMap(project -> lockService.executeWithLock(
-                                new LockService.Lock(id, SPAN_KEY),
-                                Mono.defer(() -> spanDAO.getById(id)
-                                        .flatMap(span -> updateOrFail(spanUpdate, id, span, project))
-                                        .switchIfEmpty(
-                                                Mono.defer(() -> spanDAO.partialInsert(id, project.id(), spanUpdate)))
-                                        .onErrorResume(this::handleSpanDBError)
-                                        .then()))));
+                        .flatMap(project -> {
+                            Mono<Void> update = distributedLockConfig.isLockFreeUpserts()
+                                    // the partial insert covers both the existing and the missing span cases
+                                    ? spanDAO.partialInsert(id, project.id(), spanUpdate)
+                                            .onErrorResume(this::handleSpanDBError)
+                                            .then()
+                                    : lockService.executeWithLock(
+                                            new LockService.Lock(id, SPAN_KEY),
+                                            Mono.defer(() -> spanDAO.getById(id)
+                                                    .flatMap(span -> updateOrFail(spanUpdate, id, span, project))
+                                                    .switchIfEmpty(Mono.defer(
+                                                            () -> spanDAO.partialInsert(id, project.id(), spanUpdate)))
+                                                    .onErrorResume(this::handleSpanDBError)
+                                                    .then()));
+
+                            return update.then(Mono.defer(() -> statsCache.invalidate(project.id())));
+                        }));
     }
 
     private Mono<Project> getProjectById(SpanUpdate spanUpdate) {
@@ -197,9 +226,8 @@ public class SpanService {
 
     private <T> Mono<T> handleSpanDBError(Throwable ex) {
         if (ex instanceof ClickHouseException
-                && ex.getMessage().contains("TOO_LARGE_STRING_SIZE")
-                && (ex.getMessage().contains("_CAST(project_id, FixedString(36))")
-                        || ex.getMessage()
+                && (ex.getMessage().contains("PROJECT_ID_MISMATCH")
+                        || ex.getMessage().contains("TOO_LARGE_STRING_SIZE") && ex.getMessage()
                                 .contains(", CAST(leftPad(workspace_id, 40, '*'), 'FixedString(19)') ::"))) {
             return failWithConflict(PROJECT_NAME_MISMATCH);
         }
@@ -227,7 +255,8 @@ public class SpanService {
             return failWithConflict(PROJECT_NAME_MISMATCH);
         }
 
-        if (!Objects.equals(existingSpan.parentSpanId(), spanUpdate.parentSpanId())) {
+        if (spanUpdate.parentSpanId() != null
+                && !Objects.equals(existingSpan.parentSpanId(), spanUpdate.parentSpanId())) {
             return failWithConflict(PARENT_SPAN_IS_MISMATCH);
         }
 
@@ -277,7 +306,9 @@ public class SpanService {
                 .subscribeOn(Schedulers.boundedElastic());
 
         return resolveProjects
-                .flatMap(spanDAO::batchInsert);
+                .flatMap(attachmentService::offloadSpans)
+                .flatMap(spans -> ingestionBuffer.enqueueSpans(spans)
+                        .delayUntil(__ -> statsCache.invalidate(spans.stream().map(Span::projectId).toList())));
     }
 
     private List<Span> bindSpanToProjectAndId(SpanBatch batch, List<Project> projects) {
@@ -300,7 +331,7 @@ public class SpanService {
 
     public Mono<ProjectStats> getStats(@NonNull SpanSearchCriteria criteria) {
         if (criteria.projectId() != null) {
-            return spanDAO.getStats(criteria);
+            return getStats(criteria, criteria.projectId());
         }
 
         return makeMonoContextAware(
@@ -309,7 +340,14 @@ public class SpanService {
                             case NoSuchElementException __ -> Mono.error(new NotFoundException("Project not found"));
                             default -> Mono.error(e);
                         }))
-                .flatMap(project -> spanDAO.getStats(criteria.toBuilder().projectId(project.id()).build()))
+                .flatMap(project -> getStats(criteria, project.id()))
                 .switchIfEmpty(Mono.just(ProjectStats.empty()));
     }
+
+    private Mono<ProjectStats> getStats(SpanSearchCriteria criteria, UUID projectId) {
+        String scope = "spans:%s:%s".formatted(criteria.traceId(), criteria.type());
+
+        return statsCache.get(scope, projectId, criteria.filters(), criteria.search(),
+                () -> spanDAO.getStats(criteria.toBuilder().projectId(projectId).build()));
+    }
 }
@@ -1,57 +1,84 @@
 package com.comet.opik.domain;
 
 import com.comet.opik.utils.JsonUtils;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.dropwizard.jersey.errors.ErrorMessage;
 import jakarta.inject.Singleton;
+import jakarta.ws.rs.core.StreamingOutput;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
-import org.glassfish.jersey.server.ChunkedOutput;
 import reactor.core.publisher.Flux;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.publisher.Signal;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.UncheckedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
 
+/**
+ * Streams items as JSON documents delimited by {@code \r\n}.
+ * <br>
+ * Items are serialized straight to the response with a single generator, without an intermediate tree, and coalesced:
+ * they're flushed to the client as one chunk per batch of up to {@code MAX_BATCH_SIZE} items, or whatever arrived within
+ * {@code MAX_BATCH_WAIT}, and in between whenever the chunk buffer fills up.
+ * <br>
+ * The response is written on the request thread, which blocks while the client isn't reading. Only
+ * {@code PREFETCH_BATCHES} batches are requested from the items flux ahead of the writes, so a slow client slows the
+ * database reads down instead of making the server buffer the items.
+ * */
 @Singleton
 @Slf4j
 public class Streamer {
 
-    public <T> ChunkedOutput<JsonNode> getOutputStream(@NonNull Flux<T> flux) {
-        var outputStream = new ChunkedOutput<JsonNode>(JsonNode.class, "\r\n");
-        Schedulers.boundedElastic()
-                .schedule(() -> flux.doOnNext(item -> sendItem(item, outputStream))
-                        .onErrorResume(throwable -> handleError(throwable, outputStream))
-                        .doFinally(signalType -> close(outputStream))
-                        .subscribe());
-        return outputStream;
-    }
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final Duration MAX_BATCH_WAIT = Duration.ofMillis(50);
+    private static final int PREFETCH_BATCHES = 2;
+    private static final int CHUNK_SIZE_IN_BYTES = 64 * 1024;
+    private static final String DELIMITER = "\r\n";
 
-    private <T> void sendItem(T item, ChunkedOutput<JsonNode> outputStream) {
-        try {
-            outputStream.write(JsonUtils.readTree(item));
-        } catch (IOException exception) {
-            throw new UncheckedIOException(exception);
-        }
+    private static final ObjectWriter WRITER = JsonUtils.MAPPER.writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    public <T> StreamingOutput getOutputStream(@NonNull Flux<T> flux) {
+        return outputStream -> write(flux, outputStream);
     }
 
-    private <T> Flux<T> handleError(Throwable throwable, ChunkedOutput<JsonNode> outputStream) {
-        if (throwable instanceof TimeoutException) {
-            try {
-                outputStream.write(JsonUtils.readTree(new ErrorMessage(500, "Streaming operation timed out")));
-            } catch (IOException ioException) {
-                log.error("Failed to stream error message to client", ioException);
+    <T> void write(Flux<T> flux, OutputStream outputStream) throws IOException {
+        // the items are materialized, so an error doesn't discard the items of the batch it's emitted with
+        try (var batches = flux.materialize()
+                .bufferTimeout(MAX_BATCH_SIZE, MAX_BATCH_WAIT, true)
+                .toStream(PREFETCH_BATCHES);
+                var generator = WRITER.createGenerator(new BufferedOutputStream(outputStream, CHUNK_SIZE_IN_BYTES))) {
+            // the items are delimited explicitly, instead of separated by a space
+            generator.setRootValueSeparator(null);
+
+            for (List<Signal<T>> batch : (Iterable<List<Signal<T>>>) batches::iterator) {
+                for (Signal<T> signal : batch) {
+                    if (signal.isOnNext()) {
+                        writeItem(signal.get(), generator);
+                    } else if (signal.isOnError()) {
+                        handleError(signal.getThrowable(), generator);
+                    }
+                }
+                generator.flush();
             }
         }
-        return Flux.error(throwable);
     }
 
-    private void close(ChunkedOutput<JsonNode> outputStream) {
-        try {
-            outputStream.close();
-        } catch (IOException exception) {
-            log.error("Error while closing output stream", exception);
+    private void writeItem(Object item, JsonGenerator generator) throws IOException {
+        WRITER.writeValue(generator, item);
+        generator.writeRaw(DELIMITER);
+    }
+
+    private void handleError(Throwable throwable, JsonGenerator generator) throws IOException {
+        if (throwable instanceof TimeoutException) {
+            writeItem(new ErrorMessage(500, "Streaming operation timed out"), generator);
+            return;
         }
+        log.error("Error while streaming items", throwable);
     }
 }
@@ -1,15 +1,20 @@
 package com.comet.opik.domain;
 
 import com.comet.opik.api.BiInformationResponse.BiInformation;
+import com.comet.opik.api.CountMode;
+import com.comet.opik.api.Page;
 import com.comet.opik.api.ProjectStats;
+import com.comet.opik.api.ResponseField;
 import com.comet.opik.api.Trace;
 import com.comet.opik.api.TraceSearchCriteria;
 import com.comet.opik.api.TraceUpdate;
 import com.comet.opik.domain.filter.FilterQueryBuilder;
 import com.comet.opik.domain.filter.FilterStrategy;
 import com.comet.opik.domain.stats.StatsMapper;
+import com.comet.opik.infrastructure.db.RowBinaryInsertTemplate;
+import com.comet.opik.infrastructure.db.RowBinaryWriter;
 import com.comet.opik.infrastructure.db.TransactionTemplateAsync;
-import com.comet.opik.utils.JsonUtils;
+import com.comet.opik.utils.RawJsonNode;
 import com.comet.opik.utils.TemplateUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.base.Preconditions;
@@ -24,6 +29,7 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.SetUtils;
 import org.reactivestreams.Publisher;
 import org.stringtemplate.v4.ST;
 import reactor.core.publisher.Flux;
@@ -40,17 +46,19 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
-import static com.comet.opik.api.Trace.TracePage;
 import static com.comet.opik.api.TraceCountResponse.WorkspaceTraceCount;
 import static com.comet.opik.domain.AsyncContextUtils.bindUserNameAndWorkspaceContext;
 import static com.comet.opik.domain.AsyncContextUtils.bindWorkspaceIdToFlux;
 import static com.comet.opik.domain.AsyncContextUtils.bindWorkspaceIdToMono;
 import static com.comet.opik.domain.FeedbackScoreDAO.EntityType;
+import static com.comet.opik.domain.LocationUtils.LocationTable.TRACE_LOCATIONS;
+import static com.comet.opik.domain.LocationUtils.resolve;
 import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.Segment;
 import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.endSegment;
 import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.startSegment;
 import static com.comet.opik.utils.AsyncUtils.makeFluxContextAware;
 import static com.comet.opik.utils.AsyncUtils.makeMonoContextAware;
+import static com.comet.opik.utils.RowUtils.getIfPresent;
 import static com.comet.opik.utils.TemplateUtils.getQueryItemPlaceHolder;
 
 @ImplementedBy(TraceDAOImpl.class)
@@ -66,7 +74,9 @@ interface TraceDAO {
 
     Mono<Trace> findById(UUID id, Connection connection);
 
-    Mono<TracePage> find(int size, int page, TraceSearchCriteria traceSearchCriteria, Connection connection);
+    Mono<List<Trace>> find(int size, int page, TraceSearchCriteria traceSearchCriteria, Connection connection);
+
+    Mono<Long> countTotal(TraceSearchCriteria traceSearchCriteria, Connection connection);
 
     Mono<Void> partialInsert(UUID projectId, TraceUpdate traceUpdate, UUID traceId, Connection connection);
 
@@ -74,6 +84,8 @@ interface TraceDAO {
 
     Mono<Long> batchInsert(List<Trace> traces, Connection connection);
 
+    Mono<Long> batchInsertRows(List<IngestionRow<Trace>> rows, Connection connection);
+
     Flux<WorkspaceTraceCount> countTracesPerWorkspace(Connection connection);
 
     Mono<Map<UUID, Instant>> getLastUpdatedTraceAt(Set<UUID> projectIds, String workspaceId, Connection connection);
@@ -109,7 +121,7 @@ class TraceDAOImpl implements TraceDAO {
                     (
                         :id<item.index>,
                         :project_id<item.index>,
-                        :workspace_id,
+                        :workspace_id<item.index>,
                         :name<item.index>,
                         parseDateTime64BestEffort(:start_time<item.index>, 9),
                         if(:end_time<item.index> IS NULL, NULL, parseDateTime64BestEffort(:end_time<item.index>, 9)),
@@ -117,14 +129,61 @@ class TraceDAOImpl implements TraceDAO {
                         :output<item.index>,
                         :metadata<item.index>,
                         :tags<item.index>,
-                        :user_name,
-                        :user_name
+                        :user_name<item.index>,
+                        :user_name<item.index>
                     )
                     <if(item.hasNext)>,<endif>
                 }>
             ;
             """;
 
+    /**
+     * RowBinary counterpart of BATCH_INSERT. Rows are streamed with the structure declared in input(), and converted
+     * into the column types of the table by the SELECT.
+     **/
+    private static final String BATCH_INSERT_ROW_BINARY = """
+            INSERT INTO traces(
+                id,
+                project_id,
+                workspace_id,
+                name,
+                start_time,
+                end_time,
+                input,
+                output,
+                metadata,
+                tags,
+                created_by,
+                last_updated_by
+            )
+            SELECT
+                id,
+                project_id,
+                workspace_id,
+                name,
+                fromUnixTimestamp64Nano(start_time, 'UTC'),
+                if(end_time IS NULL, NULL, fromUnixTimestamp64Nano(assumeNotNull(end_time), 'UTC')),
+                input,
+                output,
+                metadata,
+                tags,
+                user_name,
+                user_name
+            FROM input('
+                id String,
+                project_id String,
+                workspace_id String,
+                name String,
+                start_time Int64,
+                end_time Nullable(Int64),
+                input String,
+                output String,
+                metadata String,
+                tags Array(String),
+                user_name String
+            ')
+            """;
+
     /**
      * This query handles the insertion of a new trace into the database in two cases:
      * 1. When the trace does not exist in the database.
@@ -145,13 +204,14 @@ class TraceDAOImpl implements TraceDAO {
                 tags,
                 created_at,
                 created_by,
-                last_updated_by
+                last_updated_by,
+                previous_start_time
             )
             SELECT
                 new_trace.id as id,
-                multiIf(
-                    LENGTH(CAST(old_trace.project_id AS Nullable(String))) > 0 AND notEquals(old_trace.project_id, new_trace.project_id), leftPad('', 40, '*'),
-                    LENGTH(CAST(old_trace.project_id AS Nullable(String))) > 0, old_trace.project_id,
+                if(
+                    throwIf(LENGTH(old_trace.workspace_id) > 0 AND notEquals(toString(old_trace.project_id), new_trace.project_id), 'PROJECT_ID_MISMATCH'),
+                    '',
                     new_trace.project_id
                 ) as project_id,
                 multiIf(
@@ -195,7 +255,8 @@ class TraceDAOImpl implements TraceDAO {
                     LENGTH(old_trace.created_by) > 0, old_trace.created_by,
                     new_trace.created_by
                 ) as created_by,
-                new_trace.last_updated_by as last_updated_by
+                new_trace.last_updated_by as last_updated_by,
+                if(LENGTH(old_trace.workspace_id) > 0, old_trace.start_time, NULL) as previous_start_time
             FROM (
                 SELECT
                     :id as id,
@@ -217,6 +278,7 @@ class TraceDAOImpl implements TraceDAO {
                     *
                 FROM traces
                 WHERE id = :id
+                <if(location)> AND <location> <endif>
                 ORDER BY id DESC, last_updated_at DESC
                 LIMIT 1
             ) as old_trace
@@ -229,7 +291,8 @@ class TraceDAOImpl implements TraceDAO {
      ***/
     private static final String UPDATE = """
             INSERT INTO traces (
-            	id, project_id, workspace_id, name, start_time, end_time, input, output, metadata, tags, created_at, created_by, last_updated_by
+            	id, project_id, workspace_id, name, start_time, end_time, input, output, metadata, tags, created_at, created_by, last_updated_by,
+            	previous_start_time
             ) SELECT
             	id,
             	project_id,
@@ -243,12 +306,30 @@ class TraceDAOImpl implements TraceDAO {
             	<if(tags)> :tags <else> tags <endif> as tags,
             	created_at,
             	created_by,
-                :user_name as last_updated_by
-            FROM traces
-            WHERE id = :id
-            AND workspace_id = :workspace_id
-            ORDER BY id DESC, last_updated_at DESC
-            LIMIT 1
+                :user_name as last_updated_by,
+                old_start_time as previous_start_time
+            FROM (
+                SELECT
+                    id,
+                    project_id,
+                    workspace_id,
+                    name,
+                    start_time,
+                    end_time,
+                    input,
+                    output,
+                    metadata,
+                    tags,
+                    created_at,
+                    created_by,
+                    start_time as old_start_time
+                FROM traces
+                WHERE workspace_id = :workspace_id
+                <if(location)> AND <location> <endif>
+                AND id = :id
+                ORDER BY id DESC, last_updated_at DESC
+                LIMIT 1
+            )
             ;
             """;
 
@@ -262,6 +343,7 @@ class TraceDAOImpl implements TraceDAO {
                     *
                 FROM traces
                 WHERE workspace_id = :workspace_id
+                <if(location)> AND <location> <endif>
                 AND id = :id
                 ORDER BY id DESC, last_updated_at DESC
                 LIMIT 1 BY id
@@ -273,6 +355,7 @@ class TraceDAOImpl implements TraceDAO {
                     total_estimated_cost
                 FROM spans
                 WHERE workspace_id = :workspace_id
+                <if(location)> AND <location> <endif>
                 AND trace_id = :id
                 ORDER BY id DESC, last_updated_at DESC
                 LIMIT 1 BY id
@@ -284,11 +367,7 @@ class TraceDAOImpl implements TraceDAO {
             """;
 
     private static final String SELECT_BY_PROJECT_ID = """
-            SELECT
-                t.*,
-                sumMap(s.usage) as usage,
-                sum(s.total_estimated_cost) as total_estimated_cost
-            FROM (
+            WITH traces_page AS (
                 SELECT
                      id,
                      workspace_id,
@@ -296,9 +375,9 @@ class TraceDAOImpl implements TraceDAO {
                      name,
                      start_time,
                      end_time,
-                     <if(truncate)> replaceRegexpAll(input, '<truncate>', '"[image]"') as input <else> input <endif>,
-                     <if(truncate)> replaceRegexpAll(output, '<truncate>', '"[image]"') as output <else> output <endif>,
-                     <if(truncate)> replaceRegexpAll(metadata, '<truncate>', '"[image]"') as metadata <else> metadata <endif>,
+                     <if(!exclude_input)> <if(truncate)> replaceRegexpAll(input, '<truncate>', '"[image]"') as input <else> input <endif>, <endif>
+                     <if(!exclude_output)> <if(truncate)> replaceRegexpAll(output, '<truncate>', '"[image]"') as output <else> output <endif>, <endif>
+                     <if(!exclude_metadata)> <if(truncate)> replaceRegexpAll(metadata, '<truncate>', '"[image]"') as metadata <else> metadata <endif>, <endif>
                      tags,
                      created_at,
                      last_updated_at,
@@ -307,7 +386,9 @@ class TraceDAOImpl implements TraceDAO {
                  FROM traces
                  WHERE project_id = :project_id
                  AND workspace_id = :workspace_id
+                 <if(last_retrieved_id)> AND id \\< :last_retrieved_id <endif>
                  <if(filters)> AND <filters> <endif>
+                 <if(search)> AND <search> <endif>
                  <if(feedback_scores_filters)>
                  AND id in (
                     SELECT
@@ -325,25 +406,46 @@ class TraceDAOImpl implements TraceDAO {
                     HAVING <feedback_scores_filters>
                  )
                  <endif>
+                 <if(trace_aggregation_filters)>
+                 AND id IN (
+                    SELECT
+                        trace_id
+                    FROM (
+                        SELECT
+                            trace_id,
+                            usage,
+                            total_estimated_cost
+                        FROM trace_summaries
+                        WHERE workspace_id = :workspace_id
+                        AND project_id = :project_id
+                        ORDER BY trace_id DESC, last_updated_at DESC
+                        LIMIT 1 BY trace_id
+                    )
+                    WHERE <trace_aggregation_filters>
+                 )
+                 <endif>
                  ORDER BY id DESC, last_updated_at DESC
                  LIMIT 1 BY id
                  LIMIT :limit OFFSET :offset
-            ) AS t
+            )
+            SELECT
+                t.*
+                <if(!exclude_usage)>, s.usage as usage <endif>
+                <if(!exclude_total_estimated_cost)>, s.total_estimated_cost as total_estimated_cost <endif>
+            FROM traces_page AS t
+            <if(!exclude_trace_summaries)>
             LEFT JOIN (
                 SELECT
                     trace_id,
                     usage,
                     total_estimated_cost
-                FROM spans
+                FROM trace_summaries
                 WHERE workspace_id = :workspace_id
                 AND project_id = :project_id
-                ORDER BY id DESC, last_updated_at DESC
-                LIMIT 1 BY id
+                AND trace_id IN (SELECT id FROM traces_page)
+                ORDER BY trace_id DESC, last_updated_at DESC
+                LIMIT 1 BY trace_id
             ) AS s ON t.id = s.trace_id
-            GROUP BY
-                t.*
-            <if(trace_aggregation_filters)>
-            HAVING <trace_aggregation_filters>
             <endif>
             ORDER BY t.id DESC
             ;
@@ -372,56 +474,54 @@ class TraceDAOImpl implements TraceDAO {
 
     private static final String COUNT_BY_PROJECT_ID = """
             SELECT
-                count(id) as count
+                <if(approximate)> uniqCombined(id) <else> count(id) <endif> as count
             FROM (
                 SELECT
-                    t.id,
-                    sumMap(s.usage) as usage,
-                    sum(s.total_estimated_cost) as total_estimated_cost
-                FROM (
+                    id
+                FROM traces
+                WHERE project_id = :project_id
+                AND workspace_id = :workspace_id
+                <if(filters)> AND <filters> <endif>
+                <if(search)> AND <search> <endif>
+                <if(feedback_scores_filters)>
+                AND id in (
                     SELECT
-                        id
-                    FROM traces
-                    WHERE project_id = :project_id
-                    AND workspace_id = :workspace_id
-                    <if(filters)> AND <filters> <endif>
-                    <if(feedback_scores_filters)>
-                    AND id in (
-                        SELECT
-                            entity_id
-                        FROM (
-                            SELECT *
-                            FROM feedback_scores
-                            WHERE entity_type = 'trace'
-                            AND workspace_id = :workspace_id
-                            AND project_id = :project_id
-                            ORDER BY entity_id DESC, last_updated_at DESC
-                            LIMIT 1 BY entity_id, name
-                        )
-                        GROUP BY entity_id
-                        HAVING <feedback_scores_filters>
+                        entity_id
+                    FROM (
+                        SELECT *
+                        FROM feedback_scores
+                        WHERE entity_type = 'trace'
+                        AND workspace_id = :workspace_id
+                        AND project_id = :project_id
+                        ORDER BY entity_id DESC, last_updated_at DESC
+                        LIMIT 1 BY entity_id, name
                     )
-                    <endif>
-                    ORDER BY id DESC, last_updated_at DESC
-                    LIMIT 1 BY id
-                ) AS t
-                LEFT JOIN (
-                    SELECT
-                        trace_id,
-                        usage,
-                        total_estimated_cost
-                    FROM spans
-                    WHERE workspace_id = :workspace_id
-                    AND project_id = :project_id
-                    ORDER BY id DESC, last_updated_at DESC
-                    LIMIT 1 BY id
-                ) AS s ON t.id = s.trace_id
-                GROUP BY
-                    t.id
+                    GROUP BY entity_id
+                    HAVING <feedback_scores_filters>
+                )
+                <endif>
                 <if(trace_aggregation_filters)>
-                HAVING <trace_aggregation_filters>
+                AND id IN (
+                    SELECT
+                        trace_id
+                    FROM (
+                        SELECT
+                            trace_id,
+                            usage,
+                            total_estimated_cost
+                        FROM trace_summaries
+                        WHERE workspace_id = :workspace_id
+                        AND project_id = :project_id
+                        ORDER BY trace_id DESC, last_updated_at DESC
+                        LIMIT 1 BY trace_id
+                    )
+                    WHERE <trace_aggregation_filters>
+                )
+                <endif>
+                <if(!approximate)>
+                ORDER BY id DESC, last_updated_at DESC
+                LIMIT 1 BY id
                 <endif>
-                ORDER BY t.id DESC
             ) AS latest_rows
             ;
             """;
@@ -433,11 +533,61 @@ class TraceDAOImpl implements TraceDAO {
             ;
             """;
 
+    /**
+     * Marks the latest row of the traces as deleted in the hourly duration rollup, before they are deleted.
+     **/
+    private static final String DELETE_DURATIONS_BY_ID = """
+            INSERT INTO trace_durations_hourly
+            SELECT
+                workspace_id,
+                toUUID(toString(project_id)) AS project_id,
+                toDateTime64(toStartOfHour(start_time), 9, 'UTC') AS hour,
+                id,
+                NULL AS duration,
+                now64(9) AS last_updated_at,
+                1 AS is_deleted
+            FROM (
+                SELECT
+                    *
+                FROM traces
+                WHERE id IN :ids
+                AND workspace_id = :workspace_id
+                ORDER BY id DESC, last_updated_at DESC
+                LIMIT 1 BY id
+            )
+            ;
+            """;
+
+    /**
+     * Marks the latest row of the traces as deleted in the hourly trace counts, before they are deleted.
+     **/
+    private static final String DELETE_COUNTS_BY_ID = """
+            INSERT INTO trace_metrics
+            SELECT
+                workspace_id,
+                toUUID(toString(project_id)) AS project_id,
+                toDateTime64(toStartOfHour(start_time), 9, 'UTC') AS hour,
+                id,
+                now64(9) AS last_updated_at,
+                1 AS is_deleted
+            FROM (
+                SELECT
+                    *
+                FROM traces
+                WHERE id IN :ids
+                AND workspace_id = :workspace_id
+                ORDER BY id DESC, last_updated_at DESC
+                LIMIT 1 BY id
+            )
+            ;
+            """;
+
     private static final String SELECT_TRACE_ID_AND_WORKSPACE = """
             SELECT
                 id, workspace_id
             FROM traces
             WHERE id IN :traceIds
+            <if(location)> AND <location> <endif>
             ORDER BY last_updated_at DESC
             LIMIT 1 BY id
             ;
@@ -455,13 +605,14 @@ class TraceDAOImpl implements TraceDAO {
     //TODO: refactor to implement proper conflict resolution
     private static final String INSERT_UPDATE = """
             INSERT INTO traces (
-                id, project_id, workspace_id, name, start_time, end_time, input, output, metadata, tags, created_at, created_by, last_updated_by
+                id, project_id, workspace_id, name, start_time, end_time, input, output, metadata, tags, created_at, created_by, last_updated_by,
+                previous_start_time
             )
             SELECT
                 new_trace.id as id,
-                multiIf(
-                    LENGTH(CAST(old_trace.project_id AS Nullable(String))) > 0 AND notEquals(old_trace.project_id, new_trace.project_id), leftPad('', 40, '*'),
-                    LENGTH(CAST(old_trace.project_id AS Nullable(String))) > 0, old_trace.project_id,
+                if(
+                    throwIf(LENGTH(old_trace.workspace_id) > 0 AND notEquals(toString(old_trace.project_id), new_trace.project_id), 'PROJECT_ID_MISMATCH'),
+                    '',
                     new_trace.project_id
                 ) as project_id,
                 multiIf(
@@ -510,7 +661,8 @@ class TraceDAOImpl implements TraceDAO {
                     LENGTH(old_trace.created_by) > 0, old_trace.created_by,
                     new_trace.created_by
                 ) as created_by,
-                new_trace.last_updated_by as last_updated_by
+                new_trace.last_updated_by as last_updated_by,
+                if(LENGTH(old_trace.workspace_id) > 0, old_trace.start_time, NULL) as previous_start_time
             FROM (
                 SELECT
                     :id as id,
@@ -532,6 +684,7 @@ class TraceDAOImpl implements TraceDAO {
                     *
                 FROM traces
                 WHERE id = :id
+                <if(location)> AND <location> <endif>
                 ORDER BY id DESC, last_updated_at DESC
                 LIMIT 1
             ) as old_trace
@@ -554,8 +707,9 @@ class TraceDAOImpl implements TraceDAO {
                 id,
                 project_id
             FROM traces
-            WHERE id IN :ids
-            AND workspace_id = :workspace_id
+            WHERE workspace_id = :workspace_id
+            <if(location)> AND <location> <endif>
+            AND id IN :ids
             ORDER BY id DESC, last_updated_at DESC
             LIMIT 1 BY id
             ;
@@ -601,6 +755,7 @@ class TraceDAOImpl implements TraceDAO {
                         WHERE project_id = :project_id
                         AND workspace_id = :workspace_id
                         <if(filters)> AND <filters> <endif>
+                        <if(search)> AND <search> <endif>
                         <if(feedback_scores_filters)>
                         AND id IN (
                             SELECT
@@ -625,20 +780,15 @@ class TraceDAOImpl implements TraceDAO {
                             FROM (
                                 SELECT
                                     trace_id,
-                                    sumMap(usage) as usage
-                                FROM (
-                                    SELECT
-                                        trace_id,
-                                        usage
-                                    FROM spans
-                                    WHERE workspace_id = :workspace_id
-                                    AND project_id = :project_id
-                                    ORDER BY id DESC, last_updated_at DESC
-                                    LIMIT 1 BY id
-                                )
-                                GROUP BY trace_id
-                                HAVING <trace_aggregation_filters>
+                                    usage,
+                                    total_estimated_cost
+                                FROM trace_summaries
+                                WHERE workspace_id = :workspace_id
+                                AND project_id = :project_id
+                                ORDER BY trace_id DESC, last_updated_at DESC
+                                LIMIT 1 BY trace_id
                             )
+                            WHERE <trace_aggregation_filters>
                         )
                         <endif>
                         ORDER BY id DESC, last_updated_at DESC
@@ -647,18 +797,12 @@ class TraceDAOImpl implements TraceDAO {
                     LEFT JOIN (
                         SELECT
                             trace_id,
-                            sumMap(usage) as usage
-                        FROM (
-                            SELECT
-                                trace_id,
-                                usage
-                            FROM spans
-                            WHERE workspace_id = :workspace_id
-                            AND project_id = :project_id
-                            ORDER BY id DESC, last_updated_at DESC
-                            LIMIT 1 BY id
-                        )
-                        GROUP BY trace_id
+                            usage
+                        FROM trace_summaries
+                        WHERE workspace_id = :workspace_id
+                        AND project_id = :project_id
+                        ORDER BY trace_id DESC, last_updated_at DESC
+                        LIMIT 1 BY trace_id
                     ) AS s ON t.id = s.trace_id
                     LEFT JOIN (
                         SELECT
@@ -691,19 +835,23 @@ class TraceDAOImpl implements TraceDAO {
     private final @NonNull FeedbackScoreDAO feedbackScoreDAO;
     private final @NonNull FilterQueryBuilder filterQueryBuilder;
     private final @NonNull TransactionTemplateAsync asyncTemplate;
+    private final @NonNull RowBinaryInsertTemplate rowBinaryInsertTemplate;
 
     @Override
     @WithSpan
     public Mono<UUID> insert(@NonNull Trace trace, @NonNull Connection connection) {
 
-        ST template = buildInsertTemplate(trace);
+        return resolve(connection, TRACE_LOCATIONS, List.of(trace.id()))
+                .flatMap(locations -> {
+                    ST template = locations.addTo(buildInsertTemplate(trace));
 
-        Statement statement = buildInsertStatement(trace, connection, template);
+                    Statement statement = locations.bind(buildInsertStatement(trace, connection, template));
 
-        Segment segment = startSegment("traces", "Clickhouse", "insert");
+                    Segment segment = startSegment("traces", "Clickhouse", "insert");
 
-        return makeMonoContextAware(bindUserNameAndWorkspaceContext(statement))
-                .doFinally(signalType -> endSegment(segment))
+                    return makeMonoContextAware(bindUserNameAndWorkspaceContext(statement))
+                            .doFinally(signalType -> endSegment(segment));
+                })
                 .thenReturn(trace.id());
 
     }
@@ -763,16 +911,19 @@ class TraceDAOImpl implements TraceDAO {
 
     private Mono<? extends Result> update(UUID id, TraceUpdate traceUpdate, Connection connection) {
 
-        ST template = buildUpdateTemplate(traceUpdate, UPDATE);
+        return resolve(connection, TRACE_LOCATIONS, List.of(id))
+                .flatMap(locations -> {
+                    ST template = locations.addTo(buildUpdateTemplate(traceUpdate, UPDATE));
 
-        String sql = template.render();
+                    String sql = template.render();
 
-        Statement statement = createUpdateStatement(id, traceUpdate, connection, sql);
+                    Statement statement = locations.bind(createUpdateStatement(id, traceUpdate, connection, sql));
 
-        Segment segment = startSegment("traces", "Clickhouse", "update");
+                    Segment segment = startSegment("traces", "Clickhouse", "update");
 
-        return makeMonoContextAware(bindUserNameAndWorkspaceContext(statement))
-                .doFinally(signalType -> endSegment(segment));
+                    return makeMonoContextAware(bindUserNameAndWorkspaceContext(statement))
+                            .doFinally(signalType -> endSegment(segment));
+                });
     }
 
     private Statement createUpdateStatement(UUID id, TraceUpdate traceUpdate, Connection connection, String sql) {
@@ -823,13 +974,17 @@ class TraceDAOImpl implements TraceDAO {
     }
 
     private Flux<? extends Result> getById(UUID id, Connection connection) {
-        var statement = connection.createStatement(SELECT_BY_ID)
-                .bind("id", id);
+        return resolve(connection, TRACE_LOCATIONS, List.of(id))
+                .flatMapMany(locations -> {
+                    var statement = connection.createStatement(locations.addTo(new ST(SELECT_BY_ID)).render())
+                            .bind("id", id);
+                    locations.bind(statement);
 
-        Segment segment = startSegment("traces", "Clickhouse", "getById");
+                    Segment segment = startSegment("traces", "Clickhouse", "getById");
 
-        return makeFluxContextAware(bindWorkspaceIdToFlux(statement))
-                .doFinally(signalType -> endSegment(segment));
+                    return makeFluxContextAware(bindWorkspaceIdToFlux(statement))
+                            .doFinally(signalType -> endSegment(segment));
+                });
     }
 
     @Override
@@ -843,9 +998,31 @@ class TraceDAOImpl implements TraceDAO {
     public Mono<Void> delete(Set<UUID> ids, @NonNull Connection connection) {
         Preconditions.checkArgument(CollectionUtils.isNotEmpty(ids), "Argument 'ids' must not be empty");
         log.info("Deleting traces, count '{}'", ids.size());
-        var statement = connection.createStatement(DELETE_BY_ID)
+        return deleteDurations(ids, connection)
+                .then(Mono.defer(() -> deleteCounts(ids, connection)))
+                .then(Mono.defer(() -> {
+                    var statement = connection.createStatement(DELETE_BY_ID)
+                            .bind("ids", ids.toArray(UUID[]::new));
+                    var segment = startSegment("traces", "Clickhouse", "delete");
+                    return makeMonoContextAware(bindWorkspaceIdToMono(statement))
+                            .doFinally(signalType -> endSegment(segment));
+                }))
+                .then();
+    }
+
+    private Mono<Void> deleteDurations(Set<UUID> ids, Connection connection) {
+        var statement = connection.createStatement(DELETE_DURATIONS_BY_ID)
+                .bind("ids", ids.toArray(UUID[]::new));
+        var segment = startSegment("trace_durations_hourly", "Clickhouse", "delete");
+        return makeMonoContextAware(bindWorkspaceIdToMono(statement))
+                .doFinally(signalType -> endSegment(segment))
+                .then();
+    }
+
+    private Mono<Void> deleteCounts(Set<UUID> ids, Connection connection) {
+        var statement = connection.createStatement(DELETE_COUNTS_BY_ID)
                 .bind("ids", ids.toArray(UUID[]::new));
-        var segment = startSegment("traces", "Clickhouse", "delete");
+        var segment = startSegment("trace_metrics", "Clickhouse", "delete");
         return makeMonoContextAware(bindWorkspaceIdToMono(statement))
                 .doFinally(signalType -> endSegment(segment))
                 .then();
@@ -868,26 +1045,27 @@ class TraceDAOImpl implements TraceDAO {
                 .name(row.get("name", String.class))
                 .startTime(row.get("start_time", Instant.class))
                 .endTime(row.get("end_time", Instant.class))
-                .input(Optional.ofNullable(row.get("input", String.class))
+                .input(Optional.ofNullable(getIfPresent(row, rowMetadata, "input", String.class))
                         .filter(it -> !it.isBlank())
-                        .map(JsonUtils::getJsonNodeFromString)
+                        .map(RawJsonNode::new)
                         .orElse(null))
-                .output(Optional.ofNullable(row.get("output", String.class))
+                .output(Optional.ofNullable(getIfPresent(row, rowMetadata, "output", String.class))
                         .filter(it -> !it.isBlank())
-                        .map(JsonUtils::getJsonNodeFromString)
+                        .map(RawJsonNode::new)
                         .orElse(null))
-                .metadata(Optional.ofNullable(row.get("metadata", String.class))
+                .metadata(Optional.ofNullable(getIfPresent(row, rowMetadata, "metadata", String.class))
                         .filter(it -> !it.isBlank())
-                        .map(JsonUtils::getJsonNodeFromString)
+                        .map(RawJsonNode::new)
                         .orElse(null))
                 .tags(Optional.of(Arrays.stream(row.get("tags", String[].class))
                         .collect(Collectors.toSet()))
                         .filter(it -> !it.isEmpty())
                         .orElse(null))
-                .usage(row.get("usage", Map.class))
-                .totalEstimatedCost(row.get("total_estimated_cost", BigDecimal.class).compareTo(BigDecimal.ZERO) == 0
-                        ? null
-                        : row.get("total_estimated_cost", BigDecimal.class))
+                .usage(getIfPresent(row, rowMetadata, "usage", Map.class))
+                .totalEstimatedCost(Optional.ofNullable(
+                        getIfPresent(row, rowMetadata, "total_estimated_cost", BigDecimal.class))
+                        .filter(cost -> cost.compareTo(BigDecimal.ZERO) != 0)
+                        .orElse(null))
                 .createdAt(row.get("created_at", Instant.class))
                 .lastUpdatedAt(row.get("last_updated_at", Instant.class))
                 .createdBy(row.get("created_by", String.class))
@@ -897,15 +1075,37 @@ class TraceDAOImpl implements TraceDAO {
 
     @Override
     @WithSpan
-    public Mono<TracePage> find(
+    public Mono<List<Trace>> find(
             int size, int page, @NonNull TraceSearchCriteria traceSearchCriteria, @NonNull Connection connection) {
-        return countTotal(traceSearchCriteria, connection)
+        return getTracesByProjectId(size, page, traceSearchCriteria, connection)
+                .flatMapMany(this::mapToDto)
+                .collectList()
+                .flatMap(traces -> excluded(traceSearchCriteria).contains(ResponseField.FEEDBACK_SCORES)
+                        ? Mono.just(traces)
+                        : enhanceWithFeedbackLogs(traces));
+    }
+
+    @Override
+    @WithSpan
+    public Mono<Long> countTotal(@NonNull TraceSearchCriteria traceSearchCriteria, @NonNull Connection connection) {
+        if (traceSearchCriteria.countMode() == CountMode.NONE) {
+            return Mono.just(Page.UNKNOWN_TOTAL);
+        }
+
+        var template = newFindTemplate(COUNT_BY_PROJECT_ID, traceSearchCriteria);
+        if (traceSearchCriteria.countMode() == CountMode.APPROXIMATE) {
+            template.add("approximate", true);
+        }
+        var statement = connection.createStatement(template.render())
+                .bind("project_id", traceSearchCriteria.projectId());
+
+        bindSearchCriteria(traceSearchCriteria, statement);
+
+        Segment segment = startSegment("traces", "Clickhouse", "findCount");
+
+        return makeMonoContextAware(bindWorkspaceIdToMono(statement))
                 .flatMap(result -> Mono.from(result.map((row, rowMetadata) -> row.get("count", Long.class))))
-                .flatMap(total -> getTracesByProjectId(size, page, traceSearchCriteria, connection) //Get count then pagination
-                        .flatMapMany(this::mapToDto)
-                        .collectList()
-                        .flatMap(this::enhanceWithFeedbackLogs)
-                        .map(traces -> new TracePage(page, traces.size(), total, traces)));
+                .doFinally(signalType -> endSegment(segment));
     }
 
     @Override
@@ -916,19 +1116,23 @@ class TraceDAOImpl implements TraceDAO {
             @NonNull UUID traceId,
             @NonNull Connection connection) {
 
-        var template = buildUpdateTemplate(traceUpdate, INSERT_UPDATE);
+        return resolve(connection, TRACE_LOCATIONS, List.of(traceId))
+                .flatMap(locations -> {
+                    var template = locations.addTo(buildUpdateTemplate(traceUpdate, INSERT_UPDATE));
 
-        var statement = connection.createStatement(template.render());
+                    var statement = connection.createStatement(template.render());
 
-        statement.bind("id", traceId);
-        statement.bind("project_id", projectId);
+                    statement.bind("id", traceId);
+                    statement.bind("project_id", projectId);
 
-        bindUpdateParams(traceUpdate, statement);
+                    bindUpdateParams(traceUpdate, statement);
+                    locations.bind(statement);
 
-        Segment segment = startSegment("traces", "Clickhouse", "insert_partial");
+                    Segment segment = startSegment("traces", "Clickhouse", "insert_partial");
 
-        return makeMonoContextAware(bindUserNameAndWorkspaceContext(statement))
-                .doFinally(signalType -> endSegment(segment))
+                    return makeMonoContextAware(bindUserNameAndWorkspaceContext(statement))
+                            .doFinally(signalType -> endSegment(segment));
+                })
                 .then();
     }
 
@@ -948,10 +1152,25 @@ class TraceDAOImpl implements TraceDAO {
             int size, int page, TraceSearchCriteria traceSearchCriteria, Connection connection) {
         var template = newFindTemplate(SELECT_BY_PROJECT_ID, traceSearchCriteria);
         template = ImageUtils.addTruncateToTemplate(template, traceSearchCriteria.truncate());
+        // sparse fieldsets: the excluded columns are left out of the projection, they're the largest ones
+        Set<ResponseField> excluded = excluded(traceSearchCriteria);
+        for (ResponseField field : excluded) {
+            template.add("exclude_" + field.getValue(), true);
+        }
+        if (excluded.containsAll(Set.of(ResponseField.USAGE, ResponseField.TOTAL_ESTIMATED_COST))) {
+            template.add("exclude_trace_summaries", true);
+        }
+        // keyset pagination: with a cursor, the page starts right after the last id retrieved instead of at an offset
+        if (traceSearchCriteria.lastRetrievedId() != null) {
+            template.add("last_retrieved_id", true);
+        }
         var statement = connection.createStatement(template.render())
                 .bind("project_id", traceSearchCriteria.projectId())
                 .bind("limit", size)
-                .bind("offset", (page - 1) * size);
+                .bind("offset", traceSearchCriteria.lastRetrievedId() == null ? (page - 1) * size : 0);
+        if (traceSearchCriteria.lastRetrievedId() != null) {
+            statement.bind("last_retrieved_id", traceSearchCriteria.lastRetrievedId());
+        }
         bindSearchCriteria(traceSearchCriteria, statement);
 
         Segment segment = startSegment("traces", "Clickhouse", "find");
@@ -960,17 +1179,8 @@ class TraceDAOImpl implements TraceDAO {
                 .doFinally(signalType -> endSegment(segment));
     }
 
-    private Mono<? extends Result> countTotal(TraceSearchCriteria traceSearchCriteria, Connection connection) {
-        var template = newFindTemplate(COUNT_BY_PROJECT_ID, traceSearchCriteria);
-        var statement = connection.createStatement(template.render())
-                .bind("project_id", traceSearchCriteria.projectId());
-
-        bindSearchCriteria(traceSearchCriteria, statement);
-
-        Segment segment = startSegment("traces", "Clickhouse", "findCount");
-
-        return makeMonoContextAware(bindWorkspaceIdToMono(statement))
-                .doFinally(signalType -> endSegment(segment));
+    private Set<ResponseField> excluded(TraceSearchCriteria traceSearchCriteria) {
+        return SetUtils.emptyIfNull(traceSearchCriteria.exclude());
     }
 
     private ST newFindTemplate(String query, TraceSearchCriteria traceSearchCriteria) {
@@ -985,6 +1195,8 @@ class TraceDAOImpl implements TraceDAO {
                     filterQueryBuilder.toAnalyticsDbFilters(filters, FilterStrategy.FEEDBACK_SCORES)
                             .ifPresent(scoresFilters -> template.add("feedback_scores_filters", scoresFilters));
                 });
+        filterQueryBuilder.toAnalyticsDbSearch(traceSearchCriteria.search())
+                .ifPresent(search -> template.add("search", search));
         return template;
     }
 
@@ -995,6 +1207,7 @@ class TraceDAOImpl implements TraceDAO {
                     filterQueryBuilder.bind(statement, filters, FilterStrategy.TRACE_AGGREGATION);
                     filterQueryBuilder.bind(statement, filters, FilterStrategy.FEEDBACK_SCORES);
                 });
+        filterQueryBuilder.bindSearch(statement, traceSearchCriteria.search());
     }
 
     @Override
@@ -1006,11 +1219,11 @@ class TraceDAOImpl implements TraceDAO {
             return Mono.just(List.of());
         }
 
-        var statement = connection.createStatement(SELECT_TRACE_ID_AND_WORKSPACE);
-
-        return Mono.deferContextual(ctx -> {
+        return resolve(connection, TRACE_LOCATIONS, traceIds).flatMap(locations -> {
 
-            statement.bind("traceIds", traceIds.toArray(UUID[]::new));
+            var statement = connection.createStatement(locations.addTo(new ST(SELECT_TRACE_ID_AND_WORKSPACE)).render())
+                    .bind("traceIds", traceIds.toArray(UUID[]::new));
+            locations.bind(statement);
 
             return Mono.from(statement.execute());
         }).flatMapMany(result -> result.map((row, rowMetadata) -> new WorkspaceAndResourceId(
@@ -1025,16 +1238,47 @@ class TraceDAOImpl implements TraceDAO {
 
         Preconditions.checkArgument(!traces.isEmpty(), "traces must not be empty");
 
-        return Mono.from(insert(traces, connection))
+        return makeMonoContextAware((userName, workspaceId) -> batchInsertRows(traces.stream()
+                .map(trace -> new IngestionRow<>(workspaceId, userName, trace))
+                .toList(), connection));
+    }
+
+    @Override
+    @WithSpan
+    public Mono<Long> batchInsertRows(@NonNull List<IngestionRow<Trace>> rows, @NonNull Connection connection) {
+
+        Preconditions.checkArgument(!rows.isEmpty(), "traces must not be empty");
+
+        if (rowBinaryInsertTemplate.isEnabled()) {
+            return rowBinaryInsertTemplate.insert("traces", BATCH_INSERT_ROW_BINARY, rows, this::encodeRow);
+        }
+
+        return Mono.from(insert(rows, connection))
                 .flatMapMany(Result::getRowsUpdated)
                 .reduce(0L, Long::sum);
 
     }
 
-    private Publisher<? extends Result> insert(List<Trace> traces, Connection connection) {
+    private void encodeRow(RowBinaryWriter writer, IngestionRow<Trace> row) {
+        Trace trace = row.value();
+
+        writer.writeString(trace.id().toString())
+                .writeString(trace.projectId().toString())
+                .writeString(row.workspaceId())
+                .writeString(trace.name())
+                .writeEpochNanos(trace.startTime())
+                .writeNullableEpochNanos(trace.endTime())
+                .writeString(getOrDefault(trace.input()))
+                .writeString(getOrDefault(trace.output()))
+                .writeString(getOrDefault(trace.metadata()))
+                .writeStringArray(trace.tags())
+                .writeString(row.userName());
+    }
+
+    private Publisher<? extends Result> insert(List<IngestionRow<Trace>> rows, Connection connection) {
 
-        return makeMonoContextAware((userName, workspaceId) -> {
-            List<TemplateUtils.QueryItem> queryItems = getQueryItemPlaceHolder(traces.size());
+        return Mono.defer(() -> {
+            List<TemplateUtils.QueryItem> queryItems = getQueryItemPlaceHolder(rows.size());
 
             var template = new ST(BATCH_INSERT)
                     .add("items", queryItems);
@@ -1042,16 +1286,20 @@ class TraceDAOImpl implements TraceDAO {
             Statement statement = connection.createStatement(template.render());
 
             int i = 0;
-            for (Trace trace : traces) {
+            for (IngestionRow<Trace> row : rows) {
+
+                Trace trace = row.value();
 
                 statement.bind("id" + i, trace.id())
                         .bind("project_id" + i, trace.projectId())
+                        .bind("workspace_id" + i, row.workspaceId())
                         .bind("name" + i, trace.name())
                         .bind("start_time" + i, trace.startTime().toString())
                         .bind("input" + i, getOrDefault(trace.input()))
                         .bind("output" + i, getOrDefault(trace.output()))
                         .bind("metadata" + i, getOrDefault(trace.metadata()))
-                        .bind("tags" + i, trace.tags() != null ? trace.tags().toArray(String[]::new) : new String[]{});
+                        .bind("tags" + i, trace.tags() != null ? trace.tags().toArray(String[]::new) : new String[]{})
+                        .bind("user_name" + i, row.userName());
 
                 if (trace.endTime() != null) {
                     statement.bind("end_time" + i, trace.endTime().toString());
@@ -1062,10 +1310,6 @@ class TraceDAOImpl implements TraceDAO {
                 i++;
             }
 
-            statement
-                    .bind("workspace_id", workspaceId)
-                    .bind("user_name", userName);
-
             Segment segment = startSegment("traces", "Clickhouse", "batch_insert");
 
             return Mono.from(statement.execute())
@@ -1152,15 +1396,18 @@ class TraceDAOImpl implements TraceDAO {
             return Mono.just(Map.of());
         }
 
-        return asyncTemplate.nonTransaction(connection -> {
-            var statement = connection.createStatement(SELECT_PROJECT_ID_FROM_TRACES)
-                    .bind("ids", traceIds.toArray(UUID[]::new));
-
-            return makeFluxContextAware(bindWorkspaceIdToFlux(statement))
-                    .flatMap(result -> result.map((row, rowMetadata) -> Map.entry(
-                            row.get("id", UUID.class),
-                            row.get("project_id", UUID.class))))
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-        });
+        return asyncTemplate.nonTransaction(connection -> resolve(connection, TRACE_LOCATIONS, traceIds)
+                .flatMap(locations -> {
+                    var statement = connection
+                            .createStatement(locations.addTo(new ST(SELECT_PROJECT_ID_FROM_TRACES)).render())
+                            .bind("ids", traceIds.toArray(UUID[]::new));
+                    locations.bind(statement);
+
+                    return makeFluxContextAware(bindWorkspaceIdToFlux(statement))
+                            .flatMap(result -> result.map((row, rowMetadata) -> Map.entry(
+                                    row.get("id", UUID.class),
+                                    row.get("project_id", UUID.class))))
+                            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+                }));
     }
 }
@@ -12,10 +12,13 @@ import com.comet.opik.api.TraceUpdate;
 import com.comet.opik.api.error.EntityAlreadyExistsException;
 import com.comet.opik.api.error.ErrorMessage;
 import com.comet.opik.api.error.IdentifierMismatchException;
+import com.comet.opik.domain.stats.ProjectStatsCache;
+import com.comet.opik.infrastructure.DistributedLockConfig;
 import com.comet.opik.infrastructure.auth.RequestContext;
 import com.comet.opik.infrastructure.db.TransactionTemplateAsync;
 import com.comet.opik.infrastructure.lock.LockService;
 import com.comet.opik.utils.AsyncUtils;
+import com.comet.opik.utils.PaginationUtils;
 import com.comet.opik.utils.WorkspaceUtils;
 import com.google.common.base.Preconditions;
 import com.google.inject.ImplementedBy;
@@ -31,6 +34,7 @@ import org.apache.commons.collections4.CollectionUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
+import ru.vyarus.dropwizard.guice.module.yaml.bind.Config;
 
 import java.time.Instant;
 import java.util.List;
@@ -41,6 +45,7 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.comet.opik.domain.FeedbackScoreDAO.EntityType;
+import static com.comet.opik.utils.AsyncUtils.countAndPage;
 
 @ImplementedBy(TraceServiceImpl.class)
 public interface TraceService {
@@ -75,6 +80,7 @@ class TraceServiceImpl implements TraceService {
 
     public static final String PROJECT_NAME_AND_WORKSPACE_NAME_MISMATCH = "Project name and workspace name do not match the existing trace";
     public static final String TRACE_KEY = "Trace";
+    private static final String STATS_SCOPE = "traces";
 
     private final @NonNull TraceDAO dao;
     private final @NonNull SpanDAO spanDAO;
@@ -83,6 +89,10 @@ class TraceServiceImpl implements TraceService {
     private final @NonNull ProjectService projectService;
     private final @NonNull IdGenerator idGenerator;
     private final @NonNull LockService lockService;
+    private final @NonNull IngestionBuffer ingestionBuffer;
+    private final @NonNull AttachmentService attachmentService;
+    private final @NonNull ProjectStatsCache statsCache;
+    private final @NonNull @Config("distributedLock") DistributedLockConfig distributedLockConfig;
 
     @Override
     @WithSpan
@@ -93,10 +103,18 @@ class TraceServiceImpl implements TraceService {
 
         return IdGenerator
                 .validateVersionAsync(id, TRACE_KEY)
-                .then(Mono.defer(() -> getOrCreateProject(projectName)))
-                .flatMap(project -> lockService.executeWithLock(
-                        new LockService.Lock(id, TRACE_KEY),
-                        Mono.defer(() -> insertTrace(trace, project, id))));
+                .then(Mono.defer(() -> attachmentService.offload(trace)))
+                .flatMap(offloadedTrace -> getOrCreateProject(projectName)
+                        .flatMap(project -> {
+                            Mono<UUID> insert = distributedLockConfig.isLockFreeUpserts()
+                                    // the insert statement merges with the latest stored trace and fails on mismatches
+                                    ? create(offloadedTrace, project, id).onErrorResume(this::handleDBError)
+                                    : lockService.executeWithLock(
+                                            new LockService.Lock(id, TRACE_KEY),
+                                            Mono.defer(() -> insertTrace(offloadedTrace, project, id)));
+
+                            return insert.delayUntil(__ -> statsCache.invalidate(project.id()));
+                        }));
     }
 
     @WithSpan
@@ -118,7 +136,9 @@ class TraceServiceImpl implements TraceService {
                 .subscribeOn(Schedulers.boundedElastic());
 
         return resolveProjects
-                .flatMap(traces -> template.nonTransaction(connection -> dao.batchInsert(traces, connection)));
+                .flatMap(attachmentService::offloadTraces)
+                .flatMap(traces -> ingestionBuffer.enqueueTraces(traces)
+                        .delayUntil(__ -> statsCache.invalidate(traces.stream().map(Trace::projectId).toList())));
     }
 
     private List<Trace> bindTraceToProjectAndId(TraceBatch batch, List<Project> projects) {
@@ -149,9 +169,9 @@ class TraceServiceImpl implements TraceService {
 
     private <T> Mono<T> handleDBError(Throwable ex) {
         if (ex instanceof ClickHouseException
-                && ex.getMessage().contains("TOO_LARGE_STRING_SIZE")
-                && (ex.getMessage().contains("_CAST(project_id, FixedString(36))")
-                        && ex.getMessage().contains(", CAST(leftPad(workspace_id, 40, '*'), 'FixedString(19)') ::"))) {
+                && (ex.getMessage().contains("PROJECT_ID_MISMATCH")
+                        || ex.getMessage().contains("TOO_LARGE_STRING_SIZE") && ex.getMessage()
+                                .contains(", CAST(leftPad(workspace_id, 40, '*'), 'FixedString(19)') ::"))) {
 
             return failWithConflict(PROJECT_NAME_AND_WORKSPACE_NAME_MISMATCH);
         }
@@ -219,19 +239,34 @@ class TraceServiceImpl implements TraceService {
     @Override
     @WithSpan
     public Mono<Void> update(@NonNull TraceUpdate traceUpdate, @NonNull UUID id) {
+        return attachmentService.offload(traceUpdate)
+                .flatMap(offloadedUpdate -> applyUpdate(offloadedUpdate, id));
+    }
+
+    private Mono<Void> applyUpdate(TraceUpdate traceUpdate, UUID id) {
 
         var projectName = WorkspaceUtils.getProjectName(traceUpdate.projectName());
 
         return getProjectById(traceUpdate)
                 .switchIfEmpty(Mono.defer(() -> getOrCreateProject(projectName)))
                 .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(project -> lockService.executeWithLock(
-                        new LockService.Lock(id, TRACE_KEY),
-                        Mono.defer(() -> template.nonTransaction(connection -> dao.findById(id, connection))
-                                .flatMap(trace -> updateOrFail(traceUpdate, id, trace, project).thenReturn(id))
-                                .switchIfEmpty(Mono.defer(() -> insertUpdate(project, traceUpdate, id))
-                                        .thenReturn(id))
-                                .onErrorResume(this::handleDBError))))
+                .flatMap(project -> {
+                    Mono<UUID> update = distributedLockConfig.isLockFreeUpserts()
+                            // the partial insert covers both the existing and the missing trace cases
+                            ? insertUpdate(project, traceUpdate, id)
+                                    .thenReturn(id)
+                                    .onErrorResume(this::handleDBError)
+                            : lockService.executeWithLock(
+                                    new LockService.Lock(id, TRACE_KEY),
+                                    Mono.defer(() -> template.nonTransaction(connection -> dao.findById(id, connection))
+                                            .flatMap(trace -> updateOrFail(traceUpdate, id, trace, project)
+                                                    .thenReturn(id))
+                                            .switchIfEmpty(Mono.defer(() -> insertUpdate(project, traceUpdate, id))
+                                                    .thenReturn(id))
+                                            .onErrorResume(this::handleDBError)));
+
+                    return update.delayUntil(__ -> statsCache.invalidate(project.id()));
+                })
                 .then();
     }
 
@@ -286,7 +321,8 @@ class TraceServiceImpl implements TraceService {
                 Mono.defer(() -> feedbackScoreDAO.deleteByEntityId(EntityType.TRACE, id))
                         .then(Mono.defer(
                                 () -> template.nonTransaction(connection -> spanDAO.deleteByTraceId(id, connection))))
-                        .then(Mono.defer(() -> template.nonTransaction(connection -> dao.delete(id, connection)))));
+                        .then(Mono.defer(() -> template.nonTransaction(connection -> dao.delete(id, connection)))))
+                .then(Mono.defer(statsCache::invalidateWorkspace));
     }
 
     @Override
@@ -298,7 +334,8 @@ class TraceServiceImpl implements TraceService {
                 .nonTransaction(connection -> feedbackScoreDAO.deleteByEntityIds(EntityType.TRACE, ids))
                 .then(Mono
                         .defer(() -> template.nonTransaction(connection -> spanDAO.deleteByTraceIds(ids, connection))))
-                .then(Mono.defer(() -> template.nonTransaction(connection -> dao.delete(ids, connection))));
+                .then(Mono.defer(() -> template.nonTransaction(connection -> dao.delete(ids, connection))))
+                .then(Mono.defer(statsCache::invalidateWorkspace));
     }
 
     @Override
@@ -306,15 +343,22 @@ class TraceServiceImpl implements TraceService {
     public Mono<Trace.TracePage> find(int page, int size, @NonNull TraceSearchCriteria criteria) {
 
         if (criteria.projectId() != null) {
-            return template.nonTransaction(connection -> dao.find(size, page, criteria, connection));
+            return findByProjectId(page, size, criteria);
         }
 
         return getProjectByName(criteria.projectName())
-                .flatMap(project -> template.nonTransaction(connection -> dao.find(
-                        size, page, criteria.toBuilder().projectId(project.id()).build(), connection)))
+                .flatMap(project -> findByProjectId(page, size, criteria.toBuilder().projectId(project.id()).build()))
                 .switchIfEmpty(Mono.just(Trace.TracePage.empty(page)));
     }
 
+    private Mono<Trace.TracePage> findByProjectId(int page, int size, TraceSearchCriteria criteria) {
+        return countAndPage(
+                template.nonTransaction(connection -> dao.countTotal(criteria, connection)),
+                template.nonTransaction(connection -> dao.find(size, page, criteria, connection)),
+                (total, traces) -> new Trace.TracePage(page, traces.size(), total, traces,
+                        PaginationUtils.nextCursor(traces, size, Trace::id)));
+    }
+
     @Override
     @WithSpan
     public Mono<Boolean> validateTraceWorkspace(@NonNull String workspaceId, @NonNull Set<UUID> traceIds) {
@@ -356,12 +400,16 @@ class TraceServiceImpl implements TraceService {
     public Mono<ProjectStats> getStats(@NonNull TraceSearchCriteria criteria) {
 
         if (criteria.projectId() != null) {
-            return dao.getStats(criteria);
+            return getStats(criteria, criteria.projectId());
         }
 
         return getProjectByName(criteria.projectName())
-                .flatMap(project -> template.nonTransaction(
-                        connection -> dao.getStats(criteria.toBuilder().projectId(project.id()).build())))
+                .flatMap(project -> getStats(criteria, project.id()))
                 .switchIfEmpty(Mono.just(ProjectStats.empty()));
     }
+
+    private Mono<ProjectStats> getStats(TraceSearchCriteria criteria, UUID projectId) {
+        return statsCache.get(STATS_SCOPE, projectId, criteria.filters(), criteria.search(),
+                () -> dao.getStats(criteria.toBuilder().projectId(projectId).build()));
+    }
 }
@@ -0,0 +1,140 @@
+package com.comet.opik.domain;
+
+import com.google.common.base.Preconditions;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import io.r2dbc.spi.Connection;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import org.apache.commons.collections4.CollectionUtils;
+import org.stringtemplate.v4.ST;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.comet.opik.domain.AsyncContextUtils.bindWorkspaceIdToMono;
+import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.Segment;
+import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.endSegment;
+import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.startSegment;
+import static com.comet.opik.utils.AsyncUtils.makeMonoContextAware;
+
+/**
+ * Maintains the {@code trace_summaries} table: the usage, cost, span counts and duration of the latest spans of each
+ * trace, so the trace list, the trace aggregation filters and the stats don't have to de-duplicate and aggregate every
+ * span of the project.
+ * <br>
+ * The summary of a trace is recomputed from its spans after every span write, reading only the spans of the written
+ * traces through the primary key of the spans table. A summary is versioned by the latest {@code last_updated_at} of
+ * the spans it was computed from, not by the time it's written: of two concurrent refreshes of a trace, the one that
+ * read the later span versions wins, whichever is inserted last.
+ * */
+@Singleton
+class TraceSummaryDAO {
+
+    record TraceKey(@NonNull String workspaceId, UUID projectId, @NonNull UUID traceId) {
+    }
+
+    private record Group(String workspaceId, UUID projectId) {
+    }
+
+    private static final String REFRESH = """
+            INSERT INTO trace_summaries (
+                workspace_id,
+                project_id,
+                trace_id,
+                usage,
+                total_estimated_cost,
+                span_count,
+                llm_span_count,
+                duration,
+                last_updated_at
+            )
+            SELECT
+                workspace_id,
+                project_id,
+                trace_id,
+                sumMap(usage) as usage,
+                toDecimal64(sum(total_estimated_cost), 8) as total_estimated_cost,
+                count() as span_count,
+                countIf(type = 'llm') as llm_span_count,
+                date_diff('microsecond', min(start_time), max(end_time)) as duration,
+                max(last_updated_at) as last_updated_at
+            FROM (
+                SELECT
+                    workspace_id,
+                    project_id,
+                    trace_id,
+                    type,
+                    usage,
+                    total_estimated_cost,
+                    start_time,
+                    end_time,
+                    last_updated_at
+                FROM spans
+                WHERE workspace_id = :workspace_id
+                <if(project_id)> AND project_id = :project_id <endif>
+                AND trace_id IN :trace_ids
+                ORDER BY id DESC, last_updated_at DESC
+                LIMIT 1 BY id
+            )
+            GROUP BY workspace_id, project_id, trace_id
+            ;
+            """;
+
+    private static final String DELETE_BY_TRACE_IDS = """
+            DELETE FROM trace_summaries WHERE trace_id IN :trace_ids AND workspace_id = :workspace_id;
+            """;
+
+    @WithSpan
+    public Mono<Void> refresh(@NonNull Collection<TraceKey> traces, @NonNull Connection connection) {
+        if (traces.isEmpty()) {
+            return Mono.empty();
+        }
+
+        Map<Group, Set<UUID>> traceIdsByGroup = traces.stream()
+                .collect(Collectors.groupingBy(trace -> new Group(trace.workspaceId(), trace.projectId()),
+                        Collectors.mapping(TraceKey::traceId, Collectors.toSet())));
+
+        return Flux.fromIterable(traceIdsByGroup.entrySet())
+                .concatMap(entry -> refresh(entry.getKey(), entry.getValue(), connection))
+                .then();
+    }
+
+    private Mono<Long> refresh(Group group, Set<UUID> traceIds, Connection connection) {
+        var template = new ST(REFRESH);
+        if (group.projectId() != null) {
+            template.add("project_id", group.projectId());
+        }
+
+        var statement = connection.createStatement(template.render())
+                .bind("workspace_id", group.workspaceId())
+                .bind("trace_ids", traceIds);
+        if (group.projectId() != null) {
+            statement.bind("project_id", group.projectId());
+        }
+
+        Segment segment = startSegment("trace_summaries", "Clickhouse", "refresh");
+
+        return Mono.from(statement.execute())
+                .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                .doFinally(signalType -> endSegment(segment));
+    }
+
+    @WithSpan
+    public Mono<Void> deleteByTraceIds(Set<UUID> traceIds, @NonNull Connection connection) {
+        Preconditions.checkArgument(
+                CollectionUtils.isNotEmpty(traceIds), "Argument 'traceIds' must not be empty");
+
+        var statement = connection.createStatement(DELETE_BY_TRACE_IDS)
+                .bind("trace_ids", traceIds);
+        var segment = startSegment("trace_summaries", "Clickhouse", "delete_by_trace_id");
+        return makeMonoContextAware(bindWorkspaceIdToMono(statement))
+                .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                .doFinally(signalType -> endSegment(segment))
+                .then();
+    }
+}
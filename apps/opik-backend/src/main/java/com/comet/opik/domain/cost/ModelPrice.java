@@ -1,14 +1,19 @@
 package com.comet.opik.domain.cost;
 
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
-@RequiredArgsConstructor
+/**
+ * Built-in model prices, per token in USD. They can be extended or overridden at runtime through the
+ * {@link ModelPriceRegistry}.
+ * */
 @Getter
 public enum ModelPrice {
     gpt_4o("gpt-4o", new BigDecimal("0.0000025"), new BigDecimal("0.000010"), SpanCostCalculator::textGenerationCost),
@@ -76,11 +81,30 @@ public enum ModelPrice {
     private final BigDecimal outputPrice;
     private final BiFunction<ModelPrice, Map<String, Integer>, BigDecimal> calculator;
 
+    // prices in units of 10^-PRICE_SCALE USD, so the cost is computed with long arithmetic
+    @Getter(AccessLevel.PACKAGE)
+    private final long scaledInputPrice;
+    @Getter(AccessLevel.PACKAGE)
+    private final long scaledOutputPrice;
+
+    ModelPrice(String name, BigDecimal inputPrice, BigDecimal outputPrice,
+            BiFunction<ModelPrice, Map<String, Integer>, BigDecimal> calculator) {
+        this.name = name;
+        this.inputPrice = inputPrice;
+        this.outputPrice = outputPrice;
+        this.calculator = calculator;
+        this.scaledInputPrice = SpanCostCalculator.scale(inputPrice);
+        this.scaledOutputPrice = SpanCostCalculator.scale(outputPrice);
+    }
+
+    private static class Index {
+        // enum constants can't access static fields from their constructors, hence the holder
+        private static final Map<String, ModelPrice> BY_NAME = Arrays.stream(values())
+                .collect(Collectors.toUnmodifiableMap(ModelPrice::getName, Function.identity()));
+    }
+
     public static ModelPrice fromString(String modelName) {
-        return Arrays.stream(values())
-                .filter(modelPrice -> modelPrice.name.equals(modelName))
-                .findFirst()
-                .orElse(DEFAULT);
+        return modelName == null ? DEFAULT : Index.BY_NAME.getOrDefault(modelName, DEFAULT);
     }
 
     public BigDecimal calculateCost(Map<String, Integer> usage) {
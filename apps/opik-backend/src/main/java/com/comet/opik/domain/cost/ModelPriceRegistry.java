@@ -0,0 +1,229 @@
+package com.comet.opik.domain.cost;
+
+import com.comet.opik.infrastructure.ModelPricesConfig;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.Preconditions;
+import io.dropwizard.lifecycle.Managed;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.lang3.StringUtils;
+import ru.vyarus.dropwizard.guice.module.yaml.bind.Config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the price of a model in constant time: exact names and aliases are hashed, while the few aliases ending in
+ * {@code *}, e.g. {@code gpt-4o-2024-*} for dated versions, are matched longest prefix first and memoized.
+ * <br>
+ * The built-in {@link ModelPrice} table can be extended or overridden with a JSON or YAML file, which is polled for
+ * changes and swapped in atomically, so prices are updated without a restart:
+ * <pre>
+ * models:
+ *   - name: gpt-4o
+ *     aliases: [ "gpt-4o-2024-*", "openai/gpt-4o" ]
+ *     inputPrice: 0.0000025
+ *     outputPrice: 0.00001
+ * </pre>
+ * Unknown models cost zero.
+ * */
+@Singleton
+@Slf4j
+public class ModelPriceRegistry implements Managed {
+
+    public record Price(String name, long scaledInputPrice, long scaledOutputPrice) {
+
+        public BigDecimal calculateCost(Map<String, Integer> usage) {
+            if (usage == null || (scaledInputPrice == 0 && scaledOutputPrice == 0)) {
+                return BigDecimal.ZERO;
+            }
+            return SpanCostCalculator.textGenerationCost(scaledInputPrice, scaledOutputPrice, usage);
+        }
+    }
+
+    record PriceFile(List<PriceEntry> models) {
+    }
+
+    record PriceEntry(String name, List<String> aliases, BigDecimal inputPrice, BigDecimal outputPrice) {
+    }
+
+    public static final Price DEFAULT = new Price(ModelPrice.DEFAULT.getName(), 0, 0);
+
+    private static final String PREFIX_WILDCARD = "*";
+    private static final long MAX_MEMOIZED_PREFIX_MATCHES = 10_000;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper(new YAMLFactory())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS, true);
+
+    private final ModelPricesConfig config;
+    private final Path file;
+
+    private volatile Snapshot snapshot;
+    private volatile FileTime lastModified;
+    private ScheduledExecutorService reloader;
+
+    @Inject
+    public ModelPriceRegistry(@NonNull @Config("modelPrices") ModelPricesConfig config) {
+        this.config = config;
+        this.file = StringUtils.isBlank(config.getFile()) ? null : Path.of(config.getFile());
+
+        if (file == null) {
+            this.snapshot = new Snapshot(List.of());
+        } else {
+            // a broken file at startup is a misconfiguration, unlike a broken reload which keeps the previous prices
+            this.lastModified = lastModified();
+            this.snapshot = new Snapshot(read());
+        }
+    }
+
+    public Price get(String modelName) {
+        return modelName == null ? DEFAULT : snapshot.get(modelName);
+    }
+
+    public BigDecimal calculateCost(String modelName, Map<String, Integer> usage) {
+        return get(modelName).calculateCost(usage);
+    }
+
+    @Override
+    public void start() {
+        if (file == null) {
+            return;
+        }
+
+        log.info("Watching model prices file '{}', reloadIntervalInSeconds '{}'", file,
+                config.getReloadIntervalInSeconds());
+
+        reloader = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("model-prices-reloader")
+                .daemon()
+                .factory());
+        reloader.scheduleWithFixedDelay(this::reloadIfModified, config.getReloadIntervalInSeconds(),
+                config.getReloadIntervalInSeconds(), TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    void reloadIfModified() {
+        try {
+            FileTime modified = lastModified();
+            if (modified.equals(lastModified)) {
+                return;
+            }
+
+            snapshot = new Snapshot(read());
+            lastModified = modified;
+            log.info("Reloaded model prices from '{}'", file);
+        } catch (RuntimeException exception) {
+            log.error("Error reloading model prices from '{}', keeping the previous ones", file, exception);
+        }
+    }
+
+    private FileTime lastModified() {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private List<PriceEntry> read() {
+        try {
+            PriceFile priceFile = MAPPER.readValue(file.toFile(), PriceFile.class);
+            List<PriceEntry> entries = priceFile == null ? List.of() : ListUtils.emptyIfNull(priceFile.models());
+            entries.forEach(ModelPriceRegistry::validate);
+            return entries;
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Invalid model prices file '%s'".formatted(file), exception);
+        }
+    }
+
+    private static void validate(PriceEntry entry) {
+        Preconditions.checkArgument(StringUtils.isNotBlank(entry.name()), "model name is required");
+        Preconditions.checkArgument(entry.inputPrice() != null && entry.inputPrice().signum() >= 0,
+                "invalid input price for model '%s'", entry.name());
+        Preconditions.checkArgument(entry.outputPrice() != null && entry.outputPrice().signum() >= 0,
+                "invalid output price for model '%s'", entry.name());
+    }
+
+    private static class Snapshot {
+
+        private final Map<String, Price> exact = new HashMap<>();
+        private final List<Map.Entry<String, Price>> prefixes = new ArrayList<>();
+        private final Cache<String, Price> prefixMatches = Caffeine.newBuilder()
+                .maximumSize(MAX_MEMOIZED_PREFIX_MATCHES)
+                .build();
+
+        Snapshot(List<PriceEntry> entries) {
+            Arrays.stream(ModelPrice.values())
+                    .filter(modelPrice -> modelPrice != ModelPrice.DEFAULT)
+                    .forEach(modelPrice -> exact.put(modelPrice.getName(), new Price(modelPrice.getName(),
+                            modelPrice.getScaledInputPrice(), modelPrice.getScaledOutputPrice())));
+
+            // later entries override earlier ones, and the file overrides the built-in prices
+            Map<String, Price> patterns = new HashMap<>();
+            for (PriceEntry entry : entries) {
+                var price = new Price(entry.name(), SpanCostCalculator.scale(entry.inputPrice()),
+                        SpanCostCalculator.scale(entry.outputPrice()));
+
+                for (String key : ListUtils.union(List.of(entry.name()), ListUtils.emptyIfNull(entry.aliases()))) {
+                    if (key.endsWith(PREFIX_WILDCARD)) {
+                        patterns.put(StringUtils.removeEnd(key, PREFIX_WILDCARD), price);
+                    } else {
+                        exact.put(key, price);
+                    }
+                }
+            }
+
+            prefixes.addAll(patterns.entrySet());
+            prefixes.sort(Comparator.comparingInt((Map.Entry<String, Price> prefix) -> prefix.getKey().length())
+                    .reversed());
+        }
+
+        Price get(String modelName) {
+            Price price = exact.get(modelName);
+            if (price != null) {
+                return price;
+            }
+
+            if (prefixes.isEmpty()) {
+                return DEFAULT;
+            }
+
+            return prefixMatches.get(modelName, this::matchPrefix);
+        }
+
+        private Price matchPrefix(String modelName) {
+            return prefixes.stream()
+                    .filter(prefix -> modelName.startsWith(prefix.getKey()))
+                    .map(Map.Entry::getValue)
+                    .findFirst()
+                    .orElse(DEFAULT);
+        }
+    }
+}
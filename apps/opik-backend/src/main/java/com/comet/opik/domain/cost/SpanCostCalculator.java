@@ -5,15 +5,44 @@ import lombok.experimental.UtilityClass;
 import java.math.BigDecimal;
 import java.util.Map;
 
+/**
+ * Costs are computed on prices scaled to {@link #PRICE_SCALE} decimals, which is exact for any price down to a
+ * picodollar per token, with a single {@link BigDecimal} allocated per span. Only on overflow, which needs prices and
+ * token counts far beyond the realistic ones, it falls back to {@link BigDecimal} arithmetic.
+ * */
 @UtilityClass
 class SpanCostCalculator {
+
+    static final int PRICE_SCALE = 12;
+
     public static BigDecimal textGenerationCost(ModelPrice modelPrice, Map<String, Integer> usage) {
-        return modelPrice.getInputPrice().multiply(BigDecimal.valueOf(usage.getOrDefault("prompt_tokens", 0)))
-                .add(modelPrice.getOutputPrice()
-                        .multiply(BigDecimal.valueOf(usage.getOrDefault("completion_tokens", 0))));
+        return textGenerationCost(modelPrice.getScaledInputPrice(), modelPrice.getScaledOutputPrice(), usage);
+    }
+
+    public static BigDecimal textGenerationCost(long scaledInputPrice, long scaledOutputPrice,
+            Map<String, Integer> usage) {
+        long promptTokens = usage.getOrDefault("prompt_tokens", 0);
+        long completionTokens = usage.getOrDefault("completion_tokens", 0);
+
+        long cost;
+        try {
+            cost = Math.addExact(Math.multiplyExact(scaledInputPrice, promptTokens),
+                    Math.multiplyExact(scaledOutputPrice, completionTokens));
+        } catch (ArithmeticException exception) {
+            return BigDecimal.valueOf(scaledInputPrice, PRICE_SCALE).multiply(BigDecimal.valueOf(promptTokens))
+                    .add(BigDecimal.valueOf(scaledOutputPrice, PRICE_SCALE)
+                            .multiply(BigDecimal.valueOf(completionTokens)));
+        }
+
+        return cost == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(cost, PRICE_SCALE);
     }
 
     public static BigDecimal defaultCost(ModelPrice modelPrice, Map<String, Integer> usage) {
         return BigDecimal.ZERO;
     }
+
+    static long scale(BigDecimal price) {
+        // fails fast on prices with more precision than supported, rather than silently rounding them
+        return price.setScale(PRICE_SCALE).unscaledValue().longValueExact();
+    }
 }
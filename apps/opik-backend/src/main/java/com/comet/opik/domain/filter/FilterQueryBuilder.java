@@ -16,10 +16,12 @@ import org.apache.commons.lang3.StringUtils;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.regex.Pattern;
 
 public class FilterQueryBuilder {
 
@@ -43,21 +45,25 @@ public class FilterQueryBuilder {
     private static final String USAGE_TOTAL_TOKENS_ANALYTICS_DB = "usage['total_tokens']";
     private static final String VALUE_ANALYTICS_DB = "value";
 
+    // The string predicates compare lowerUTF8 of the column to a constant, the same expression as the skip indexes of
+    // the traces and spans tables. They are as case-insensitive as ilike, which no skip index supports.
+    // Equality on lists lower cases each element, as the bloom filter indexes of the tags do.
     private static final Map<Operator, Map<FieldType, String>> ANALYTICS_DB_OPERATOR_MAP = new EnumMap<>(Map.of(
             Operator.CONTAINS, new EnumMap<>(Map.of(
-                    FieldType.STRING, "ilike(%1$s, CONCAT('%%', :filter%2$d ,'%%'))",
+                    FieldType.STRING, "lowerUTF8(%1$s) LIKE CONCAT('%%', lowerUTF8(:filter%2$d), '%%')",
                     FieldType.LIST,
                     "arrayExists(element -> (ilike(element, CONCAT('%%', :filter%2$d ,'%%'))), %1$s) = 1",
                     FieldType.DICTIONARY,
                     "ilike(JSON_VALUE(%1$s, :filterKey%2$d), CONCAT('%%', :filter%2$d ,'%%'))")),
             Operator.NOT_CONTAINS, new EnumMap<>(Map.of(
-                    FieldType.STRING, "notILike(%1$s, CONCAT('%%', :filter%2$d ,'%%'))")),
+                    FieldType.STRING, "lowerUTF8(%1$s) NOT LIKE CONCAT('%%', lowerUTF8(:filter%2$d), '%%')")),
             Operator.STARTS_WITH, new EnumMap<>(Map.of(
-                    FieldType.STRING, "startsWith(lower(%1$s), lower(:filter%2$d))")),
+                    FieldType.STRING, "startsWith(lowerUTF8(%1$s), lowerUTF8(:filter%2$d))")),
             Operator.ENDS_WITH, new EnumMap<>(Map.of(
-                    FieldType.STRING, "endsWith(lower(%1$s), lower(:filter%2$d))")),
+                    FieldType.STRING, "endsWith(lowerUTF8(%1$s), lowerUTF8(:filter%2$d))")),
             Operator.EQUAL, new EnumMap<>(Map.of(
-                    FieldType.STRING, "lower(%1$s) = lower(:filter%2$d)",
+                    FieldType.STRING, "lowerUTF8(%1$s) = lowerUTF8(:filter%2$d)",
+                    FieldType.LIST, "has(arrayMap(tag -> lowerUTF8(tag), %1$s), lowerUTF8(:filter%2$d))",
                     FieldType.DATE_TIME, "%1$s = parseDateTime64BestEffort(:filter%2$d, 9)",
                     FieldType.NUMBER, "%1$s = :filter%2$d",
                     FieldType.FEEDBACK_SCORES_NUMBER,
@@ -177,6 +183,14 @@ public class FilterQueryBuilder {
             FieldType.DICTIONARY,
             FieldType.FEEDBACK_SCORES_NUMBER);
 
+    // The same expression as the search indexes of the traces and spans tables
+    private static final String SEARCH_TEXT_ANALYTICS_DB =
+            "lowerUTF8(replaceRegexpAll(concat(input, ' ', output), '\\\\\\\\[nrt]', ' '))";
+    // The separators of the token bloom filter indexes: every ASCII character but letters and digits
+    private static final Pattern SEARCH_TOKEN_SEPARATOR = Pattern.compile(
+            "[\\x00-\\x2F\\x3A-\\x40\\x5B-\\x60\\x7B-\\x7F]+");
+    static final int MAX_SEARCH_TOKENS = 32;
+
     public String toAnalyticsDbOperator(@NonNull Filter filter) {
         return ANALYTICS_DB_OPERATOR_MAP.get(filter.operator()).get(filter.field().getType());
     }
@@ -198,6 +212,49 @@ public class FilterQueryBuilder {
                 : Optional.of("(%s)".formatted(analyticsDbFilters));
     }
 
+    /**
+     * Full text search over the input and output of traces or spans: matches the rows with every word of the search in
+     * either of them, case-insensitively. Words are split like the token bloom filter indexes split the text, on any
+     * ASCII character but letters and digits, and only the first {@link #MAX_SEARCH_TOKENS} distinct ones are kept.
+     * Matches are whole words, unlike {@link Operator#CONTAINS}, so the index skips every granule without all of them.
+     */
+    public Optional<String> toAnalyticsDbSearch(String search) {
+        var tokens = toSearchTokens(search);
+        if (tokens.isEmpty()) {
+            return Optional.empty();
+        }
+
+        var stringJoiner = new StringJoiner(" %s ".formatted(ANALYTICS_DB_AND_OPERATOR));
+        for (var i = 0; i < tokens.size(); i++) {
+            stringJoiner.add("hasToken(%s, :search%d)".formatted(SEARCH_TEXT_ANALYTICS_DB, i));
+        }
+        return Optional.of("(%s)".formatted(stringJoiner));
+    }
+
+    public Statement bindSearch(@NonNull Statement statement, String search) {
+        var tokens = toSearchTokens(search);
+        for (var i = 0; i < tokens.size(); i++) {
+            statement = statement.bind("search%d".formatted(i), tokens.get(i));
+        }
+        return statement;
+    }
+
+    /**
+     * The distinct lower-cased words of the search, in order, as they're matched by {@link #toAnalyticsDbSearch}.
+     */
+    public static List<String> toSearchTokens(String search) {
+        if (StringUtils.isBlank(search)) {
+            return List.of();
+        }
+
+        return SEARCH_TOKEN_SEPARATOR.splitAsStream(search)
+                .filter(StringUtils::isNotEmpty)
+                .map(token -> token.toLowerCase(Locale.ROOT))
+                .distinct()
+                .limit(MAX_SEARCH_TOKENS)
+                .toList();
+    }
+
     private String toAnalyticsDbFilter(Filter filter, int i, FilterStrategy filterStrategy) {
         var template = toAnalyticsDbOperator(filter);
         var formattedTemplate = template.formatted(getAnalyticsDbField(filter.field(), filterStrategy, i), i);
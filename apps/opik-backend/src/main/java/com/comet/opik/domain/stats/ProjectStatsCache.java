@@ -0,0 +1,232 @@
+package com.comet.opik.domain.stats;
+
+import com.comet.opik.api.ProjectStats;
+import com.comet.opik.api.filter.Filter;
+import com.comet.opik.domain.filter.FilterQueryBuilder;
+import com.comet.opik.infrastructure.StatsCacheConfig;
+import com.comet.opik.infrastructure.auth.RequestContext;
+import com.comet.opik.infrastructure.cache.SharedResultCache;
+import com.comet.opik.utils.JsonUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.Hashing;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.ListUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.vyarus.dropwizard.guice.module.yaml.bind.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Caches the results of the trace and span stats queries, the heaviest ones of the service, which the UI runs on every
+ * refresh of a project.
+ * <br>
+ * Entries are keyed by workspace, project, scope, normalized filters and search, plus the ingest watermarks of the
+ * workspace
+ * and of the project. Every write to a project advances its watermark, or the workspace one when the project isn't
+ * known, e.g. deletes by id, so the next read misses and recomputes while the previous entries are left to expire.
+ * Entries expire after {@link StatsCacheConfig#getTtlInSeconds()}, which also bounds the staleness of the rows written
+ * after the services return, such as the ones acknowledged by the ingestion buffer before they're flushed.
+ * <br>
+ * Watermarks only grow, so an entry computed before a write can't match again: the local ones come from a single
+ * sequence, the shared ones are advanced to the current time or past their value, see
+ * {@link SharedResultCache#advanceWatermark}. They expire after the same TTL since their last advance, to bound their
+ * number, and keep growing when advanced again.
+ * <br>
+ * The in-process tier coalesces concurrent misses on the same key. With {@link StatsCacheConfig#isDistributed()},
+ * watermarks and results are kept in the {@link SharedResultCache} too, so every instance sees the writes of the
+ * others and reuses their results. Errors of the shared tier are logged and the stats are computed uncached.
+ * */
+@Slf4j
+@Singleton
+public class ProjectStatsCache {
+
+    private record Watermarks(long workspace, long project) {
+    }
+
+    private static final String WATERMARK_KEY = "opik:stats:watermark:%s";
+    private static final String RESULT_KEY = "opik:stats:result:%s";
+    private static final TypeReference<ProjectStats> STATS_TYPE_REFERENCE = new TypeReference<>() {
+    };
+
+    private final boolean enabled;
+    private final boolean distributed;
+    private final Duration ttl;
+    private final SharedResultCache sharedCache;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Cache<String, Long> localWatermarks;
+    private final AsyncCache<String, ProjectStats> results;
+
+    @Inject
+    public ProjectStatsCache(@NonNull @Config("statsCache") StatsCacheConfig config,
+            @NonNull SharedResultCache sharedCache) {
+        this.enabled = config.isEnabled();
+        this.distributed = config.isDistributed();
+        this.ttl = Duration.ofSeconds(config.getTtlInSeconds());
+        this.sharedCache = sharedCache;
+        // not bounded by size, an evicted watermark would make the entries computed before the write match again
+        this.localWatermarks = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .build();
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(config.getMaximumSize())
+                .buildAsync();
+    }
+
+    /**
+     * Returns the cached stats of the project, or computes them with the given loader. Failed loads are not cached.
+     *
+     * @param scope  what the stats are computed on, e.g. {@code traces}, plus any criteria besides the filters and the
+     *               search
+     * @param search the full text search of the stats, keyed by its words, see
+     *               {@link FilterQueryBuilder#toSearchTokens}
+     */
+    public Mono<ProjectStats> get(@NonNull String scope, @NonNull UUID projectId, List<? extends Filter> filters,
+            String search, @NonNull Supplier<Mono<ProjectStats>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        return Mono.deferContextual(ctx -> {
+            String workspaceId = ctx.get(RequestContext.WORKSPACE_ID);
+
+            return getWatermarks(workspaceId, projectId)
+                    .map(watermarks -> Optional.of(key(scope, workspaceId, projectId, filters, search, watermarks)))
+                    .onErrorResume(error -> {
+                        log.warn("Error reading stats watermarks, computing stats uncached", error);
+                        return Mono.just(Optional.empty());
+                    })
+                    .flatMap(key -> key
+                            // cancelling one caller must not cancel the computation shared with the others
+                            .map(value -> Mono.fromFuture(() -> results.get(value,
+                                    (__, executor) -> load(value, loader).contextWrite(ctx).toFuture()), true))
+                            .orElseGet(loader));
+        });
+    }
+
+    /**
+     * Advances the watermark of the given projects, so their cached stats are recomputed on the next read.
+     */
+    public Mono<Void> invalidate(@NonNull Collection<UUID> projectIds) {
+        if (!enabled || projectIds.isEmpty()) {
+            return Mono.empty();
+        }
+
+        return Mono.deferContextual(ctx -> {
+            String workspaceId = ctx.get(RequestContext.WORKSPACE_ID);
+
+            return advance(projectIds.stream()
+                    .distinct()
+                    .map(projectId -> projectWatermarkKey(workspaceId, projectId))
+                    .toList());
+        });
+    }
+
+    public Mono<Void> invalidate(@NonNull UUID projectId) {
+        return invalidate(List.of(projectId));
+    }
+
+    /**
+     * Advances the watermark of the workspace, for the writes whose projects aren't known, so the cached stats of all
+     * its projects are recomputed on the next read.
+     */
+    public Mono<Void> invalidateWorkspace() {
+        if (!enabled) {
+            return Mono.empty();
+        }
+
+        return Mono.deferContextual(ctx -> advance(List.of(
+                WATERMARK_KEY.formatted(ctx.<String>get(RequestContext.WORKSPACE_ID)))));
+    }
+
+    private Mono<Void> advance(List<String> keys) {
+        if (!distributed) {
+            keys.forEach(key -> localWatermarks.put(key, sequence.incrementAndGet()));
+            return Mono.empty();
+        }
+
+        // a failed advance must not fail the write, the TTL bounds the staleness
+        return Flux.fromIterable(keys)
+                .flatMap(key -> sharedCache.advanceWatermark(key, ttl))
+                .onErrorResume(error -> {
+                    log.error("Error advancing stats watermarks '{}'", keys, error);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Watermarks> getWatermarks(String workspaceId, UUID projectId) {
+        String workspaceKey = WATERMARK_KEY.formatted(workspaceId);
+        String projectKey = projectWatermarkKey(workspaceId, projectId);
+
+        if (!distributed) {
+            return Mono.just(new Watermarks(
+                    localWatermarks.asMap().getOrDefault(workspaceKey, 0L),
+                    localWatermarks.asMap().getOrDefault(projectKey, 0L)));
+        }
+
+        return sharedCache.getWatermarks(List.of(workspaceKey, projectKey))
+                .map(values -> new Watermarks(values.getOrDefault(workspaceKey, 0L),
+                        values.getOrDefault(projectKey, 0L)));
+    }
+
+    private Mono<ProjectStats> load(String key, Supplier<Mono<ProjectStats>> loader) {
+        if (!distributed) {
+            return loader.get();
+        }
+
+        String sharedKey = RESULT_KEY.formatted(key);
+
+        return sharedCache.get(sharedKey)
+                .map(json -> JsonUtils.readValue(json, STATS_TYPE_REFERENCE))
+                .onErrorResume(error -> {
+                    log.warn("Error reading shared stats '{}'", sharedKey, error);
+                    return Mono.empty();
+                })
+                .switchIfEmpty(Mono.defer(() -> loader.get()
+                        .delayUntil(stats -> sharedCache.put(sharedKey, JsonUtils.writeValueAsString(stats), ttl)
+                                .onErrorResume(error -> {
+                                    log.warn("Error writing shared stats '{}'", sharedKey, error);
+                                    return Mono.empty();
+                                }))));
+    }
+
+    private static String projectWatermarkKey(String workspaceId, UUID projectId) {
+        return WATERMARK_KEY.formatted(workspaceId + ":" + projectId);
+    }
+
+    private static String key(String scope, String workspaceId, UUID projectId, List<? extends Filter> filters,
+            String search, Watermarks watermarks) {
+        // the same filters in any order, or repeated, are the same query
+        String normalizedFilters = ListUtils.emptyIfNull(filters).stream()
+                .map(filter -> String.join("\u0000", filter.field().getQueryParamField(),
+                        filter.operator().name(), String.valueOf(filter.key()), filter.value()))
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining("\u0001"));
+
+        // the same words in any order, case or separators, are the same search
+        String normalizedSearch = FilterQueryBuilder.toSearchTokens(search).stream()
+                .sorted()
+                .collect(Collectors.joining("\u0000"));
+
+        return "%s:%s:%s:%d:%d:%s".formatted(workspaceId, projectId, scope, watermarks.workspace(),
+                watermarks.project(),
+                Hashing.sha256().hashString(normalizedFilters + "\u0002" + normalizedSearch, StandardCharsets.UTF_8));
+    }
+}
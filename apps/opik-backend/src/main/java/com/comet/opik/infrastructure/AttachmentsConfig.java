@@ -0,0 +1,67 @@
+package com.comet.opik.infrastructure;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonValue;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Data
+public class AttachmentsConfig {
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum StorageType {
+        LOCAL("local"),
+        S3("s3");
+
+        @JsonValue
+        private final String value;
+    }
+
+    /**
+     * When enabled, base64 images and oversized payloads in the input, output and metadata of traces and spans are
+     * moved to the attachment store at ingestion, and replaced by a reference in the row.
+     * */
+    @Valid
+    @JsonProperty
+    private boolean enabled;
+
+    @Valid
+    @JsonProperty
+    @Positive private int minImageSize = 4_096; // base64 characters, smaller images stay inline
+
+    @Valid
+    @JsonProperty
+    @Positive private int maxPayloadSize = 1_048_576; // characters, larger input, output or metadata is offloaded whole
+
+    @Valid
+    @JsonProperty
+    @NotNull private StorageType storage = StorageType.LOCAL;
+
+    @Valid
+    @JsonProperty
+    private String localDirectory = "/tmp/opik/attachments";
+
+    @Valid
+    @JsonProperty
+    private String s3Bucket;
+
+    @Valid
+    @JsonProperty
+    private String s3Region;
+
+    /**
+     * Optional endpoint of an S3 compatible store, e.g. MinIO. Path style access is used when set.
+     * */
+    @Valid
+    @JsonProperty
+    private String s3Endpoint;
+
+    @Valid
+    @JsonProperty
+    private String s3Prefix = "attachments/";
+}
@@ -2,7 +2,9 @@ package com.comet.opik.infrastructure;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import lombok.Data;
 
 @Data
@@ -19,6 +21,24 @@ public class AuthenticationConfig {
     @JsonProperty
     private int apiKeyResolutionCacheTTLInSec;
 
+    /**
+     * TTL of the in-process cache in front of the Redis one, capped by apiKeyResolutionCacheTTLInSec. 0 disables it.
+     * */
+    @Valid
+    @JsonProperty
+    @Min(0) private int apiKeyLocalCacheTTLInSec;
+
+    @Valid
+    @JsonProperty
+    @Positive private long apiKeyLocalCacheMaxSize = 10_000;
+
+    /**
+     * Max concurrent connections to the auth service, as requests are now multiplexed over a non-blocking client.
+     * */
+    @Valid
+    @JsonProperty
+    @Positive private int maxConnections = 200;
+
     @Valid
     @JsonProperty
     private UrlConfig ui;
@@ -1,17 +1,28 @@
 package com.comet.opik.infrastructure;
 
+import com.clickhouse.client.ClickHouseNode;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
 import io.r2dbc.spi.ConnectionFactories;
-import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ValidationDepth;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.Duration;
 
 @Data
 public class DatabaseAnalyticsFactory {
 
     private static final String URL_TEMPLATE = "r2dbc:clickhouse:%s://%s:%s@%s:%d/%s%s";
+    private static final String NODE_TEMPLATE = "%s://%s:%s@%s:%d/%s%s";
 
     private @NotNull Protocol protocol;
     private @NotBlank String host;
@@ -20,11 +31,51 @@ public class DatabaseAnalyticsFactory {
     private @NotNull String password;
     private @NotBlank String databaseName;
     private String queryParameters;
+    private @NotNull BulkInsertFormat bulkInsertFormat = BulkInsertFormat.VALUES;
+    private @Valid @NotNull PoolConfig pool = new PoolConfig();
+
+    public ConnectionPool build() {
+        var url = URL_TEMPLATE.formatted(protocol.getValue(), username, password, host, port, databaseName, options());
+
+        var configuration = ConnectionPoolConfiguration.builder(ConnectionFactories.get(url))
+                .name("clickhouse")
+                .initialSize(pool.getMinIdle())
+                .minIdle(pool.getMinIdle())
+                .maxSize(pool.getMaxSize())
+                .maxAcquireTime(Duration.ofMillis(pool.getMaxAcquireTimeMs()))
+                .maxIdleTime(Duration.ofMillis(pool.getMaxIdleTimeMs()))
+                .maxLifeTime(Duration.ofMillis(pool.getMaxLifeTimeMs()))
+                .backgroundEvictionInterval(Duration.ofMillis(pool.getEvictionIntervalMs()))
+                // without a query, an acquired connection is only checked locally, with no round trip to ClickHouse
+                .validationDepth(ValidationDepth.LOCAL);
+        if (StringUtils.isNotBlank(pool.getValidationQuery())) {
+            configuration.validationQuery(pool.getValidationQuery());
+        }
+
+        return new ConnectionPool(configuration.build());
+    }
+
+    public ClickHouseNode buildNode() {
+        return ClickHouseNode.of(
+                NODE_TEMPLATE.formatted(protocol.getValue(), username, password, host, port, databaseName, options()));
+    }
+
+    private String options() {
+        return queryParameters == null ? "" : "?%s".formatted(queryParameters);
+    }
 
-    public ConnectionFactory build() {
-        var options = queryParameters == null ? "" : "?%s".formatted(queryParameters);
-        var url = URL_TEMPLATE.formatted(protocol.getValue(), username, password, host, port, databaseName, options);
-        return ConnectionFactories.get(url);
+    /**
+     * Pool of the R2DBC connections, acquired per operation and released when the operation completes.
+     * */
+    @Data
+    public static class PoolConfig {
+        private @PositiveOrZero int minIdle = 5;
+        private @Positive int maxSize = 50;
+        private @Positive long maxAcquireTimeMs = 5_000; // fails the operation instead of queueing forever
+        private @Positive long maxIdleTimeMs = 60_000;
+        private @Positive long maxLifeTimeMs = 1_800_000;
+        private @Min(1_000) long evictionIntervalMs = 30_000;
+        private String validationQuery; // run on every acquire when set, so it costs a round trip each time
     }
 
     @RequiredArgsConstructor
@@ -36,4 +87,14 @@ public class DatabaseAnalyticsFactory {
 
         private final String value;
     }
+
+    /**
+     * Encoding used by the span and trace bulk inserts: either a rendered VALUES clause with bound parameters, or
+     * RowBinary streamed through the ClickHouse HTTP client.
+     * */
+    public enum BulkInsertFormat {
+        VALUES,
+        ROW_BINARY,
+        ;
+    }
 }
@@ -26,4 +26,15 @@ public class DistributedLockConfig {
     @JsonProperty
     @NotNull private int ttlInSeconds; // time to live in seconds
 
+    /**
+     * When enabled, span and trace create/update requests skip the per id lock and the read before write. Conflicts
+     * are resolved by the single statement upserts against the latest stored row, and the table engine keeps the row
+     * with the highest last_updated_at, so concurrent writes to the same id are last writer wins at read time.
+     * <br>
+     * Creating an id that already exists becomes an idempotent merge instead of a 409 conflict.
+     * */
+    @Valid
+    @JsonProperty
+    private boolean lockFreeUpserts;
+
 }
@@ -0,0 +1,22 @@
+package com.comet.opik.infrastructure;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class EntityCacheConfig {
+
+    @Valid
+    @JsonProperty
+    private boolean enabled = true;
+
+    @Valid
+    @JsonProperty
+    @Positive private long ttlInSeconds = 300;
+
+    @Valid
+    @JsonProperty
+    @Positive private long maximumSize = 10_000; // entries per cache
+}
@@ -0,0 +1,41 @@
+package com.comet.opik.infrastructure;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class IngestionBufferConfig {
+
+    @Valid
+    @JsonProperty
+    private boolean enabled;
+
+    /**
+     * When enabled, batch endpoints answer with 202 Accepted as soon as the rows are queued, instead of waiting for
+     * the flush to complete. Rows still queued when a flush fails are logged and counted, but not reported back to
+     * the client.
+     * */
+    @Valid
+    @JsonProperty
+    private boolean acknowledgeOnEnqueue;
+
+    @Valid
+    @JsonProperty
+    @Positive @Max(10_000) private int maxBatchSize = 2_000; // rows per flushed INSERT
+
+    @Valid
+    @JsonProperty
+    @Min(10) private long flushIntervalMs = 500;
+
+    @Valid
+    @JsonProperty
+    @Positive private int capacity = 100_000; // max rows queued per table before rejecting with 429
+
+    public boolean acknowledgesOnEnqueue() {
+        return enabled && acknowledgeOnEnqueue;
+    }
+}
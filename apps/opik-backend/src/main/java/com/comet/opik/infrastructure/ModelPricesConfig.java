@@ -0,0 +1,22 @@
+package com.comet.opik.infrastructure;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class ModelPricesConfig {
+
+    /**
+     * Optional JSON or YAML file with model prices, which extend or override the built-in ones. Blank means only the
+     * built-in prices are used.
+     * */
+    @Valid
+    @JsonProperty
+    private String file;
+
+    @Valid
+    @JsonProperty
+    @Positive private long reloadIntervalInSeconds = 60;
+}
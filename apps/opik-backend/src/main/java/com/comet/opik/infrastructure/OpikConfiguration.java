@@ -53,4 +53,24 @@ public class OpikConfiguration extends Configuration {
     @Valid
     @NotNull @JsonProperty
     private BatchOperationsConfig batchOperations = new BatchOperationsConfig();
+
+    @Valid
+    @NotNull @JsonProperty
+    private IngestionBufferConfig ingestionBuffer = new IngestionBufferConfig();
+
+    @Valid
+    @NotNull @JsonProperty
+    private EntityCacheConfig entityCache = new EntityCacheConfig();
+
+    @Valid
+    @NotNull @JsonProperty
+    private StatsCacheConfig statsCache = new StatsCacheConfig();
+
+    @Valid
+    @NotNull @JsonProperty
+    private ModelPricesConfig modelPrices = new ModelPricesConfig();
+
+    @Valid
+    @NotNull @JsonProperty
+    private AttachmentsConfig attachments = new AttachmentsConfig();
 }
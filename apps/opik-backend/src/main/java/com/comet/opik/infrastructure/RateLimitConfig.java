@@ -27,4 +27,12 @@ public class RateLimitConfig {
     @JsonProperty
     private Map<String, LimitConfig> customLimits;
 
+    /**
+     * Permits leased at once from Redis by the local token bucket of each node. 0 checks every request against Redis.
+     * See LocalRateLimiter for the admission error it trades for the Redis round trips.
+     * */
+    @Valid
+    @JsonProperty
+    @PositiveOrZero private long leaseSize;
+
 }
@@ -0,0 +1,30 @@
+package com.comet.opik.infrastructure;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class StatsCacheConfig {
+
+    @Valid
+    @JsonProperty
+    private boolean enabled = true;
+
+    @Valid
+    @JsonProperty
+    @Positive private long ttlInSeconds = 30;
+
+    @Valid
+    @JsonProperty
+    @Positive private long maximumSize = 10_000; // entries per instance
+
+    /**
+     * Shares the results and the ingest watermarks between instances through Redis. Otherwise, every instance caches
+     * on its own and only sees its own writes, so it may serve results up to the TTL old after writes elsewhere.
+     */
+    @Valid
+    @JsonProperty
+    private boolean distributed = false;
+}
@@ -0,0 +1,44 @@
+package com.comet.opik.infrastructure.attachment;
+
+import com.comet.opik.infrastructure.AttachmentsConfig;
+import com.comet.opik.infrastructure.OpikConfiguration;
+import com.google.common.base.Preconditions;
+import com.google.inject.Provides;
+import jakarta.inject.Singleton;
+import org.apache.commons.lang3.StringUtils;
+import ru.vyarus.dropwizard.guice.module.support.DropwizardAwareModule;
+import ru.vyarus.dropwizard.guice.module.yaml.bind.Config;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+public class AttachmentModule extends DropwizardAwareModule<OpikConfiguration> {
+
+    @Provides
+    @Singleton
+    public AttachmentStore attachmentStore(@Config("attachments") AttachmentsConfig config) {
+        return switch (config.getStorage()) {
+            case LOCAL -> new LocalAttachmentStore(Path.of(config.getLocalDirectory()));
+            case S3 -> newS3AttachmentStore(config);
+        };
+    }
+
+    private AttachmentStore newS3AttachmentStore(AttachmentsConfig config) {
+        Preconditions.checkArgument(StringUtils.isNotBlank(config.getS3Bucket()),
+                "s3Bucket is required for the s3 attachment storage");
+
+        var builder = S3Client.builder();
+        if (StringUtils.isNotBlank(config.getS3Region())) {
+            builder.region(Region.of(config.getS3Region()));
+        }
+        if (StringUtils.isNotBlank(config.getS3Endpoint())) {
+            builder.endpointOverride(URI.create(config.getS3Endpoint()))
+                    .forcePathStyle(true);
+        }
+
+        return new S3AttachmentStore(builder.build(), config.getS3Bucket(),
+                StringUtils.defaultIfBlank(config.getS3Prefix(), ""));
+    }
+}
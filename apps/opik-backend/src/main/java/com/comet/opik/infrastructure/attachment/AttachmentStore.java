@@ -0,0 +1,14 @@
+package com.comet.opik.infrastructure.attachment;
+
+import java.util.Optional;
+
+/**
+ * Blob store of the attachments offloaded from traces and spans. Attachments are immutable and keyed by content, so
+ * writing an existing key is a no-op. The calls are blocking.
+ * */
+public interface AttachmentStore {
+
+    void put(String workspaceId, String key, byte[] content);
+
+    Optional<byte[]> get(String workspaceId, String key);
+}
@@ -0,0 +1,66 @@
+package com.comet.opik.infrastructure.attachment;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Stores the attachments on the local filesystem, under {@code <directory>/<workspace id>/<key prefix>/<key>}. Files
+ * are written to a temporary file and moved in place, so readers never see a partial attachment.
+ * */
+@Slf4j
+class LocalAttachmentStore implements AttachmentStore {
+
+    private final Path directory;
+
+    LocalAttachmentStore(@NonNull Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void put(@NonNull String workspaceId, @NonNull String key, @NonNull byte[] content) {
+        Path file = resolve(workspaceId, key);
+        if (Files.exists(file)) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporaryFile = Files.createTempFile(file.getParent(), key, ".tmp");
+            try {
+                Files.write(temporaryFile, content);
+                Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (FileAlreadyExistsException exception) {
+            log.debug("Attachment '{}' already stored on workspace_id '{}'", key, workspaceId);
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Error storing attachment '%s'".formatted(key), exception);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> get(@NonNull String workspaceId, @NonNull String key) {
+        try {
+            return Optional.of(Files.readAllBytes(resolve(workspaceId, key)));
+        } catch (NoSuchFileException exception) {
+            return Optional.empty();
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Error reading attachment '%s'".formatted(key), exception);
+        }
+    }
+
+    private Path resolve(String workspaceId, String key) {
+        // keys are validated hashes, the prefix directory keeps the directories small
+        return directory.resolve(workspaceId).resolve(key.substring(0, 2)).resolve(key);
+    }
+}
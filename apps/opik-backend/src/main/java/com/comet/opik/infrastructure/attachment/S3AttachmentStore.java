@@ -0,0 +1,52 @@
+package com.comet.opik.infrastructure.attachment;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.util.Optional;
+
+/**
+ * Stores the attachments in an S3 compatible bucket, under {@code <prefix><workspace id>/<key>}. Credentials are
+ * resolved by the default AWS provider chain.
+ * */
+@RequiredArgsConstructor
+class S3AttachmentStore implements AttachmentStore {
+
+    private final @NonNull S3Client client;
+    private final @NonNull String bucket;
+    private final @NonNull String prefix;
+
+    @Override
+    public void put(@NonNull String workspaceId, @NonNull String key, @NonNull byte[] content) {
+        // objects are keyed by content, overwriting an existing one is harmless and cheaper than checking first
+        client.putObject(PutObjectRequest.builder()
+                .bucket(bucket)
+                .key(objectKey(workspaceId, key))
+                .build(), RequestBody.fromBytes(content));
+    }
+
+    @Override
+    public Optional<byte[]> get(@NonNull String workspaceId, @NonNull String key) {
+        try {
+            ResponseBytes<GetObjectResponse> object = client.getObject(GetObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(objectKey(workspaceId, key))
+                    .build(), ResponseTransformer.toBytes());
+            return Optional.of(object.asByteArray());
+        } catch (NoSuchKeyException exception) {
+            return Optional.empty();
+        }
+    }
+
+    private String objectKey(String workspaceId, String key) {
+        return prefix + workspaceId + "/" + key;
+    }
+}
@@ -5,10 +5,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RListReactive;
 import org.redisson.api.RedissonReactiveClient;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.List;
-import java.util.Optional;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -18,7 +18,7 @@ class AuthCredentialsCacheService implements CacheService {
     private final RedissonReactiveClient redissonClient;
     private final int ttlInSeconds;
 
-    public Optional<AuthCredentials> resolveApiKeyUserAndWorkspaceIdFromCache(@NonNull String apiKey,
+    public Mono<AuthCredentials> resolveApiKeyUserAndWorkspaceIdFromCache(@NonNull String apiKey,
             @NonNull String workspaceName) {
 
         String key = KEY_FORMAT.formatted(apiKey, workspaceName);
@@ -27,16 +27,18 @@ class AuthCredentialsCacheService implements CacheService {
 
         return bucket
                 .readAll()
-                .blockOptional()
                 .filter(pair -> pair.size() == 2)
                 .map(pair -> new AuthCredentials(pair.getFirst(), pair.getLast()));
     }
 
-    public void cache(@NonNull String apiKey, @NonNull String workspaceName, @NonNull String userName,
+    public Mono<Void> cache(@NonNull String apiKey, @NonNull String workspaceName, @NonNull String userName,
             @NonNull String workspaceId) {
         String key = KEY_FORMAT.formatted(apiKey, workspaceName);
-        redissonClient.getList(key).addAll(List.of(userName, workspaceId)).block();
-        redissonClient.getList(key).expire(Duration.ofSeconds(ttlInSeconds)).block();
+        RListReactive<String> bucket = redissonClient.getList(key);
+
+        return bucket.addAll(List.of(userName, workspaceId))
+                .then(Mono.defer(() -> bucket.expire(Duration.ofSeconds(ttlInSeconds))))
+                .then();
     }
 
 }
@@ -5,30 +5,42 @@ import com.comet.opik.infrastructure.OpikConfiguration;
 import com.comet.opik.infrastructure.lock.LockService;
 import com.google.common.base.Preconditions;
 import com.google.inject.Provides;
-import jakarta.inject.Provider;
+import io.dropwizard.lifecycle.AutoCloseableManager;
 import jakarta.inject.Singleton;
-import jakarta.ws.rs.client.Client;
-import jakarta.ws.rs.client.ClientBuilder;
+import jakarta.servlet.DispatcherType;
 import lombok.NonNull;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
 import org.redisson.api.RedissonReactiveClient;
 import ru.vyarus.dropwizard.guice.module.support.DropwizardAwareModule;
 import ru.vyarus.dropwizard.guice.module.yaml.bind.Config;
 
+import java.util.EnumSet;
 import java.util.Objects;
 
 public class AuthModule extends DropwizardAwareModule<OpikConfiguration> {
 
+    @Override
+    protected void configure() {
+        // suspends the private requests while they are authenticated, see AuthServletFilter
+        var filter = environment().servlets()
+                .addFilter("auth", new AuthServletFilter(getProvider(AuthService.class)));
+        filter.setAsyncSupported(true);
+        filter.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC), true,
+                "/v1/private/*");
+    }
+
     @Provides
     @Singleton
     public AuthService authService(
             @Config("authentication") AuthenticationConfig config,
-            @NonNull Provider<RequestContext> requestContext,
             @NonNull RedissonReactiveClient redissonClient,
             @NonNull LockService lockService) {
 
         if (!config.isEnabled()) {
-            return new AuthServiceImpl(requestContext);
+            return new AuthServiceImpl();
         }
 
         Objects.requireNonNull(config.getUi(),
@@ -45,12 +57,33 @@ public class AuthModule extends DropwizardAwareModule<OpikConfiguration> {
                 ? new AuthCredentialsCacheService(redissonClient, config.getApiKeyResolutionCacheTTLInSec())
                 : new NoopCacheService();
 
-        return new RemoteAuthService(client(), config.getSdk(), config.getUi(), requestContext, cacheService,
-                lockService);
+        // the local entries must never outlive the distributed ones
+        var localCache = new LocalAuthCredentialsCache(
+                Math.min(config.getApiKeyLocalCacheTTLInSec(), config.getApiKeyResolutionCacheTTLInSec()),
+                config.getApiKeyLocalCacheMaxSize());
+
+        return new RemoteAuthService(httpClient(config), config.getSdk(), config.getUi(), cacheService, lockService,
+                localCache);
+    }
+
+    private CloseableHttpAsyncClient httpClient(AuthenticationConfig config) {
+        var connectionManager = connectionManagerBuilder()
+                .setMaxConnTotal(config.getMaxConnections())
+                .setMaxConnPerRoute(config.getMaxConnections())
+                .build();
+
+        var httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .build();
+
+        httpClient.start();
+        environment().lifecycle().manage(new AutoCloseableManager(httpClient));
+
+        return httpClient;
     }
 
-    public Client client() {
-        return ClientBuilder.newClient();
+    public PoolingAsyncClientConnectionManagerBuilder connectionManagerBuilder() {
+        return PoolingAsyncClientConnectionManagerBuilder.create();
     }
 
 }
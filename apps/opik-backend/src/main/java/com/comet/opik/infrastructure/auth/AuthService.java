@@ -2,39 +2,42 @@ package com.comet.opik.infrastructure.auth;
 
 import com.comet.opik.domain.ProjectService;
 import com.comet.opik.utils.WorkspaceUtils;
-import jakarta.inject.Provider;
 import jakarta.ws.rs.ClientErrorException;
 import jakarta.ws.rs.core.Cookie;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Response;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
 
 import static com.comet.opik.infrastructure.auth.RequestContext.*;
 
 public interface AuthService {
 
-    void authenticate(HttpHeaders headers, Cookie sessionToken, String path);
+    /**
+     * Resolves the user and workspace of the request into the given context. Nothing blocks, the caller decides how
+     * to wait for it.
+     * */
+    Mono<Void> authenticate(HttpHeaders headers, Cookie sessionToken, String path, @NonNull RequestContext context);
 }
 
-@RequiredArgsConstructor
 class AuthServiceImpl implements AuthService {
 
-    private final @NonNull Provider<RequestContext> requestContext;
-
     @Override
-    public void authenticate(HttpHeaders headers, Cookie sessionToken, String path) {
-
-        var currentWorkspaceName = WorkspaceUtils.getWorkspaceName(headers.getHeaderString(WORKSPACE_HEADER));
-
-        if (ProjectService.DEFAULT_WORKSPACE_NAME.equals(currentWorkspaceName)) {
-            requestContext.get().setWorkspaceName(currentWorkspaceName);
-            requestContext.get().setUserName(ProjectService.DEFAULT_USER);
-            requestContext.get().setWorkspaceId(ProjectService.DEFAULT_WORKSPACE_ID);
-            requestContext.get().setApiKey("default");
-            return;
-        }
-
-        throw new ClientErrorException("Workspace not found", Response.Status.NOT_FOUND);
+    public Mono<Void> authenticate(HttpHeaders headers, Cookie sessionToken, String path,
+            @NonNull RequestContext context) {
+        return Mono.fromRunnable(() -> {
+
+            var currentWorkspaceName = WorkspaceUtils.getWorkspaceName(headers.getHeaderString(WORKSPACE_HEADER));
+
+            if (ProjectService.DEFAULT_WORKSPACE_NAME.equals(currentWorkspaceName)) {
+                context.setWorkspaceName(currentWorkspaceName);
+                context.setUserName(ProjectService.DEFAULT_USER);
+                context.setWorkspaceId(ProjectService.DEFAULT_WORKSPACE_ID);
+                context.setApiKey("default");
+                return;
+            }
+
+            throw new ClientErrorException("Workspace not found", Response.Status.NOT_FOUND);
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package com.comet.opik.infrastructure.auth;
+
+import jakarta.inject.Provider;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.core.Cookie;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Authenticates the private API without holding a server thread while the auth service answers.
+ * <br>
+ * The request is suspended with the servlet async API and dispatched again once the authentication completes. Its
+ * outcome, the resolved {@link RequestContext} or the error, is left in a request attribute for {@link AuthFilter},
+ * which applies it inside the Jersey request, so the errors are mapped as before.
+ * */
+@RequiredArgsConstructor
+class AuthServletFilter implements Filter {
+
+    static final String AUTHENTICATION_ATTRIBUTE = AuthServletFilter.class.getName() + ".authentication";
+
+    private final @NonNull Provider<AuthService> authService;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        // the dispatch that follows the authentication
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        var httpRequest = (HttpServletRequest) request;
+        var headers = getHttpHeaders(httpRequest);
+        var sessionToken = headers.getCookies().get(RequestContext.SESSION_COOKIE);
+        var context = new RequestContext();
+
+        var async = request.startAsync();
+
+        authService.get().authenticate(headers, sessionToken, httpRequest.getRequestURI(), context)
+                .subscribe(
+                        __ -> {
+                        },
+                        exception -> {
+                            request.setAttribute(AUTHENTICATION_ATTRIBUTE, exception);
+                            async.dispatch();
+                        },
+                        () -> {
+                            request.setAttribute(AUTHENTICATION_ATTRIBUTE, context);
+                            async.dispatch();
+                        });
+    }
+
+    HttpHeaders getHttpHeaders(HttpServletRequest request) {
+        var requestHeaders = new MultivaluedHashMap<String, String>();
+        Collections.list(request.getHeaderNames())
+                .forEach(name -> requestHeaders.put(name, Collections.list(request.getHeaders(name))));
+
+        Map<String, Cookie> cookies = Optional.ofNullable(request.getCookies())
+                .stream()
+                .flatMap(Arrays::stream)
+                .map(cookie -> new Cookie.Builder(cookie.getName()).value(cookie.getValue()).build())
+                .collect(Collectors.toMap(Cookie::getName, Function.identity(), (first, second) -> first));
+
+        return new HttpHeaders() {
+
+            @Override
+            public List<String> getRequestHeader(String s) {
+                return requestHeaders.get(s);
+            }
+
+            @Override
+            public String getHeaderString(String s) {
+                return request.getHeader(s);
+            }
+
+            @Override
+            public MultivaluedMap<String, String> getRequestHeaders() {
+                return requestHeaders;
+            }
+
+            @Override
+            public List<MediaType> getAcceptableMediaTypes() {
+                return List.of(MediaType.WILDCARD_TYPE);
+            }
+
+            @Override
+            public List<Locale> getAcceptableLanguages() {
+                return Collections.list(request.getLocales());
+            }
+
+            @Override
+            public MediaType getMediaType() {
+                return Optional.ofNullable(request.getContentType()).map(MediaType::valueOf).orElse(null);
+            }
+
+            @Override
+            public Locale getLanguage() {
+                return request.getLocale();
+            }
+
+            @Override
+            public Map<String, Cookie> getCookies() {
+                return cookies;
+            }
+
+            @Override
+            public Date getDate() {
+                return null;
+            }
+
+            @Override
+            public int getLength() {
+                return request.getContentLength();
+            }
+        };
+    }
+}
@@ -1,26 +1,26 @@
 package com.comet.opik.infrastructure.auth;
 
-import java.util.Optional;
+import reactor.core.publisher.Mono;
 
 interface CacheService {
 
     record AuthCredentials(String userName, String workspaceId) {
     }
 
-    void cache(String apiKey, String workspaceName, String userName, String workspaceId);
-    Optional<AuthCredentials> resolveApiKeyUserAndWorkspaceIdFromCache(String apiKey, String workspaceName);
+    Mono<Void> cache(String apiKey, String workspaceName, String userName, String workspaceId);
+    Mono<AuthCredentials> resolveApiKeyUserAndWorkspaceIdFromCache(String apiKey, String workspaceName);
 }
 
 class NoopCacheService implements CacheService {
 
     @Override
-    public void cache(String apiKey, String workspaceName, String userName, String workspaceId) {
+    public Mono<Void> cache(String apiKey, String workspaceName, String userName, String workspaceId) {
         // no-op
+        return Mono.empty();
     }
 
     @Override
-    public Optional<AuthCredentialsCacheService.AuthCredentials> resolveApiKeyUserAndWorkspaceIdFromCache(
-            String apiKey, String workspaceName) {
-        return Optional.empty();
+    public Mono<AuthCredentials> resolveApiKeyUserAndWorkspaceIdFromCache(String apiKey, String workspaceName) {
+        return Mono.empty();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+package com.comet.opik.infrastructure.auth;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.metrics.Meter;
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import static com.comet.opik.infrastructure.auth.CacheService.AuthCredentials;
+import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.TRACER_NAME;
+
+/**
+ * In-process near cache of the API key credentials, in front of the distributed lock and the Redis cache. Concurrent
+ * misses for the same API key and workspace share a single in-flight resolution, without blocking the callers. Failed
+ * resolutions are not cached.
+ * */
+class LocalAuthCredentialsCache {
+
+    private record Key(String apiKey, String workspaceName) {
+    }
+
+    private final AsyncCache<Key, AuthCredentials> cache;
+
+    LocalAuthCredentialsCache(int ttlInSeconds, long maximumSize) {
+        this.cache = ttlInSeconds > 0
+                ? Caffeine.newBuilder()
+                        .expireAfterWrite(Duration.ofSeconds(ttlInSeconds))
+                        .maximumSize(maximumSize)
+                        .recordStats()
+                        .buildAsync()
+                : null;
+
+        if (cache != null) {
+            Meter meter = GlobalOpenTelemetry.get().getMeter(TRACER_NAME);
+            meter.counterBuilder("opik.auth.local_cache.hits")
+                    .setDescription("API key resolutions served from the in-process cache")
+                    .buildWithCallback(measurement -> measurement.record(cache.synchronous().stats().hitCount()));
+            meter.counterBuilder("opik.auth.local_cache.misses")
+                    .setDescription("API key resolutions that went to the distributed cache or the auth service")
+                    .buildWithCallback(measurement -> measurement.record(cache.synchronous().stats().missCount()));
+        }
+    }
+
+    Mono<AuthCredentials> get(@NonNull String apiKey, @NonNull String workspaceName,
+            @NonNull Supplier<Mono<AuthCredentials>> loader) {
+        if (cache == null) {
+            return loader.get();
+        }
+
+        // cancelling one caller must not cancel the resolution shared with the others
+        return Mono.fromFuture(
+                () -> cache.get(new Key(apiKey, workspaceName), (key, executor) -> loader.get().toFuture()), true);
+    }
+}
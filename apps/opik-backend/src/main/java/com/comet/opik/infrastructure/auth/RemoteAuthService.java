@@ -2,10 +2,12 @@ package com.comet.opik.infrastructure.auth;
 
 import com.comet.opik.domain.ProjectService;
 import com.comet.opik.infrastructure.lock.LockService;
-import jakarta.inject.Provider;
+import com.comet.opik.utils.JsonUtils;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import jakarta.ws.rs.ClientErrorException;
-import jakarta.ws.rs.client.Client;
-import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.Cookie;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
@@ -14,56 +16,69 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
-import java.net.URI;
+import java.io.UncheckedIOException;
 import java.util.Optional;
 
 import static com.comet.opik.infrastructure.AuthenticationConfig.UrlConfig;
 import static com.comet.opik.infrastructure.auth.AuthCredentialsCacheService.AuthCredentials;
 import static com.comet.opik.infrastructure.lock.LockService.Lock;
 
+/**
+ * Authenticates against the remote auth service.
+ * <br>
+ * The whole resolution (local cache, distributed lock, Redis and the remote call) is a single non-blocking pipeline
+ * over an async HTTP client. {@link AuthServletFilter} suspends the request while it runs, so a slow auth service
+ * doesn't hold the threads of the server.
+ * */
 @RequiredArgsConstructor
 @Slf4j
 class RemoteAuthService implements AuthService {
 
     public static final String NOT_ALLOWED_TO_ACCESS_WORKSPACE = "User not allowed to access workspace";
-    private final @NonNull Client client;
+
+    private final @NonNull CloseableHttpAsyncClient httpClient;
     private final @NonNull UrlConfig apiKeyAuthUrl;
     private final @NonNull UrlConfig uiAuthUrl;
-    private final @NonNull Provider<RequestContext> requestContext;
     private final @NonNull CacheService cacheService;
     private final @NonNull LockService lockService;
+    private final @NonNull LocalAuthCredentialsCache localCache;
 
+    @JsonNaming(PropertyNamingStrategies.LowerCamelCaseStrategy.class)
     record AuthRequest(String workspaceName, String path) {
     }
 
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonNaming(PropertyNamingStrategies.LowerCamelCaseStrategy.class)
     record AuthResponse(String user, String workspaceId) {
     }
 
-    record ValidatedAuthCredentials(boolean shouldCache, String userName, String workspaceId) {
-    }
-
     @Override
-    public void authenticate(HttpHeaders headers, Cookie sessionToken, String path) {
+    public Mono<Void> authenticate(HttpHeaders headers, Cookie sessionToken, String path,
+            @NonNull RequestContext context) {
+        return Mono.defer(() -> {
 
-        var currentWorkspaceName = getCurrentWorkspaceName(headers);
+            var currentWorkspaceName = getCurrentWorkspaceName(headers);
 
-        if (currentWorkspaceName.isBlank()
-                || ProjectService.DEFAULT_WORKSPACE_NAME.equalsIgnoreCase(currentWorkspaceName)) {
-            log.warn("Default workspace name is not allowed");
-            throw new ClientErrorException(Response.Status.FORBIDDEN);
-        }
+            if (currentWorkspaceName.isBlank()
+                    || ProjectService.DEFAULT_WORKSPACE_NAME.equalsIgnoreCase(currentWorkspaceName)) {
+                log.warn("Default workspace name is not allowed");
+                return Mono.error(new ClientErrorException(Response.Status.FORBIDDEN));
+            }
 
-        if (sessionToken != null) {
-            authenticateUsingSessionToken(sessionToken, currentWorkspaceName, path);
-            requestContext.get().setWorkspaceName(currentWorkspaceName);
-            return;
-        }
+            var authentication = sessionToken != null
+                    ? authenticateUsingSessionToken(sessionToken, currentWorkspaceName, path, context)
+                    : authenticateUsingApiKey(headers, currentWorkspaceName, path, context);
 
-        authenticateUsingApiKey(headers, currentWorkspaceName, path);
-        requestContext.get().setWorkspaceName(currentWorkspaceName);
+            return authentication.doOnSuccess(__ -> context.setWorkspaceName(currentWorkspaceName));
+        });
     }
 
     private String getCurrentWorkspaceName(HttpHeaders headers) {
@@ -71,72 +86,100 @@ class RemoteAuthService implements AuthService {
                 .orElse("");
     }
 
-    private void authenticateUsingSessionToken(Cookie sessionToken, String workspaceName, String path) {
-        try (var response = client.target(URI.create(uiAuthUrl.url()))
-                .request()
-                .accept(MediaType.APPLICATION_JSON)
-                .cookie(sessionToken)
-                .post(Entity.json(new AuthRequest(workspaceName, path)))) {
-
-            AuthResponse credentials = verifyResponse(response);
-
-            setCredentialIntoContext(credentials.user(), credentials.workspaceId());
-            requestContext.get().setApiKey(sessionToken.getValue());
-        }
+    private Mono<Void> authenticateUsingSessionToken(Cookie sessionToken, String workspaceName, String path,
+            RequestContext context) {
+        var request = authRequest(uiAuthUrl, workspaceName, path)
+                .setHeader(HttpHeaders.COOKIE, "%s=%s".formatted(sessionToken.getName(), sessionToken.getValue()))
+                .build();
+
+        return post(request)
+                .doOnNext(credentials -> {
+                    setCredentialIntoContext(context, credentials.user(), credentials.workspaceId());
+                    context.setApiKey(sessionToken.getValue());
+                })
+                .then();
     }
 
-    private void authenticateUsingApiKey(HttpHeaders headers, String workspaceName, String path) {
+    private Mono<Void> authenticateUsingApiKey(HttpHeaders headers, String workspaceName, String path,
+            RequestContext context) {
 
         String apiKey = Optional.ofNullable(headers.getHeaderString(HttpHeaders.AUTHORIZATION))
                 .orElse("");
 
         if (apiKey.isBlank()) {
             log.info("API key not found in headers");
-            throw new ClientErrorException(NOT_ALLOWED_TO_ACCESS_WORKSPACE, Response.Status.UNAUTHORIZED);
+            return Mono.error(new ClientErrorException(NOT_ALLOWED_TO_ACCESS_WORKSPACE, Response.Status.UNAUTHORIZED));
         }
 
-        var lock = new Lock(apiKey, workspaceName);
-
-        ValidatedAuthCredentials credentials = lockService.executeWithLock(
-                lock,
-                Mono.fromCallable(() -> validateApiKeyAndGetCredentials(workspaceName, apiKey, path))
-                        .subscribeOn(Schedulers.boundedElastic()))
-                .block();
+        // a local hit skips both the distributed lock and Redis
+        return localCache.get(apiKey, workspaceName, () -> resolveApiKeyCredentials(apiKey, workspaceName, path))
+                .doOnNext(credentials -> {
+                    setCredentialIntoContext(context, credentials.userName(), credentials.workspaceId());
+                    context.setApiKey(apiKey);
+                })
+                .then();
+    }
 
-        if (credentials.shouldCache()) {
-            log.debug("Caching user and workspace id for API key");
-            cacheService.cache(apiKey, workspaceName, credentials.userName(), credentials.workspaceId());
-        }
+    private Mono<AuthCredentials> resolveApiKeyCredentials(String apiKey, String workspaceName, String path) {
+        var lock = new Lock(apiKey, workspaceName);
 
-        setCredentialIntoContext(credentials.userName(), credentials.workspaceId());
-        requestContext.get().setApiKey(apiKey);
+        return lockService.executeWithLock(lock, Mono.defer(() -> cacheService
+                .resolveApiKeyUserAndWorkspaceIdFromCache(apiKey, workspaceName)
+                .switchIfEmpty(Mono.defer(() -> validateApiKeyAndCacheCredentials(apiKey, workspaceName, path)))));
     }
 
-    private ValidatedAuthCredentials validateApiKeyAndGetCredentials(String workspaceName, String apiKey, String path) {
-        Optional<AuthCredentials> credentials = cacheService.resolveApiKeyUserAndWorkspaceIdFromCache(apiKey,
-                workspaceName);
+    private Mono<AuthCredentials> validateApiKeyAndCacheCredentials(String apiKey, String workspaceName,
+            String path) {
+        log.debug("User and workspace id not found in cache for API key");
 
-        if (credentials.isEmpty()) {
-            log.debug("User and workspace id not found in cache for API key");
+        var request = authRequest(apiKeyAuthUrl, workspaceName, path)
+                .setHeader(HttpHeaders.AUTHORIZATION, apiKey)
+                .build();
 
-            try (var response = client.target(URI.create(apiKeyAuthUrl.url()))
-                    .request()
-                    .accept(MediaType.APPLICATION_JSON)
-                    .header(HttpHeaders.AUTHORIZATION,
-                            apiKey)
-                    .post(Entity.json(new AuthRequest(workspaceName, path)))) {
+        return post(request)
+                .flatMap(authResponse -> {
+                    log.debug("Caching user and workspace id for API key");
+                    return cacheService.cache(apiKey, workspaceName, authResponse.user(), authResponse.workspaceId())
+                            .thenReturn(new AuthCredentials(authResponse.user(), authResponse.workspaceId()));
+                });
+    }
 
-                AuthResponse authResponse = verifyResponse(response);
-                return new ValidatedAuthCredentials(true, authResponse.user(), authResponse.workspaceId());
-            }
-        } else {
-            return new ValidatedAuthCredentials(false, credentials.get().userName(), credentials.get().workspaceId());
-        }
+    private SimpleRequestBuilder authRequest(UrlConfig url, String workspaceName, String path) {
+        return SimpleRequestBuilder.post(url.url())
+                .setHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .setBody(JsonUtils.writeValueAsString(new AuthRequest(workspaceName, path)),
+                        ContentType.APPLICATION_JSON);
+    }
+
+    private Mono<AuthResponse> post(SimpleHttpRequest request) {
+        return Mono.<SimpleHttpResponse>create(sink -> {
+            var future = httpClient.execute(request, new FutureCallback<>() {
+                @Override
+                public void completed(SimpleHttpResponse response) {
+                    sink.success(response);
+                }
+
+                @Override
+                public void failed(Exception exception) {
+                    log.error("Error while calling the auth service", exception);
+                    sink.error(new ClientErrorException(Response.Status.INTERNAL_SERVER_ERROR));
+                }
+
+                @Override
+                public void cancelled() {
+                    sink.error(new ClientErrorException(Response.Status.INTERNAL_SERVER_ERROR));
+                }
+            });
+            sink.onCancel(() -> future.cancel(true));
+        })
+                .map(this::verifyResponse);
     }
 
-    private AuthResponse verifyResponse(Response response) {
-        if (response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
-            var authResponse = response.readEntity(AuthResponse.class);
+    private AuthResponse verifyResponse(SimpleHttpResponse response) {
+        var family = Response.Status.Family.familyOf(response.getCode());
+
+        if (family == Response.Status.Family.SUCCESSFUL) {
+            var authResponse = readAuthResponse(response);
 
             if (StringUtils.isEmpty(authResponse.user())) {
                 log.warn("User not found");
@@ -144,23 +187,34 @@ class RemoteAuthService implements AuthService {
             }
 
             return authResponse;
-        } else if (response.getStatus() == Response.Status.UNAUTHORIZED.getStatusCode()) {
+        } else if (response.getCode() == Response.Status.UNAUTHORIZED.getStatusCode()) {
             throw new ClientErrorException(NOT_ALLOWED_TO_ACCESS_WORKSPACE,
                     Response.Status.UNAUTHORIZED);
-        } else if (response.getStatus() == Response.Status.FORBIDDEN.getStatusCode()) {
+        } else if (response.getCode() == Response.Status.FORBIDDEN.getStatusCode()) {
             throw new ClientErrorException("User has bot permission to the workspace", Response.Status.FORBIDDEN);
-        } else if (response.getStatusInfo().getFamily() == Response.Status.Family.SERVER_ERROR) {
+        } else if (family == Response.Status.Family.SERVER_ERROR) {
             log.error("Error while authenticating user");
             throw new ClientErrorException(Response.Status.INTERNAL_SERVER_ERROR);
         }
 
-        log.error("Unexpected error while authenticating user, status code: {}", response.getStatus());
+        log.error("Unexpected error while authenticating user, status code: {}", response.getCode());
         throw new ClientErrorException(Response.Status.INTERNAL_SERVER_ERROR);
     }
 
-    private void setCredentialIntoContext(String userName, String workspaceId) {
-        requestContext.get().setUserName(userName);
-        requestContext.get().setWorkspaceId(workspaceId);
+    private AuthResponse readAuthResponse(SimpleHttpResponse response) {
+        try {
+            return JsonUtils.readValue(StringUtils.defaultIfEmpty(response.getBodyText(), "{}"),
+                    new TypeReference<AuthResponse>() {
+                    });
+        } catch (UncheckedIOException exception) {
+            log.error("Invalid response from the auth service", exception);
+            throw new ClientErrorException(Response.Status.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private void setCredentialIntoContext(RequestContext context, String userName, String workspaceId) {
+        context.setUserName(userName);
+        context.setWorkspaceId(workspaceId);
     }
 
 }
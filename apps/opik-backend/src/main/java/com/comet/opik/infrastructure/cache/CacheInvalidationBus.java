@@ -0,0 +1,23 @@
+package com.comet.opik.infrastructure.cache;
+
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts invalidations of the in-process caches to every instance of the service, including the publishing one.
+ * */
+public interface CacheInvalidationBus {
+
+    /**
+     * Either the name or the id of the invalidated entity is set.
+     * */
+    record CacheInvalidation(@NonNull String cacheName, @NonNull String workspaceId, String name, UUID id) {
+    }
+
+    Mono<Void> publish(CacheInvalidation invalidation);
+
+    void subscribe(Consumer<CacheInvalidation> listener);
+}
@@ -0,0 +1,41 @@
+package com.comet.opik.infrastructure.cache;
+
+import com.comet.opik.api.Project;
+import com.comet.opik.infrastructure.EntityCacheConfig;
+import com.comet.opik.infrastructure.OpikConfiguration;
+import com.google.inject.Provides;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import ru.vyarus.dropwizard.guice.module.support.DropwizardAwareModule;
+
+import java.util.UUID;
+import java.util.function.Function;
+
+public class CacheModule extends DropwizardAwareModule<OpikConfiguration> {
+
+    public static final String PROJECTS_BY_NAME = "projects_by_name";
+    public static final String DATASET_IDS_BY_NAME = "dataset_ids_by_name";
+
+    private transient EntityCacheConfig entityCacheConfig;
+
+    @Override
+    protected void configure() {
+        entityCacheConfig = configuration(EntityCacheConfig.class);
+    }
+
+    @Provides
+    @Singleton
+    @Named(PROJECTS_BY_NAME)
+    public WorkspaceNameCache<Project> projectsByName(CacheInvalidationBus invalidationBus) {
+        return new WorkspaceNameCache<>(PROJECTS_BY_NAME, entityCacheConfig, invalidationBus,
+                Project::id);
+    }
+
+    @Provides
+    @Singleton
+    @Named(DATASET_IDS_BY_NAME)
+    public WorkspaceNameCache<UUID> datasetIdsByName(CacheInvalidationBus invalidationBus) {
+        return new WorkspaceNameCache<>(DATASET_IDS_BY_NAME, entityCacheConfig, invalidationBus,
+                Function.identity());
+    }
+}
@@ -0,0 +1,31 @@
+package com.comet.opik.infrastructure.cache;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Shared tier of the in-process result caches, so every instance of the service reuses the results computed by the
+ * others and sees the writes they ingested.
+ * */
+public interface SharedResultCache {
+
+    /**
+     * @return the current value of the given watermarks. Watermarks never advanced are missing from the map.
+     */
+    Mono<Map<String, Long>> getWatermarks(Collection<String> keys);
+
+    /**
+     * Advances the watermark past its current value, and to at least the current epoch millis, so it only grows, also
+     * when it's advanced again after expiring.
+     *
+     * @param ttl since the last advance, only bounds the number of watermarks kept
+     */
+    Mono<Void> advanceWatermark(String key, Duration ttl);
+
+    Mono<String> get(String key);
+
+    Mono<Void> put(String key, String value, Duration ttl);
+}
@@ -0,0 +1,102 @@
+package com.comet.opik.infrastructure.cache;
+
+import com.comet.opik.infrastructure.EntityCacheConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.comet.opik.infrastructure.cache.CacheInvalidationBus.CacheInvalidation;
+
+/**
+ * Bounded in-process cache of entities resolved by workspace id and name, such as the projects and datasets looked up
+ * on every ingestion request. Concurrent misses on the same key are coalesced into a single load.
+ * <br>
+ * Entries expire after {@link EntityCacheConfig#getTtlInSeconds()}, which bounds the staleness if an invalidation
+ * message is lost. Renames and deletes must call one of the invalidate methods, which evict the entry locally and on
+ * every other instance through the {@link CacheInvalidationBus}.
+ * */
+@Slf4j
+public class WorkspaceNameCache<V> {
+
+    private record Key(String workspaceId, String name) {
+    }
+
+    private final String cacheName;
+    private final boolean enabled;
+    private final Function<V, UUID> idExtractor;
+    private final CacheInvalidationBus invalidationBus;
+    private final Cache<Key, V> cache;
+
+    public WorkspaceNameCache(@NonNull String cacheName, @NonNull EntityCacheConfig config,
+            @NonNull CacheInvalidationBus invalidationBus, @NonNull Function<V, UUID> idExtractor) {
+        this.cacheName = cacheName;
+        this.enabled = config.isEnabled();
+        this.idExtractor = idExtractor;
+        this.invalidationBus = invalidationBus;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(config.getTtlInSeconds()))
+                .maximumSize(config.getMaximumSize())
+                .build();
+
+        if (enabled) {
+            invalidationBus.subscribe(this::onInvalidation);
+        }
+    }
+
+    /**
+     * Returns the cached value, or resolves it with the given loader. Exceptions thrown by the loader are propagated
+     * and nothing is cached.
+     * */
+    public V get(@NonNull String workspaceId, @NonNull String name, @NonNull Supplier<V> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        return cache.get(new Key(workspaceId, name), key -> loader.get());
+    }
+
+    public void invalidate(@NonNull String workspaceId, @NonNull String name) {
+        publish(new CacheInvalidation(cacheName, workspaceId, name, null));
+    }
+
+    public void invalidate(@NonNull String workspaceId, @NonNull UUID id) {
+        publish(new CacheInvalidation(cacheName, workspaceId, null, id));
+    }
+
+    private void publish(CacheInvalidation invalidation) {
+        if (!enabled) {
+            return;
+        }
+
+        // evict locally right away, so this instance never serves the stale entry after the write returns
+        onInvalidation(invalidation);
+
+        invalidationBus.publish(invalidation)
+                .subscribe(
+                        __ -> {
+                        },
+                        error -> log.error("Error publishing invalidation for cache '{}'", cacheName, error));
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (!cacheName.equals(invalidation.cacheName())) {
+            return;
+        }
+
+        if (invalidation.name() != null) {
+            cache.invalidate(new Key(invalidation.workspaceId(), invalidation.name()));
+            return;
+        }
+
+        // lookups by id are only needed for renames and deletes, so a scan of the bounded cache is acceptable
+        cache.asMap().entrySet().removeIf(entry -> entry.getKey().workspaceId().equals(invalidation.workspaceId())
+                && Objects.equals(idExtractor.apply(entry.getValue()), invalidation.id()));
+    }
+}
@@ -1,25 +1,67 @@
 package com.comet.opik.infrastructure.db;
 
+import com.clickhouse.client.ClickHouseClient;
+import com.clickhouse.client.ClickHouseProtocol;
 import com.comet.opik.infrastructure.DatabaseAnalyticsFactory;
 import com.comet.opik.infrastructure.OpikConfiguration;
 import com.google.inject.Provides;
+import io.dropwizard.lifecycle.AutoCloseableManager;
 import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.instrumentation.r2dbc.v1_0.R2dbcTelemetry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
 import io.r2dbc.spi.ConnectionFactory;
 import io.r2dbc.spi.ConnectionFactoryOptions;
 import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import ru.vyarus.dropwizard.guice.module.support.DropwizardAwareModule;
 
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.TRACER_NAME;
+
 public class DatabaseAnalyticsModule extends DropwizardAwareModule<OpikConfiguration> {
 
     private transient DatabaseAnalyticsFactory databaseAnalyticsFactory;
-    private transient ConnectionFactory connectionFactory;
+    private transient ConnectionPool connectionFactory;
+    private transient ClickHouseClient clickHouseClient;
 
     @Override
     protected void configure() {
         databaseAnalyticsFactory = configuration(DatabaseAnalyticsFactory.class);
         connectionFactory = databaseAnalyticsFactory.build();
+        environment().lifecycle().manage(new AutoCloseableManager(connectionFactory::dispose));
+        registerPoolGauges(connectionFactory);
+        clickHouseClient = ClickHouseClient.newInstance(ClickHouseProtocol.HTTP);
+        environment().lifecycle().manage(new AutoCloseableManager(clickHouseClient));
+    }
+
+    private void registerPoolGauges(ConnectionPool pool) {
+        Meter meter = GlobalOpenTelemetry.get().getMeter(TRACER_NAME);
+        var state = AttributeKey.stringKey("state");
+
+        Map<String, ToIntFunction<PoolMetrics>> connections = Map.of(
+                "acquired", PoolMetrics::acquiredSize,
+                "idle", PoolMetrics::idleSize,
+                "allocated", PoolMetrics::allocatedSize,
+                "pending", PoolMetrics::pendingAcquireSize);
+
+        meter.gaugeBuilder("opik.clickhouse.pool.connections")
+                .setDescription("Connections of the ClickHouse R2DBC pool, by state")
+                .ofLongs()
+                .buildWithCallback(measurement -> pool.getMetrics()
+                        .ifPresent(metrics -> connections.forEach((name, value) -> measurement.record(
+                                value.applyAsInt(metrics), Attributes.of(state, name)))));
+
+        meter.gaugeBuilder("opik.clickhouse.pool.max")
+                .setDescription("Max connections of the ClickHouse R2DBC pool")
+                .ofLongs()
+                .buildWithCallback(measurement -> pool.getMetrics()
+                        .ifPresent(metrics -> measurement.record(metrics.getMaxAllocatedSize())));
     }
 
     @Provides
@@ -42,4 +84,13 @@ public class DatabaseAnalyticsModule extends DropwizardAwareModule<OpikConfigura
         return new TransactionTemplateAsyncImpl(connectionFactory);
     }
 
+    @Provides
+    @Singleton
+    public RowBinaryInsertTemplate getRowBinaryInsertTemplate() {
+        boolean enabled = databaseAnalyticsFactory
+                .getBulkInsertFormat() == DatabaseAnalyticsFactory.BulkInsertFormat.ROW_BINARY;
+
+        return RowBinaryInsertTemplate.create(enabled, clickHouseClient, databaseAnalyticsFactory.buildNode());
+    }
+
 }
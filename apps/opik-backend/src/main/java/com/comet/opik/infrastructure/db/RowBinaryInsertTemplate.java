@@ -0,0 +1,85 @@
+package com.comet.opik.infrastructure.db;
+
+import com.clickhouse.client.ClickHouseClient;
+import com.clickhouse.client.ClickHouseNode;
+import com.clickhouse.client.ClickHouseResponse;
+import com.clickhouse.data.ClickHouseFormat;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.Segment;
+import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.endSegment;
+import static com.comet.opik.infrastructure.instrumentation.InstrumentAsyncUtils.startSegment;
+
+/**
+ * Bulk insert path that streams rows to ClickHouse in RowBinary format over the HTTP client, instead of rendering a
+ * VALUES clause with one named parameter per column and row.
+ * <br>
+ * Statements are expected to be of the form {@code INSERT INTO t(...) SELECT ... FROM input('...')}, so the wire
+ * structure written by the {@link RowEncoder} is decoupled from the column types of the target table.
+ * */
+public interface RowBinaryInsertTemplate {
+
+    // Rough per row size to pre-size the buffer, payload columns dominate anyway
+    int ESTIMATED_ROW_SIZE = 512;
+
+    interface RowEncoder<T> {
+        void encode(RowBinaryWriter writer, T row);
+    }
+
+    static RowBinaryInsertTemplate create(boolean enabled, ClickHouseClient client, ClickHouseNode node) {
+        return new RowBinaryInsertTemplateImpl(enabled, client, node);
+    }
+
+    boolean isEnabled();
+
+    <T> Mono<Long> insert(String table, String sql, List<T> rows, RowEncoder<T> encoder);
+}
+
+@Slf4j
+@RequiredArgsConstructor
+class RowBinaryInsertTemplateImpl implements RowBinaryInsertTemplate {
+
+    private final boolean enabled;
+    private final @NonNull ClickHouseClient client;
+    private final @NonNull ClickHouseNode node;
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public <T> Mono<Long> insert(@NonNull String table, @NonNull String sql, @NonNull List<T> rows,
+            @NonNull RowEncoder<T> encoder) {
+        return Mono.defer(() -> {
+            var writer = new RowBinaryWriter(rows.size() * ESTIMATED_ROW_SIZE);
+            rows.forEach(row -> encoder.encode(writer, row));
+
+            log.debug("Inserting '{}' rows into '{}' as RowBinary, '{}' bytes", rows.size(), table, writer.size());
+
+            Segment segment = startSegment(table, "Clickhouse", "row_binary_insert");
+
+            return Mono.fromFuture(() -> client.read(node)
+                    .write()
+                    .format(ClickHouseFormat.RowBinary)
+                    .query(sql)
+                    .data(new ByteArrayInputStream(writer.toByteArray()))
+                    .execute())
+                    .map(response -> close(response, rows.size()))
+                    .doFinally(signalType -> endSegment(segment));
+        });
+    }
+
+    // The written rows of the summary also count the rows written by the materialized views of the table
+    private long close(ClickHouseResponse response, int rows) {
+        try (response) {
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.comet.opik.infrastructure.db;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Minimal encoder for the ClickHouse RowBinary format, covering the column types used by the bulk insert paths.
+ * Values are written in column order, exactly as declared by the {@code input()} structure of the insert statement.
+ *
+ * @see <a href="https://clickhouse.com/docs/en/interfaces/formats#rowbinary">RowBinary</a>
+ * */
+public final class RowBinaryWriter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final ByteArrayOutputStream output;
+
+    RowBinaryWriter(int initialSize) {
+        this.output = new ByteArrayOutputStream(initialSize);
+    }
+
+    public RowBinaryWriter writeString(String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        output.writeBytes(bytes);
+        return this;
+    }
+
+    public RowBinaryWriter writeInt32(int value) {
+        for (int i = 0; i < Integer.BYTES; i++) {
+            output.write((value >>> (8 * i)) & 0xFF);
+        }
+        return this;
+    }
+
+    public RowBinaryWriter writeInt64(long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            output.write((int) ((value >>> (8 * i)) & 0xFF));
+        }
+        return this;
+    }
+
+    /**
+     * Writes the instant as nanoseconds since epoch, to be read as {@code Int64} and converted with
+     * {@code fromUnixTimestamp64Nano}.
+     * */
+    public RowBinaryWriter writeEpochNanos(Instant value) {
+        return writeInt64(Math.addExact(Math.multiplyExact(value.getEpochSecond(), NANOS_PER_SECOND), value.getNano()));
+    }
+
+    public RowBinaryWriter writeNullableEpochNanos(Instant value) {
+        if (value == null) {
+            output.write(1);
+            return this;
+        }
+
+        output.write(0);
+        return writeEpochNanos(value);
+    }
+
+    public RowBinaryWriter writeStringArray(Collection<String> values) {
+        if (values == null) {
+            writeVarInt(0);
+            return this;
+        }
+
+        writeVarInt(values.size());
+        values.forEach(this::writeString);
+        return this;
+    }
+
+    /**
+     * Writes a {@code Map(String, Int32)}, skipping null values.
+     * */
+    public RowBinaryWriter writeStringInt32Map(Map<String, Integer> values) {
+        if (values == null) {
+            writeVarInt(0);
+            return this;
+        }
+
+        var entries = values.entrySet().stream().filter(entry -> entry.getValue() != null).toList();
+
+        writeVarInt(entries.size());
+        entries.forEach(entry -> writeString(entry.getKey()).writeInt32(entry.getValue()));
+        return this;
+    }
+
+    private void writeVarInt(long value) {
+        // LEB128, as used by ClickHouse for string lengths and collection sizes
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    byte[] toByteArray() {
+        return output.toByteArray();
+    }
+
+    int size() {
+        return output.size();
+    }
+}
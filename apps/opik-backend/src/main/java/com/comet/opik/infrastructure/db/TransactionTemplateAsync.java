@@ -29,6 +29,9 @@ public interface TransactionTemplateAsync {
     <T> Flux<T> stream(NoTransactionStream<T> callback);
 }
 
+/**
+ * Connections come from a pool, so they are released with {@code usingWhen} on completion, error and cancellation.
+ * */
 @RequiredArgsConstructor
 class TransactionTemplateAsyncImpl implements TransactionTemplateAsync {
 
@@ -36,13 +39,11 @@ class TransactionTemplateAsyncImpl implements TransactionTemplateAsync {
 
     @Override
     public <T> Mono<T> nonTransaction(TransactionCallback<T> callback) {
-        return Mono.from(connectionFactory.create())
-                .flatMap(callback::execute);
+        return Mono.usingWhen(connectionFactory.create(), callback::execute, Connection::close);
     }
 
     @Override
     public <T> Flux<T> stream(NoTransactionStream<T> callback) {
-        return Mono.from(connectionFactory.create())
-                .flatMapMany(callback::execute);
+        return Flux.usingWhen(connectionFactory.create(), callback::execute, Connection::close);
     }
 }
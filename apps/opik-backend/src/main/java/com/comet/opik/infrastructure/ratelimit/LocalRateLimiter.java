@@ -0,0 +1,200 @@
+package com.comet.opik.infrastructure.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.inject.Provider;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import static com.comet.opik.infrastructure.RateLimitConfig.LimitConfig;
+
+/**
+ * Hybrid rate limiter: each node keeps a local token bucket per API key and bucket name, which leases permits from the
+ * distributed {@link RateLimitService} in chunks of {@code leaseSize}. Requests are admitted from the local bucket and
+ * the rate limit headers are computed from local state, so Redis is only reached once per lease, not once per request.
+ * <br>
+ * Error bounds, per API key and bucket:
+ * <ul>
+ *     <li>Over-admission: Redis accounts for a permit when it's leased, but a node may spend it up to
+ *     {@code durationInSeconds} later, after Redis already released it. In any window, at most
+ *     {@code nodes * leaseSize} events above the limit are admitted.</li>
+ *     <li>Under-admission: permits leased but not spent by a node are unavailable to the others until they expire, so
+ *     at most {@code nodes * (leaseSize - 1)} events below the limit may be rejected.</li>
+ *     <li>Headers: the remaining events are those available in Redis, as last read, minus the chunks leased since, plus
+ *     the local permits, so they don't reflect the consumption of other nodes since the last read. Redis is read again
+ *     in the background after a lease, never on the request path.</li>
+ * </ul>
+ * After a rejected lease, the bucket doesn't go back to Redis until the distributed limiter could have replenished a
+ * chunk, so Redis traffic is bounded by {@code limit / leaseSize} leases per window and node, whatever the request rate.
+ * */
+@Slf4j
+class LocalRateLimiter {
+
+    record Decision(boolean allowed, long remainingEvents, long remainingTtlInMillis) {
+    }
+
+    private record Key(String apiKey, String bucketName) {
+    }
+
+    private static final Duration IDLE_BUCKET_EXPIRATION = Duration.ofMinutes(10);
+
+    private final Provider<RateLimitService> rateLimitService;
+    private final long leaseSize;
+    private final LongSupplier nanoClock;
+    private final Cache<Key, LocalBucket> buckets;
+
+    LocalRateLimiter(@NonNull Provider<RateLimitService> rateLimitService, long leaseSize) {
+        this(rateLimitService, leaseSize, System::nanoTime);
+    }
+
+    LocalRateLimiter(@NonNull Provider<RateLimitService> rateLimitService, long leaseSize,
+            @NonNull LongSupplier nanoClock) {
+        this.rateLimitService = rateLimitService;
+        this.leaseSize = leaseSize;
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(IDLE_BUCKET_EXPIRATION)
+                .build();
+    }
+
+    Decision tryAcquire(@NonNull String apiKey, long events, @NonNull String bucketName,
+            @NonNull LimitConfig limitConfig) {
+        return buckets.get(new Key(apiKey, bucketName), key -> new LocalBucket(key, limitConfig))
+                .tryAcquire(events);
+    }
+
+    private class LocalBucket {
+
+        private final Key key;
+        private final LimitConfig limitConfig;
+        // a ReentrantLock rather than synchronized, so that virtual threads waiting for a lease aren't pinned
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private long permits;
+        private long leaseExpiresAt;
+        private long noLeaseUntil;
+        private long remoteAvailable;
+        private long windowEndsAt;
+        private boolean refreshing;
+
+        LocalBucket(Key key, LimitConfig limitConfig) {
+            this.key = key;
+            this.limitConfig = limitConfig;
+            long now = nanoClock.getAsLong();
+            this.leaseExpiresAt = now;
+            this.noLeaseUntil = now;
+            this.remoteAvailable = limitConfig.limit();
+            this.windowEndsAt = now;
+        }
+
+        Decision tryAcquire(long events) {
+            lock.lock();
+            try {
+                long now = nanoClock.getAsLong();
+
+                if (now - leaseExpiresAt >= 0) {
+                    // leased permits are released by Redis after the window, spending them later would over-admit
+                    permits = 0;
+                }
+
+                if (permits < events && now - noLeaseUntil >= 0) {
+                    lease(now, events - permits);
+                }
+
+                boolean allowed = permits >= events;
+                if (allowed) {
+                    permits -= events;
+                }
+
+                return new Decision(allowed, remoteAvailable + permits,
+                        Math.max(0, TimeUnit.NANOSECONDS.toMillis(windowEndsAt - now)));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void lease(long now, long deficit) {
+            var limiter = rateLimitService.get();
+            long chunk = Math.min(Math.max(leaseSize, deficit), limitConfig.limit());
+
+            boolean leased = deficit <= chunk && acquire(limiter, chunk);
+            if (!leased && deficit < chunk) {
+                // not enough left for a full chunk, but maybe for this request
+                chunk = deficit;
+                leased = acquire(limiter, chunk);
+            }
+
+            long windowInNanos = TimeUnit.SECONDS.toNanos(limitConfig.durationInSeconds());
+
+            if (leased) {
+                permits += chunk;
+                leaseExpiresAt = now + windowInNanos;
+                // estimates until the background read below completes
+                remoteAvailable = Math.max(0, remoteAvailable - chunk);
+                if (windowEndsAt - now <= 0) {
+                    windowEndsAt = leaseExpiresAt;
+                }
+            } else {
+                remoteAvailable = 0;
+                // the time it takes the distributed limiter to replenish a chunk at its steady rate
+                noLeaseUntil = now + windowInNanos / Math.max(1, limitConfig.limit()) * Math.max(1, leaseSize);
+            }
+
+            refreshRemoteState(limiter, leased);
+        }
+
+        private void refreshRemoteState(RateLimitService limiter, boolean leased) {
+            if (refreshing) {
+                return;
+            }
+
+            refreshing = true;
+            Mono.zip(
+                    limiter.availableEvents(key.apiKey(), key.bucketName(), limitConfig),
+                    limiter.getRemainingTTL(key.apiKey(), key.bucketName(), limitConfig))
+                    .doFinally(signalType -> withLock(() -> refreshing = false))
+                    .subscribe(
+                            state -> withLock(() -> updateRemoteState(state.getT1(), state.getT2(), leased)),
+                            // only the headers depend on it
+                            exception -> log.error("Error refreshing rate limit state", exception));
+        }
+
+        private void updateRemoteState(long available, long remainingTtlInMillis, boolean leased) {
+            long now = nanoClock.getAsLong();
+
+            remoteAvailable = available;
+            windowEndsAt = now + TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingTtlInMillis));
+
+            if (!leased && windowEndsAt - now > 0) {
+                noLeaseUntil = Math.min(noLeaseUntil, windowEndsAt);
+            }
+        }
+
+        private void withLock(Runnable action) {
+            lock.lock();
+            try {
+                action.run();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean acquire(RateLimitService limiter, long events) {
+            if (events <= 0) {
+                return false;
+            }
+
+            Boolean limitExceeded = limiter
+                    .isLimitExceeded(key.apiKey(), events, key.bucketName(), limitConfig)
+                    .block();
+
+            return !Boolean.TRUE.equals(limitExceeded);
+        }
+    }
+}
@@ -25,6 +25,8 @@ class RateLimitInterceptor implements MethodInterceptor {
     private final Provider<RequestContext> requestContext;
     private final Provider<RateLimitService> rateLimitService;
     private final RateLimitConfig rateLimitConfig;
+    // null when every request is checked against Redis
+    private final LocalRateLimiter localRateLimiter;
 
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
@@ -53,6 +55,11 @@ class RateLimitInterceptor implements MethodInterceptor {
 
         long events = body instanceof RateEventContainer container ? container.eventCount() : 1;
 
+        if (localRateLimiter != null) {
+            verifyLocalRateLimit(events, apiKey, limitBucket, generalLimit);
+            return invocation.proceed();
+        }
+
         verifyRateLimit(events, apiKey, limitBucket, generalLimit);
 
         try {
@@ -75,6 +82,19 @@ class RateLimitInterceptor implements MethodInterceptor {
         }
     }
 
+    private void verifyLocalRateLimit(long events, String apiKey, String bucket, LimitConfig limitConfig) {
+        var decision = localRateLimiter.tryAcquire(apiKey, events, bucket, limitConfig);
+
+        var headers = requestContext.get().getHeaders();
+        headers.put(RequestContext.USER_LIMIT, List.of(bucket));
+        headers.put(RequestContext.USER_LIMIT_REMAINING_TTL, List.of("" + decision.remainingTtlInMillis()));
+        headers.put(RequestContext.USER_REMAINING_LIMIT, List.of("" + decision.remainingEvents()));
+
+        if (!decision.allowed()) {
+            throw new ClientErrorException("Too Many Requests", HttpStatus.SC_TOO_MANY_REQUESTS);
+        }
+    }
+
     private void setLimitHeaders(String apiKey, String bucket, LimitConfig limitConfig) {
         requestContext.get().getHeaders().put(RequestContext.USER_LIMIT, List.of(bucket));
 
@@ -15,7 +15,11 @@ public class RateLimitModule extends DropwizardAwareModule<OpikConfiguration> {
         var config = configuration(RateLimitConfig.class);
         var requestContext = getProvider(RequestContext.class);
 
-        var rateLimitInterceptor = new RateLimitInterceptor(requestContext, rateLimit, config);
+        var localRateLimiter = config.getLeaseSize() > 0
+                ? new LocalRateLimiter(rateLimit, config.getLeaseSize())
+                : null;
+
+        var rateLimitInterceptor = new RateLimitInterceptor(requestContext, rateLimit, config, localRateLimiter);
 
         bindInterceptor(Matchers.any(), Matchers.annotatedWith(RateLimited.class), rateLimitInterceptor);
     }
@@ -0,0 +1,46 @@
+package com.comet.opik.infrastructure.redis;
+
+import com.comet.opik.infrastructure.cache.CacheInvalidationBus;
+import com.comet.opik.utils.JsonUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopicReactive;
+import org.redisson.api.RedissonReactiveClient;
+import org.redisson.client.codec.StringCodec;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+@Slf4j
+public class RedisCacheInvalidationBus implements CacheInvalidationBus {
+
+    private static final String TOPIC = "opik:cache:invalidations";
+
+    private final RedissonReactiveClient redisClient;
+
+    @Override
+    public Mono<Void> publish(@NonNull CacheInvalidation invalidation) {
+        return topic().publish(JsonUtils.writeValueAsString(invalidation)).then();
+    }
+
+    @Override
+    public void subscribe(@NonNull Consumer<CacheInvalidation> listener) {
+        topic().addListener(String.class, (channel, message) -> {
+            try {
+                listener.accept(JsonUtils.readValue(message, new TypeReference<CacheInvalidation>() {
+                }));
+            } catch (RuntimeException exception) {
+                log.error("Error processing cache invalidation message '{}'", message, exception);
+            }
+        }).subscribe(
+                __ -> log.info("Subscribed to cache invalidations on topic '{}'", TOPIC),
+                error -> log.error("Error subscribing to cache invalidations on topic '{}'", TOPIC, error));
+    }
+
+    private RTopicReactive topic() {
+        return redisClient.getTopic(TOPIC, StringCodec.INSTANCE);
+    }
+}
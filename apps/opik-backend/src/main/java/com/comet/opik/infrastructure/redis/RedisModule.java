@@ -3,6 +3,8 @@ package com.comet.opik.infrastructure.redis;
 import com.comet.opik.infrastructure.DistributedLockConfig;
 import com.comet.opik.infrastructure.OpikConfiguration;
 import com.comet.opik.infrastructure.RedisConfig;
+import com.comet.opik.infrastructure.cache.CacheInvalidationBus;
+import com.comet.opik.infrastructure.cache.SharedResultCache;
 import com.comet.opik.infrastructure.lock.LockService;
 import com.comet.opik.infrastructure.ratelimit.RateLimitService;
 import com.google.inject.Provides;
@@ -33,4 +35,16 @@ public class RedisModule extends DropwizardAwareModule<OpikConfiguration> {
         return new RedisRateLimitService(redisClient);
     }
 
+    @Provides
+    @Singleton
+    public CacheInvalidationBus cacheInvalidationBus(RedissonReactiveClient redisClient) {
+        return new RedisCacheInvalidationBus(redisClient);
+    }
+
+    @Provides
+    @Singleton
+    public SharedResultCache sharedResultCache(RedissonReactiveClient redisClient) {
+        return new RedisSharedResultCache(redisClient);
+    }
+
 }
@@ -0,0 +1,57 @@
+package com.comet.opik.infrastructure.redis;
+
+import com.comet.opik.infrastructure.cache.SharedResultCache;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonReactiveClient;
+import org.redisson.client.codec.StringCodec;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class RedisSharedResultCache implements SharedResultCache {
+
+    // the epoch millis of the caller, or one past the current value, so the watermark grows even across its expiry
+    // and the clock skew between instances
+    private static final String ADVANCE_WATERMARK = """
+            local current = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local next = math.max(tonumber(ARGV[1]), current + 1)
+            redis.call('SET', KEYS[1], next, 'PX', ARGV[2])
+            return next
+            """;
+
+    private final RedissonReactiveClient redisClient;
+
+    @Override
+    public Mono<Map<String, Long>> getWatermarks(@NonNull Collection<String> keys) {
+        // a single MGET, the watermarks are stored as plain integers
+        return redisClient.getBuckets(StringCodec.INSTANCE)
+                .<String>get(keys.toArray(String[]::new))
+                .map(values -> values.entrySet().stream()
+                        .collect(Collectors.toMap(Map.Entry::getKey, entry -> Long.parseLong(entry.getValue()))));
+    }
+
+    @Override
+    public Mono<Void> advanceWatermark(@NonNull String key, @NonNull Duration ttl) {
+        return redisClient.getScript(StringCodec.INSTANCE)
+                .eval(RScript.Mode.READ_WRITE, ADVANCE_WATERMARK, RScript.ReturnType.INTEGER, List.of(key),
+                        String.valueOf(System.currentTimeMillis()), String.valueOf(ttl.toMillis()))
+                .then();
+    }
+
+    @Override
+    public Mono<String> get(@NonNull String key) {
+        return redisClient.<String>getBucket(key, StringCodec.INSTANCE).get();
+    }
+
+    @Override
+    public Mono<Void> put(@NonNull String key, @NonNull String value, @NonNull Duration ttl) {
+        return redisClient.<String>getBucket(key, StringCodec.INSTANCE).set(value, ttl);
+    }
+}
@@ -12,6 +12,7 @@ import reactor.util.retry.RetryBackoffSpec;
 
 import java.net.SocketException;
 import java.time.Duration;
+import java.util.function.BiFunction;
 
 @UtilityClass
 @Slf4j
@@ -55,6 +56,15 @@ public class AsyncUtils {
         });
     }
 
+    /**
+     * Runs the count and the page of a paginated query concurrently, as they don't depend on each other. Each one must
+     * acquire its own connection when subscribed, since a connection runs one query at a time.
+     * */
+    public static <C, T, P> Mono<P> countAndPage(
+            Mono<C> count, Mono<T> page, BiFunction<? super C, ? super T, ? extends P> combinator) {
+        return Mono.zip(count, page).map(tuple -> combinator.apply(tuple.getT1(), tuple.getT2()));
+    }
+
     public static RetryBackoffSpec handleConnectionError() {
         return Retry.backoff(3, Duration.ofMillis(100))
                 .doBeforeRetry(retrySignal -> log.debug("Retrying due to: {}", retrySignal.failure().getMessage()))
@@ -1,13 +1,22 @@
 package com.comet.opik.utils;
 
 import com.google.common.base.Preconditions;
+import jakarta.ws.rs.BadRequestException;
 import lombok.NonNull;
+import org.apache.commons.lang3.StringUtils;
 
+import java.nio.ByteBuffer;
+import java.util.Base64;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
 
 public class PaginationUtils {
     public static String ERR_PAGE_INVALID = "invalid value for page '%d'";
     public static String ERR_SIZE_INVALID = "invalid value for size '%d'";
+    public static String ERR_CURSOR_INVALID = "invalid value for cursor '%s'";
+
+    private static final int UUID_BYTES = 16;
 
     public static <T> List<T> paginate(int page, int size, @NonNull List<T> elements) {
         Preconditions.checkArgument(page >= 1, ERR_PAGE_INVALID.formatted(page));
@@ -21,4 +30,39 @@ public class PaginationUtils {
 
         return elements.subList(offset, Math.min(offset + size, elements.size()));
     }
+
+    /**
+     * Opaque cursor to the page after the given one, for keyset pagination over the id ordering (UUID v7, descending).
+     * Returns null when the page isn't full, as there's nothing after it.
+     */
+    public static <T> String nextCursor(@NonNull List<T> content, int size, @NonNull Function<T, UUID> idExtractor) {
+        if (content.isEmpty() || content.size() < size) {
+            return null;
+        }
+
+        UUID lastId = idExtractor.apply(content.getLast());
+        var bytes = ByteBuffer.allocate(UUID_BYTES)
+                .putLong(lastId.getMostSignificantBits())
+                .putLong(lastId.getLeastSignificantBits())
+                .array();
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * The id of the last item retrieved, from a cursor returned by {@link #nextCursor}. Null if no cursor is given.
+     */
+    public static UUID decodeCursor(String cursor) {
+        if (StringUtils.isBlank(cursor)) {
+            return null;
+        }
+
+        try {
+            var bytes = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+            Preconditions.checkArgument(bytes.remaining() == UUID_BYTES);
+            return new UUID(bytes.getLong(), bytes.getLong());
+        } catch (IllegalArgumentException exception) {
+            throw new BadRequestException(ERR_CURSOR_INVALID.formatted(cursor));
+        }
+    }
 }
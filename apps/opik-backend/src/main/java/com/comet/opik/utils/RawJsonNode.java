@@ -0,0 +1,382 @@
+package com.comet.opik.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.node.BaseJsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A JSON value read from the database as text, e.g. the input, output and metadata of traces and spans.
+ * <br>
+ * Serializing it writes the text as is, so the payloads go from ClickHouse to the response without being parsed into a
+ * tree and written back. It's only parsed, once, when server side code inspects it. The text must be valid JSON, which
+ * holds for the values written by the backend itself.
+ * */
+public final class RawJsonNode extends BaseJsonNode {
+
+    private final String json;
+    private transient volatile JsonNode parsed;
+
+    public RawJsonNode(@NonNull String json) {
+        this.json = json;
+    }
+
+    public boolean isParsed() {
+        return parsed != null;
+    }
+
+    private JsonNode parsed() {
+        JsonNode node = parsed;
+        if (node == null) {
+            // benign race, concurrent readers would parse the same value
+            node = JsonUtils.getJsonNodeFromString(json);
+            parsed = node;
+        }
+        return node;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        // token buffers, used by convertValue and treeToValue, need the actual tokens
+        if (generator instanceof TokenBuffer) {
+            parsed().serialize(generator, provider);
+            return;
+        }
+        generator.writeRawValue(json);
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer)
+            throws IOException {
+        ((BaseJsonNode) parsed()).serializeWithType(generator, provider, typeSerializer);
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+
+    @Override
+    public String toPrettyString() {
+        return parsed().toPrettyString();
+    }
+
+    /**
+     * Equal to the raw nodes of the same text only, so it's symmetric and doesn't parse. Other nodes don't consider a
+     * raw node equal to them either, compare its {@link #deepCopy()} with them instead.
+     * */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        return other instanceof RawJsonNode rawJsonNode && json.equals(rawJsonNode.json);
+    }
+
+    @Override
+    public int hashCode() {
+        return json.hashCode();
+    }
+
+    @Override
+    public JsonToken asToken() {
+        return parsed().asToken();
+    }
+
+    @Override
+    public JsonParser.NumberType numberType() {
+        return parsed().numberType();
+    }
+
+    @Override
+    public JsonParser traverse(ObjectCodec codec) {
+        return parsed().traverse(codec);
+    }
+
+    @Override
+    public JsonNodeType getNodeType() {
+        return parsed().getNodeType();
+    }
+
+    @Override
+    public boolean isMissingNode() {
+        return parsed().isMissingNode();
+    }
+
+    @Override
+    public boolean isArray() {
+        return parsed().isArray();
+    }
+
+    @Override
+    public boolean isObject() {
+        return parsed().isObject();
+    }
+
+    @Override
+    public boolean isIntegralNumber() {
+        return parsed().isIntegralNumber();
+    }
+
+    @Override
+    public boolean isFloatingPointNumber() {
+        return parsed().isFloatingPointNumber();
+    }
+
+    @Override
+    public boolean isShort() {
+        return parsed().isShort();
+    }
+
+    @Override
+    public boolean isInt() {
+        return parsed().isInt();
+    }
+
+    @Override
+    public boolean isLong() {
+        return parsed().isLong();
+    }
+
+    @Override
+    public boolean isFloat() {
+        return parsed().isFloat();
+    }
+
+    @Override
+    public boolean isDouble() {
+        return parsed().isDouble();
+    }
+
+    @Override
+    public boolean isBigDecimal() {
+        return parsed().isBigDecimal();
+    }
+
+    @Override
+    public boolean isBigInteger() {
+        return parsed().isBigInteger();
+    }
+
+    @Override
+    public boolean canConvertToInt() {
+        return parsed().canConvertToInt();
+    }
+
+    @Override
+    public boolean canConvertToLong() {
+        return parsed().canConvertToLong();
+    }
+
+    @Override
+    public boolean canConvertToExactIntegral() {
+        return parsed().canConvertToExactIntegral();
+    }
+
+    @Override
+    public byte[] binaryValue() throws IOException {
+        return parsed().binaryValue();
+    }
+
+    @Override
+    public JsonNode required(String fieldName) {
+        return parsed().required(fieldName);
+    }
+
+    @Override
+    public JsonNode required(int index) {
+        return parsed().required(index);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends JsonNode> T deepCopy() {
+        return (T) parsed().deepCopy();
+    }
+
+    @Override
+    public int size() {
+        return parsed().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return parsed().isEmpty();
+    }
+
+    @Override
+    public JsonNode get(int index) {
+        return parsed().get(index);
+    }
+
+    @Override
+    public JsonNode get(String fieldName) {
+        return parsed().get(fieldName);
+    }
+
+    @Override
+    public JsonNode path(String fieldName) {
+        return parsed().path(fieldName);
+    }
+
+    @Override
+    public JsonNode path(int index) {
+        return parsed().path(index);
+    }
+
+    @Override
+    public boolean has(String fieldName) {
+        return parsed().has(fieldName);
+    }
+
+    @Override
+    public boolean has(int index) {
+        return parsed().has(index);
+    }
+
+    @Override
+    public boolean hasNonNull(String fieldName) {
+        return parsed().hasNonNull(fieldName);
+    }
+
+    @Override
+    public boolean hasNonNull(int index) {
+        return parsed().hasNonNull(index);
+    }
+
+    @Override
+    protected JsonNode _at(JsonPointer pointer) {
+        return parsed().at(pointer);
+    }
+
+    @Override
+    public Iterator<String> fieldNames() {
+        return parsed().fieldNames();
+    }
+
+    @Override
+    public Iterator<JsonNode> elements() {
+        return parsed().elements();
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, JsonNode>> fields() {
+        return parsed().fields();
+    }
+
+    @Override
+    public Set<Map.Entry<String, JsonNode>> properties() {
+        return parsed().properties();
+    }
+
+    @Override
+    public JsonNode findValue(String fieldName) {
+        return parsed().findValue(fieldName);
+    }
+
+    @Override
+    public JsonNode findParent(String fieldName) {
+        return parsed().findParent(fieldName);
+    }
+
+    @Override
+    public List<JsonNode> findValues(String fieldName, List<JsonNode> foundSoFar) {
+        return parsed().findValues(fieldName, foundSoFar);
+    }
+
+    @Override
+    public List<String> findValuesAsText(String fieldName, List<String> foundSoFar) {
+        return parsed().findValuesAsText(fieldName, foundSoFar);
+    }
+
+    @Override
+    public List<JsonNode> findParents(String fieldName, List<JsonNode> foundSoFar) {
+        return parsed().findParents(fieldName, foundSoFar);
+    }
+
+    @Override
+    public String textValue() {
+        return parsed().textValue();
+    }
+
+    @Override
+    public String asText() {
+        return parsed().asText();
+    }
+
+    @Override
+    public String asText(String defaultValue) {
+        return parsed().asText(defaultValue);
+    }
+
+    @Override
+    public Number numberValue() {
+        return parsed().numberValue();
+    }
+
+    @Override
+    public int intValue() {
+        return parsed().intValue();
+    }
+
+    @Override
+    public long longValue() {
+        return parsed().longValue();
+    }
+
+    @Override
+    public double doubleValue() {
+        return parsed().doubleValue();
+    }
+
+    @Override
+    public BigDecimal decimalValue() {
+        return parsed().decimalValue();
+    }
+
+    @Override
+    public BigInteger bigIntegerValue() {
+        return parsed().bigIntegerValue();
+    }
+
+    @Override
+    public boolean booleanValue() {
+        return parsed().booleanValue();
+    }
+
+    @Override
+    public int asInt(int defaultValue) {
+        return parsed().asInt(defaultValue);
+    }
+
+    @Override
+    public long asLong(long defaultValue) {
+        return parsed().asLong(defaultValue);
+    }
+
+    @Override
+    public double asDouble(double defaultValue) {
+        return parsed().asDouble(defaultValue);
+    }
+
+    @Override
+    public boolean asBoolean(boolean defaultValue) {
+        return parsed().asBoolean(defaultValue);
+    }
+}
@@ -0,0 +1,18 @@
+package com.comet.opik.utils;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class RowUtils {
+
+    /**
+     * For columns that are left out of the projection on demand, e.g. the fields excluded from a list response.
+     */
+    public static <T> T getIfPresent(@NonNull Row row, @NonNull RowMetadata rowMetadata, @NonNull String column,
+            @NonNull Class<T> type) {
+        return rowMetadata.contains(column) ? row.get(column, type) : null;
+    }
+}
@@ -0,0 +1,21 @@
+--liquibase formatted sql
+--changeset agent:add_trace_summaries
+
+-- One row per trace, with the aggregates of its latest spans. Rewritten on every span write, versioned by the latest
+-- last_updated_at of the spans it was computed from, so the latest version per trace_id is the one that read the
+-- latest spans, whatever order concurrent rewrites are inserted in.
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries
+(
+    workspace_id         String,
+    project_id           FixedString(36),
+    trace_id             FixedString(36),
+    usage                Map(String, Int64),
+    total_estimated_cost Decimal64(8),
+    span_count           UInt64,
+    llm_span_count       UInt64,
+    duration             Nullable(Int64), -- microseconds from the first span start to the last span end
+    last_updated_at      DateTime64(9, 'UTC') -- latest last_updated_at of the spans
+) ENGINE = ReplacingMergeTree(last_updated_at)
+      ORDER BY (workspace_id, project_id, trace_id);
+
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries;
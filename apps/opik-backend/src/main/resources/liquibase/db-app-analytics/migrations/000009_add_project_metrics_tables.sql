@@ -0,0 +1,116 @@
+--liquibase formatted sql
+--changeset agent:add_project_metrics_tables
+
+-- Hourly rollups of the trace and span counts and of the trace feedback scores, fed by materialized views on every
+-- insert, so the project metrics read the hours of the requested range instead of every trace, span and score of the
+-- project.
+-- They hold one row per trace, span or score and hour, replaced by the next version of the same entity: the metrics
+-- keep the latest row of each and skip the deleted ones, so re-sending a batch, a score or a duplicate id changes
+-- nothing, whatever the write path. The rows are only a few columns wide and sorted by hour, so only the requested
+-- range is read.
+-- An update that moves a trace or span to another hour, or a re-score, carries the start time, or creation time, of
+-- the version it replaces in its previous_* columns, filled by the same statement that reads that version to merge it.
+-- The views then also mark the row of the previous hour as deleted. Deletes mark the latest row as deleted.
+-- project_id is stored as UUID, whatever the type of the raw tables, so the rollups don't depend on it.
+-- The rows written before this release are backfilled by the data migrations of 1.1.13.
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces
+    ADD COLUMN IF NOT EXISTS previous_start_time Nullable(DateTime64(9, 'UTC'));
+
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans
+    ADD COLUMN IF NOT EXISTS previous_start_time Nullable(DateTime64(9, 'UTC'));
+
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores
+    ADD COLUMN IF NOT EXISTS previous_created_at Nullable(DateTime64(9, 'UTC'));
+
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_metrics
+(
+    workspace_id    String,
+    project_id      UUID,
+    hour            DateTime64(9, 'UTC'),
+    id              FixedString(36),
+    last_updated_at DateTime64(9, 'UTC'),
+    is_deleted      UInt8
+) ENGINE = ReplacingMergeTree(last_updated_at)
+      ORDER BY (workspace_id, project_id, hour, id);
+
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_metrics
+(
+    workspace_id    String,
+    project_id      UUID,
+    hour            DateTime64(9, 'UTC'),
+    id              FixedString(36),
+    last_updated_at DateTime64(9, 'UTC'),
+    is_deleted      UInt8
+) ENGINE = ReplacingMergeTree(last_updated_at)
+      ORDER BY (workspace_id, project_id, hour, id);
+
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.feedback_score_metrics
+(
+    workspace_id    String,
+    project_id      UUID,
+    hour            DateTime64(9, 'UTC'),
+    name            String,
+    entity_id       FixedString(36),
+    value           Decimal64(9),
+    last_updated_at DateTime64(9, 'UTC'),
+    is_deleted      UInt8
+) ENGINE = ReplacingMergeTree(last_updated_at)
+      ORDER BY (workspace_id, project_id, hour, name, entity_id);
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_metrics_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.trace_metrics
+AS
+SELECT workspace_id,
+       toUUID(toString(project_id))                                                            AS project_id,
+       toDateTime64(toStartOfHour(if(is_deleted = 1, assumeNotNull(previous_start_time), start_time)), 9, 'UTC') AS hour,
+       id,
+       last_updated_at,
+       is_deleted
+FROM ${ANALYTICS_DB_DATABASE_NAME}.traces
+ARRAY JOIN [0, 1] AS is_deleted
+WHERE is_deleted = 0
+    OR (previous_start_time IS NOT NULL
+        AND toStartOfHour(assumeNotNull(previous_start_time)) != toStartOfHour(start_time));
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_metrics_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.span_metrics
+AS
+SELECT workspace_id,
+       toUUID(toString(project_id))                                                            AS project_id,
+       toDateTime64(toStartOfHour(if(is_deleted = 1, assumeNotNull(previous_start_time), start_time)), 9, 'UTC') AS hour,
+       id,
+       last_updated_at,
+       is_deleted
+FROM ${ANALYTICS_DB_DATABASE_NAME}.spans
+ARRAY JOIN [0, 1] AS is_deleted
+WHERE is_deleted = 0
+    OR (previous_start_time IS NOT NULL
+        AND toStartOfHour(assumeNotNull(previous_start_time)) != toStartOfHour(start_time));
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.feedback_score_metrics_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.feedback_score_metrics
+AS
+SELECT workspace_id,
+       toUUID(toString(project_id))                                                            AS project_id,
+       toDateTime64(toStartOfHour(if(is_deleted = 1, assumeNotNull(previous_created_at), created_at)), 9, 'UTC') AS hour,
+       name,
+       entity_id,
+       value,
+       last_updated_at,
+       is_deleted
+FROM ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores
+ARRAY JOIN [0, 1] AS is_deleted
+WHERE entity_type = 'trace'
+    AND (is_deleted = 0
+        OR (previous_created_at IS NOT NULL
+            AND toStartOfHour(assumeNotNull(previous_created_at)) != toStartOfHour(created_at)));
+
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.feedback_score_metrics_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_metrics_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_metrics_mv;
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.feedback_score_metrics;
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_metrics;
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_metrics;
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores DROP COLUMN IF EXISTS previous_created_at;
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans DROP COLUMN IF EXISTS previous_start_time;
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces DROP COLUMN IF EXISTS previous_start_time;
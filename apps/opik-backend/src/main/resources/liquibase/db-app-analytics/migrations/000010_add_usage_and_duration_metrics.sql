@@ -0,0 +1,72 @@
+--liquibase formatted sql
+--changeset agent:add_usage_and_duration_metrics
+
+-- Hourly rollups of the token usage, cost and duration metrics, fed by materialized views on every insert.
+-- As for the counts of 000009, they hold one row per span or trace and hour, with its usage and cost or its duration,
+-- replaced by the next version of the same entity: the metrics keep the latest row of each and skip the deleted ones,
+-- so a re-sent batch changes nothing and the usage, cost or end time set by an update replace the previous ones.
+-- The durations are kept in milliseconds, so the percentiles are computed from the durations themselves.
+-- The rows of the previous hour of a moved span or trace, and the deleted ones, are marked deleted as in 000009.
+-- The rows written before this release are backfilled by the data migrations of 1.1.13.
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_usage_hourly
+(
+    workspace_id         String,
+    project_id           UUID,
+    hour                 DateTime64(9, 'UTC'),
+    id                   FixedString(36),
+    usage                Map(String, Int64),
+    total_estimated_cost Decimal64(8),
+    last_updated_at      DateTime64(9, 'UTC'),
+    is_deleted           UInt8
+) ENGINE = ReplacingMergeTree(last_updated_at)
+      ORDER BY (workspace_id, project_id, hour, id);
+
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_durations_hourly
+(
+    workspace_id    String,
+    project_id      UUID,
+    hour            DateTime64(9, 'UTC'),
+    id              FixedString(36),
+    duration        Nullable(Float64), -- milliseconds
+    last_updated_at DateTime64(9, 'UTC'),
+    is_deleted      UInt8
+) ENGINE = ReplacingMergeTree(last_updated_at)
+      ORDER BY (workspace_id, project_id, hour, id);
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_usage_hourly_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.span_usage_hourly
+AS
+SELECT workspace_id,
+       toUUID(toString(project_id))                                                            AS project_id,
+       toDateTime64(toStartOfHour(if(is_deleted = 1, assumeNotNull(previous_start_time), start_time)), 9, 'UTC') AS hour,
+       id,
+       CAST(usage, 'Map(String, Int64)')                                                       AS usage,
+       total_estimated_cost,
+       last_updated_at,
+       is_deleted
+FROM ${ANALYTICS_DB_DATABASE_NAME}.spans
+ARRAY JOIN [0, 1] AS is_deleted
+WHERE is_deleted = 0
+    OR (previous_start_time IS NOT NULL
+        AND toStartOfHour(assumeNotNull(previous_start_time)) != toStartOfHour(start_time));
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_durations_hourly_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.trace_durations_hourly
+AS
+SELECT workspace_id,
+       toUUID(toString(project_id))                                                            AS project_id,
+       toDateTime64(toStartOfHour(if(is_deleted = 1, assumeNotNull(previous_start_time), start_time)), 9, 'UTC') AS hour,
+       id,
+       if(end_time IS NOT NULL, dateDiff('microsecond', start_time, end_time) / 1000.0, NULL)  AS duration,
+       last_updated_at,
+       is_deleted
+FROM ${ANALYTICS_DB_DATABASE_NAME}.traces
+ARRAY JOIN [0, 1] AS is_deleted
+WHERE is_deleted = 0
+    OR (previous_start_time IS NOT NULL
+        AND toStartOfHour(assumeNotNull(previous_start_time)) != toStartOfHour(start_time));
+
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_durations_hourly_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_usage_hourly_mv;
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_durations_hourly;
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_usage_hourly;
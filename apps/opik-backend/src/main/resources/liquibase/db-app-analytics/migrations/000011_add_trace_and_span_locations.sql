@@ -0,0 +1,48 @@
+--liquibase formatted sql
+--changeset agent:add_trace_and_span_locations
+
+-- Where every trace and span id lives in the sorting keys of traces and spans, fed by materialized views on every
+-- insert. Point queries by id look up the workspace, project and trace here in a query of their own and bind them as
+-- parameters of the main query, so its primary key reads only the granules of the row instead of the whole workspace.
+-- A row is kept per distinct location, so readers must accept any of them and pick the latest row from the main table.
+-- Rows of deleted traces and spans are left behind, they just point to nothing.
+-- The rows written before this release are backfilled by the data migrations of 1.1.13, until then the point queries
+-- fall back to reading the workspace for ids older than every location.
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_locations
+(
+    id           FixedString(36),
+    workspace_id String,
+    project_id   FixedString(36)
+) ENGINE = ReplacingMergeTree
+      ORDER BY (id, workspace_id, project_id);
+
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_locations
+(
+    id           FixedString(36),
+    workspace_id String,
+    project_id   FixedString(36),
+    trace_id     FixedString(36)
+) ENGINE = ReplacingMergeTree
+      ORDER BY (id, workspace_id, project_id, trace_id);
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_locations_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.trace_locations
+AS
+SELECT id,
+       workspace_id,
+       project_id
+FROM ${ANALYTICS_DB_DATABASE_NAME}.traces;
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_locations_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.span_locations
+AS
+SELECT id,
+       workspace_id,
+       project_id,
+       trace_id
+FROM ${ANALYTICS_DB_DATABASE_NAME}.spans;
+
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_locations_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_locations_mv;
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_locations;
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_locations;
@@ -0,0 +1,258 @@
+--liquibase formatted sql
+--changeset agent:convert_project_ids_to_uuid
+
+-- Converts project_id to the native UUID type in every table that has it: 16 bytes instead of 36 in the primary key
+-- index, the join hash tables and the group by keys of every project scoped query.
+-- The ids of traces, spans and feedback scores stay FixedString(36): they are UUIDv7, and ClickHouse compares UUIDs by
+-- their second half first, so as UUID they would no longer sort by creation time, which the lists rely on.
+-- project_id is part of every sorting key, so the tables are rebuilt under a _uuid suffix. This changeset only creates
+-- them and the views that keep them in sync with the writes, it's cheap and can run at startup. Copying the existing
+-- rows and swapping the tables is done by the data migrations of 1.1.13, which every installation must run.
+
+-- The new tables, with the columns in the same order as the live ones, so the rows can be copied with SELECT *. Their
+-- sorting key and version columns already have the compact layout of 000013, which can't alter them.
+
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid
+(
+    id              FixedString(36),
+    workspace_id    LowCardinality(String),
+    project_id      UUID,
+    name            String,
+    start_time      DateTime64(9, 'UTC') DEFAULT now64(9),
+    end_time        Nullable(DateTime64(9, 'UTC')),
+    input           String               DEFAULT '',
+    output          String               DEFAULT '',
+    metadata        String,
+    tags            Array(String),
+    created_at      DateTime64(9, 'UTC') DEFAULT now64(9),
+    last_updated_at DateTime64(9, 'UTC') DEFAULT now64(9) CODEC(Delta, ZSTD(1)),
+    created_by      String               DEFAULT '',
+    last_updated_by String               DEFAULT '',
+    previous_start_time Nullable(DateTime64(9, 'UTC'))
+) ENGINE = ReplacingMergeTree(last_updated_at)
+      ORDER BY (workspace_id, project_id, id);
+
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid
+(
+    id                           FixedString(36),
+    workspace_id                 LowCardinality(String),
+    project_id                   UUID,
+    trace_id                     FixedString(36),
+    parent_span_id               String               DEFAULT '',
+    name                         String,
+    type                         Enum8('unknown' = 0 , 'general' = 1, 'tool' = 2, 'llm' = 3),
+    start_time                   DateTime64(9, 'UTC') DEFAULT now64(9),
+    end_time                     Nullable(DateTime64(9, 'UTC')),
+    input                        String               DEFAULT '',
+    output                       String               DEFAULT '',
+    metadata                     String               DEFAULT '',
+    tags                         Array(String),
+    usage                        Map(String, Int32),
+    created_at                   DateTime64(9, 'UTC') DEFAULT now64(9),
+    last_updated_at              DateTime64(9, 'UTC') DEFAULT now64(9) CODEC(Delta, ZSTD(1)),
+    created_by                   String               DEFAULT '',
+    last_updated_by              String               DEFAULT '',
+    model                        String               DEFAULT '',
+    provider                     String               DEFAULT '',
+    total_estimated_cost         Decimal64(8),
+    total_estimated_cost_version String               DEFAULT '',
+    previous_start_time          Nullable(DateTime64(9, 'UTC'))
+) ENGINE = ReplacingMergeTree(last_updated_at)
+      ORDER BY (workspace_id, project_id, trace_id, parent_span_id, id);
+
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_uuid
+(
+    entity_id       FixedString(36),
+    entity_type     Enum8('unknown' = 0 , 'span' = 1, 'trace' = 2),
+    project_id      UUID,
+    workspace_id    LowCardinality(String),
+    name            LowCardinality(String),
+    category_name   String               DEFAULT '',
+    value           Decimal64(9),
+    reason          String               DEFAULT '',
+    source          Enum8('sdk', 'ui'),
+    created_at      DateTime64(9, 'UTC') DEFAULT now64(9),
+    last_updated_at DateTime64(9, 'UTC') DEFAULT now64(9) CODEC(Delta, ZSTD(1)),
+    created_by      String               DEFAULT '',
+    last_updated_by String               DEFAULT '',
+    previous_created_at Nullable(DateTime64(9, 'UTC'))
+) ENGINE = ReplacingMergeTree(last_updated_at)
+      ORDER BY (workspace_id, project_id, entity_type, entity_id, name);
+
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries_uuid
+(
+    workspace_id         String,
+    project_id           UUID,
+    trace_id             FixedString(36),
+    usage                Map(String, Int64),
+    total_estimated_cost Decimal64(8),
+    span_count           UInt64,
+    llm_span_count       UInt64,
+    duration             Nullable(Int64),
+    last_updated_at      DateTime64(9, 'UTC')
+) ENGINE = ReplacingMergeTree(last_updated_at)
+      ORDER BY (workspace_id, project_id, trace_id);
+
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_locations_uuid
+(
+    id           FixedString(36),
+    workspace_id String,
+    project_id   UUID
+) ENGINE = ReplacingMergeTree
+      ORDER BY (id, workspace_id, project_id);
+
+CREATE TABLE IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_locations_uuid
+(
+    id           FixedString(36),
+    workspace_id String,
+    project_id   UUID,
+    trace_id     FixedString(36)
+) ENGINE = ReplacingMergeTree
+      ORDER BY (id, workspace_id, project_id, trace_id);
+
+-- Bridge views: every write to the live tables is forwarded to the new ones until the swap. The rollup views below
+-- write the same rows as the views of the live tables, which replace each other.
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.traces_bridge_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid
+AS
+SELECT * REPLACE (toUUID(toString(project_id)) AS project_id)
+FROM ${ANALYTICS_DB_DATABASE_NAME}.traces;
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.spans_bridge_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid
+AS
+SELECT * REPLACE (toUUID(toString(project_id)) AS project_id)
+FROM ${ANALYTICS_DB_DATABASE_NAME}.spans;
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_bridge_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_uuid
+AS
+SELECT * REPLACE (toUUID(toString(project_id)) AS project_id)
+FROM ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores;
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries_bridge_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries_uuid
+AS
+SELECT * REPLACE (toUUID(toString(project_id)) AS project_id)
+FROM ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries;
+
+-- The views of the rollups and of the location tables on the new tables. Until the swap they only see the rows of the
+-- bridge views and of the copy, which leave the rollups unchanged and fill the new location tables. After the swap
+-- they see every write, and the views of the old tables none.
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_metrics_uuid_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.trace_metrics
+AS
+SELECT workspace_id,
+       toUUID(toString(project_id))                                                            AS project_id,
+       toDateTime64(toStartOfHour(if(is_deleted = 1, assumeNotNull(previous_start_time), start_time)), 9, 'UTC') AS hour,
+       id,
+       last_updated_at,
+       is_deleted
+FROM ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid
+ARRAY JOIN [0, 1] AS is_deleted
+WHERE is_deleted = 0
+    OR (previous_start_time IS NOT NULL
+        AND toStartOfHour(assumeNotNull(previous_start_time)) != toStartOfHour(start_time));
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_metrics_uuid_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.span_metrics
+AS
+SELECT workspace_id,
+       toUUID(toString(project_id))                                                            AS project_id,
+       toDateTime64(toStartOfHour(if(is_deleted = 1, assumeNotNull(previous_start_time), start_time)), 9, 'UTC') AS hour,
+       id,
+       last_updated_at,
+       is_deleted
+FROM ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid
+ARRAY JOIN [0, 1] AS is_deleted
+WHERE is_deleted = 0
+    OR (previous_start_time IS NOT NULL
+        AND toStartOfHour(assumeNotNull(previous_start_time)) != toStartOfHour(start_time));
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.feedback_score_metrics_uuid_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.feedback_score_metrics
+AS
+SELECT workspace_id,
+       toUUID(toString(project_id))                                                            AS project_id,
+       toDateTime64(toStartOfHour(if(is_deleted = 1, assumeNotNull(previous_created_at), created_at)), 9, 'UTC') AS hour,
+       name,
+       entity_id,
+       value,
+       last_updated_at,
+       is_deleted
+FROM ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_uuid
+ARRAY JOIN [0, 1] AS is_deleted
+WHERE entity_type = 'trace'
+    AND (is_deleted = 0
+        OR (previous_created_at IS NOT NULL
+            AND toStartOfHour(assumeNotNull(previous_created_at)) != toStartOfHour(created_at)));
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_usage_hourly_uuid_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.span_usage_hourly
+AS
+SELECT workspace_id,
+       toUUID(toString(project_id))                                                            AS project_id,
+       toDateTime64(toStartOfHour(if(is_deleted = 1, assumeNotNull(previous_start_time), start_time)), 9, 'UTC') AS hour,
+       id,
+       CAST(usage, 'Map(String, Int64)')                                                       AS usage,
+       total_estimated_cost,
+       last_updated_at,
+       is_deleted
+FROM ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid
+ARRAY JOIN [0, 1] AS is_deleted
+WHERE is_deleted = 0
+    OR (previous_start_time IS NOT NULL
+        AND toStartOfHour(assumeNotNull(previous_start_time)) != toStartOfHour(start_time));
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_durations_hourly_uuid_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.trace_durations_hourly
+AS
+SELECT workspace_id,
+       toUUID(toString(project_id))                                                            AS project_id,
+       toDateTime64(toStartOfHour(if(is_deleted = 1, assumeNotNull(previous_start_time), start_time)), 9, 'UTC') AS hour,
+       id,
+       if(end_time IS NOT NULL, dateDiff('microsecond', start_time, end_time) / 1000.0, NULL)  AS duration,
+       last_updated_at,
+       is_deleted
+FROM ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid
+ARRAY JOIN [0, 1] AS is_deleted
+WHERE is_deleted = 0
+    OR (previous_start_time IS NOT NULL
+        AND toStartOfHour(assumeNotNull(previous_start_time)) != toStartOfHour(start_time));
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_locations_uuid_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.trace_locations_uuid
+AS
+SELECT id,
+       workspace_id,
+       project_id
+FROM ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid;
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_locations_uuid_mv
+    TO ${ANALYTICS_DB_DATABASE_NAME}.span_locations_uuid
+AS
+SELECT id,
+       workspace_id,
+       project_id,
+       trace_id
+FROM ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid;
+
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_locations_uuid_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_locations_uuid_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_durations_hourly_uuid_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_usage_hourly_uuid_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.feedback_score_metrics_uuid_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_metrics_uuid_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_metrics_uuid_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries_bridge_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_bridge_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.spans_bridge_mv;
+--rollback DROP VIEW IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.traces_bridge_mv;
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.span_locations_uuid;
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_locations_uuid;
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.trace_summaries_uuid;
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_uuid;
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid;
+--rollback DROP TABLE IF EXISTS ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid;
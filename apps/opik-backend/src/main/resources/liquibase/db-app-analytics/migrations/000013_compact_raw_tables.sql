@@ -0,0 +1,50 @@
+--liquibase formatted sql
+--changeset agent:compact_traces_spans_and_feedback_scores
+
+-- Compacts the raw tables:
+-- - LowCardinality for the repetitive strings: workspaces, names, models, providers, users and tags.
+-- - ZSTD for the JSON payloads, which compress several times better than with the default LZ4.
+-- - Delta + ZSTD for the timestamps, close to each other within the sorting key of every table.
+-- The copies of 000012 are altered, the live tables are dropped once the copies replace them. They are empty until
+-- the data migration copies the rows, so this is cheap, and the copy writes the new layout. The sorting key and version
+-- columns can't be altered: the same layout is in their definitions in 000012.
+-- The tables are not partitioned. created_at, the only time column kept by every version of a row, is filtered by no
+-- query, and start_time is rewritten when a row updated before its creation is inserted (1970 placeholder), which would
+-- leave its versions in different partitions where they are never merged.
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid
+    MODIFY COLUMN IF EXISTS name            LowCardinality(String),
+    MODIFY COLUMN IF EXISTS start_time      DateTime64(9, 'UTC') DEFAULT now64(9) CODEC(Delta, ZSTD(1)),
+    MODIFY COLUMN IF EXISTS end_time        Nullable(DateTime64(9, 'UTC')) CODEC(Delta, ZSTD(1)),
+    MODIFY COLUMN IF EXISTS input           String DEFAULT '' CODEC(ZSTD(3)),
+    MODIFY COLUMN IF EXISTS output          String DEFAULT '' CODEC(ZSTD(3)),
+    MODIFY COLUMN IF EXISTS metadata        String CODEC(ZSTD(3)),
+    MODIFY COLUMN IF EXISTS tags            Array(LowCardinality(String)),
+    MODIFY COLUMN IF EXISTS created_at      DateTime64(9, 'UTC') DEFAULT now64(9) CODEC(Delta, ZSTD(1)),
+    MODIFY COLUMN IF EXISTS created_by      LowCardinality(String) DEFAULT '',
+    MODIFY COLUMN IF EXISTS last_updated_by LowCardinality(String) DEFAULT '';
+
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid
+    MODIFY COLUMN IF EXISTS name                         LowCardinality(String),
+    MODIFY COLUMN IF EXISTS start_time                   DateTime64(9, 'UTC') DEFAULT now64(9) CODEC(Delta, ZSTD(1)),
+    MODIFY COLUMN IF EXISTS end_time                     Nullable(DateTime64(9, 'UTC')) CODEC(Delta, ZSTD(1)),
+    MODIFY COLUMN IF EXISTS input                        String DEFAULT '' CODEC(ZSTD(3)),
+    MODIFY COLUMN IF EXISTS output                       String DEFAULT '' CODEC(ZSTD(3)),
+    MODIFY COLUMN IF EXISTS metadata                     String DEFAULT '' CODEC(ZSTD(3)),
+    MODIFY COLUMN IF EXISTS tags                         Array(LowCardinality(String)),
+    MODIFY COLUMN IF EXISTS created_at                   DateTime64(9, 'UTC') DEFAULT now64(9) CODEC(Delta, ZSTD(1)),
+    MODIFY COLUMN IF EXISTS created_by                   LowCardinality(String) DEFAULT '',
+    MODIFY COLUMN IF EXISTS last_updated_by              LowCardinality(String) DEFAULT '',
+    MODIFY COLUMN IF EXISTS model                        LowCardinality(String) DEFAULT '',
+    MODIFY COLUMN IF EXISTS provider                     LowCardinality(String) DEFAULT '',
+    MODIFY COLUMN IF EXISTS total_estimated_cost_version LowCardinality(String) DEFAULT '';
+
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_uuid
+    MODIFY COLUMN IF EXISTS category_name   LowCardinality(String) DEFAULT '',
+    MODIFY COLUMN IF EXISTS reason          String DEFAULT '' CODEC(ZSTD(3)),
+    MODIFY COLUMN IF EXISTS created_at      DateTime64(9, 'UTC') DEFAULT now64(9) CODEC(Delta, ZSTD(1)),
+    MODIFY COLUMN IF EXISTS created_by      LowCardinality(String) DEFAULT '',
+    MODIFY COLUMN IF EXISTS last_updated_by LowCardinality(String) DEFAULT '';
+
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.feedback_scores_uuid MODIFY COLUMN IF EXISTS category_name String DEFAULT '', MODIFY COLUMN IF EXISTS reason String DEFAULT '' CODEC(Default), MODIFY COLUMN IF EXISTS created_at DateTime64(9, 'UTC') DEFAULT now64(9) CODEC(Default), MODIFY COLUMN IF EXISTS created_by String DEFAULT '', MODIFY COLUMN IF EXISTS last_updated_by String DEFAULT '';
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid MODIFY COLUMN IF EXISTS name String, MODIFY COLUMN IF EXISTS start_time DateTime64(9, 'UTC') DEFAULT now64(9) CODEC(Default), MODIFY COLUMN IF EXISTS end_time Nullable(DateTime64(9, 'UTC')) CODEC(Default), MODIFY COLUMN IF EXISTS input String DEFAULT '' CODEC(Default), MODIFY COLUMN IF EXISTS output String DEFAULT '' CODEC(Default), MODIFY COLUMN IF EXISTS metadata String DEFAULT '' CODEC(Default), MODIFY COLUMN IF EXISTS tags Array(String), MODIFY COLUMN IF EXISTS created_at DateTime64(9, 'UTC') DEFAULT now64(9) CODEC(Default), MODIFY COLUMN IF EXISTS created_by String DEFAULT '', MODIFY COLUMN IF EXISTS last_updated_by String DEFAULT '', MODIFY COLUMN IF EXISTS model String DEFAULT '', MODIFY COLUMN IF EXISTS provider String DEFAULT '', MODIFY COLUMN IF EXISTS total_estimated_cost_version String DEFAULT '';
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid MODIFY COLUMN IF EXISTS name String, MODIFY COLUMN IF EXISTS start_time DateTime64(9, 'UTC') DEFAULT now64(9) CODEC(Default), MODIFY COLUMN IF EXISTS end_time Nullable(DateTime64(9, 'UTC')) CODEC(Default), MODIFY COLUMN IF EXISTS input String DEFAULT '' CODEC(Default), MODIFY COLUMN IF EXISTS output String DEFAULT '' CODEC(Default), MODIFY COLUMN IF EXISTS metadata String CODEC(Default), MODIFY COLUMN IF EXISTS tags Array(String), MODIFY COLUMN IF EXISTS created_at DateTime64(9, 'UTC') DEFAULT now64(9) CODEC(Default), MODIFY COLUMN IF EXISTS created_by String DEFAULT '', MODIFY COLUMN IF EXISTS last_updated_by String DEFAULT '';
@@ -0,0 +1,73 @@
+--liquibase formatted sql
+--changeset agent:add_filter_skip_indexes
+
+-- Data skipping indexes for the filters of the trace and span lists, see FilterQueryBuilder for the predicates that
+-- use them:
+-- - minmax on the timestamps and the cost, for the range filters.
+-- - bloom_filter on the tags, model and provider, for the equality filters.
+-- - ngrambf_v1 on the names, for the contains, starts with, ends with and equality filters.
+-- - tokenbf_v1 on the payloads, for the contains filters with whole words in them. The filters of a single word are
+--   left to the full text search. The filters are case insensitive, so every string index is on the lower case value,
+--   for the tags on the lower case of each tag.
+-- One granule per index block, the sorting keys don't cluster any of these columns beyond the workspace and project.
+-- The existing parts are indexed by background mutations, the new ones on insert. The copies of 000012 get the same
+-- indexes, their rows are indexed as they are copied.
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans
+    ADD INDEX IF NOT EXISTS idx_spans_start_time start_time TYPE minmax GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_end_time end_time TYPE minmax GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_total_estimated_cost total_estimated_cost TYPE minmax GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_tags arrayMap(tag -> lowerUTF8(tag), tags) TYPE bloom_filter(0.01) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_model lowerUTF8(model) TYPE bloom_filter(0.01) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_provider lowerUTF8(provider) TYPE bloom_filter(0.01) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_name lowerUTF8(name) TYPE ngrambf_v1(3, 8192, 3, 0) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_input lowerUTF8(input) TYPE tokenbf_v1(131072, 3, 0) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_output lowerUTF8(output) TYPE tokenbf_v1(131072, 3, 0) GRANULARITY 1;
+
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces
+    ADD INDEX IF NOT EXISTS idx_traces_start_time start_time TYPE minmax GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_traces_end_time end_time TYPE minmax GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_traces_tags arrayMap(tag -> lowerUTF8(tag), tags) TYPE bloom_filter(0.01) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_traces_name lowerUTF8(name) TYPE ngrambf_v1(3, 8192, 3, 0) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_traces_input lowerUTF8(input) TYPE tokenbf_v1(131072, 3, 0) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_traces_output lowerUTF8(output) TYPE tokenbf_v1(131072, 3, 0) GRANULARITY 1;
+
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid
+    ADD INDEX IF NOT EXISTS idx_spans_start_time start_time TYPE minmax GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_end_time end_time TYPE minmax GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_total_estimated_cost total_estimated_cost TYPE minmax GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_tags arrayMap(tag -> lowerUTF8(tag), tags) TYPE bloom_filter(0.01) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_model lowerUTF8(model) TYPE bloom_filter(0.01) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_provider lowerUTF8(provider) TYPE bloom_filter(0.01) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_name lowerUTF8(name) TYPE ngrambf_v1(3, 8192, 3, 0) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_input lowerUTF8(input) TYPE tokenbf_v1(131072, 3, 0) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_spans_output lowerUTF8(output) TYPE tokenbf_v1(131072, 3, 0) GRANULARITY 1;
+
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid
+    ADD INDEX IF NOT EXISTS idx_traces_start_time start_time TYPE minmax GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_traces_end_time end_time TYPE minmax GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_traces_tags arrayMap(tag -> lowerUTF8(tag), tags) TYPE bloom_filter(0.01) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_traces_name lowerUTF8(name) TYPE ngrambf_v1(3, 8192, 3, 0) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_traces_input lowerUTF8(input) TYPE tokenbf_v1(131072, 3, 0) GRANULARITY 1,
+    ADD INDEX IF NOT EXISTS idx_traces_output lowerUTF8(output) TYPE tokenbf_v1(131072, 3, 0) GRANULARITY 1;
+
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans MATERIALIZE INDEX idx_spans_start_time;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans MATERIALIZE INDEX idx_spans_end_time;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans MATERIALIZE INDEX idx_spans_total_estimated_cost;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans MATERIALIZE INDEX idx_spans_tags;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans MATERIALIZE INDEX idx_spans_model;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans MATERIALIZE INDEX idx_spans_provider;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans MATERIALIZE INDEX idx_spans_name;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans MATERIALIZE INDEX idx_spans_input;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans MATERIALIZE INDEX idx_spans_output;
+
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces MATERIALIZE INDEX idx_traces_start_time;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces MATERIALIZE INDEX idx_traces_end_time;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces MATERIALIZE INDEX idx_traces_tags;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces MATERIALIZE INDEX idx_traces_name;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces MATERIALIZE INDEX idx_traces_input;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces MATERIALIZE INDEX idx_traces_output;
+
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces DROP INDEX IF EXISTS idx_traces_start_time, DROP INDEX IF EXISTS idx_traces_end_time, DROP INDEX IF EXISTS idx_traces_tags, DROP INDEX IF EXISTS idx_traces_name, DROP INDEX IF EXISTS idx_traces_input, DROP INDEX IF EXISTS idx_traces_output;
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans DROP INDEX IF EXISTS idx_spans_start_time, DROP INDEX IF EXISTS idx_spans_end_time, DROP INDEX IF EXISTS idx_spans_total_estimated_cost, DROP INDEX IF EXISTS idx_spans_tags, DROP INDEX IF EXISTS idx_spans_model, DROP INDEX IF EXISTS idx_spans_provider, DROP INDEX IF EXISTS idx_spans_name, DROP INDEX IF EXISTS idx_spans_input, DROP INDEX IF EXISTS idx_spans_output;
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid DROP INDEX IF EXISTS idx_traces_start_time, DROP INDEX IF EXISTS idx_traces_end_time, DROP INDEX IF EXISTS idx_traces_tags, DROP INDEX IF EXISTS idx_traces_name, DROP INDEX IF EXISTS idx_traces_input, DROP INDEX IF EXISTS idx_traces_output;
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid DROP INDEX IF EXISTS idx_spans_start_time, DROP INDEX IF EXISTS idx_spans_end_time, DROP INDEX IF EXISTS idx_spans_total_estimated_cost, DROP INDEX IF EXISTS idx_spans_tags, DROP INDEX IF EXISTS idx_spans_model, DROP INDEX IF EXISTS idx_spans_provider, DROP INDEX IF EXISTS idx_spans_name, DROP INDEX IF EXISTS idx_spans_input, DROP INDEX IF EXISTS idx_spans_output;
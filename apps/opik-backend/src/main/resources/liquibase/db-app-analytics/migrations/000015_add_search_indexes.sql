@@ -0,0 +1,32 @@
+--liquibase formatted sql
+--changeset agent:add_search_indexes
+
+-- Token bloom filter indexes over the input and output together, for the full text search of the trace and span
+-- lists. A search matches the rows with every word of it in their input or output, one index must cover both for an
+-- OR of the two columns to skip granules. The expression must match FilterQueryBuilder: the JSON escapes of line
+-- breaks and tabs are blanked, so the words after them are tokens of their own, and it's lower case.
+-- The inverted index type would have no false positives, but it's still experimental in the supported versions.
+-- The copies of 000012 get the same indexes.
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans
+    ADD INDEX IF NOT EXISTS idx_spans_search lowerUTF8(replaceRegexpAll(concat(input, ' ', output), '\\\\[nrt]', ' '))
+        TYPE tokenbf_v1(262144, 3, 0) GRANULARITY 1;
+
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces
+    ADD INDEX IF NOT EXISTS idx_traces_search lowerUTF8(replaceRegexpAll(concat(input, ' ', output), '\\\\[nrt]', ' '))
+        TYPE tokenbf_v1(262144, 3, 0) GRANULARITY 1;
+
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid
+    ADD INDEX IF NOT EXISTS idx_spans_search lowerUTF8(replaceRegexpAll(concat(input, ' ', output), '\\\\[nrt]', ' '))
+        TYPE tokenbf_v1(262144, 3, 0) GRANULARITY 1;
+
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid
+    ADD INDEX IF NOT EXISTS idx_traces_search lowerUTF8(replaceRegexpAll(concat(input, ' ', output), '\\\\[nrt]', ' '))
+        TYPE tokenbf_v1(262144, 3, 0) GRANULARITY 1;
+
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans MATERIALIZE INDEX idx_spans_search;
+ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces MATERIALIZE INDEX idx_traces_search;
+
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces DROP INDEX IF EXISTS idx_traces_search;
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans DROP INDEX IF EXISTS idx_spans_search;
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.traces_uuid DROP INDEX IF EXISTS idx_traces_search;
+--rollback ALTER TABLE ${ANALYTICS_DB_DATABASE_NAME}.spans_uuid DROP INDEX IF EXISTS idx_spans_search;
@@ -120,6 +120,7 @@ public class TestDropwizardAppExtensionUtils {
 
             if (appContextConfig.cacheTtlInSeconds() != null) {
                 configs.add("authentication.apiKeyResolutionCacheTTLInSec: " + appContextConfig.cacheTtlInSeconds());
+                configs.add("authentication.apiKeyLocalCacheTTLInSec: " + appContextConfig.cacheTtlInSeconds());
             }
         }
 
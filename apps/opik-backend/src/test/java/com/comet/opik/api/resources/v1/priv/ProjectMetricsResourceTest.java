@@ -2,8 +2,11 @@ package com.comet.opik.api.resources.v1.priv;
 
 import com.comet.opik.api.DataPoint;
 import com.comet.opik.api.FeedbackScoreBatchItem;
+import com.comet.opik.api.Span;
+import com.comet.opik.api.SpanUpdate;
 import com.comet.opik.api.TimeInterval;
 import com.comet.opik.api.Trace;
+import com.comet.opik.api.TraceUpdate;
 import com.comet.opik.api.metrics.MetricType;
 import com.comet.opik.api.metrics.ProjectMetricRequest;
 import com.comet.opik.api.metrics.ProjectMetricResponse;
@@ -16,6 +19,7 @@ import com.comet.opik.api.resources.utils.RedisContainerUtils;
 import com.comet.opik.api.resources.utils.TestDropwizardAppExtensionUtils;
 import com.comet.opik.api.resources.utils.WireMockUtils;
 import com.comet.opik.api.resources.utils.resources.ProjectResourceClient;
+import com.comet.opik.api.resources.utils.resources.SpanResourceClient;
 import com.comet.opik.api.resources.utils.resources.TraceResourceClient;
 import com.comet.opik.domain.ProjectMetricsService;
 import com.comet.opik.infrastructure.DatabaseAnalyticsFactory;
@@ -120,6 +124,7 @@ class ProjectMetricsResourceTest {
     private ClientSupport client;
     private ProjectResourceClient projectResourceClient;
     private TraceResourceClient traceResourceClient;
+    private SpanResourceClient spanResourceClient;
     private TransactionTemplateAsync clickHouseTemplate;
 
     @BeforeAll
@@ -136,6 +141,7 @@ class ProjectMetricsResourceTest {
         this.client = client;
         this.projectResourceClient = new ProjectResourceClient(client, baseURI, factory);
         this.traceResourceClient = new TraceResourceClient(client, baseURI);
+        this.spanResourceClient = new SpanResourceClient(client, baseURI);
         this.clickHouseTemplate = clickHouseTemplate;
 
         ClientSupportUtils.config(client);
@@ -323,6 +329,96 @@ class ProjectMetricsResourceTest {
                     .toList());
         }
 
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void updatedTracesAreCountedOnce(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            var traceIds = createTraces(projectName, marker, 2);
+            traceResourceClient.updateTrace(traceIds.getFirst(), TraceUpdate.builder()
+                    .projectName(projectName)
+                    .endTime(marker.plusMillis(300))
+                    .build(), API_KEY, WORKSPACE_NAME);
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.TRACE_COUNT)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), Integer.class);
+
+            // assertions
+            assertThat(response.results()).hasSize(1);
+            assertThat(response.results().getLast().data())
+                    .isEqualTo(createExpectedData(marker, interval, Arrays.asList(null, 2)));
+        }
+
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void resentTracesAreCountedOnce(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            List<Trace> traces = IntStream.range(0, 2)
+                    .mapToObj(i -> factory.manufacturePojo(Trace.class).toBuilder()
+                            .projectName(projectName)
+                            .startTime(marker.plus(i, ChronoUnit.SECONDS))
+                            .build())
+                    .toList();
+            traceResourceClient.batchCreateTraces(traces, API_KEY, WORKSPACE_NAME);
+            traceResourceClient.batchCreateTraces(traces, API_KEY, WORKSPACE_NAME);
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.TRACE_COUNT)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), Integer.class);
+
+            // assertions
+            assertThat(response.results()).hasSize(1);
+            assertThat(response.results().getLast().data())
+                    .isEqualTo(createExpectedData(marker, interval, Arrays.asList(null, 2)));
+        }
+
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void deletedTracesAreNotCounted(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            var traceIds = createTraces(projectName, marker, 3);
+            traceResourceClient.deleteTrace(traceIds.getFirst(), WORKSPACE_NAME, API_KEY);
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.TRACE_COUNT)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), Integer.class);
+
+            // assertions
+            assertThat(response.results()).hasSize(1);
+            assertThat(response.results().getLast().data())
+                    .isEqualTo(createExpectedData(marker, interval, Arrays.asList(null, 2)));
+        }
+
         @ParameterizedTest
         @MethodSource
         void invalidParameters(ProjectMetricRequest request, String expectedErr) {
@@ -361,14 +457,10 @@ class ProjectMetricsResourceTest {
                     arguments(named("start equal to end", validReq.toBuilder()
                             .intervalStart(now)
                             .intervalEnd(now)
-                            .build()), ProjectMetricsService.ERR_START_BEFORE_END),
-                    arguments(named("not supported metric", validReq.toBuilder()
-                            .metricType(MetricType.TOKEN_USAGE)
-                            .build()), ProjectMetricsService.ERR_PROJECT_METRIC_NOT_SUPPORTED.formatted(
-                                    MetricType.TOKEN_USAGE)));
+                            .build()), ProjectMetricsService.ERR_START_BEFORE_END));
         }
 
-        private void createTraces(String projectName, Instant marker, int count) {
+        private List<UUID> createTraces(String projectName, Instant marker, int count) {
             List<Trace> traces = IntStream.range(0, count)
                     .mapToObj(i -> factory.manufacturePojo(Trace.class).toBuilder()
                             .projectName(projectName)
@@ -376,6 +468,481 @@ class ProjectMetricsResourceTest {
                             .build())
                     .toList();
             traceResourceClient.batchCreateTraces(traces, API_KEY, WORKSPACE_NAME);
+            return traces.stream().map(Trace::id).toList();
+        }
+    }
+
+    @Nested
+    @DisplayName("Number of spans")
+    @TestInstance(TestInstance.Lifecycle.PER_CLASS)
+    class NumberOfSpansTest {
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void happyPath(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            // create spans in several buckets
+            createSpans(projectName, subtract(marker, 3, interval), 3);
+            createSpans(projectName, subtract(marker, 1, interval), 2); // allow one empty hour
+            createSpans(projectName, marker, 1);
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.SPAN_COUNT)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 4, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), Integer.class);
+
+            var expectedSpanCounts = Arrays.asList(null, 3, null, 2, 1);
+
+            // assertions
+            assertThat(response.projectId()).isEqualTo(projectId);
+            assertThat(response.metricType()).isEqualTo(MetricType.SPAN_COUNT);
+            assertThat(response.interval()).isEqualTo(interval);
+            assertThat(response.results()).hasSize(1);
+
+            assertThat(response.results().getLast().data()).isEqualTo(IntStream.range(0, expectedSpanCounts.size())
+                    .mapToObj(i -> DataPoint.builder()
+                            .time(subtract(marker, expectedSpanCounts.size() - i - 1, interval))
+                            .value(expectedSpanCounts.get(i)).build())
+                    .toList());
+        }
+
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void resentSpansAreCountedOnce(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            var spans = createSpans(projectName, marker, 2);
+            spanResourceClient.batchCreateSpans(spans, API_KEY, WORKSPACE_NAME);
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.SPAN_COUNT)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), Integer.class);
+
+            // assertions
+            assertThat(response.results()).hasSize(1);
+            assertThat(response.results().getLast().data())
+                    .isEqualTo(createExpectedData(marker, interval, Arrays.asList(null, 2)));
+        }
+
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void spansOfDeletedTracesAreNotCounted(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            var spans = createSpans(projectName, marker, 3);
+            traceResourceClient.deleteTrace(spans.getFirst().traceId(), WORKSPACE_NAME, API_KEY);
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.SPAN_COUNT)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), Integer.class);
+
+            // assertions
+            assertThat(response.results()).hasSize(1);
+            assertThat(response.results().getLast().data())
+                    .isEqualTo(createExpectedData(marker, interval, Arrays.asList(null, 2)));
+        }
+
+        private List<Span> createSpans(String projectName, Instant marker, int count) {
+            List<Span> spans = IntStream.range(0, count)
+                    .mapToObj(i -> factory.manufacturePojo(Span.class).toBuilder()
+                            .projectName(projectName)
+                            .parentSpanId(null)
+                            .startTime(marker.plus(i, ChronoUnit.SECONDS))
+                            .build())
+                    .toList();
+            spanResourceClient.batchCreateSpans(spans, API_KEY, WORKSPACE_NAME);
+            return spans;
+        }
+    }
+
+    @Nested
+    @DisplayName("Token usage")
+    @TestInstance(TestInstance.Lifecycle.PER_CLASS)
+    class TokenUsageTest {
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void happyPath(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            createSpans(projectName, subtract(marker, 3, interval), List.of(
+                    Map.of("prompt_tokens", 10, "completion_tokens", 5),
+                    Map.of("prompt_tokens", 20, "completion_tokens", 7)));
+            createSpans(projectName, subtract(marker, 1, interval), List.of(
+                    Map.of("prompt_tokens", 3, "completion_tokens", 1)));
+            createSpans(projectName, marker, List.of(
+                    Map.of("prompt_tokens", 8, "completion_tokens", 2)));
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.TOKEN_USAGE)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 4, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), Long.class);
+
+            var expected = List.of(
+                    ProjectMetricResponse.Results.<Long>builder()
+                            .name("prompt_tokens")
+                            .data(createExpectedData(marker, interval, Arrays.asList(null, 30L, null, 3L, 8L)))
+                            .build(),
+                    ProjectMetricResponse.Results.<Long>builder()
+                            .name("completion_tokens")
+                            .data(createExpectedData(marker, interval, Arrays.asList(null, 12L, null, 1L, 2L)))
+                            .build());
+
+            // assertions
+            assertThat(response.projectId()).isEqualTo(projectId);
+            assertThat(response.metricType()).isEqualTo(MetricType.TOKEN_USAGE);
+            assertThat(response.interval()).isEqualTo(interval);
+            assertThat(response.results())
+                    .usingRecursiveComparison()
+                    .ignoringCollectionOrder()
+                    .isEqualTo(expected);
+        }
+
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void updatedSpansCountWithTheirLatestUsage(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            var span = createSpans(projectName, marker, List.of(Map.of("prompt_tokens", 10))).getFirst();
+            spanResourceClient.updateSpan(span.id(), SpanUpdate.builder()
+                    .projectName(projectName)
+                    .traceId(span.traceId())
+                    .usage(Map.of("prompt_tokens", 25))
+                    .build(), API_KEY, WORKSPACE_NAME);
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.TOKEN_USAGE)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), Long.class);
+
+            var expected = List.of(
+                    ProjectMetricResponse.Results.<Long>builder()
+                            .name("prompt_tokens")
+                            .data(createExpectedData(marker, interval, Arrays.asList(null, 25L)))
+                            .build());
+
+            // assertions
+            assertThat(response.results())
+                    .usingRecursiveComparison()
+                    .ignoringCollectionOrder()
+                    .isEqualTo(expected);
+        }
+
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void resentSpansCountTheirUsageAndCostOnce(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            List<Span> spans = Stream.of(10, 4)
+                    .map(promptTokens -> factory.manufacturePojo(Span.class).toBuilder()
+                            .projectName(projectName)
+                            .parentSpanId(null)
+                            .startTime(marker)
+                            .model("gpt-3.5-turbo-1106")
+                            .usage(Map.of("prompt_tokens", promptTokens))
+                            .build())
+                    .toList();
+            spanResourceClient.batchCreateSpans(spans, API_KEY, WORKSPACE_NAME);
+            var request = ProjectMetricRequest.builder()
+                    .metricType(MetricType.COST)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build();
+            var costBefore = getProjectMetrics(projectId, request, BigDecimal.class);
+
+            spanResourceClient.batchCreateSpans(spans, API_KEY, WORKSPACE_NAME);
+
+            // SUT
+            var response = getProjectMetrics(projectId, request.toBuilder()
+                    .metricType(MetricType.TOKEN_USAGE)
+                    .build(), Long.class);
+            var costAfter = getProjectMetrics(projectId, request, BigDecimal.class);
+
+            var expected = List.of(
+                    ProjectMetricResponse.Results.<Long>builder()
+                            .name("prompt_tokens")
+                            .data(createExpectedData(marker, interval, Arrays.asList(null, 14L)))
+                            .build());
+
+            // assertions
+            assertThat(response.results())
+                    .usingRecursiveComparison()
+                    .ignoringCollectionOrder()
+                    .isEqualTo(expected);
+            assertThat(costBefore.results().getFirst().data().getLast().value()).isNotNull();
+            assertThat(costAfter.results()).isEqualTo(costBefore.results());
+        }
+
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void usageOfDeletedTracesIsSubtracted(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            var spans = createSpans(projectName, marker, List.of(
+                    Map.of("prompt_tokens", 10),
+                    Map.of("prompt_tokens", 4)));
+            traceResourceClient.deleteTrace(spans.getFirst().traceId(), WORKSPACE_NAME, API_KEY);
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.TOKEN_USAGE)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), Long.class);
+
+            var expected = List.of(
+                    ProjectMetricResponse.Results.<Long>builder()
+                            .name("prompt_tokens")
+                            .data(createExpectedData(marker, interval, Arrays.asList(null, 4L)))
+                            .build());
+
+            // assertions
+            assertThat(response.results())
+                    .usingRecursiveComparison()
+                    .ignoringCollectionOrder()
+                    .isEqualTo(expected);
+        }
+
+        private List<Span> createSpans(String projectName, Instant marker, List<Map<String, Integer>> usages) {
+            List<Span> spans = IntStream.range(0, usages.size())
+                    .mapToObj(i -> factory.manufacturePojo(Span.class).toBuilder()
+                            .projectName(projectName)
+                            .parentSpanId(null)
+                            .startTime(marker.plus(i, ChronoUnit.SECONDS))
+                            .usage(usages.get(i))
+                            .build())
+                    .toList();
+            spanResourceClient.batchCreateSpans(spans, API_KEY, WORKSPACE_NAME);
+            return spans;
+        }
+    }
+
+    @Nested
+    @DisplayName("Duration")
+    @TestInstance(TestInstance.Lifecycle.PER_CLASS)
+    class DurationTest {
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void happyPath(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            // a single trace per bucket, so every percentile is its duration
+            createTrace(projectName, subtract(marker, 3, interval), 100);
+            createTrace(projectName, subtract(marker, 1, interval), 250);
+            createTrace(projectName, marker, 40);
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.DURATION)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 4, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), Double.class);
+
+            var expectedData = createExpectedData(marker, interval, Arrays.asList(null, 100.0, null, 250.0, 40.0));
+            var expected = Stream.of("p50", "p90", "p99")
+                    .map(name -> ProjectMetricResponse.Results.<Double>builder()
+                            .name(name)
+                            .data(expectedData)
+                            .build())
+                    .toList();
+
+            // assertions
+            assertThat(response.projectId()).isEqualTo(projectId);
+            assertThat(response.metricType()).isEqualTo(MetricType.DURATION);
+            assertThat(response.interval()).isEqualTo(interval);
+            assertThat(response.results())
+                    .usingRecursiveComparison()
+                    .ignoringCollectionOrder()
+                    .isEqualTo(expected);
+        }
+
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void tracesEndedByAnUpdateAreIncluded(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            Trace trace = factory.manufacturePojo(Trace.class).toBuilder()
+                    .projectName(projectName)
+                    .startTime(marker)
+                    .endTime(null)
+                    .build();
+            traceResourceClient.batchCreateTraces(List.of(trace), API_KEY, WORKSPACE_NAME);
+            traceResourceClient.updateTrace(trace.id(), TraceUpdate.builder()
+                    .projectName(projectName)
+                    .endTime(marker.plusMillis(120))
+                    .build(), API_KEY, WORKSPACE_NAME);
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.DURATION)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), Double.class);
+
+            var expectedData = createExpectedData(marker, interval, Arrays.asList(null, 120.0));
+            var expected = Stream.of("p50", "p90", "p99")
+                    .map(name -> ProjectMetricResponse.Results.<Double>builder()
+                            .name(name)
+                            .data(expectedData)
+                            .build())
+                    .toList();
+
+            // assertions
+            assertThat(response.results())
+                    .usingRecursiveComparison()
+                    .ignoringCollectionOrder()
+                    .isEqualTo(expected);
+        }
+
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void resentTracesCountTheirDurationOnce(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            // a re-sent short trace would move the percentiles towards its duration if counted twice
+            List<Trace> traces = Stream.of(10L, 500L, 1000L)
+                    .map(durationMillis -> factory.manufacturePojo(Trace.class).toBuilder()
+                            .projectName(projectName)
+                            .startTime(marker)
+                            .endTime(marker.plusMillis(durationMillis))
+                            .build())
+                    .toList();
+            traceResourceClient.batchCreateTraces(traces, API_KEY, WORKSPACE_NAME);
+            var request = ProjectMetricRequest.builder()
+                    .metricType(MetricType.DURATION)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build();
+            var expected = getProjectMetrics(projectId, request, Double.class);
+
+            traceResourceClient.batchCreateTraces(traces.subList(0, 1), API_KEY, WORKSPACE_NAME);
+
+            // SUT
+            var response = getProjectMetrics(projectId, request, Double.class);
+
+            // assertions
+            assertThat(response.results())
+                    .usingRecursiveComparison()
+                    .ignoringCollectionOrder()
+                    .isEqualTo(expected.results());
+        }
+
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void durationsOfDeletedTracesAreSubtracted(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+
+            var deletedTraceId = createTrace(projectName, marker, 900);
+            createTrace(projectName, marker.plusSeconds(1), 60);
+            traceResourceClient.deleteTrace(deletedTraceId, WORKSPACE_NAME, API_KEY);
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.DURATION)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), Double.class);
+
+            var expectedData = createExpectedData(marker, interval, Arrays.asList(null, 60.0));
+            var expected = Stream.of("p50", "p90", "p99")
+                    .map(name -> ProjectMetricResponse.Results.<Double>builder()
+                            .name(name)
+                            .data(expectedData)
+                            .build())
+                    .toList();
+
+            // assertions
+            assertThat(response.results())
+                    .usingRecursiveComparison()
+                    .ignoringCollectionOrder()
+                    .isEqualTo(expected);
+        }
+
+        private UUID createTrace(String projectName, Instant startTime, long durationMillis) {
+            Trace trace = factory.manufacturePojo(Trace.class).toBuilder()
+                    .projectName(projectName)
+                    .startTime(startTime)
+                    .endTime(startTime.plusMillis(durationMillis))
+                    .build();
+            traceResourceClient.batchCreateTraces(List.of(trace), API_KEY, WORKSPACE_NAME);
+            return trace.id();
         }
     }
 
@@ -397,6 +964,7 @@ class ProjectMetricsResourceTest {
             var scoresMinus3 = createFeedbackScores(projectName, subtract(marker, 3, interval), names);
             var scoresMinus1 = createFeedbackScores(projectName, subtract(marker, 1, interval), names);
             var scores = createFeedbackScores(projectName, marker, names);
+            rebuildFeedbackScoreMetrics(projectId);
 
             // SUT
             var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
@@ -422,6 +990,140 @@ class ProjectMetricsResourceTest {
                     .isEqualTo(expected);
         }
 
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void rescoredTracesCountWithTheirLatestScore(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+            String name = RandomStringUtils.randomAlphabetic(10);
+
+            var rescoredTraceId = createTraceWithScore(projectName, name, new BigDecimal("1"));
+            scoreTrace(rescoredTraceId, projectName, name, new BigDecimal("0.2"));
+            createTraceWithScore(projectName, name, new BigDecimal("0.6"));
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.FEEDBACK_SCORES)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), BigDecimal.class);
+
+            var expected = List.of(ProjectMetricResponse.Results.<BigDecimal>builder()
+                    .name(name)
+                    .data(createExpectedData(marker, interval, Arrays.asList(null, new BigDecimal("0.4"))))
+                    .build());
+
+            // assertions
+            assertThat(response.results())
+                    .usingRecursiveComparison()
+                    .withComparatorForType(this::bigDecimalInDelta, BigDecimal.class)
+                    .isEqualTo(expected);
+        }
+
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void resentScoresAreAveragedOnce(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+            String name = RandomStringUtils.randomAlphabetic(10);
+
+            var traceId = createTraceWithScore(projectName, name, new BigDecimal("1"));
+            var otherTraceId = createTraceWithScore(projectName, name, new BigDecimal("0.2"));
+            var scores = Stream.of(Map.entry(traceId, new BigDecimal("1")),
+                    Map.entry(otherTraceId, new BigDecimal("0.2")))
+                    .map(score -> factory.manufacturePojo(FeedbackScoreBatchItem.class).toBuilder()
+                            .id(score.getKey())
+                            .projectName(projectName)
+                            .name(name)
+                            .value(score.getValue())
+                            .build())
+                    .toList();
+            traceResourceClient.feedbackScores(scores, API_KEY, WORKSPACE_NAME);
+            traceResourceClient.feedbackScores(scores, API_KEY, WORKSPACE_NAME);
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.FEEDBACK_SCORES)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), BigDecimal.class);
+
+            var expected = List.of(ProjectMetricResponse.Results.<BigDecimal>builder()
+                    .name(name)
+                    .data(createExpectedData(marker, interval, Arrays.asList(null, new BigDecimal("0.6"))))
+                    .build());
+
+            // assertions
+            assertThat(response.results())
+                    .usingRecursiveComparison()
+                    .withComparatorForType(this::bigDecimalInDelta, BigDecimal.class)
+                    .isEqualTo(expected);
+        }
+
+        @ParameterizedTest
+        @EnumSource(TimeInterval.class)
+        void scoresOfDeletedTracesAreNotAveraged(TimeInterval interval) {
+            // setup
+            mockTargetWorkspace();
+
+            Instant marker = getIntervalStart(interval);
+            String projectName = RandomStringUtils.randomAlphabetic(10);
+            var projectId = projectResourceClient.createProject(projectName, API_KEY, WORKSPACE_NAME);
+            String name = RandomStringUtils.randomAlphabetic(10);
+
+            var deletedTraceId = createTraceWithScore(projectName, name, new BigDecimal("1"));
+            createTraceWithScore(projectName, name, new BigDecimal("0.6"));
+            traceResourceClient.deleteTrace(deletedTraceId, WORKSPACE_NAME, API_KEY);
+
+            // SUT
+            var response = getProjectMetrics(projectId, ProjectMetricRequest.builder()
+                    .metricType(MetricType.FEEDBACK_SCORES)
+                    .interval(interval)
+                    .intervalStart(subtract(marker, 1, interval))
+                    .intervalEnd(Instant.now())
+                    .build(), BigDecimal.class);
+
+            var expected = List.of(ProjectMetricResponse.Results.<BigDecimal>builder()
+                    .name(name)
+                    .data(createExpectedData(marker, interval, Arrays.asList(null, new BigDecimal("0.6"))))
+                    .build());
+
+            // assertions
+            assertThat(response.results())
+                    .usingRecursiveComparison()
+                    .withComparatorForType(this::bigDecimalInDelta, BigDecimal.class)
+                    .isEqualTo(expected);
+        }
+
+        private UUID createTraceWithScore(String projectName, String name, BigDecimal value) {
+            Trace trace = factory.manufacturePojo(Trace.class).toBuilder()
+                    .projectName(projectName)
+                    .build();
+            traceResourceClient.createTrace(trace, API_KEY, WORKSPACE_NAME);
+            scoreTrace(trace.id(), projectName, name, value);
+            return trace.id();
+        }
+
+        private void scoreTrace(UUID traceId, String projectName, String name, BigDecimal value) {
+            var score = factory.manufacturePojo(FeedbackScoreBatchItem.class).toBuilder()
+                    .id(traceId)
+                    .projectName(projectName)
+                    .name(name)
+                    .value(value)
+                    .build();
+            traceResourceClient.feedbackScores(List.of(score), API_KEY, WORKSPACE_NAME);
+        }
+
         private List<ProjectMetricResponse.Results<BigDecimal>> createExpectedFeedbackScores(
                 Instant marker, TimeInterval interval, List<String> names, Map<String, BigDecimal> scoresMinus3,
                 Map<String, BigDecimal> scoresMinus1, Map<String, BigDecimal> scores) {
@@ -508,6 +1210,41 @@ class ProjectMetricsResourceTest {
             }).block();
         }
 
+        /**
+         * The metrics are fed on insert, so they don't see the created_at rewritten by {@link #setCreatedAt}.
+         */
+        private void rebuildFeedbackScoreMetrics(UUID projectId) {
+            String deleteMetrics = """
+                    DELETE FROM feedback_score_metrics WHERE project_id = :project_id;
+                    """;
+            String insertMetrics = """
+                    INSERT INTO feedback_score_metrics
+                    SELECT workspace_id,
+                           toUUID(toString(project_id)) AS project_id,
+                           toDateTime64(toStartOfHour(created_at), 9, 'UTC') AS hour,
+                           name,
+                           entity_id,
+                           value,
+                           last_updated_at,
+                           0 AS is_deleted
+                    FROM (
+                        SELECT *
+                        FROM feedback_scores
+                        WHERE project_id = :project_id
+                            AND entity_type = 'trace'
+                        ORDER BY entity_id DESC, last_updated_at DESC
+                        LIMIT 1 BY entity_id, name
+                    );
+                    """;
+            clickHouseTemplate.nonTransaction(connection -> Mono
+                    .from(connection.createStatement(deleteMetrics).bind("project_id", projectId).execute())
+                    .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                    .then(Mono.from(connection.createStatement(insertMetrics)
+                            .bind("project_id", projectId)
+                            .execute())))
+                    .block();
+        }
+
         private static BigDecimal calcAverage(List<BigDecimal> scores) {
             BigDecimal sum = scores.stream()
                     .reduce(BigDecimal.ZERO, BigDecimal::add);
@@ -549,6 +1286,15 @@ class ProjectMetricsResourceTest {
         };
     }
 
+    private static <T extends Number> List<DataPoint<T>> createExpectedData(
+            Instant marker, TimeInterval interval, List<T> values) {
+        return IntStream.range(0, values.size())
+                .mapToObj(i -> DataPoint.<T>builder()
+                        .time(subtract(marker, values.size() - i - 1, interval))
+                        .value(values.get(i)).build())
+                .toList();
+    }
+
     private static Instant subtract(Instant instant, int count, TimeInterval interval) {
         if (interval == TimeInterval.WEEKLY) {
             count *= 7;
@@ -1246,6 +1246,54 @@ class SpansResourceTest {
             getAndAssertPage(workspaceName, projectName, filters, spans, expectedSpans, unexpectedSpans, apiKey);
         }
 
+
+        @Test
+        void getByProjectName__whenSearch__thenReturnSpansWithEveryWordInInputOrOutputMostRecentFirst() {
+            String workspaceName = UUID.randomUUID().toString();
+            String workspaceId = UUID.randomUUID().toString();
+            String apiKey = UUID.randomUUID().toString();
+
+            mockTargetWorkspace(apiKey, workspaceName, workspaceId);
+
+            var projectName = generator.generate().toString();
+            var spans = PodamFactoryUtils.manufacturePojoList(podamFactory, Span.class)
+                    .stream()
+                    .map(span -> span.toBuilder()
+                            .projectId(null)
+                            .projectName(projectName)
+                            .input(JsonUtils.getJsonNodeFromString("{\"prompt\":\"What is the refund policy?\"}"))
+                            .output(JsonUtils.getJsonNodeFromString("{\"answer\":\"Unrelated\"}"))
+                            .feedbackScores(null)
+                            .build())
+                    .collect(Collectors.toCollection(ArrayList::new));
+            // a word after an escaped line break is still a word
+            spans.set(0, spans.getFirst().toBuilder()
+                    .output(JsonUtils.getJsonNodeFromString("{\"answer\":\"Refunds are accepted\\nwithin 30 days\"}"))
+                    .build());
+            spans.set(2, spans.get(2).toBuilder()
+                    .input(JsonUtils.getJsonNodeFromString("{\"prompt\":\"Shipping times?\"}"))
+                    .output(JsonUtils.getJsonNodeFromString("{\"answer\":\"Within 30 DAYS, refund policy aside\"}"))
+                    .build());
+            spans.forEach(expectedSpan -> SpansResourceTest.this.createAndAssert(expectedSpan, apiKey, workspaceName));
+
+            try (var actualResponse = client.target(URL_TEMPLATE.formatted(baseURI))
+                    .queryParam("project_name", projectName)
+                    .queryParam("search", "refund WITHIN days")
+                    .request()
+                    .header(HttpHeaders.AUTHORIZATION, apiKey)
+                    .header(WORKSPACE_HEADER, workspaceName)
+                    .get()) {
+
+                assertThat(actualResponse.getStatusInfo().getStatusCode()).isEqualTo(200);
+
+                var actualPage = actualResponse.readEntity(Span.SpanPage.class);
+                assertThat(actualPage.total()).isEqualTo(2);
+                assertThat(actualPage.content())
+                        .extracting(Span::id)
+                        .containsExactly(spans.get(2).id(), spans.getFirst().id());
+            }
+        }
+
         @Test
         void getByProjectName__whenFilterNameNotContains__thenReturnSpansFiltered() {
             String workspaceName = UUID.randomUUID().toString();
@@ -2225,6 +2273,42 @@ class SpansResourceTest {
             getAndAssertPage(workspaceName, projectName, filters, spans, expectedSpans, unexpectedSpans, apiKey);
         }
 
+        @Test
+        void getByProjectName__whenFilterTagsEqual__thenReturnSpansFiltered() {
+            String workspaceName = UUID.randomUUID().toString();
+            String workspaceId = UUID.randomUUID().toString();
+            String apiKey = UUID.randomUUID().toString();
+
+            mockTargetWorkspace(apiKey, workspaceName, workspaceId);
+
+            var projectName = generator.generate().toString();
+            var spans = PodamFactoryUtils.manufacturePojoList(podamFactory, Span.class)
+                    .stream()
+                    .map(span -> span.toBuilder()
+                            .projectId(null)
+                            .projectName(projectName)
+                            .feedbackScores(null)
+                            .build())
+                    .collect(Collectors.toCollection(ArrayList::new));
+            spans.forEach(expectedSpan -> SpansResourceTest.this.createAndAssert(expectedSpan, apiKey, workspaceName));
+            var expectedSpans = List.of(spans.getFirst());
+            var unexpectedSpans = List.of(podamFactory.manufacturePojo(Span.class).toBuilder()
+                    .projectId(null)
+                    .build());
+            unexpectedSpans.forEach(
+                    expectedSpan -> SpansResourceTest.this.createAndAssert(expectedSpan, apiKey, workspaceName));
+
+            var filters = List.of(SpanFilter.builder()
+                    .field(SpanField.TAGS)
+                    .operator(Operator.EQUAL)
+                    .value(spans.getFirst().tags().stream()
+                            .toList()
+                            .get(2)
+                            .toUpperCase())
+                    .build());
+            getAndAssertPage(workspaceName, projectName, filters, spans, expectedSpans, unexpectedSpans, apiKey);
+        }
+
         static Stream<Arguments> getByProjectName__whenFilterUsage__thenReturnSpansFiltered() {
             return Stream.of(
                     arguments("completion_tokens", SpanField.USAGE_COMPLETION_TOKENS),
@@ -2857,11 +2941,6 @@ class SpansResourceTest {
                             .operator(Operator.ENDS_WITH)
                             .value(RandomStringUtils.randomAlphanumeric(10))
                             .build(),
-                    SpanFilter.builder()
-                            .field(SpanField.TAGS)
-                            .operator(Operator.EQUAL)
-                            .value(RandomStringUtils.randomAlphanumeric(10))
-                            .build(),
                     SpanFilter.builder()
                             .field(SpanField.ID)
                             .operator(Operator.GREATER_THAN)
@@ -4222,6 +4301,36 @@ class SpansResourceTest {
             getAndAssert(updatedSpan, API_KEY, TEST_WORKSPACE);
         }
 
+        @Test
+        @DisplayName("when span has a parent and the update omits parent span id, then accept update and keep the parent")
+        void update__whenSpanHasParentAndParentSpanIdIsOmitted__thenAcceptUpdate() {
+
+            var expectedSpan = podamFactory.manufacturePojo(Span.class).toBuilder()
+                    .parentSpanId(generator.generate())
+                    .build();
+
+            createAndAssert(expectedSpan, API_KEY, TEST_WORKSPACE);
+
+            var spanUpdate = SpanUpdate.builder()
+                    .traceId(expectedSpan.traceId())
+                    .projectName(expectedSpan.projectName())
+                    .output(JsonUtils.getJsonNodeFromString("{ \"output\": \"data\"}"))
+                    .build();
+
+            runPatchAndAssertStatus(expectedSpan.id(), spanUpdate, API_KEY, TEST_WORKSPACE);
+
+            UUID projectId = getProjectId(spanUpdate.projectName(), TEST_WORKSPACE, API_KEY);
+
+            Span updatedSpan = expectedSpan.toBuilder()
+                    .output(spanUpdate.output())
+                    .projectId(projectId)
+                    .build();
+
+            Span actualSpan = getAndAssert(updatedSpan, API_KEY, TEST_WORKSPACE);
+
+            assertThat(actualSpan.parentSpanId()).isEqualTo(expectedSpan.parentSpanId());
+        }
+
         private void runPatchAndAssertStatus(UUID id, SpanUpdate spanUpdate, String apiKey, String workspaceName) {
             try (var actualResponse = client.target(URL_TEMPLATE.formatted(baseURI))
                     .path(id.toString())
@@ -4847,6 +4956,36 @@ class SpansResourceTest {
     @TestInstance(TestInstance.Lifecycle.PER_CLASS)
     class GetSpanStats {
 
+        @Test
+        void getSpanStats__whenSearch__thenReturnStatsOfSpansWithEveryWordInInputOrOutput() {
+            var apiKey = UUID.randomUUID().toString();
+            var workspaceName = RandomStringUtils.randomAlphanumeric(10);
+            var workspaceId = UUID.randomUUID().toString();
+            mockTargetWorkspace(apiKey, workspaceName, workspaceId);
+
+            var projectName = RandomStringUtils.randomAlphanumeric(10);
+            var spans = PodamFactoryUtils.manufacturePojoList(podamFactory, Span.class).stream()
+                    .map(span -> span.toBuilder()
+                            .projectName(projectName)
+                            .input(JsonUtils.getJsonNodeFromString("{\"prompt\":\"What is the shipping policy?\"}"))
+                            .output(JsonUtils.getJsonNodeFromString("{\"answer\":\"Unrelated\"}"))
+                            .startTime(generateStartTime())
+                            .feedbackScores(null)
+                            .build())
+                    .collect(Collectors.toCollection(ArrayList::new));
+            spans.set(0, spans.getFirst().toBuilder()
+                    .output(JsonUtils.getJsonNodeFromString("{\"answer\":\"Refunds within 30 days\"}"))
+                    .build());
+            batchCreateSpansAndAssert(spans, apiKey, workspaceName);
+
+            // the stats without search are cached first, the search must not read them
+            getStatsAndAssert(projectName, null, null, null, null, apiKey, workspaceName,
+                    getProjectSpanStatItems(spans));
+
+            getStatsAndAssert(projectName, null, null, null, null, "WITHIN refunds", apiKey, workspaceName,
+                    getProjectSpanStatItems(List.of(spans.getFirst())));
+        }
+
         @Test
         void findWithUsage() {
             var projectName = RandomStringUtils.randomAlphanumeric(10);
@@ -7036,11 +7175,6 @@ class SpansResourceTest {
                             .operator(Operator.ENDS_WITH)
                             .value(RandomStringUtils.randomAlphanumeric(10))
                             .build(),
-                    SpanFilter.builder()
-                            .field(SpanField.TAGS)
-                            .operator(Operator.EQUAL)
-                            .value(RandomStringUtils.randomAlphanumeric(10))
-                            .build(),
                     SpanFilter.builder()
                             .field(SpanField.ID)
                             .operator(Operator.GREATER_THAN)
@@ -7311,6 +7445,19 @@ class SpansResourceTest {
                 String apiKey,
                 String workspaceName,
                 List<ProjectStatItem<?>> expectedStats) {
+            getStatsAndAssert(projectName, projectId, filters, traceId, type, null, apiKey, workspaceName,
+                    expectedStats);
+        }
+
+        private void getStatsAndAssert(String projectName,
+                UUID projectId,
+                List<? extends SpanFilter> filters,
+                UUID traceId,
+                SpanType type,
+                String search,
+                String apiKey,
+                String workspaceName,
+                List<ProjectStatItem<?>> expectedStats) {
             WebTarget webTarget = client.target(URL_TEMPLATE.formatted(baseURI))
                     .path("stats");
 
@@ -7334,6 +7481,10 @@ class SpansResourceTest {
                 webTarget = webTarget.queryParam("type", type);
             }
 
+            if (search != null) {
+                webTarget = webTarget.queryParam("search", search);
+            }
+
             var actualResponse = webTarget
                     .request()
                     .header(HttpHeaders.AUTHORIZATION, apiKey)
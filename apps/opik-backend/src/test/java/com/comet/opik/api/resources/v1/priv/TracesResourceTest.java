@@ -1,16 +1,19 @@
 package com.comet.opik.api.resources.v1.priv;
 
+import com.comet.opik.api.CountMode;
 import com.comet.opik.api.DeleteFeedbackScore;
 import com.comet.opik.api.FeedbackScore;
 import com.comet.opik.api.FeedbackScoreBatch;
 import com.comet.opik.api.FeedbackScoreBatchItem;
 import com.comet.opik.api.FeedbackScoreNames;
+import com.comet.opik.api.Page;
 import com.comet.opik.api.Project;
 import com.comet.opik.api.ProjectStats;
 import com.comet.opik.api.ProjectStats.ProjectStatItem;
 import com.comet.opik.api.ScoreSource;
 import com.comet.opik.api.Span;
 import com.comet.opik.api.SpanBatch;
+import com.comet.opik.api.SpanUpdate;
 import com.comet.opik.api.Trace;
 import com.comet.opik.api.TraceBatch;
 import com.comet.opik.api.TraceUpdate;
@@ -927,6 +930,188 @@ class TracesResourceTest {
             assertThat(actualEntities.content()).hasSize(10);
         }
 
+        @Test
+        @DisplayName("when paginating with the cursor, then return every trace once, most recent first")
+        void getByProjectName__whenPaginatingWithCursor__thenReturnEveryTraceOnce() {
+
+            var projectName = UUID.randomUUID().toString();
+            var workspaceName = RandomStringUtils.randomAlphanumeric(10);
+            var workspaceId = UUID.randomUUID().toString();
+            var apiKey = UUID.randomUUID().toString();
+
+            mockTargetWorkspace(apiKey, workspaceName, workspaceId);
+
+            List<UUID> expectedIds = new ArrayList<>();
+            for (int i = 0; i < 15; i++) {
+                expectedIds.add(create(factory.manufacturePojo(Trace.class)
+                        .toBuilder()
+                        .id(null)
+                        .projectName(projectName)
+                        .projectId(null)
+                        .feedbackScores(null)
+                        .build(), apiKey, workspaceName));
+            }
+
+            List<UUID> actualIds = new ArrayList<>();
+            String cursor = null;
+            do {
+                var actualResponse = client.target(URL_TEMPLATE.formatted(baseURI))
+                        .queryParam("project_name", projectName)
+                        .queryParam("size", 4)
+                        .queryParam("cursor", cursor)
+                        .request()
+                        .header(HttpHeaders.AUTHORIZATION, apiKey)
+                        .header(WORKSPACE_HEADER, workspaceName)
+                        .get();
+
+                assertThat(actualResponse.getStatusInfo().getStatusCode()).isEqualTo(200);
+
+                var actualPage = actualResponse.readEntity(Trace.TracePage.class);
+                assertThat(actualPage.total()).isEqualTo(15);
+                actualPage.content().forEach(trace -> actualIds.add(trace.id()));
+                cursor = actualPage.nextCursor();
+            } while (cursor != null);
+
+            assertThat(actualIds).containsExactlyElementsOf(expectedIds.reversed());
+        }
+
+        @ParameterizedTest
+        @MethodSource
+        @DisplayName("when count mode is set, then return the total accordingly")
+        void getByProjectName__whenCountModeIsSet__thenReturnTotalAccordingly(
+                CountMode countMode, long expectedTotal) {
+
+            var projectName = UUID.randomUUID().toString();
+            var workspaceName = RandomStringUtils.randomAlphanumeric(10);
+            var workspaceId = UUID.randomUUID().toString();
+            var apiKey = UUID.randomUUID().toString();
+
+            mockTargetWorkspace(apiKey, workspaceName, workspaceId);
+
+            for (int i = 0; i < 5; i++) {
+                create(factory.manufacturePojo(Trace.class)
+                        .toBuilder()
+                        .id(null)
+                        .projectName(projectName)
+                        .projectId(null)
+                        .feedbackScores(null)
+                        .build(), apiKey, workspaceName);
+            }
+
+            var actualResponse = client.target(URL_TEMPLATE.formatted(baseURI))
+                    .queryParam("project_name", projectName)
+                    .queryParam("size", 2)
+                    .queryParam("count", countMode.getValue())
+                    .request()
+                    .header(HttpHeaders.AUTHORIZATION, apiKey)
+                    .header(WORKSPACE_HEADER, workspaceName)
+                    .get();
+
+            assertThat(actualResponse.getStatusInfo().getStatusCode()).isEqualTo(200);
+
+            var actualPage = actualResponse.readEntity(Trace.TracePage.class);
+            assertThat(actualPage.content()).hasSize(2);
+            assertThat(actualPage.total()).isEqualTo(expectedTotal);
+        }
+
+        static Stream<Arguments> getByProjectName__whenCountModeIsSet__thenReturnTotalAccordingly() {
+            return Stream.of(
+                    arguments(CountMode.EXACT, 5),
+                    // uniqCombined is exact for small cardinalities
+                    arguments(CountMode.APPROXIMATE, 5),
+                    arguments(CountMode.NONE, Page.UNKNOWN_TOTAL));
+        }
+
+        @Test
+        @DisplayName("when fields are excluded, then return the traces without them")
+        void getByProjectName__whenFieldsAreExcluded__thenReturnTracesWithoutThem() {
+
+            var projectName = UUID.randomUUID().toString();
+            var workspaceName = RandomStringUtils.randomAlphanumeric(10);
+            var workspaceId = UUID.randomUUID().toString();
+            var apiKey = UUID.randomUUID().toString();
+
+            mockTargetWorkspace(apiKey, workspaceName, workspaceId);
+
+            var trace = factory.manufacturePojo(Trace.class)
+                    .toBuilder()
+                    .id(null)
+                    .projectName(projectName)
+                    .projectId(null)
+                    .feedbackScores(null)
+                    .build();
+            var id = create(trace, apiKey, workspaceName);
+            create(id, factory.manufacturePojo(FeedbackScore.class)
+                    .toBuilder()
+                    .source(ScoreSource.SDK)
+                    .value(BigDecimal.ONE)
+                    .build(), workspaceName, apiKey);
+
+            var sparseTrace = getFirstTrace(projectName, apiKey, workspaceName, "fields", "output");
+
+            assertThat(sparseTrace.id()).isEqualTo(id);
+            assertThat(sparseTrace.name()).isEqualTo(trace.name());
+            assertThat(sparseTrace.output()).isEqualTo(trace.output());
+            assertThat(sparseTrace.input()).isNull();
+            assertThat(sparseTrace.metadata()).isNull();
+            assertThat(sparseTrace.feedbackScores()).isNull();
+
+            var traceWithoutInput = getFirstTrace(projectName, apiKey, workspaceName, "exclude",
+                    "input,feedback_scores");
+
+            assertThat(traceWithoutInput.input()).isNull();
+            assertThat(traceWithoutInput.feedbackScores()).isNull();
+            assertThat(traceWithoutInput.output()).isEqualTo(trace.output());
+            assertThat(traceWithoutInput.metadata()).isEqualTo(trace.metadata());
+        }
+
+        private Trace getFirstTrace(String projectName, String apiKey, String workspaceName, String param,
+                String value) {
+            var actualResponse = client.target(URL_TEMPLATE.formatted(baseURI))
+                    .queryParam("project_name", projectName)
+                    .queryParam(param, value)
+                    .request()
+                    .header(HttpHeaders.AUTHORIZATION, apiKey)
+                    .header(WORKSPACE_HEADER, workspaceName)
+                    .get();
+
+            assertThat(actualResponse.getStatusInfo().getStatusCode()).isEqualTo(200);
+
+            var actualPage = actualResponse.readEntity(Trace.TracePage.class);
+            assertThat(actualPage.content()).hasSize(1);
+            return actualPage.content().getFirst();
+        }
+
+        @Test
+        @DisplayName("when an excluded field is unknown, then return bad request")
+        void getByProjectName__whenExcludedFieldIsUnknown__thenReturnBadRequest() {
+
+            var actualResponse = client.target(URL_TEMPLATE.formatted(baseURI))
+                    .queryParam("project_name", UUID.randomUUID().toString())
+                    .queryParam("exclude", "name")
+                    .request()
+                    .header(HttpHeaders.AUTHORIZATION, API_KEY)
+                    .header(WORKSPACE_HEADER, TEST_WORKSPACE)
+                    .get();
+
+            assertThat(actualResponse.getStatusInfo().getStatusCode()).isEqualTo(400);
+        }
+
+        @Test
+        @DisplayName("when cursor is invalid, then return bad request")
+        void getByProjectName__whenCursorIsInvalid__thenReturnBadRequest() {
+
+            var actualResponse = client.target(URL_TEMPLATE.formatted(baseURI))
+                    .queryParam("project_name", UUID.randomUUID().toString())
+                    .queryParam("cursor", "invalid")
+                    .request()
+                    .header(HttpHeaders.AUTHORIZATION, API_KEY)
+                    .header(WORKSPACE_HEADER, TEST_WORKSPACE)
+                    .get();
+
+            assertThat(actualResponse.getStatusInfo().getStatusCode()).isEqualTo(400);
+        }
+
         @Test
         @DisplayName("when project id is not empty, then return traces by project id")
         void getByProjectName__whenProjectIdIsNotEmpty__thenReturnTracesByProjectId() {
@@ -1190,6 +1375,55 @@ class TracesResourceTest {
             getAndAssertPage(workspaceName, projectName, filters, traces, expectedTraces, unexpectedTraces, apiKey);
         }
 
+
+        @Test
+        void getByProjectName__whenSearch__thenReturnTracesWithEveryWordInInputOrOutputMostRecentFirst() {
+            var workspaceName = RandomStringUtils.randomAlphanumeric(10);
+            var workspaceId = UUID.randomUUID().toString();
+            var apiKey = UUID.randomUUID().toString();
+
+            mockTargetWorkspace(apiKey, workspaceName, workspaceId);
+
+            var projectName = RandomStringUtils.randomAlphanumeric(10);
+            var traces = PodamFactoryUtils.manufacturePojoList(factory, Trace.class)
+                    .stream()
+                    .map(trace -> trace.toBuilder()
+                            .projectId(null)
+                            .projectName(projectName)
+                            .input(JsonUtils.getJsonNodeFromString("{\"prompt\":\"What is the refund policy?\"}"))
+                            .output(JsonUtils.getJsonNodeFromString("{\"answer\":\"Unrelated\"}"))
+                            .usage(null)
+                            .feedbackScores(null)
+                            .build())
+                    .collect(Collectors.toCollection(ArrayList::new));
+            // a word after an escaped line break is still a word
+            traces.set(0, traces.getFirst().toBuilder()
+                    .output(JsonUtils.getJsonNodeFromString("{\"answer\":\"Refunds are accepted\\nwithin 30 days\"}"))
+                    .build());
+            traces.set(2, traces.get(2).toBuilder()
+                    .input(JsonUtils.getJsonNodeFromString("{\"prompt\":\"Shipping times?\"}"))
+                    .output(JsonUtils.getJsonNodeFromString("{\"answer\":\"Within 30 DAYS, refund policy aside\"}"))
+                    .build());
+            traces.forEach(trace -> create(trace, apiKey, workspaceName));
+
+            try (var actualResponse = client.target(URL_TEMPLATE.formatted(baseURI))
+                    .queryParam("project_name", projectName)
+                    .queryParam("search", "refund WITHIN days")
+                    .request()
+                    .header(HttpHeaders.AUTHORIZATION, apiKey)
+                    .header(WORKSPACE_HEADER, workspaceName)
+                    .get()) {
+
+                assertThat(actualResponse.getStatusInfo().getStatusCode()).isEqualTo(200);
+
+                var actualPage = actualResponse.readEntity(Trace.TracePage.class);
+                assertThat(actualPage.total()).isEqualTo(2);
+                assertThat(actualPage.content())
+                        .extracting(Trace::id)
+                        .containsExactly(traces.get(2).id(), traces.getFirst().id());
+            }
+        }
+
         @Test
         void getByProjectName__whenFilterNameNotContains__thenReturnTracesFiltered() {
             var workspaceName = RandomStringUtils.randomAlphanumeric(10);
@@ -1554,6 +1788,54 @@ class TracesResourceTest {
                     apiKey);
         }
 
+        @Test
+        void getByProjectName__whenSpanIsUpdated__thenReturnTraceWithUpdatedUsage() {
+            var workspaceName = RandomStringUtils.randomAlphanumeric(10);
+            var workspaceId = UUID.randomUUID().toString();
+            var apiKey = UUID.randomUUID().toString();
+
+            mockTargetWorkspace(apiKey, workspaceName, workspaceId);
+
+            var projectName = RandomStringUtils.randomAlphanumeric(10);
+            var trace = factory.manufacturePojo(Trace.class).toBuilder()
+                    .projectId(null)
+                    .projectName(projectName)
+                    .usage(null)
+                    .feedbackScores(null)
+                    .build();
+            create(trace, apiKey, workspaceName);
+
+            var span = factory.manufacturePojo(Span.class).toBuilder()
+                    .projectName(projectName)
+                    .traceId(trace.id())
+                    .usage(Map.of("completion_tokens", 10, "prompt_tokens", 20))
+                    .build();
+            batchCreateSpansAndAssert(List.of(span), apiKey, workspaceName);
+
+            var spanUpdate = SpanUpdate.builder()
+                    .projectName(projectName)
+                    .traceId(trace.id())
+                    .parentSpanId(span.parentSpanId())
+                    .usage(Map.of("completion_tokens", 100, "prompt_tokens", 200))
+                    .build();
+            try (var actualResponse = client.target(URL_TEMPLATE_SPANS.formatted(baseURI))
+                    .path(span.id().toString())
+                    .request()
+                    .header(HttpHeaders.AUTHORIZATION, apiKey)
+                    .header(WORKSPACE_HEADER, workspaceName)
+                    .method(HttpMethod.PATCH, Entity.json(spanUpdate))) {
+
+                assertThat(actualResponse.getStatusInfo().getStatusCode()).isEqualTo(204);
+            }
+
+            // the trace summary is recomputed from the latest version of the span
+            var expectedTrace = trace.toBuilder()
+                    .usage(Map.of("completion_tokens", 100L, "prompt_tokens", 200L))
+                    .build();
+            getAndAssertPage(workspaceName, projectName, List.of(), List.of(trace), List.of(expectedTrace), List.of(),
+                    apiKey);
+        }
+
         @Test
         void getByProjectName__whenFilterMetadataEqualString__thenReturnTracesFiltered() {
             var workspaceName = RandomStringUtils.randomAlphanumeric(10);
@@ -2208,6 +2490,42 @@ class TracesResourceTest {
             getAndAssertPage(workspaceName, projectName, filters, traces, expectedTraces, unexpectedTraces, apiKey);
         }
 
+        @Test
+        void getByProjectName__whenFilterTagsEqual__thenReturnTracesFiltered() {
+            var workspaceName = RandomStringUtils.randomAlphanumeric(10);
+            var workspaceId = UUID.randomUUID().toString();
+            var apiKey = UUID.randomUUID().toString();
+
+            mockTargetWorkspace(apiKey, workspaceName, workspaceId);
+
+            var projectName = RandomStringUtils.randomAlphanumeric(10);
+            var traces = PodamFactoryUtils.manufacturePojoList(factory, Trace.class)
+                    .stream()
+                    .map(trace -> trace.toBuilder()
+                            .projectId(null)
+                            .projectName(projectName)
+                            .usage(null)
+                            .feedbackScores(null)
+                            .build())
+                    .collect(Collectors.toCollection(ArrayList::new));
+            traces.forEach(trace -> create(trace, apiKey, workspaceName));
+            var expectedTraces = List.of(traces.getFirst());
+            var unexpectedTraces = List.of(factory.manufacturePojo(Trace.class).toBuilder()
+                    .projectId(null)
+                    .build());
+            unexpectedTraces.forEach(trace -> create(trace, apiKey, workspaceName));
+
+            var filters = List.of(TraceFilter.builder()
+                    .field(TraceField.TAGS)
+                    .operator(Operator.EQUAL)
+                    .value(traces.getFirst().tags().stream()
+                            .toList()
+                            .get(2)
+                            .toUpperCase())
+                    .build());
+            getAndAssertPage(workspaceName, projectName, filters, traces, expectedTraces, unexpectedTraces, apiKey);
+        }
+
         static Stream<Arguments> getByProjectName__whenFilterUsage__thenReturnTracesFiltered() {
             return Stream.of(
                     arguments("completion_tokens", TraceField.USAGE_COMPLETION_TOKENS),
@@ -2792,11 +3110,6 @@ class TracesResourceTest {
                             .operator(Operator.ENDS_WITH)
                             .value(RandomStringUtils.randomAlphanumeric(10))
                             .build(),
-                    TraceFilter.builder()
-                            .field(TraceField.TAGS)
-                            .operator(Operator.EQUAL)
-                            .value(RandomStringUtils.randomAlphanumeric(10))
-                            .build(),
                     TraceFilter.builder()
                             .field(TraceField.ID)
                             .operator(Operator.GREATER_THAN)
@@ -5203,6 +5516,39 @@ class TracesResourceTest {
             getStatsAndAssert(projectName, null, filters, apiKey, workspaceName, stats);
         }
 
+        @Test
+        void getTraceStats__whenSearch__thenReturnStatsOfTracesWithEveryWordInInputOrOutput() {
+            var workspaceName = RandomStringUtils.randomAlphanumeric(10);
+            var workspaceId = UUID.randomUUID().toString();
+            var apiKey = UUID.randomUUID().toString();
+
+            mockTargetWorkspace(apiKey, workspaceName, workspaceId);
+
+            var projectName = RandomStringUtils.randomAlphanumeric(10);
+            var traces = PodamFactoryUtils.manufacturePojoList(factory, Trace.class)
+                    .stream()
+                    .map(trace -> trace.toBuilder()
+                            .projectId(null)
+                            .projectName(projectName)
+                            .startTime(generateStartTime())
+                            .input(JsonUtils.getJsonNodeFromString("{\"prompt\":\"What is the shipping policy?\"}"))
+                            .output(JsonUtils.getJsonNodeFromString("{\"answer\":\"Unrelated\"}"))
+                            .usage(null)
+                            .feedbackScores(null)
+                            .build())
+                    .collect(Collectors.toCollection(ArrayList::new));
+            traces.set(0, traces.getFirst().toBuilder()
+                    .output(JsonUtils.getJsonNodeFromString("{\"answer\":\"Refunds within 30 days\"}"))
+                    .build());
+            traces.forEach(trace -> create(trace, apiKey, workspaceName));
+
+            // the stats without search are cached first, the search must not read them
+            getStatsAndAssert(projectName, null, null, apiKey, workspaceName, getProjectTraceStatItems(traces));
+
+            getStatsAndAssert(projectName, null, null, "WITHIN refunds", apiKey, workspaceName,
+                    getProjectTraceStatItems(List.of(traces.getFirst())));
+        }
+
         @Test
         void getTraceStats__whenFilterNameEqual__thenReturnTracesFiltered() {
             var workspaceName = RandomStringUtils.randomAlphanumeric(10);
@@ -6430,6 +6776,11 @@ class TracesResourceTest {
 
         private void getStatsAndAssert(String projectName, UUID projectId, List<? extends TraceFilter> filters,
                 String apiKey, String workspaceName, List<ProjectStatItem<?>> expectedStats) {
+            getStatsAndAssert(projectName, projectId, filters, null, apiKey, workspaceName, expectedStats);
+        }
+
+        private void getStatsAndAssert(String projectName, UUID projectId, List<? extends TraceFilter> filters,
+                String search, String apiKey, String workspaceName, List<ProjectStatItem<?>> expectedStats) {
             WebTarget webTarget = client.target(URL_TEMPLATE.formatted(baseURI))
                     .path("stats");
 
@@ -6445,6 +6796,10 @@ class TracesResourceTest {
                 webTarget = webTarget.queryParam("project_id", projectId);
             }
 
+            if (search != null) {
+                webTarget = webTarget.queryParam("search", search);
+            }
+
             var actualResponse = webTarget
                     .request()
                     .header(HttpHeaders.AUTHORIZATION, apiKey)
@@ -7093,11 +7448,6 @@ class TracesResourceTest {
                             .operator(Operator.ENDS_WITH)
                             .value(RandomStringUtils.randomAlphanumeric(10))
                             .build(),
-                    TraceFilter.builder()
-                            .field(TraceField.TAGS)
-                            .operator(Operator.EQUAL)
-                            .value(RandomStringUtils.randomAlphanumeric(10))
-                            .build(),
                     TraceFilter.builder()
                             .field(TraceField.ID)
                             .operator(Operator.GREATER_THAN)
@@ -0,0 +1,124 @@
+package com.comet.opik.domain;
+
+import com.comet.opik.api.Trace;
+import com.comet.opik.infrastructure.AttachmentsConfig;
+import com.comet.opik.infrastructure.attachment.AttachmentStore;
+import com.comet.opik.infrastructure.auth.RequestContext;
+import com.comet.opik.utils.JsonUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.util.context.Context;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttachmentServiceTest {
+
+    private static final String WORKSPACE_ID = "workspace-id";
+
+    private final Map<String, byte[]> stored = new HashMap<>();
+    private final AttachmentStore store = new AttachmentStore() {
+        @Override
+        public void put(String workspaceId, String key, byte[] content) {
+            stored.put(workspaceId + "/" + key, content);
+        }
+
+        @Override
+        public Optional<byte[]> get(String workspaceId, String key) {
+            return Optional.ofNullable(stored.get(workspaceId + "/" + key));
+        }
+    };
+
+    private final AttachmentsConfig config = new AttachmentsConfig();
+    private final AttachmentService attachmentService = new AttachmentService(config, store);
+
+    @BeforeEach
+    void setUp() {
+        config.setEnabled(true);
+        config.setMinImageSize(100);
+        config.setMaxPayloadSize(1_000);
+    }
+
+    private Trace offload(Trace trace) {
+        return attachmentService.offload(trace)
+                .contextWrite(Context.of(RequestContext.WORKSPACE_ID, WORKSPACE_ID, RequestContext.USER_NAME, "user"))
+                .block();
+    }
+
+    private static byte[] png() {
+        byte[] png = new byte[1_000];
+        System.arraycopy(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}, 0, png, 0, 8);
+        for (int i = 8; i < png.length; i++) {
+            png[i] = (byte) i;
+        }
+        return png;
+    }
+
+    @Test
+    void offload__whenImages__thenStoreThemOnceAndReplaceThemByReferences() {
+        byte[] png = png();
+        String image = Base64.getEncoder().encodeToString(png);
+        var input = JsonUtils.getJsonNodeFromString("""
+                {"messages": [{"role": "user", "content": [
+                    {"type": "image_url", "image_url": {"url": "data:image/png;base64,%s"}},
+                    {"type": "text", "text": "what's in the image?"}
+                ]}], "previous": "%s"}
+                """.formatted(image, image));
+        var metadata = JsonUtils.getJsonNodeFromString("{\"model\": \"gpt-4o\"}");
+
+        var actual = offload(Trace.builder().name("trace").input(input).metadata(metadata).build());
+
+        String key = AttachmentService.key(png, "png");
+        String reference = AttachmentService.REFERENCE_PREFIX + key + AttachmentService.REFERENCE_SUFFIX;
+        assertThat(actual.input().at("/messages/0/content/0/image_url/url").asText()).isEqualTo(reference);
+        assertThat(actual.input().at("/messages/0/content/1/text").asText()).isEqualTo("what's in the image?");
+        assertThat(actual.input().get("previous").asText()).isEqualTo(reference);
+        assertThat(actual.metadata()).isSameAs(metadata);
+
+        assertThat(stored).containsOnlyKeys(WORKSPACE_ID + "/" + key);
+        var attachment = attachmentService.get(WORKSPACE_ID, key).orElseThrow();
+        assertThat(attachment.content()).isEqualTo(png);
+        assertThat(attachment.mediaType()).isEqualTo("image/png");
+    }
+
+    @Test
+    void offload__whenPayloadIsOversized__thenStoreItWhole() {
+        var output = JsonUtils.getJsonNodeFromString("{\"text\": \"%s\"}".formatted("x".repeat(2_000)));
+
+        var actual = offload(Trace.builder().name("trace").output(output).build());
+
+        String key = AttachmentService.key(output.toString().getBytes(), "json");
+        assertThat(actual.output().asText())
+                .isEqualTo(AttachmentService.REFERENCE_PREFIX + key + AttachmentService.REFERENCE_SUFFIX);
+        assertThat(JsonUtils.getJsonNodeFromString(new String(stored.get(WORKSPACE_ID + "/" + key))))
+                .isEqualTo(output);
+    }
+
+    @Test
+    void offload__whenNothingToOffloadOrDisabled__thenReturnTheSameTrace() {
+        var trace = Trace.builder()
+                .name("trace")
+                .input(JsonUtils.getJsonNodeFromString("{\"prompt\": \"short\"}"))
+                .build();
+
+        assertThat(offload(trace)).isSameAs(trace);
+
+        config.setEnabled(false);
+        var withImage = trace.toBuilder()
+                .input(JsonUtils.getJsonNodeFromString(
+                        "{\"image\": \"%s\"}".formatted(Base64.getEncoder().encodeToString(png()))))
+                .build();
+        assertThat(offload(withImage)).isSameAs(withImage);
+        assertThat(stored).isEmpty();
+    }
+
+    @Test
+    void get__whenKeyIsInvalid__thenEmpty() {
+        assertThat(attachmentService.get(WORKSPACE_ID, "../../etc/passwd")).isEmpty();
+        assertThat(attachmentService.get(WORKSPACE_ID, "%s.png".formatted("0".repeat(64)))).isEmpty();
+    }
+}
@@ -0,0 +1,161 @@
+package com.comet.opik.domain;
+
+import com.comet.opik.api.Span;
+import com.comet.opik.infrastructure.IngestionBufferConfig;
+import com.comet.opik.infrastructure.auth.RequestContext;
+import com.comet.opik.infrastructure.db.TransactionTemplateAsync;
+import jakarta.ws.rs.ClientErrorException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static com.comet.opik.domain.ProjectService.DEFAULT_USER;
+import static com.comet.opik.domain.ProjectService.DEFAULT_WORKSPACE_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IngestionBufferTest {
+
+    @Mock
+    private SpanDAO spanDAO;
+
+    @Mock
+    private TraceDAO traceDAO;
+
+    @Mock
+    private FeedbackScoreDAO feedbackScoreDAO;
+
+    @Mock
+    private TransactionTemplateAsync template;
+
+    private IngestionBufferImpl ingestionBuffer;
+
+    @AfterEach
+    void tearDown() {
+        if (ingestionBuffer != null) {
+            ingestionBuffer.stop();
+        }
+    }
+
+    private IngestionBufferImpl newBuffer(boolean enabled, int maxBatchSize, int capacity) {
+        var config = new IngestionBufferConfig();
+        config.setEnabled(enabled);
+        config.setMaxBatchSize(maxBatchSize);
+        config.setCapacity(capacity);
+        config.setFlushIntervalMs(60_000);
+
+        ingestionBuffer = new IngestionBufferImpl(config, spanDAO, traceDAO, feedbackScoreDAO, template);
+        ingestionBuffer.start();
+        return ingestionBuffer;
+    }
+
+    private Mono<Long> enqueue(IngestionBuffer buffer, String workspaceId, int size) {
+        return enqueue(buffer, workspaceId, IntStream.range(0, size)
+                .mapToObj(i -> Span.builder().id(UUID.randomUUID()).build())
+                .toList());
+    }
+
+    private Mono<Long> enqueue(IngestionBuffer buffer, String workspaceId, List<Span> spans) {
+        return buffer.enqueueSpans(spans)
+                .contextWrite(ctx -> ctx.put(RequestContext.USER_NAME, DEFAULT_USER)
+                        .put(RequestContext.WORKSPACE_ID, workspaceId)
+                        .put(RequestContext.WORKSPACE_NAME, DEFAULT_WORKSPACE_NAME));
+    }
+
+    @Test
+    @DisplayName("when buffer is disabled, then rows are inserted directly")
+    void enqueue__whenBufferIsDisabled__thenRowsAreInsertedDirectly() {
+        var buffer = newBuffer(false, 10, 100);
+        when(spanDAO.batchInsertRows(any())).thenReturn(Mono.just(2L));
+
+        var actual = enqueue(buffer, UUID.randomUUID().toString(), 2).block();
+
+        assertThat(actual).isEqualTo(2L);
+        verify(spanDAO, times(1)).batchInsertRows(any());
+    }
+
+    @Test
+    @DisplayName("when requests from different workspaces reach the batch size, then they are flushed as one insert")
+    @SuppressWarnings("unchecked")
+    void enqueue__whenRequestsReachBatchSize__thenTheyAreFlushedAsOneInsert() {
+        var buffer = newBuffer(true, 4, 100);
+        when(spanDAO.batchInsertRows(any())).thenAnswer(invocation -> {
+            List<IngestionRow<Span>> rows = invocation.getArgument(0);
+            return Mono.just((long) rows.size());
+        });
+
+        var workspaceA = UUID.randomUUID().toString();
+        var workspaceB = UUID.randomUUID().toString();
+
+        var first = enqueue(buffer, workspaceA, 2).toFuture();
+        var second = enqueue(buffer, workspaceB, 2).toFuture();
+
+        assertThat(Mono.fromFuture(first).block(Duration.ofSeconds(5))).isEqualTo(2L);
+        assertThat(Mono.fromFuture(second).block(Duration.ofSeconds(5))).isEqualTo(2L);
+
+        ArgumentCaptor<List<IngestionRow<Span>>> captor = ArgumentCaptor.forClass(List.class);
+        verify(spanDAO, times(1)).batchInsertRows(captor.capture());
+
+        assertThat(captor.getValue())
+                .extracting(IngestionRow::workspaceId)
+                .containsExactly(workspaceA, workspaceA, workspaceB, workspaceB);
+    }
+
+    @Test
+    @DisplayName("when the same id is enqueued twice before a flush, then only the last row is inserted")
+    @SuppressWarnings("unchecked")
+    void enqueue__whenSameIdBeforeFlush__thenOnlyTheLastRowIsInserted() {
+        var buffer = newBuffer(true, 3, 100);
+        when(spanDAO.batchInsertRows(any())).thenAnswer(invocation -> {
+            List<IngestionRow<Span>> rows = invocation.getArgument(0);
+            return Mono.just((long) rows.size());
+        });
+
+        var workspaceId = UUID.randomUUID().toString();
+        var id = UUID.randomUUID();
+        var first = Span.builder().id(id).name("first").build();
+        var last = Span.builder().id(id).name("last").build();
+        var other = Span.builder().id(UUID.randomUUID()).name("other").build();
+
+        var firstRequest = enqueue(buffer, workspaceId, List.of(first, other)).toFuture();
+        var lastRequest = enqueue(buffer, workspaceId, List.of(last)).toFuture();
+
+        assertThat(Mono.fromFuture(firstRequest).block(Duration.ofSeconds(5))).isEqualTo(2L);
+        assertThat(Mono.fromFuture(lastRequest).block(Duration.ofSeconds(5))).isEqualTo(1L);
+
+        ArgumentCaptor<List<IngestionRow<Span>>> captor = ArgumentCaptor.forClass(List.class);
+        verify(spanDAO, times(1)).batchInsertRows(captor.capture());
+
+        assertThat(captor.getValue())
+                .extracting(IngestionRow::value)
+                .containsExactly(last, other);
+    }
+
+    @Test
+    @DisplayName("when buffer is full, then reject with too many requests")
+    void enqueue__whenBufferIsFull__thenRejectWithTooManyRequests() {
+        var buffer = newBuffer(true, 10, 3);
+
+        assertThatThrownBy(() -> enqueue(buffer, UUID.randomUUID().toString(), 4).block())
+                .isInstanceOf(ClientErrorException.class)
+                .satisfies(e -> assertThat(((ClientErrorException) e).getResponse().getStatus()).isEqualTo(429));
+
+        verifyNoInteractions(spanDAO);
+    }
+}
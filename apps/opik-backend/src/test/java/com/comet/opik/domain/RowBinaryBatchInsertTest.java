@@ -0,0 +1,200 @@
+package com.comet.opik.domain;
+
+import com.clickhouse.client.ClickHouseClient;
+import com.clickhouse.client.ClickHouseProtocol;
+import com.comet.opik.api.Span;
+import com.comet.opik.api.Trace;
+import com.comet.opik.api.resources.utils.ClickHouseContainerUtils;
+import com.comet.opik.api.resources.utils.MigrationUtils;
+import com.comet.opik.domain.cost.ModelPriceRegistry;
+import com.comet.opik.domain.filter.FilterQueryBuilder;
+import com.comet.opik.infrastructure.ModelPricesConfig;
+import com.comet.opik.infrastructure.auth.RequestContext;
+import com.comet.opik.infrastructure.db.RowBinaryInsertTemplate;
+import com.comet.opik.infrastructure.db.TransactionTemplateAsync;
+import com.comet.opik.podam.PodamFactoryUtils;
+import com.comet.opik.utils.JsonUtils;
+import com.comet.opik.utils.RawJsonNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.uuid.Generators;
+import io.r2dbc.pool.ConnectionPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.clickhouse.ClickHouseContainer;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import uk.co.jemos.podam.api.PodamFactory;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.comet.opik.api.resources.utils.ClickHouseContainerUtils.DATABASE_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rows bulk inserted in RowBinary must read back as the same rows bulk inserted through the VALUES clause.
+ */
+class RowBinaryBatchInsertTest {
+
+    private static final ClickHouseContainer CLICK_HOUSE_CONTAINER = ClickHouseContainerUtils.newClickHouseContainer();
+    private static final String WORKSPACE_ID = "workspace-" + UUID.randomUUID();
+    private static final String[] INSERT_GENERATED_FIELDS = {"id", "createdAt", "lastUpdatedAt"};
+
+    private static ConnectionPool connectionPool;
+    private static ClickHouseClient clickHouseClient;
+    private static TransactionTemplateAsync template;
+    private static TraceDAO valuesTraceDAO;
+    private static TraceDAO rowBinaryTraceDAO;
+    private static SpanDAO valuesSpanDAO;
+    private static SpanDAO rowBinarySpanDAO;
+
+    private final PodamFactory podamFactory = PodamFactoryUtils.newPodamFactory();
+
+    @BeforeAll
+    static void beforeAll() throws SQLException {
+        CLICK_HOUSE_CONTAINER.start();
+        try (var connection = CLICK_HOUSE_CONTAINER.createConnection("")) {
+            MigrationUtils.runDbMigration(connection, MigrationUtils.CLICKHOUSE_CHANGELOG_FILE,
+                    ClickHouseContainerUtils.migrationParameters());
+        }
+
+        var databaseAnalyticsFactory = ClickHouseContainerUtils
+                .newDatabaseAnalyticsFactory(CLICK_HOUSE_CONTAINER, DATABASE_NAME);
+        connectionPool = databaseAnalyticsFactory.build();
+        clickHouseClient = ClickHouseClient.newInstance(ClickHouseProtocol.HTTP);
+        template = TransactionTemplateAsync.create(connectionPool);
+
+        var values = RowBinaryInsertTemplate.create(false, clickHouseClient, databaseAnalyticsFactory.buildNode());
+        var rowBinary = RowBinaryInsertTemplate.create(true, clickHouseClient, databaseAnalyticsFactory.buildNode());
+        var feedbackScoreDAO = new FeedbackScoreDAOImpl(template);
+        var filterQueryBuilder = new FilterQueryBuilder();
+        var modelPriceRegistry = new ModelPriceRegistry(new ModelPricesConfig());
+
+        valuesTraceDAO = new TraceDAOImpl(feedbackScoreDAO, filterQueryBuilder, template, values);
+        rowBinaryTraceDAO = new TraceDAOImpl(feedbackScoreDAO, filterQueryBuilder, template, rowBinary);
+        valuesSpanDAO = new SpanDAO(connectionPool, feedbackScoreDAO, filterQueryBuilder, values,
+                modelPriceRegistry, new TraceSummaryDAO());
+        rowBinarySpanDAO = new SpanDAO(connectionPool, feedbackScoreDAO, filterQueryBuilder, rowBinary,
+                modelPriceRegistry, new TraceSummaryDAO());
+    }
+
+    @AfterAll
+    static void afterAll() {
+        clickHouseClient.close();
+        connectionPool.dispose();
+        CLICK_HOUSE_CONTAINER.stop();
+    }
+
+    private static <T> T withWorkspace(Mono<T> mono) {
+        return mono.contextWrite(Context.of(RequestContext.WORKSPACE_ID, WORKSPACE_ID,
+                RequestContext.USER_NAME, "user"))
+                .block();
+    }
+
+    private Span span() {
+        return podamFactory.manufacturePojo(Span.class).toBuilder()
+                .input(JsonUtils.getJsonNodeFromString("""
+                        {"messages": [{"role": "user", "content": "Quoted \\"text\\", unicode ✓ and\\nnew lines"}]}
+                        """))
+                .usage(Map.of("prompt_tokens", 12, "completion_tokens", 0, "total_tokens", Integer.MAX_VALUE))
+                .model("gpt-4o")
+                .provider("openai")
+                .build();
+    }
+
+    private Trace trace() {
+        return podamFactory.manufacturePojo(Trace.class).toBuilder()
+                .input(JsonUtils.getJsonNodeFromString("""
+                        {"question": "Quoted \\"text\\", unicode ✓ and\\nnew lines", "nested": {"list": [1, 2.5, null]}}
+                        """))
+                .build();
+    }
+
+    // inserts the span through both paths, under new ids, and reads both back through the same query
+    private Span assertSpanRoundTrip(Span span) {
+        var valuesSpan = span.toBuilder().id(Generators.timeBasedEpochGenerator().generate()).build();
+        var rowBinarySpan = span.toBuilder().id(Generators.timeBasedEpochGenerator().generate()).build();
+
+        assertThat(withWorkspace(valuesSpanDAO.batchInsert(List.of(valuesSpan)))).isEqualTo(1L);
+        assertThat(withWorkspace(rowBinarySpanDAO.batchInsert(List.of(rowBinarySpan)))).isEqualTo(1L);
+
+        var expected = withWorkspace(valuesSpanDAO.getById(valuesSpan.id()));
+        var actual = withWorkspace(valuesSpanDAO.getById(rowBinarySpan.id()));
+
+        assertThat(actual)
+                .usingRecursiveComparison()
+                .withEqualsForType(RawJsonNode::equals, RawJsonNode.class)
+                .ignoringFields(INSERT_GENERATED_FIELDS)
+                .isEqualTo(expected);
+        return actual;
+    }
+
+    private Trace assertTraceRoundTrip(Trace trace) {
+        var valuesTrace = trace.toBuilder().id(Generators.timeBasedEpochGenerator().generate()).build();
+        var rowBinaryTrace = trace.toBuilder().id(Generators.timeBasedEpochGenerator().generate()).build();
+
+        assertThat(withWorkspace(template.nonTransaction(
+                connection -> valuesTraceDAO.batchInsert(List.of(valuesTrace), connection)))).isEqualTo(1L);
+        assertThat(withWorkspace(template.nonTransaction(
+                connection -> rowBinaryTraceDAO.batchInsert(List.of(rowBinaryTrace), connection)))).isEqualTo(1L);
+
+        var expected = withWorkspace(template.nonTransaction(
+                connection -> valuesTraceDAO.findById(valuesTrace.id(), connection)));
+        var actual = withWorkspace(template.nonTransaction(
+                connection -> valuesTraceDAO.findById(rowBinaryTrace.id(), connection)));
+
+        assertThat(actual)
+                .usingRecursiveComparison()
+                .ignoringFields(INSERT_GENERATED_FIELDS)
+                .isEqualTo(expected);
+        return actual;
+    }
+
+    @Test
+    void batchInsertSpans__whenRowBinary__thenReadBackAsValues() {
+        var span = span();
+
+        var actual = assertSpanRoundTrip(span);
+
+        assertThat(actual.usage()).isEqualTo(span.usage());
+        assertThat(actual.input().<JsonNode>deepCopy()).isEqualTo(span.input());
+    }
+
+    @Test
+    void batchInsertSpans__whenRowBinaryAndNullableColumnsAreNull__thenReadBackAsValues() {
+        assertSpanRoundTrip(span().toBuilder()
+                .parentSpanId(null)
+                .endTime(null)
+                .input(null)
+                .output(null)
+                .metadata(null)
+                .model(null)
+                .provider(null)
+                .tags(null)
+                .usage(null)
+                .build());
+    }
+
+    @Test
+    void batchInsertTraces__whenRowBinary__thenReadBackAsValues() {
+        var trace = trace();
+
+        var actual = assertTraceRoundTrip(trace);
+
+        assertThat(actual.input()).isEqualTo(trace.input());
+    }
+
+    @Test
+    void batchInsertTraces__whenRowBinaryAndNullableColumnsAreNull__thenReadBackAsValues() {
+        assertTraceRoundTrip(trace().toBuilder()
+                .endTime(null)
+                .input(null)
+                .output(null)
+                .metadata(null)
+                .tags(null)
+                .build());
+    }
+}
@@ -1,10 +1,15 @@
 package com.comet.opik.domain;
 
+import com.clickhouse.client.ClickHouseClient;
+import com.clickhouse.client.ClickHouseProtocol;
 import com.comet.opik.api.Span;
 import com.comet.opik.api.SpanSearchCriteria;
 import com.comet.opik.api.resources.utils.ClickHouseContainerUtils;
 import com.comet.opik.api.resources.utils.MigrationUtils;
+import com.comet.opik.domain.cost.ModelPriceRegistry;
 import com.comet.opik.domain.filter.FilterQueryBuilder;
+import com.comet.opik.infrastructure.ModelPricesConfig;
+import com.comet.opik.infrastructure.db.RowBinaryInsertTemplate;
 import com.comet.opik.infrastructure.db.TransactionTemplateAsync;
 import com.comet.opik.podam.PodamFactoryUtils;
 import com.fasterxml.uuid.Generators;
@@ -41,14 +46,18 @@ class SpanDAOTest {
                     ClickHouseContainerUtils.migrationParameters());
         }
 
-        ConnectionFactory factory = ClickHouseContainerUtils
-                .newDatabaseAnalyticsFactory(CLICK_HOUSE_CONTAINER, ClickHouseContainerUtils.DATABASE_NAME)
-                .build();
+        var databaseAnalyticsFactory = ClickHouseContainerUtils
+                .newDatabaseAnalyticsFactory(CLICK_HOUSE_CONTAINER, ClickHouseContainerUtils.DATABASE_NAME);
+        ConnectionFactory factory = databaseAnalyticsFactory.build();
 
         spanDAO = new SpanDAO(
                 factory,
                 new FeedbackScoreDAOImpl(TransactionTemplateAsync.create(factory)),
-                new FilterQueryBuilder());
+                new FilterQueryBuilder(),
+                RowBinaryInsertTemplate.create(false, ClickHouseClient.newInstance(ClickHouseProtocol.HTTP),
+                        databaseAnalyticsFactory.buildNode()),
+                new ModelPriceRegistry(new ModelPricesConfig()),
+                new TraceSummaryDAO());
     }
 
     @AfterAll
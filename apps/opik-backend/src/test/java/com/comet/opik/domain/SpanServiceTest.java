@@ -2,6 +2,12 @@ package com.comet.opik.domain;
 
 import com.comet.opik.api.SpanUpdate;
 import com.comet.opik.api.error.InvalidUUIDVersionException;
+import com.comet.opik.domain.stats.ProjectStatsCache;
+import com.comet.opik.infrastructure.AttachmentsConfig;
+import com.comet.opik.infrastructure.DistributedLockConfig;
+import com.comet.opik.infrastructure.StatsCacheConfig;
+import com.comet.opik.infrastructure.attachment.AttachmentStore;
+import com.comet.opik.infrastructure.cache.SharedResultCache;
 import com.comet.opik.infrastructure.lock.LockService;
 import com.comet.opik.podam.PodamFactoryUtils;
 import com.fasterxml.uuid.Generators;
@@ -31,10 +37,14 @@ class SpanServiceTest {
 
     private final SpanDAO spanDAO = mock(SpanDAO.class);
     private final ProjectService projectService = mock(ProjectService.class);
+    private final IngestionBuffer ingestionBuffer = mock(IngestionBuffer.class);
+    private final AttachmentService attachmentService = new AttachmentService(new AttachmentsConfig(),
+            mock(AttachmentStore.class));
+    private final ProjectStatsCache statsCache = newDisabledStatsCache();
 
     private final TimeBasedEpochGenerator generator = Generators.timeBasedEpochGenerator();
     private final SpanService spanService = new SpanService(spanDAO, projectService, generator::generate,
-            DUMMY_LOCK_SERVICE);
+            DUMMY_LOCK_SERVICE, ingestionBuffer, attachmentService, statsCache, new DistributedLockConfig());
 
     @Test
     void allPublicConstructors() {
@@ -148,4 +158,10 @@ class SpanServiceTest {
         verify(spanDAO).getById(id);
         verifyNoMoreInteractions(spanDAO);
     }
+
+    private static ProjectStatsCache newDisabledStatsCache() {
+        var config = new StatsCacheConfig();
+        config.setEnabled(false);
+        return new ProjectStatsCache(config, mock(SharedResultCache.class));
+    }
 }
@@ -0,0 +1,70 @@
+package com.comet.opik.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamerTest {
+
+    record Item(String itemName, Integer value) {
+    }
+
+    private final Streamer streamer = new Streamer();
+
+    @Test
+    @DisplayName("when items are streamed, then each one is written as a snake case document followed by the delimiter")
+    void write__whenItemsAreStreamed__thenWriteDelimitedDocuments() throws IOException {
+        var outputStream = new ByteArrayOutputStream();
+
+        streamer.write(Flux.just(new Item("first", 1), new Item("second", null)), outputStream);
+
+        assertThat(outputStream.toString(StandardCharsets.UTF_8))
+                .isEqualTo("{\"item_name\":\"first\",\"value\":1}\r\n{\"item_name\":\"second\"}\r\n");
+    }
+
+    @Test
+    @DisplayName("when the items time out, then the items already emitted are followed by an error message")
+    void write__whenItemsTimeOut__thenWriteErrorMessageAfterTheItems() throws IOException {
+        var outputStream = new ByteArrayOutputStream();
+
+        streamer.write(Flux.just(new Item("first", 1)).concatWith(Flux.error(new TimeoutException())), outputStream);
+
+        assertThat(outputStream.toString(StandardCharsets.UTF_8))
+                .isEqualTo("{\"item_name\":\"first\",\"value\":1}\r\n"
+                        + "{\"code\":500,\"message\":\"Streaming operation timed out\"}\r\n");
+    }
+
+    @Test
+    @DisplayName("when the client is gone, then stop requesting items and cancel the source")
+    void write__whenClientIsGone__thenCancelTheSource() {
+        var requested = new AtomicLong();
+        var cancelled = new AtomicBoolean();
+        var items = Flux.range(0, 100_000)
+                .map(i -> new Item("item", i))
+                .doOnRequest(requested::addAndGet)
+                .doOnCancel(() -> cancelled.set(true));
+
+        var brokenPipe = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThatThrownBy(() -> streamer.write(items, brokenPipe)).isInstanceOf(IOException.class);
+
+        assertThat(cancelled).isTrue();
+        assertThat(requested.get()).isLessThan(100_000);
+    }
+}
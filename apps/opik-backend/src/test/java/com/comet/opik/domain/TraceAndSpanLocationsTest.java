@@ -0,0 +1,325 @@
+package com.comet.opik.domain;
+
+import com.clickhouse.client.ClickHouseClient;
+import com.clickhouse.client.ClickHouseProtocol;
+import com.comet.opik.api.Span;
+import com.comet.opik.api.SpanUpdate;
+import com.comet.opik.api.Trace;
+import com.comet.opik.api.TraceUpdate;
+import com.comet.opik.api.resources.utils.ClickHouseContainerUtils;
+import com.comet.opik.api.resources.utils.MigrationUtils;
+import com.comet.opik.domain.cost.ModelPriceRegistry;
+import com.comet.opik.domain.filter.FilterQueryBuilder;
+import com.comet.opik.infrastructure.ModelPricesConfig;
+import com.comet.opik.infrastructure.auth.RequestContext;
+import com.comet.opik.infrastructure.db.RowBinaryInsertTemplate;
+import com.comet.opik.infrastructure.db.TransactionTemplateAsync;
+import com.comet.opik.podam.PodamFactoryUtils;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Result;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.clickhouse.ClickHouseContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import uk.co.jemos.podam.api.PodamFactory;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.comet.opik.api.resources.utils.ClickHouseContainerUtils.DATABASE_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Point queries by id of the trace and span DAOs, which find the sorting key of the row in trace_locations or
+ * span_locations first, for rows with a location and for rows written before the location tables, which have none.
+ */
+class TraceAndSpanLocationsTest {
+
+    private static final ClickHouseContainer CLICK_HOUSE_CONTAINER = ClickHouseContainerUtils.newClickHouseContainer();
+    private static final String WORKSPACE_ID = "workspace-" + UUID.randomUUID();
+
+    // synchronous, so the next query no longer sees the location
+    private static final String DELETE_LOCATION = """
+            ALTER TABLE %s DELETE WHERE id = '%s' SETTINGS mutations_sync = 2
+            """;
+
+    private static final int OTHER_GRANULES = 16;
+    private static final int ROWS_PER_GRANULE = 8192;
+
+    // one project per row, so only the location can tell the granule of an id
+    private static final String INSERT_OTHER_TRACES = """
+            INSERT INTO traces (id, workspace_id, project_id, name, start_time)
+            SELECT
+                toString(generateUUIDv4(1)),
+                '%1$s',
+                toString(generateUUIDv4(2)),
+                'other',
+                now64(9)
+            FROM numbers(%2$d)
+            """;
+
+    private static final String INSERT_OTHER_SPANS = """
+            INSERT INTO spans (id, workspace_id, project_id, trace_id, name, type, start_time)
+            SELECT
+                toString(generateUUIDv4(1)),
+                '%1$s',
+                toString(generateUUIDv4(2)),
+                toString(generateUUIDv4(3)),
+                'other',
+                'general',
+                now64(9)
+            FROM numbers(%2$d)
+            """;
+
+    // the parameters are replaced in the text of the query before it's sent
+    private static final String SELECTED_MARKS = """
+            SELECT toString(max(ProfileEvents['SelectedMarks']))
+            FROM system.query_log
+            WHERE type = 'QueryFinish'
+            AND query_kind = 'Select'
+            AND query LIKE '%%%s%%'
+            AND query NOT LIKE '%%query_log%%'
+            """;
+
+    private static ConnectionPool connectionPool;
+    private static ClickHouseClient clickHouseClient;
+    private static TransactionTemplateAsync template;
+    private static TraceDAO traceDAO;
+    private static SpanDAO spanDAO;
+
+    private final PodamFactory podamFactory = PodamFactoryUtils.newPodamFactory();
+
+    @BeforeAll
+    static void beforeAll() throws SQLException {
+        CLICK_HOUSE_CONTAINER.start();
+        try (var connection = CLICK_HOUSE_CONTAINER.createConnection("")) {
+            MigrationUtils.runDbMigration(connection, MigrationUtils.CLICKHOUSE_CHANGELOG_FILE,
+                    ClickHouseContainerUtils.migrationParameters());
+        }
+
+        var databaseAnalyticsFactory = ClickHouseContainerUtils
+                .newDatabaseAnalyticsFactory(CLICK_HOUSE_CONTAINER, DATABASE_NAME);
+        connectionPool = databaseAnalyticsFactory.build();
+        clickHouseClient = ClickHouseClient.newInstance(ClickHouseProtocol.HTTP);
+        template = TransactionTemplateAsync.create(connectionPool);
+
+        var rowBinaryInsertTemplate = RowBinaryInsertTemplate.create(false, clickHouseClient,
+                databaseAnalyticsFactory.buildNode());
+        var feedbackScoreDAO = new FeedbackScoreDAOImpl(template);
+        var filterQueryBuilder = new FilterQueryBuilder();
+        traceDAO = new TraceDAOImpl(feedbackScoreDAO, filterQueryBuilder, template, rowBinaryInsertTemplate);
+        spanDAO = new SpanDAO(connectionPool, feedbackScoreDAO, filterQueryBuilder, rowBinaryInsertTemplate,
+                new ModelPriceRegistry(new ModelPricesConfig()), new TraceSummaryDAO());
+    }
+
+    @AfterAll
+    static void afterAll() {
+        clickHouseClient.close();
+        connectionPool.dispose();
+        CLICK_HOUSE_CONTAINER.stop();
+    }
+
+    private static <T> T withWorkspace(Mono<T> mono) {
+        return mono.contextWrite(Context.of(RequestContext.WORKSPACE_ID, WORKSPACE_ID,
+                RequestContext.USER_NAME, "user"))
+                .block();
+    }
+
+    private static void execute(String sql) {
+        Flux.usingWhen(connectionPool.create(),
+                connection -> Flux.from(connection.createStatement(sql).execute()).flatMap(Result::getRowsUpdated),
+                Connection::close)
+                .then()
+                .block();
+    }
+
+    private static String query(String sql) {
+        return Flux.usingWhen(connectionPool.create(),
+                connection -> Flux.from(connection.createStatement(sql).execute())
+                        .flatMap(result -> result.map((row, rowMetadata) -> row.get(0, String.class))),
+                Connection::close)
+                .blockFirst();
+    }
+
+    // Time based ids of the epoch, older than any id with a location
+    private static UUID idWrittenBeforeLocations() {
+        return UUID.fromString("00000000-0000-7000-8000-%012x"
+                .formatted(ThreadLocalRandom.current().nextLong(1L << 48)));
+    }
+
+    @Test
+    void pointQueries__whenLocated__thenReadOnlyTheGranulesOfTheirProject() {
+        execute(INSERT_OTHER_TRACES.formatted(WORKSPACE_ID, OTHER_GRANULES * ROWS_PER_GRANULE));
+        execute(INSERT_OTHER_SPANS.formatted(WORKSPACE_ID, OTHER_GRANULES * ROWS_PER_GRANULE));
+
+        var projectId = UUID.randomUUID();
+        var trace = podamFactory.manufacturePojo(Trace.class).toBuilder()
+                .projectId(projectId)
+                .build();
+        var span = podamFactory.manufacturePojo(Span.class).toBuilder()
+                .projectId(projectId)
+                .traceId(trace.id())
+                .build();
+        withWorkspace(template.nonTransaction(connection -> traceDAO.insert(trace, connection)));
+        withWorkspace(spanDAO.insert(span));
+
+        assertThat(withWorkspace(template.nonTransaction(connection -> traceDAO.findById(trace.id(), connection)))
+                .projectId()).isEqualTo(projectId);
+        assertThat(withWorkspace(spanDAO.getById(span.id())).projectId()).isEqualTo(projectId);
+
+        execute("SYSTEM FLUSH LOGS");
+
+        // reading the workspace would select every granule of the other projects
+        assertThat(Integer.parseInt(query(SELECTED_MARKS.formatted(trace.id())))).isLessThan(OTHER_GRANULES);
+        assertThat(Integer.parseInt(query(SELECTED_MARKS.formatted(span.id())))).isLessThan(OTHER_GRANULES);
+    }
+
+    abstract class PointQueries {
+
+        abstract UUID id();
+
+        @Test
+        void traceQueries__thenResolveTheTrace() {
+            var projectId = UUID.randomUUID();
+            var trace = podamFactory.manufacturePojo(Trace.class).toBuilder()
+                    .id(id())
+                    .projectId(projectId)
+                    .build();
+            insertTrace(trace);
+
+            assertThat(findTrace(trace.id()).projectId()).isEqualTo(projectId);
+            assertThat(withWorkspace(template.nonTransaction(
+                    connection -> traceDAO.getTraceWorkspace(Set.of(trace.id()), connection))))
+                    .containsExactly(new WorkspaceAndResourceId(WORKSPACE_ID, trace.id()));
+            assertThat(withWorkspace(traceDAO.getProjectIdFromTraces(Set.of(trace.id()))))
+                    .isEqualTo(Map.of(trace.id(), projectId));
+
+            var update = TraceUpdate.builder().projectId(projectId).tags(Set.of("updated")).build();
+            withWorkspace(template.nonTransaction(connection -> traceDAO.update(update, trace.id(), connection)));
+            written("trace_locations", trace.id());
+
+            assertThat(findTrace(trace.id()).tags()).containsExactly("updated");
+
+            // a second insert of the same id is merged with the latest row
+            insertTrace(trace);
+
+            assertThat(findTrace(trace.id()).projectId()).isEqualTo(projectId);
+        }
+
+        @Test
+        void tracePartialInsert__thenResolveTheTrace() {
+            var projectId = UUID.randomUUID();
+            var id = id();
+            var update = TraceUpdate.builder().projectId(projectId).tags(Set.of("partial")).build();
+
+            withWorkspace(template.nonTransaction(connection -> traceDAO.partialInsert(projectId, update, id,
+                    connection)));
+            written("trace_locations", id);
+
+            var trace = findTrace(id);
+            assertThat(trace.projectId()).isEqualTo(projectId);
+            assertThat(trace.tags()).containsExactly("partial");
+        }
+
+        @Test
+        void spanQueries__thenResolveTheSpan() {
+            var projectId = UUID.randomUUID();
+            var span = podamFactory.manufacturePojo(Span.class).toBuilder()
+                    .id(id())
+                    .projectId(projectId)
+                    .build();
+            insertSpan(span);
+
+            assertThat(withWorkspace(spanDAO.getById(span.id())).traceId()).isEqualTo(span.traceId());
+            assertThat(withWorkspace(spanDAO.getSpanWorkspace(Set.of(span.id()))))
+                    .containsExactly(new WorkspaceAndResourceId(WORKSPACE_ID, span.id()));
+            assertThat(withWorkspace(spanDAO.getProjectIdFromSpans(Set.of(span.id()))))
+                    .isEqualTo(Map.of(span.id(), projectId));
+
+            var update = SpanUpdate.builder()
+                    .projectId(projectId)
+                    .traceId(span.traceId())
+                    .tags(Set.of("updated"))
+                    .build();
+            withWorkspace(spanDAO.update(span.id(), update));
+            written("span_locations", span.id());
+
+            assertThat(withWorkspace(spanDAO.getById(span.id())).tags()).containsExactly("updated");
+
+            // a second insert of the same id is merged with the latest row
+            insertSpan(span);
+
+            assertThat(withWorkspace(spanDAO.getById(span.id())).traceId()).isEqualTo(span.traceId());
+        }
+
+        @Test
+        void spanPartialInsert__thenResolveTheSpan() {
+            var projectId = UUID.randomUUID();
+            var id = id();
+            var update = SpanUpdate.builder()
+                    .projectId(projectId)
+                    .traceId(UUID.randomUUID())
+                    .tags(Set.of("partial"))
+                    .build();
+
+            withWorkspace(spanDAO.partialInsert(id, projectId, update));
+            written("span_locations", id);
+
+            var span = withWorkspace(spanDAO.getById(id));
+            assertThat(span.traceId()).isEqualTo(update.traceId());
+            assertThat(span.tags()).containsExactly("partial");
+        }
+
+        abstract void written(String locations, UUID id);
+
+        void insertTrace(Trace trace) {
+            withWorkspace(template.nonTransaction(connection -> traceDAO.insert(trace, connection)));
+            written("trace_locations", trace.id());
+        }
+
+        void insertSpan(Span span) {
+            withWorkspace(spanDAO.insert(span));
+            written("span_locations", span.id());
+        }
+
+        Trace findTrace(UUID id) {
+            return withWorkspace(template.nonTransaction(connection -> traceDAO.findById(id, connection)));
+        }
+    }
+
+    @Nested
+    class WithLocation extends PointQueries {
+
+        @Override
+        UUID id() {
+            return podamFactory.manufacturePojo(UUID.class);
+        }
+
+        @Override
+        void written(String locations, UUID id) {
+        }
+    }
+
+    @Nested
+    class WrittenBeforeLocations extends PointQueries {
+
+        @Override
+        UUID id() {
+            return idWrittenBeforeLocations();
+        }
+
+        // every write adds the location back through the views
+        @Override
+        void written(String locations, UUID id) {
+            execute(DELETE_LOCATION.formatted(locations, id));
+        }
+    }
+}
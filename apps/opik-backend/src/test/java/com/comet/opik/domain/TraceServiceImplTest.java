@@ -6,7 +6,13 @@ import com.comet.opik.api.TraceSearchCriteria;
 import com.comet.opik.api.error.EntityAlreadyExistsException;
 import com.comet.opik.api.error.ErrorMessage;
 import com.comet.opik.api.error.InvalidUUIDVersionException;
+import com.comet.opik.domain.stats.ProjectStatsCache;
+import com.comet.opik.infrastructure.AttachmentsConfig;
+import com.comet.opik.infrastructure.DistributedLockConfig;
+import com.comet.opik.infrastructure.StatsCacheConfig;
+import com.comet.opik.infrastructure.attachment.AttachmentStore;
 import com.comet.opik.infrastructure.auth.RequestContext;
+import com.comet.opik.infrastructure.cache.SharedResultCache;
 import com.comet.opik.infrastructure.db.TransactionTemplateAsync;
 import com.comet.opik.infrastructure.lock.LockService;
 import com.fasterxml.uuid.Generators;
@@ -34,6 +40,9 @@ import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -58,6 +67,13 @@ class TraceServiceImplTest {
     @Mock
     private ProjectService projectService;
 
+    @Mock
+    private IngestionBuffer ingestionBuffer;
+
+    private final AttachmentService attachmentService = new AttachmentService(new AttachmentsConfig(),
+            mock(AttachmentStore.class));
+    private final ProjectStatsCache statsCache = newDisabledStatsCache();
+
     private final PodamFactory factory = new PodamFactoryImpl();
 
     @BeforeEach
@@ -69,7 +85,11 @@ class TraceServiceImplTest {
                 template,
                 projectService,
                 () -> Generators.timeBasedEpochGenerator().generate(),
-                DUMMY_LOCK_SERVICE);
+                DUMMY_LOCK_SERVICE,
+                ingestionBuffer,
+                attachmentService,
+                statsCache,
+                new DistributedLockConfig());
     }
 
     @Nested
@@ -119,6 +139,53 @@ class TraceServiceImplTest {
             Assertions.assertEquals(traceId, actualResult);
         }
 
+        @Test
+        @DisplayName("when lock free upserts are enabled, then insert without locking or reading the existing trace")
+        void create__whenLockFreeUpsertsAreEnabled__thenInsertWithoutLockingOrReadingTheExistingTrace() {
+
+            // given
+            var projectName = "projectName";
+            var traceId = Generators.timeBasedEpochGenerator().generate();
+            var connection = mock(Connection.class);
+            var lockService = mock(LockService.class);
+            String workspaceId = UUID.randomUUID().toString();
+
+            var distributedLockConfig = new DistributedLockConfig();
+            distributedLockConfig.setLockFreeUpserts(true);
+
+            var lockFreeTraceService = new TraceServiceImpl(traceDao, spanDAO, feedbackScoreDAO, template,
+                    projectService, () -> traceId, lockService, ingestionBuffer, attachmentService,
+                    statsCache, distributedLockConfig);
+
+            // when
+            when(projectService.getOrCreate(workspaceId, projectName, DEFAULT_USER))
+                    .thenReturn(Project.builder().id(UUID.randomUUID()).name(projectName).build());
+
+            when(template.nonTransaction(any()))
+                    .thenAnswer(invocation -> {
+                        TransactionTemplateAsync.TransactionCallback<String> trace = invocation.getArgument(0);
+
+                        return trace.execute(connection);
+                    });
+
+            when(traceDao.insert(any(), any()))
+                    .thenReturn(Mono.just(traceId));
+
+            var actualResult = lockFreeTraceService.create(Trace.builder()
+                    .projectName(projectName)
+                    .startTime(Instant.now())
+                    .build())
+                    .contextWrite(ctx -> ctx.put(RequestContext.USER_NAME, DEFAULT_USER)
+                            .put(RequestContext.WORKSPACE_ID, workspaceId)
+                            .put(RequestContext.WORKSPACE_NAME, DEFAULT_WORKSPACE_NAME))
+                    .block();
+
+            // then
+            Assertions.assertEquals(traceId, actualResult);
+            verify(traceDao, never()).findById(any(), any());
+            verifyNoInteractions(lockService);
+        }
+
         @Test
         @DisplayName("when creating traces with uuid version not 7, then return invalid uuid version exception")
         void create__whenCreatingTracesWithUUIDVersionNot7__thenReturnInvalidUUIDVersionException() {
@@ -190,11 +257,13 @@ class TraceServiceImplTest {
             when(traceDao.find(anyInt(), anyInt(),
                     eq(TraceSearchCriteria.builder().projectId(projectId).build()),
                     any()))
-                    .thenReturn(Mono.just(new Trace.TracePage(1, 1, 1, List.of(trace))));
+                    .thenReturn(Mono.just(List.of(trace)));
+            when(traceDao.countTotal(eq(TraceSearchCriteria.builder().projectId(projectId).build()), any()))
+                    .thenReturn(Mono.just(1L));
 
             when(template.nonTransaction(any()))
                     .thenAnswer(invocation -> {
-                        TransactionTemplateAsync.TransactionCallback<Trace.TracePage> callback = invocation
+                        TransactionTemplateAsync.TransactionCallback<?> callback = invocation
                                 .getArgument(0);
 
                         return callback.execute(connection);
@@ -213,4 +282,10 @@ class TraceServiceImplTest {
         }
     }
 
-}
\ No newline at end of file
+
+    private static ProjectStatsCache newDisabledStatsCache() {
+        var config = new StatsCacheConfig();
+        config.setEnabled(false);
+        return new ProjectStatsCache(config, mock(SharedResultCache.class));
+    }
+}
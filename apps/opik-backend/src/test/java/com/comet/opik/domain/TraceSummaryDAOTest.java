@@ -0,0 +1,153 @@
+package com.comet.opik.domain;
+
+import com.comet.opik.api.resources.utils.ClickHouseContainerUtils;
+import com.comet.opik.api.resources.utils.MigrationUtils;
+import com.fasterxml.uuid.Generators;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.clickhouse.ClickHouseContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceSummaryDAOTest {
+
+    private static final ClickHouseContainer CLICK_HOUSE_CONTAINER = ClickHouseContainerUtils.newClickHouseContainer();
+    private static final String WORKSPACE_ID = "workspace-id";
+
+    private static final String INSERT_SPAN = """
+            INSERT INTO spans (id, workspace_id, project_id, trace_id, name, type, start_time, end_time, usage,
+                               last_updated_at)
+            VALUES (:id, :workspace_id, :project_id, :trace_id, 'span', 'llm',
+                    parseDateTime64BestEffort(:start_time, 9), parseDateTime64BestEffort(:end_time, 9),
+                    map('total_tokens', toInt32(:total_tokens)), parseDateTime64BestEffort(:last_updated_at, 9))
+            """;
+
+    // synchronous, so the next refresh no longer reads the deleted version
+    private static final String DELETE_SPAN_VERSION = """
+            ALTER TABLE spans DELETE
+            WHERE id = :id AND last_updated_at = parseDateTime64BestEffort(:last_updated_at, 9)
+            SETTINGS mutations_sync = 2
+            """;
+
+    private static final String SELECT_TOTAL_TOKENS = """
+            SELECT usage['total_tokens'] AS total_tokens
+            FROM trace_summaries FINAL
+            WHERE workspace_id = :workspace_id AND trace_id = :trace_id
+            """;
+
+    private static ConnectionFactory connectionFactory;
+
+    private final TraceSummaryDAO traceSummaryDAO = new TraceSummaryDAO();
+
+    @BeforeAll
+    static void beforeAll() throws SQLException {
+        CLICK_HOUSE_CONTAINER.start();
+        try (var connection = CLICK_HOUSE_CONTAINER.createConnection("")) {
+            MigrationUtils.runDbMigration(connection, MigrationUtils.CLICKHOUSE_CHANGELOG_FILE,
+                    ClickHouseContainerUtils.migrationParameters());
+        }
+
+        connectionFactory = ClickHouseContainerUtils
+                .newDatabaseAnalyticsFactory(CLICK_HOUSE_CONTAINER, ClickHouseContainerUtils.DATABASE_NAME)
+                .build();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        CLICK_HOUSE_CONTAINER.stop();
+    }
+
+    private record SpanVersion(UUID id, UUID traceId, UUID projectId, Instant lastUpdatedAt, int totalTokens) {
+    }
+
+    private <T> T withConnection(Function<Connection, Mono<T>> callback) {
+        return Mono.usingWhen(connectionFactory.create(), callback, Connection::close).block();
+    }
+
+    private void insert(SpanVersion span) {
+        withConnection(connection -> Mono.from(connection.createStatement(INSERT_SPAN)
+                .bind("id", span.id())
+                .bind("workspace_id", WORKSPACE_ID)
+                .bind("project_id", span.projectId())
+                .bind("trace_id", span.traceId())
+                .bind("start_time", span.lastUpdatedAt().minusSeconds(1).toString())
+                .bind("end_time", span.lastUpdatedAt().toString())
+                .bind("total_tokens", span.totalTokens())
+                .bind("last_updated_at", span.lastUpdatedAt().toString())
+                .execute())
+                .flatMap(result -> Mono.from(result.getRowsUpdated())));
+    }
+
+    private void delete(SpanVersion span) {
+        withConnection(connection -> Mono.from(connection.createStatement(DELETE_SPAN_VERSION)
+                .bind("id", span.id())
+                .bind("last_updated_at", span.lastUpdatedAt().toString())
+                .execute())
+                .flatMap(result -> Mono.from(result.getRowsUpdated())));
+    }
+
+    private void refresh(SpanVersion span) {
+        withConnection(connection -> traceSummaryDAO.refresh(
+                List.of(new TraceSummaryDAO.TraceKey(WORKSPACE_ID, span.projectId(), span.traceId())), connection)
+                .then(Mono.just(true)));
+    }
+
+    private List<Long> totalTokens(UUID traceId) {
+        return withConnection(connection -> Flux.from(connection.createStatement(SELECT_TOTAL_TOKENS)
+                .bind("workspace_id", WORKSPACE_ID)
+                .bind("trace_id", traceId)
+                .execute())
+                .flatMap(result -> result.map((row, rowMetadata) -> row.get("total_tokens", Long.class)))
+                .collectList());
+    }
+
+    private SpanVersion[] versions() {
+        var id = Generators.timeBasedEpochGenerator().generate();
+        var traceId = Generators.timeBasedEpochGenerator().generate();
+        var projectId = UUID.randomUUID();
+        var first = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        return new SpanVersion[]{
+                new SpanVersion(id, traceId, projectId, first, 1),
+                new SpanVersion(id, traceId, projectId, first.plusSeconds(1), 2)};
+    }
+
+    @Test
+    void refresh__whenRefreshesRunInOrder__thenKeepLatestSpans() {
+        var versions = versions();
+
+        insert(versions[0]);
+        refresh(versions[0]);
+        insert(versions[1]);
+        refresh(versions[1]);
+
+        assertThat(totalTokens(versions[1].traceId())).containsExactly(2L);
+    }
+
+    @Test
+    void refresh__whenRefreshOfOlderSpansIsInsertedLast__thenKeepLatestSpans() {
+        var versions = versions();
+
+        // the refresh of the update is inserted first
+        insert(versions[1]);
+        refresh(versions[1]);
+
+        // a concurrent refresh that read the spans before the update, inserted after it
+        delete(versions[1]);
+        insert(versions[0]);
+        refresh(versions[0]);
+
+        assertThat(totalTokens(versions[1].traceId())).containsExactly(2L);
+    }
+}
@@ -0,0 +1,82 @@
+package com.comet.opik.domain.cost;
+
+import com.comet.opik.api.resources.utils.ClickHouseContainerUtils;
+import com.comet.opik.api.resources.utils.MySQLContainerUtils;
+import com.comet.opik.api.resources.utils.RedisContainerUtils;
+import com.redis.testcontainers.RedisContainer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.testcontainers.clickhouse.ClickHouseContainer;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.lifecycle.Startables;
+import ru.vyarus.dropwizard.guice.test.jupiter.ext.TestDropwizardAppExtension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static com.comet.opik.api.resources.utils.TestDropwizardAppExtensionUtils.AppContextConfig;
+import static com.comet.opik.api.resources.utils.TestDropwizardAppExtensionUtils.CustomConfig;
+import static com.comet.opik.api.resources.utils.TestDropwizardAppExtensionUtils.newTestDropwizardAppExtension;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the application with a prices file in its configuration, to check that the registry is built from it.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ModelPriceRegistryIntegrationTest {
+
+    private static final String PRICES = """
+            models:
+              - name: custom-model
+                aliases: [ "custom-model-2024-*" ]
+                inputPrice: 0.000002
+                outputPrice: 0.000003
+            """;
+
+    private static final RedisContainer REDIS = RedisContainerUtils.newRedisContainer();
+
+    private static final MySQLContainer<?> MYSQL = MySQLContainerUtils.newMySQLContainer();
+
+    private static final ClickHouseContainer CLICKHOUSE = ClickHouseContainerUtils.newClickHouseContainer();
+
+    @RegisterExtension
+    private static final TestDropwizardAppExtension app;
+
+    static {
+        Startables.deepStart(REDIS, MYSQL, CLICKHOUSE).join();
+        var databaseAnalyticsFactory = ClickHouseContainerUtils.newDatabaseAnalyticsFactory(CLICKHOUSE,
+                ClickHouseContainerUtils.DATABASE_NAME);
+
+        String pricesFile;
+        try {
+            var file = Files.createTempFile("model-prices", ".yaml");
+            file.toFile().deleteOnExit();
+            pricesFile = Files.writeString(file, PRICES).toString();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        app = newTestDropwizardAppExtension(
+                AppContextConfig.builder()
+                        .jdbcUrl(MYSQL.getJdbcUrl())
+                        .databaseAnalyticsFactory(databaseAnalyticsFactory)
+                        .redisUrl(REDIS.getRedisURI())
+                        .customConfigs(List.of(new CustomConfig("modelPrices.file", pricesFile),
+                                new CustomConfig("modelPrices.reloadIntervalInSeconds", "1")))
+                        .build());
+    }
+
+    @Test
+    void calculateCost__whenPricesFileConfigured__thenUseItsPrices(ModelPriceRegistry registry) {
+        var usage = Map.of("prompt_tokens", 1_000, "completion_tokens", 2_000);
+
+        assertThat(registry.get("custom-model").name()).isEqualTo("custom-model");
+        assertThat(registry.calculateCost("custom-model-2024-08-06", usage))
+                .isEqualByComparingTo(new BigDecimal("0.008"));
+    }
+}
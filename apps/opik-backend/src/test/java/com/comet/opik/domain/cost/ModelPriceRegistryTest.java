@@ -0,0 +1,138 @@
+package com.comet.opik.domain.cost;
+
+import com.comet.opik.infrastructure.ModelPricesConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ModelPriceRegistryTest {
+
+    private static final Map<String, Integer> USAGE = Map.of("prompt_tokens", 4_000_000, "completion_tokens",
+            3_000_000);
+
+    @TempDir
+    private Path directory;
+
+    private ModelPriceRegistry newRegistry(String prices) throws IOException {
+        Path file = directory.resolve("prices.yaml");
+        Files.writeString(file, prices);
+
+        var config = new ModelPricesConfig();
+        config.setFile(file.toString());
+        return new ModelPriceRegistry(config);
+    }
+
+    private void rewrite(String prices) throws IOException {
+        Path file = directory.resolve("prices.yaml");
+        Files.writeString(file, prices);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(60)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ModelPrice.class)
+    void calculateCost__whenBuiltInModel__thenMatchBigDecimalArithmetic(ModelPrice modelPrice) {
+        var registry = new ModelPriceRegistry(new ModelPricesConfig());
+
+        BigDecimal expected = modelPrice.getInputPrice().multiply(BigDecimal.valueOf(4_000_000))
+                .add(modelPrice.getOutputPrice().multiply(BigDecimal.valueOf(3_000_000)));
+
+        assertThat(registry.calculateCost(modelPrice.getName(), USAGE)).isEqualByComparingTo(expected);
+        assertThat(ModelPrice.fromString(modelPrice.getName()).calculateCost(USAGE)).isEqualByComparingTo(expected);
+    }
+
+    @Test
+    void calculateCost__whenUnknownModelOrNoUsage__thenZero() {
+        var registry = new ModelPriceRegistry(new ModelPricesConfig());
+
+        assertThat(registry.calculateCost("unknown-model", USAGE)).isZero();
+        assertThat(registry.calculateCost(null, USAGE)).isZero();
+        assertThat(registry.calculateCost("gpt-4o", null)).isZero();
+        assertThat(ModelPrice.fromString(null)).isEqualTo(ModelPrice.DEFAULT);
+    }
+
+    @Test
+    void get__whenFileHasAliasesAndPrefixes__thenMostSpecificPriceWins() throws IOException {
+        var registry = newRegistry("""
+                models:
+                  - name: my-model
+                    aliases: [ "provider/my-model", "my-model-2024-*" ]
+                    inputPrice: 0.000001
+                    outputPrice: 0.000002
+                  - name: my-model-2024-10
+                    aliases: [ "my-model-2024-10-*" ]
+                    inputPrice: 0.000003
+                    outputPrice: 0.000004
+                  - name: gpt-4o
+                    inputPrice: 0.000001
+                    outputPrice: 0.000001
+                """);
+
+        assertThat(registry.get("provider/my-model").name()).isEqualTo("my-model");
+        assertThat(registry.get("my-model-2024-08-06").name()).isEqualTo("my-model");
+        assertThat(registry.get("my-model-2024-10-01").name()).isEqualTo("my-model-2024-10");
+        assertThat(registry.get("my-model-2023-01-01")).isEqualTo(ModelPriceRegistry.DEFAULT);
+
+        // the file overrides the built-in prices
+        assertThat(registry.calculateCost("gpt-4o", USAGE)).isEqualByComparingTo("7");
+        assertThat(registry.calculateCost("gpt-4o-mini", USAGE))
+                .isEqualByComparingTo(ModelPrice.gpt_4o_mini.calculateCost(USAGE));
+    }
+
+    @Test
+    void reloadIfModified__whenFileChanges__thenNewPricesAreUsed() throws IOException {
+        var registry = newRegistry("""
+                models:
+                  - name: my-model
+                    inputPrice: 0.000001
+                    outputPrice: 0.000001
+                """);
+
+        rewrite("""
+                {"models": [{"name": "my-model", "inputPrice": 0.000002, "outputPrice": 0.000002}]}
+                """);
+        registry.reloadIfModified();
+
+        assertThat(registry.calculateCost("my-model", USAGE)).isEqualByComparingTo("14");
+    }
+
+    @Test
+    void reloadIfModified__whenFileIsInvalid__thenKeepPreviousPrices() throws IOException {
+        var registry = newRegistry("""
+                models:
+                  - name: my-model
+                    inputPrice: 0.000001
+                    outputPrice: 0.000001
+                """);
+
+        rewrite("""
+                models:
+                  - name: my-model
+                    inputPrice: -1
+                    outputPrice: 0.000001
+                """);
+        registry.reloadIfModified();
+
+        assertThat(registry.calculateCost("my-model", USAGE)).isEqualByComparingTo("7");
+    }
+
+    @Test
+    void newRegistry__whenFileIsMissing__thenFail() {
+        var config = new ModelPricesConfig();
+        config.setFile(directory.resolve("missing.yaml").toString());
+
+        assertThatThrownBy(() -> new ModelPriceRegistry(config)).isInstanceOf(UncheckedIOException.class);
+    }
+}
@@ -0,0 +1,245 @@
+package com.comet.opik.domain.filter;
+
+import com.comet.opik.api.filter.Filter;
+import com.comet.opik.api.filter.Operator;
+import com.comet.opik.api.filter.SpanField;
+import com.comet.opik.api.filter.SpanFilter;
+import com.comet.opik.api.filter.TraceField;
+import com.comet.opik.api.filter.TraceFilter;
+import com.comet.opik.api.resources.utils.ClickHouseContainerUtils;
+import com.comet.opik.api.resources.utils.MigrationUtils;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.testcontainers.clickhouse.ClickHouseContainer;
+import reactor.core.publisher.Flux;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * Checks with EXPLAIN that the predicates of every filter type skip granules through the indexes of the traces and
+ * spans tables, and the full text search through their search indexes. Each table gets one granule of rows per word,
+ * with the word in every filterable column, so a filter or a search on one word must skip the granules of all the
+ * others.
+ */
+class FilterQueryBuilderSkipIndexTest {
+
+    private static final ClickHouseContainer CLICK_HOUSE_CONTAINER = ClickHouseContainerUtils.newClickHouseContainer();
+
+    private static final List<String> WORDS = List.of(
+            "retrieve", "rerank", "generate", "summarize", "classify", "translate", "extract", "moderate");
+    private static final int ROWS_PER_GRANULE = 8192;
+    private static final Pattern GRANULES = Pattern.compile("Granules: (\\d+)/(\\d+)");
+
+    private static final String INSERT_SPANS = """
+            INSERT INTO spans (
+                id, workspace_id, project_id, trace_id, name, type, start_time, end_time, input, output, tags,
+                model, provider, total_estimated_cost
+            )
+            WITH
+                intDiv(number, %1$d) AS word_index,
+                %2$s[word_index + 1] AS word,
+                toDateTime64('2024-01-01 00:00:00', 9, 'UTC') + toIntervalDay(word_index)
+                    + toIntervalSecond(number %% %1$d) AS time
+            SELECT
+                leftPad(toString(number), 36, '0'),
+                :workspace_id,
+                :project_id,
+                leftPad(toString(number), 36, '0'),
+                concat(word, ' documents'),
+                'llm',
+                time,
+                time + toIntervalSecond(1),
+                concat('{"prompt":"please ', word, ' these documents"}'),
+                concat('{"answer":"done ', word, ' for you"}'),
+                [concat('tag-', word)],
+                concat('model-', word),
+                concat('provider-', word),
+                toDecimal64(word_index, 8)
+            FROM numbers(%3$d)
+            """;
+
+    private static final String INSERT_TRACES = """
+            INSERT INTO traces (id, workspace_id, project_id, name, start_time, end_time, input, output, metadata, tags)
+            WITH
+                intDiv(number, %1$d) AS word_index,
+                %2$s[word_index + 1] AS word,
+                toDateTime64('2024-01-01 00:00:00', 9, 'UTC') + toIntervalDay(word_index)
+                    + toIntervalSecond(number %% %1$d) AS time
+            SELECT
+                leftPad(toString(number), 36, '0'),
+                :workspace_id,
+                :project_id,
+                concat(word, ' documents'),
+                time,
+                time + toIntervalSecond(1),
+                concat('{"prompt":"please ', word, ' these documents"}'),
+                concat('{"answer":"done ', word, ' for you"}'),
+                '',
+                [concat('tag-', word)]
+            FROM numbers(%3$d)
+            """;
+
+    private static final String SELECT = """
+            SELECT <select> FROM %s
+            WHERE workspace_id = :workspace_id
+            AND project_id = :project_id
+            AND %s
+            """;
+
+    private static final String WORKSPACE_ID = UUID.randomUUID().toString();
+    private static final UUID PROJECT_ID = UUID.randomUUID();
+
+    private static ConnectionFactory connectionFactory;
+
+    private final FilterQueryBuilder filterQueryBuilder = new FilterQueryBuilder();
+
+    @BeforeAll
+    static void beforeAll() throws SQLException {
+        CLICK_HOUSE_CONTAINER.start();
+        try (var connection = CLICK_HOUSE_CONTAINER.createConnection("")) {
+            MigrationUtils.runDbMigration(connection, MigrationUtils.CLICKHOUSE_CHANGELOG_FILE,
+                    ClickHouseContainerUtils.migrationParameters());
+        }
+
+        connectionFactory = ClickHouseContainerUtils
+                .newDatabaseAnalyticsFactory(CLICK_HOUSE_CONTAINER, ClickHouseContainerUtils.DATABASE_NAME)
+                .build();
+
+        var words = WORDS.stream().map("'%s'"::formatted).toList().toString();
+        for (var insert : List.of(INSERT_SPANS, INSERT_TRACES)) {
+            execute(insert.formatted(ROWS_PER_GRANULE, words, ROWS_PER_GRANULE * WORDS.size()), statement -> statement
+                    .bind("workspace_id", WORKSPACE_ID)
+                    .bind("project_id", PROJECT_ID.toString()));
+        }
+    }
+
+    @AfterAll
+    static void afterAll() {
+        CLICK_HOUSE_CONTAINER.stop();
+    }
+
+    private static Stream<Arguments> filters() {
+        return Stream.of(
+                arguments(spanFilter(SpanField.NAME, Operator.CONTAINS, "RERANK"), "idx_spans_name"),
+                arguments(spanFilter(SpanField.NAME, Operator.STARTS_WITH, "Summarize docu"), "idx_spans_name"),
+                arguments(spanFilter(SpanField.NAME, Operator.ENDS_WITH, "classify documents"), "idx_spans_name"),
+                arguments(spanFilter(SpanField.NAME, Operator.EQUAL, "Translate Documents"), "idx_spans_name"),
+                arguments(spanFilter(SpanField.START_TIME, Operator.GREATER_THAN_EQUAL, "2024-01-08T00:00:00Z"),
+                        "idx_spans_start_time"),
+                arguments(spanFilter(SpanField.END_TIME, Operator.LESS_THAN, "2024-01-02T00:00:00Z"),
+                        "idx_spans_end_time"),
+                arguments(spanFilter(SpanField.TOTAL_ESTIMATED_COST, Operator.GREATER_THAN_EQUAL, "7"),
+                        "idx_spans_total_estimated_cost"),
+                arguments(spanFilter(SpanField.MODEL, Operator.EQUAL, "Model-Extract"), "idx_spans_model"),
+                arguments(spanFilter(SpanField.PROVIDER, Operator.EQUAL, "PROVIDER-moderate"), "idx_spans_provider"),
+                arguments(spanFilter(SpanField.TAGS, Operator.EQUAL, "Tag-Retrieve"), "idx_spans_tags"),
+                arguments(spanFilter(SpanField.INPUT, Operator.CONTAINS, "please GENERATE these"), "idx_spans_input"),
+                arguments(spanFilter(SpanField.OUTPUT, Operator.CONTAINS, "done summarize for"), "idx_spans_output"),
+                arguments(traceFilter(TraceField.NAME, Operator.CONTAINS, "rerank"), "idx_traces_name"),
+                arguments(traceFilter(TraceField.START_TIME, Operator.GREATER_THAN_EQUAL, "2024-01-08T00:00:00Z"),
+                        "idx_traces_start_time"),
+                arguments(traceFilter(TraceField.END_TIME, Operator.LESS_THAN, "2024-01-02T00:00:00Z"),
+                        "idx_traces_end_time"),
+                arguments(traceFilter(TraceField.TAGS, Operator.EQUAL, "TAG-extract"), "idx_traces_tags"),
+                arguments(traceFilter(TraceField.INPUT, Operator.CONTAINS, "please classify these"),
+                        "idx_traces_input"),
+                arguments(traceFilter(TraceField.OUTPUT, Operator.CONTAINS, "done Translate for"),
+                        "idx_traces_output"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("filters")
+    void filterSkipsGranulesThroughIndex(Filter filter, String index) {
+        var table = filter instanceof SpanFilter ? "spans" : "traces";
+        var strategy = filter instanceof SpanFilter ? FilterStrategy.SPAN : FilterStrategy.TRACE;
+        var predicate = filterQueryBuilder.toAnalyticsDbFilters(List.of(filter), strategy).orElseThrow();
+
+        assertSkipsOtherGranules(SELECT.formatted(table, predicate), index,
+                statement -> filterQueryBuilder.bind(statement, List.of(filter), strategy));
+    }
+
+    private static Stream<Arguments> searches() {
+        return Stream.of(
+                arguments("spans", "Rerank", "idx_spans_search"),
+                arguments("spans", "please GENERATE, for you!", "idx_spans_search"),
+                arguments("traces", "summarize", "idx_traces_search"),
+                arguments("traces", "\"done\": Translate these", "idx_traces_search"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("searches")
+    void searchSkipsGranulesThroughIndex(String table, String search, String index) {
+        var predicate = filterQueryBuilder.toAnalyticsDbSearch(search).orElseThrow();
+
+        assertSkipsOtherGranules(SELECT.formatted(table, predicate), index,
+                statement -> filterQueryBuilder.bindSearch(statement, search));
+    }
+
+    private void assertSkipsOtherGranules(String select, String index, Function<Statement, Statement> binder) {
+        var count = query(select.replace("<select>", "toString(count())"), binder);
+        var explain = query("EXPLAIN indexes = 1 " + select.replace("<select>", "id"), binder);
+
+        assertThat(count).containsExactly(String.valueOf(ROWS_PER_GRANULE));
+
+        var indexLine = explain.indexOf(explain.stream()
+                .filter(line -> line.trim().equals("Name: " + index))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Index '%s' not used:%n%s".formatted(index,
+                        String.join("\n", explain)))));
+        var granules = explain.subList(indexLine, explain.size()).stream()
+                .map(GRANULES::matcher)
+                .filter(Matcher::find)
+                .findFirst()
+                .orElseThrow();
+
+        // the granules of the other words are skipped, other parts of the container may add a few more to both
+        var read = Integer.parseInt(granules.group(1));
+        var selected = Integer.parseInt(granules.group(2));
+        assertThat(selected - read).isGreaterThanOrEqualTo(WORDS.size() - 1);
+    }
+
+    private static SpanFilter spanFilter(SpanField field, Operator operator, String value) {
+        return SpanFilter.builder().field(field).operator(operator).value(value).build();
+    }
+
+    private static TraceFilter traceFilter(TraceField field, Operator operator, String value) {
+        return TraceFilter.builder().field(field).operator(operator).value(value).build();
+    }
+
+    private List<String> query(String sql, Function<Statement, Statement> binder) {
+        return Flux.usingWhen(Flux.from(connectionFactory.create()),
+                connection -> Flux.from(binder.apply(connection.createStatement(sql)
+                        .bind("workspace_id", WORKSPACE_ID)
+                        .bind("project_id", PROJECT_ID.toString()))
+                        .execute())
+                        .flatMap(result -> result.map((row, metadata) -> row.get(0, String.class))),
+                Connection::close)
+                .collectList()
+                .block();
+    }
+
+    private static void execute(String sql, Function<Statement, Statement> binder) {
+        Flux.usingWhen(Flux.from(connectionFactory.create()),
+                connection -> Flux.from(binder.apply(connection.createStatement(sql)).execute())
+                        .flatMap(Result::getRowsUpdated),
+                Connection::close)
+                .then()
+                .block();
+    }
+}
@@ -0,0 +1,184 @@
+package com.comet.opik.domain.stats;
+
+import com.comet.opik.api.ProjectStats;
+import com.comet.opik.api.filter.Operator;
+import com.comet.opik.api.filter.TraceField;
+import com.comet.opik.api.filter.TraceFilter;
+import com.comet.opik.infrastructure.StatsCacheConfig;
+import com.comet.opik.infrastructure.auth.RequestContext;
+import com.comet.opik.infrastructure.cache.SharedResultCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProjectStatsCacheTest {
+
+    private static final String WORKSPACE_ID = "workspace-id";
+    private static final String SCOPE = "traces";
+
+    private final UUID projectId = UUID.randomUUID();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final InMemorySharedResultCache sharedCache = new InMemorySharedResultCache();
+
+    private ProjectStatsCache newCache(boolean distributed) {
+        var config = new StatsCacheConfig();
+        config.setDistributed(distributed);
+        return new ProjectStatsCache(config, sharedCache);
+    }
+
+    private ProjectStats get(ProjectStatsCache cache, List<TraceFilter> filters) {
+        return get(cache, filters, null);
+    }
+
+    private ProjectStats get(ProjectStatsCache cache, List<TraceFilter> filters, String search) {
+        return inWorkspace(cache.get(SCOPE, projectId, filters, search, () -> Mono.fromCallable(() -> new ProjectStats(
+                List.of(new ProjectStats.CountValueStat("trace_count", (long) loads.incrementAndGet()))))));
+    }
+
+    private static <T> T inWorkspace(Mono<T> mono) {
+        return mono.contextWrite(Context.of(RequestContext.WORKSPACE_ID, WORKSPACE_ID)).block();
+    }
+
+    private static TraceFilter filter(TraceField field, String value) {
+        return TraceFilter.builder().field(field).operator(Operator.EQUAL).value(value).build();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void get__whenNoWritesBetweenReads__thenLoadOnce(boolean distributed) {
+        var cache = newCache(distributed);
+        var name = filter(TraceField.NAME, "name");
+        var input = filter(TraceField.INPUT, "input");
+
+        var first = get(cache, List.of(name, input));
+        var second = get(cache, List.of(input, name, input));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(loads).hasValue(1);
+        assertThat(get(cache, List.of(name))).isNotEqualTo(first);
+        assertThat(loads).hasValue(2);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void get__whenSearchChanges__thenLoadAgain(boolean distributed) {
+        var cache = newCache(distributed);
+
+        var unsearched = get(cache, List.of());
+        var searched = get(cache, List.of(), "Refund policy");
+
+        assertThat(searched).isNotEqualTo(unsearched);
+        assertThat(get(cache, List.of(), "policy, REFUND refund")).isEqualTo(searched);
+        assertThat(get(cache, List.of(), " ")).isEqualTo(unsearched);
+        assertThat(loads).hasValue(2);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void get__whenProjectOrWorkspaceIsWritten__thenLoadAgain(boolean distributed) {
+        var cache = newCache(distributed);
+
+        get(cache, List.of());
+        inWorkspace(cache.invalidate(UUID.randomUUID()));
+        get(cache, List.of());
+        assertThat(loads).hasValue(1);
+
+        inWorkspace(cache.invalidate(projectId));
+        get(cache, List.of());
+        assertThat(loads).hasValue(2);
+
+        inWorkspace(cache.invalidateWorkspace());
+        get(cache, List.of());
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void get__whenDistributed__thenShareResultsAndWatermarksBetweenInstances() {
+        var cache = newCache(true);
+        var otherInstance = newCache(true);
+
+        var stats = get(cache, List.of());
+        assertThat(get(otherInstance, List.of())).isEqualTo(stats);
+        assertThat(loads).hasValue(1);
+
+        inWorkspace(otherInstance.invalidate(projectId));
+        assertThat(get(cache, List.of())).isNotEqualTo(stats);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get__whenSharedTierFails__thenLoadUncached() {
+        sharedCache.failing = true;
+        var cache = newCache(true);
+
+        get(cache, List.of());
+        get(cache, List.of());
+        inWorkspace(cache.invalidate(projectId));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get__whenDisabled__thenAlwaysLoad() {
+        var config = new StatsCacheConfig();
+        config.setEnabled(false);
+        var cache = new ProjectStatsCache(config, sharedCache);
+
+        get(cache, List.of());
+        get(cache, List.of());
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private static class InMemorySharedResultCache implements SharedResultCache {
+
+        private final Map<String, Long> watermarks = new ConcurrentHashMap<>();
+        private final Map<String, String> values = new ConcurrentHashMap<>();
+        private volatile boolean failing;
+
+        @Override
+        public Mono<Map<String, Long>> getWatermarks(Collection<String> keys) {
+            return failIfNeeded(() -> keys.stream()
+                    .filter(watermarks::containsKey)
+                    .collect(Collectors.toMap(Function.identity(), watermarks::get)));
+        }
+
+        @Override
+        public Mono<Void> advanceWatermark(String key, Duration ttl) {
+            return failIfNeeded(() -> watermarks.merge(key, System.currentTimeMillis(),
+                    (current, now) -> Math.max(now, current + 1))).then();
+        }
+
+        @Override
+        public Mono<String> get(String key) {
+            return failIfNeeded(() -> values.get(key));
+        }
+
+        @Override
+        public Mono<Void> put(String key, String value, Duration ttl) {
+            return failIfNeeded(() -> values.put(key, value)).then();
+        }
+
+        private <T> Mono<T> failIfNeeded(Callable<T> callable) {
+            if (failing) {
+                return Mono.error(new IllegalStateException("shared cache unavailable"));
+            }
+            return Mono.fromCallable(callable);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.comet.opik.infrastructure.auth;
+
+import com.comet.opik.api.resources.utils.AuthTestUtils;
+import com.comet.opik.api.resources.utils.ClickHouseContainerUtils;
+import com.comet.opik.api.resources.utils.ClientSupportUtils;
+import com.comet.opik.api.resources.utils.MigrationUtils;
+import com.comet.opik.api.resources.utils.MySQLContainerUtils;
+import com.comet.opik.api.resources.utils.RedisContainerUtils;
+import com.comet.opik.api.resources.utils.TestDropwizardAppExtensionUtils;
+import com.comet.opik.api.resources.utils.WireMockUtils;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.redis.testcontainers.RedisContainer;
+import jakarta.ws.rs.core.HttpHeaders;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.testcontainers.clickhouse.ClickHouseContainer;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.lifecycle.Startables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.vyarus.dropwizard.guice.test.ClientSupport;
+import ru.vyarus.dropwizard.guice.test.jupiter.ext.TestDropwizardAppExtension;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.comet.opik.api.resources.utils.TestDropwizardAppExtensionUtils.AppContextConfig;
+import static com.comet.opik.infrastructure.auth.RequestContext.WORKSPACE_HEADER;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test of the auth path against a slow auth service: concurrent requests with distinct API keys must be
+ * authenticated in parallel, without holding a thread of the server while they wait for it.
+ * */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AuthModuleSlowBackendLoadTest {
+
+    private static final String PATH = "/v1/private/projects";
+    private static final String URL_TEMPLATE = "%s" + PATH;
+    private static final String AUTH_PATH = "/opik/auth";
+
+    private static final int AUTH_DELAY_IN_MILLIS = 500;
+    private static final int CONCURRENT_REQUESTS = 100;
+
+    private static final RedisContainer REDIS = RedisContainerUtils.newRedisContainer();
+
+    private static final MySQLContainer<?> MYSQL = MySQLContainerUtils.newMySQLContainer();
+
+    private static final ClickHouseContainer CLICKHOUSE = ClickHouseContainerUtils.newClickHouseContainer();
+
+    private static final WireMockUtils.WireMockRuntime wireMock;
+
+    @RegisterExtension
+    private static final TestDropwizardAppExtension app;
+
+    private static final String USER = UUID.randomUUID().toString();
+    private static final String WORKSPACE_ID = UUID.randomUUID().toString();
+    private static final String TEST_WORKSPACE = UUID.randomUUID().toString();
+
+    static {
+        Startables.deepStart(REDIS, MYSQL, CLICKHOUSE).join();
+
+        wireMock = WireMockUtils.startWireMock();
+
+        var databaseAnalyticsFactory = ClickHouseContainerUtils.newDatabaseAnalyticsFactory(CLICKHOUSE,
+                ClickHouseContainerUtils.DATABASE_NAME);
+
+        app = TestDropwizardAppExtensionUtils.newTestDropwizardAppExtension(
+                AppContextConfig.builder()
+                        .jdbcUrl(MYSQL.getJdbcUrl())
+                        .databaseAnalyticsFactory(databaseAnalyticsFactory)
+                        .runtimeInfo(wireMock.runtimeInfo())
+                        .redisUrl(REDIS.getRedisURI())
+                        .build());
+    }
+
+    private String baseURI;
+    private ClientSupport client;
+
+    @BeforeAll
+    void beforeAll(ClientSupport client, Jdbi jdbi) throws SQLException {
+        MigrationUtils.runDbMigration(jdbi, MySQLContainerUtils.migrationParameters());
+
+        try (var connection = CLICKHOUSE.createConnection("")) {
+            MigrationUtils.runDbMigration(connection, MigrationUtils.CLICKHOUSE_CHANGELOG_FILE,
+                    ClickHouseContainerUtils.migrationParameters());
+        }
+
+        baseURI = "http://localhost:%d".formatted(client.getPort());
+        this.client = client;
+
+        ClientSupportUtils.config(client);
+
+        // any API key is accepted, but only after a delay
+        wireMock.server().stubFor(
+                post(urlPathEqualTo(AUTH_PATH))
+                        .withRequestBody(matchingJsonPath("$.workspaceName", equalTo(TEST_WORKSPACE)))
+                        .willReturn(okJson(AuthTestUtils.newWorkspaceAuthResponse(USER, WORKSPACE_ID))
+                                .withFixedDelay(AUTH_DELAY_IN_MILLIS)));
+    }
+
+    @Test
+    void authenticate__whenAuthServiceIsSlow__thenConcurrentRequestsAreAuthenticatedInParallel() {
+        long start = System.nanoTime();
+
+        var busyPlatformThreads = new AtomicInteger();
+        var sampler = Flux.interval(Duration.ofMillis(AUTH_DELAY_IN_MILLIS / 10))
+                .subscribe(i -> busyPlatformThreads.accumulateAndGet(platformThreadsServing(PATH), Math::max));
+
+        var load = Flux.range(0, CONCURRENT_REQUESTS)
+                .flatMap(i -> Mono.fromCallable(() -> callEndpoint(UUID.randomUUID().toString()))
+                        .subscribeOn(Schedulers.boundedElastic()), CONCURRENT_REQUESTS)
+                .collectList()
+                .toFuture();
+
+        // the server keeps serving unauthenticated endpoints while the auth calls are in flight
+        Mono.delay(Duration.ofMillis(AUTH_DELAY_IN_MILLIS / 5)).block();
+        try (var response = client.target("%s/is-alive/ping".formatted(baseURI)).request().get()) {
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(AUTH_DELAY_IN_MILLIS));
+        }
+
+        List<Integer> statuses = load.join();
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        sampler.dispose();
+
+        assertThat(statuses).hasSize(CONCURRENT_REQUESTS).containsOnly(200);
+        wireMock.server().verify(CONCURRENT_REQUESTS, WireMock.postRequestedFor(WireMock.urlEqualTo(AUTH_PATH)));
+
+        // sequential authentication would take CONCURRENT_REQUESTS * AUTH_DELAY_IN_MILLIS
+        assertThat(elapsed).isLessThan(Duration.ofMillis((long) AUTH_DELAY_IN_MILLIS * CONCURRENT_REQUESTS / 10));
+
+        // the requests waiting for the auth service are suspended and hold no thread of the server, a thread per
+        // request would be held for the whole delay
+        assertThat(busyPlatformThreads.get()).isZero();
+    }
+
+    // the thread name filter of the server appends the request to the name of the thread serving it
+    private static int platformThreadsServing(String path) {
+        return (int) Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().contains(path))
+                .count();
+    }
+
+    private int callEndpoint(String apiKey) {
+        try (var response = client.target(URL_TEMPLATE.formatted(baseURI))
+                .request()
+                .header(WORKSPACE_HEADER, TEST_WORKSPACE)
+                .header(HttpHeaders.AUTHORIZATION, apiKey)
+                .get()) {
+            return response.getStatus();
+        }
+    }
+}
@@ -22,7 +22,7 @@ class AuthServiceImplTest {
 
     private final static String PATH = "some-path";
 
-    private AuthServiceImpl authService = new AuthServiceImpl(() -> requestContext);
+    private AuthServiceImpl authService = new AuthServiceImpl();
 
     @Test
     void testAuthenticate__whenCookieAndHeaderNotPresent__thenUseDefault() {
@@ -30,7 +30,7 @@ class AuthServiceImplTest {
         Cookie sessionToken = null;
 
         // When
-        authService.authenticate(headers, sessionToken, PATH);
+        authService.authenticate(headers, sessionToken, PATH, requestContext).block();
 
         // Then
         verify(requestContext).setWorkspaceName(ProjectService.DEFAULT_WORKSPACE_NAME);
@@ -43,7 +43,7 @@ class AuthServiceImplTest {
         Cookie sessionToken = new Cookie("sessionToken", "token");
 
         // When
-        authService.authenticate(headers, sessionToken, PATH);
+        authService.authenticate(headers, sessionToken, PATH, requestContext).block();
 
         // Then
         verify(requestContext).setWorkspaceName(ProjectService.DEFAULT_WORKSPACE_NAME);
@@ -61,6 +61,6 @@ class AuthServiceImplTest {
 
         Assertions.assertThrows(
                 jakarta.ws.rs.ClientErrorException.class,
-                () -> authService.authenticate(headers, sessionToken, PATH));
+                () -> authService.authenticate(headers, sessionToken, PATH, requestContext).block());
     }
 }
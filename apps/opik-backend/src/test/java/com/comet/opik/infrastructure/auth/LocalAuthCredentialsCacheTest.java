@@ -0,0 +1,80 @@
+package com.comet.opik.infrastructure.auth;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.comet.opik.infrastructure.auth.CacheService.AuthCredentials;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalAuthCredentialsCacheTest {
+
+    private final AuthCredentials credentials = new AuthCredentials("user", UUID.randomUUID().toString());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Mono<AuthCredentials> load() {
+        return Mono.fromCallable(() -> {
+            loads.incrementAndGet();
+            return credentials;
+        });
+    }
+
+    @Test
+    void get__whenTtlIsZero__thenAlwaysLoad() {
+        var cache = new LocalAuthCredentialsCache(0, 10);
+
+        cache.get("key", "workspace", this::load).block();
+        cache.get("key", "workspace", this::load).block();
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get__whenCached__thenLoadOncePerApiKeyAndWorkspace() {
+        var cache = new LocalAuthCredentialsCache(60, 10);
+
+        assertThat(cache.get("key", "workspace", this::load).block()).isEqualTo(credentials);
+        assertThat(cache.get("key", "workspace", this::load).block()).isEqualTo(credentials);
+        cache.get("key", "other-workspace", this::load).block();
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get__whenLoadFails__thenDoNotCache() {
+        var cache = new LocalAuthCredentialsCache(60, 10);
+
+        assertThatThrownBy(() -> cache.get("key", "workspace",
+                () -> Mono.<AuthCredentials>error(new IllegalStateException("unauthorized"))).block())
+                .isInstanceOf(IllegalStateException.class);
+
+        cache.get("key", "workspace", this::load).block();
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void get__whenConcurrentMisses__thenShareTheInFlightLoad() {
+        var cache = new LocalAuthCredentialsCache(60, 10);
+        var release = Sinks.<AuthCredentials>one();
+
+        var results = Flux.range(0, 8)
+                .flatMap(i -> cache.get("key", "workspace", () -> {
+                    loads.incrementAndGet();
+                    return release.asMono();
+                }))
+                .collectList()
+                .toFuture();
+
+        assertThat(results).isNotDone();
+        release.tryEmitValue(credentials);
+
+        assertThat(results.join()).hasSize(8).containsOnly(credentials);
+        assertThat(loads).hasValue(1);
+    }
+}
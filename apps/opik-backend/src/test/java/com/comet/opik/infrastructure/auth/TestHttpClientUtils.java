@@ -3,6 +3,10 @@ package com.comet.opik.infrastructure.auth;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.ClientBuilder;
 import lombok.experimental.UtilityClass;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.client5.http.ssl.TrustAllStrategy;
+import org.apache.hc.core5.ssl.SSLContexts;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
 import org.apache.http.ssl.SSLContextBuilder;
@@ -29,10 +33,25 @@ public class TestHttpClientUtils {
     public static AuthModule testAuthModule() {
         return new AuthModule() {
             @Override
-            public Client client() {
-                return TestHttpClientUtils.client();
+            protected void configure() {
+                // overrides the bindings only, the filters are already registered by the module of the application
+            }
+
+            @Override
+            public PoolingAsyncClientConnectionManagerBuilder connectionManagerBuilder() {
+                try {
+                    return PoolingAsyncClientConnectionManagerBuilder.create()
+                            .setTlsStrategy(ClientTlsStrategyBuilder.create()
+                                    .setSslContext(SSLContexts.custom()
+                                            .loadTrustMaterial(TrustAllStrategy.INSTANCE)
+                                            .build())
+                                    .setHostnameVerifier(org.apache.hc.client5.http.ssl.NoopHostnameVerifier.INSTANCE)
+                                    .build());
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
             }
         };
     }
 
-}
\ No newline at end of file
+}
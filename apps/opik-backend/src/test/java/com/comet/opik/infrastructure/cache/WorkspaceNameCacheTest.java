@@ -0,0 +1,128 @@
+package com.comet.opik.infrastructure.cache;
+
+import com.comet.opik.infrastructure.EntityCacheConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.comet.opik.infrastructure.cache.CacheInvalidationBus.CacheInvalidation;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WorkspaceNameCacheTest {
+
+    private static final String CACHE_NAME = "test";
+
+    private final InMemoryBus bus = new InMemoryBus();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final String workspaceId = UUID.randomUUID().toString();
+
+    private WorkspaceNameCache<UUID> cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = newCache(true);
+    }
+
+    private WorkspaceNameCache<UUID> newCache(boolean enabled) {
+        var config = new EntityCacheConfig();
+        config.setEnabled(enabled);
+        return new WorkspaceNameCache<>(CACHE_NAME, config, bus, Function.identity());
+    }
+
+    private UUID load(WorkspaceNameCache<UUID> target, String name, UUID value) {
+        return target.get(workspaceId, name, () -> {
+            loads.incrementAndGet();
+            return value;
+        });
+    }
+
+    @Test
+    @DisplayName("when the same name is resolved twice, then it's loaded once")
+    void get__whenSameNameIsResolvedTwice__thenItIsLoadedOnce() {
+        var id = UUID.randomUUID();
+
+        assertThat(load(cache, "name", id)).isEqualTo(id);
+        assertThat(load(cache, "name", UUID.randomUUID())).isEqualTo(id);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("when the cache is disabled, then every call is loaded")
+    void get__whenCacheIsDisabled__thenEveryCallIsLoaded() {
+        var disabled = newCache(false);
+
+        load(disabled, "name", UUID.randomUUID());
+        load(disabled, "name", UUID.randomUUID());
+
+        assertThat(loads).hasValue(2);
+        assertThat(bus.published).isEmpty();
+    }
+
+    @Test
+    @DisplayName("when the loader fails, then nothing is cached")
+    void get__whenLoaderFails__thenNothingIsCached() {
+        assertThatThrownBy(() -> cache.get(workspaceId, "name", () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        load(cache, "name", UUID.randomUUID());
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("when invalidated by id on another instance, then the entry is reloaded")
+    void invalidate__whenInvalidatedByIdOnAnotherInstance__thenEntryIsReloaded() {
+        var id = UUID.randomUUID();
+        var otherInstance = newCache(true);
+        load(cache, "name", id);
+
+        otherInstance.invalidate(workspaceId, id);
+
+        assertThat(bus.published).containsExactly(new CacheInvalidation(CACHE_NAME, workspaceId, null, id));
+        var newId = UUID.randomUUID();
+        assertThat(load(cache, "name", newId)).isEqualTo(newId);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("when invalidated by name, then only that entry is reloaded")
+    void invalidate__whenInvalidatedByName__thenOnlyThatEntryIsReloaded() {
+        load(cache, "first", UUID.randomUUID());
+        load(cache, "second", UUID.randomUUID());
+
+        cache.invalidate(workspaceId, "first");
+
+        load(cache, "first", UUID.randomUUID());
+        load(cache, "second", UUID.randomUUID());
+        assertThat(loads).hasValue(3);
+    }
+
+    private static class InMemoryBus implements CacheInvalidationBus {
+
+        private final List<CacheInvalidation> published = new ArrayList<>();
+        private final List<Consumer<CacheInvalidation>> listeners = new ArrayList<>();
+
+        @Override
+        public Mono<Void> publish(CacheInvalidation invalidation) {
+            return Mono.fromRunnable(() -> {
+                published.add(invalidation);
+                listeners.forEach(listener -> listener.accept(invalidation));
+            });
+        }
+
+        @Override
+        public void subscribe(Consumer<CacheInvalidation> listener) {
+            listeners.add(listener);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.comet.opik.infrastructure.db;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RowBinaryWriterTest {
+
+    private static String encode(Consumer<RowBinaryWriter> action) {
+        var writer = new RowBinaryWriter(16);
+        action.accept(writer);
+        return HexFormat.of().formatHex(writer.toByteArray());
+    }
+
+    private static Arguments arguments(String name, Consumer<RowBinaryWriter> action, String expected) {
+        return Arguments.of(name, action, expected);
+    }
+
+    static Stream<Arguments> encodings() {
+        var usage = new LinkedHashMap<String, Integer>();
+        usage.put("k", 1);
+        usage.put("skipped", null);
+
+        return Stream.of(
+                arguments("empty string", writer -> writer.writeString(""), "00"),
+                arguments("null string", writer -> writer.writeString(null), "00"),
+                arguments("utf-8 string", writer -> writer.writeString("é"), "02c3a9"),
+                arguments("long string", writer -> writer.writeString("x".repeat(300)), "ac02" + "78".repeat(300)),
+                arguments("int32", writer -> writer.writeInt32(-2), "feffffff"),
+                arguments("int64", writer -> writer.writeInt64(1L), "0100000000000000"),
+                arguments("null instant", writer -> writer.writeNullableEpochNanos(null), "01"),
+                arguments("instant", writer -> writer.writeNullableEpochNanos(Instant.ofEpochSecond(1, 5)),
+                        "0005ca9a3b00000000"),
+                arguments("string array", writer -> writer.writeStringArray(List.of("a")), "010161"),
+                arguments("map", writer -> writer.writeStringInt32Map(usage), "01016b01000000"));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("encodings")
+    void write(String name, Consumer<RowBinaryWriter> action, String expected) {
+        assertThat(encode(action)).isEqualTo(expected);
+    }
+
+    @Test
+    void writeNullCollectionsAsEmpty() {
+        assertThat(encode(writer -> writer.writeStringArray(null).writeStringInt32Map(null))).isEqualTo("0000");
+    }
+
+    @Test
+    void writeEmptyMap() {
+        assertThat(encode(writer -> writer.writeStringInt32Map(Map.of()))).isEqualTo("00");
+    }
+}
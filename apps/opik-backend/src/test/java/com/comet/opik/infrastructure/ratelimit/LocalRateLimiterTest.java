@@ -0,0 +1,155 @@
+package com.comet.opik.infrastructure.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static com.comet.opik.infrastructure.RateLimitConfig.LimitConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalRateLimiterTest {
+
+    private static final String API_KEY = "api-key";
+    private static final String BUCKET = "bucket";
+    private static final LimitConfig LIMIT = new LimitConfig(100, 60);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final InMemoryRateLimitService remote = new InMemoryRateLimitService();
+
+    private LocalRateLimiter newLimiter(long leaseSize) {
+        return new LocalRateLimiter(() -> remote, leaseSize, clock::get);
+    }
+
+    private long admitted(LocalRateLimiter limiter, int requests) {
+        return IntStream.range(0, requests)
+                .filter(i -> limiter.tryAcquire(API_KEY, 1, BUCKET, LIMIT).allowed())
+                .count();
+    }
+
+    @Test
+    void tryAcquire__whenPermitsAreLeased__thenRedisIsCalledOncePerLease() {
+        var limiter = newLimiter(10);
+
+        assertThat(admitted(limiter, 50)).isEqualTo(50);
+
+        assertThat(remote.acquisitions).hasValue(5);
+        assertThat(remote.available).hasValue(50);
+    }
+
+    @Test
+    void tryAcquire__whenLimitIsReached__thenRejectWithoutCallingRedisOnEveryRequest() {
+        var limiter = newLimiter(10);
+
+        assertThat(admitted(limiter, 1_000)).isEqualTo(100);
+
+        // 10 leases, then a rejected chunk and a rejected deficit, nothing else until the backoff elapses
+        assertThat(remote.acquisitions).hasValue(12);
+    }
+
+    @Test
+    void tryAcquire__whenSeveralNodesShareTheLimit__thenTotalAdmissionNeverExceedsIt() {
+        var nodes = IntStream.range(0, 3).mapToObj(i -> newLimiter(7)).toList();
+
+        long total = IntStream.range(0, 200)
+                .filter(i -> nodes.get(i % nodes.size()).tryAcquire(API_KEY, 1, BUCKET, LIMIT).allowed())
+                .count();
+
+        // permits stranded in the other nodes can't be spent: under-admission of at most nodes * (leaseSize - 1)
+        assertThat(total).isBetween(100L - 3 * 6, 100L);
+    }
+
+    @Test
+    void tryAcquire__whenRequestIsLargerThanTheLease__thenLeaseTheDeficit() {
+        var limiter = newLimiter(10);
+
+        var decision = limiter.tryAcquire(API_KEY, 25, BUCKET, LIMIT);
+
+        assertThat(decision.allowed()).isTrue();
+        assertThat(decision.remainingEvents()).isEqualTo(75);
+        assertThat(remote.acquisitions).hasValue(1);
+    }
+
+    @Test
+    void tryAcquire__whenRemainingIsLowerThanTheLease__thenLeaseOnlyWhatTheRequestNeeds() {
+        var limiter = newLimiter(10);
+        remote.available.set(3);
+
+        assertThat(limiter.tryAcquire(API_KEY, 2, BUCKET, LIMIT).allowed()).isTrue();
+        assertThat(remote.available).hasValue(1);
+    }
+
+    @Test
+    void tryAcquire__whenLeaseExpires__thenUnusedPermitsAreDropped() {
+        var limiter = newLimiter(10);
+        limiter.tryAcquire(API_KEY, 1, BUCKET, LIMIT);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(LIMIT.durationInSeconds()));
+        remote.available.set(LIMIT.limit());
+
+        limiter.tryAcquire(API_KEY, 1, BUCKET, LIMIT);
+
+        assertThat(remote.acquisitions).hasValue(2);
+    }
+
+    @Test
+    void tryAcquire__whenAllowed__thenHeadersComeFromLocalState() {
+        var limiter = newLimiter(10);
+
+        var first = limiter.tryAcquire(API_KEY, 1, BUCKET, LIMIT);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        var second = limiter.tryAcquire(API_KEY, 1, BUCKET, LIMIT);
+
+        assertThat(first.remainingEvents()).isEqualTo(99);
+        assertThat(second.remainingEvents()).isEqualTo(98);
+        assertThat(second.remainingTtlInMillis()).isEqualTo(first.remainingTtlInMillis() - 1_000);
+        assertThat(remote.acquisitions).hasValue(1);
+    }
+
+    @Test
+    void tryAcquire__whenRedisStateIsSlow__thenHeadersAreEstimatedWithoutWaiting() {
+        var limiter = new LocalRateLimiter(() -> new InMemoryRateLimitService() {
+            @Override
+            public Mono<Long> availableEvents(String apiKey, String bucketName, LimitConfig limitConfig) {
+                return Mono.never();
+            }
+        }, 10, clock::get);
+
+        var first = limiter.tryAcquire(API_KEY, 1, BUCKET, LIMIT);
+        var second = limiter.tryAcquire(API_KEY, 1, BUCKET, LIMIT);
+
+        assertThat(first.allowed()).isTrue();
+        assertThat(first.remainingEvents()).isEqualTo(99);
+        assertThat(first.remainingTtlInMillis()).isEqualTo(TimeUnit.SECONDS.toMillis(LIMIT.durationInSeconds()));
+        assertThat(second.remainingEvents()).isEqualTo(98);
+    }
+
+    private static class InMemoryRateLimitService implements RateLimitService {
+
+        private final AtomicLong available = new AtomicLong(LIMIT.limit());
+        private final AtomicInteger acquisitions = new AtomicInteger();
+
+        @Override
+        public Mono<Boolean> isLimitExceeded(String apiKey, long events, String bucketName, LimitConfig limitConfig) {
+            acquisitions.incrementAndGet();
+            if (available.get() < events) {
+                return Mono.just(true);
+            }
+            available.addAndGet(-events);
+            return Mono.just(false);
+        }
+
+        @Override
+        public Mono<Long> availableEvents(String apiKey, String bucketName, LimitConfig limitConfig) {
+            return Mono.just(available.get());
+        }
+
+        @Override
+        public Mono<Long> getRemainingTTL(String apiKey, String bucket, LimitConfig limitConfig) {
+            return Mono.just(TimeUnit.SECONDS.toMillis(limitConfig.durationInSeconds()));
+        }
+    }
+}
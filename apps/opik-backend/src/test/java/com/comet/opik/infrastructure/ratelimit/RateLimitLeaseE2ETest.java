@@ -0,0 +1,172 @@
+package com.comet.opik.infrastructure.ratelimit;
+
+import com.comet.opik.api.Trace;
+import com.comet.opik.api.resources.utils.AuthTestUtils;
+import com.comet.opik.api.resources.utils.ClickHouseContainerUtils;
+import com.comet.opik.api.resources.utils.ClientSupportUtils;
+import com.comet.opik.api.resources.utils.MigrationUtils;
+import com.comet.opik.api.resources.utils.MySQLContainerUtils;
+import com.comet.opik.api.resources.utils.RedisContainerUtils;
+import com.comet.opik.api.resources.utils.TestDropwizardAppExtensionUtils;
+import com.comet.opik.api.resources.utils.WireMockUtils;
+import com.comet.opik.podam.PodamFactoryUtils;
+import com.redis.testcontainers.RedisContainer;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.apache.hc.core5.http.HttpStatus;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.testcontainers.clickhouse.ClickHouseContainer;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.lifecycle.Startables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.vyarus.dropwizard.guice.test.ClientSupport;
+import ru.vyarus.dropwizard.guice.test.jupiter.ext.TestDropwizardAppExtension;
+import uk.co.jemos.podam.api.PodamFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.comet.opik.api.resources.utils.ClickHouseContainerUtils.DATABASE_NAME;
+import static com.comet.opik.api.resources.utils.MigrationUtils.CLICKHOUSE_CHANGELOG_FILE;
+import static com.comet.opik.api.resources.utils.TestDropwizardAppExtensionUtils.AppContextConfig;
+import static com.comet.opik.api.resources.utils.TestDropwizardAppExtensionUtils.CustomConfig;
+import static com.comet.opik.infrastructure.auth.RequestContext.WORKSPACE_HEADER;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The rate limits of {@link RateLimitE2ETest}, with the permits leased from Redis in chunks as in config.yml, instead
+ * of one call to Redis per request.
+ * */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("Rate limit with leases Resource Test")
+class RateLimitLeaseE2ETest {
+
+    private static final String BASE_RESOURCE_URI = "%s/v1/private/traces";
+
+    private static final RedisContainer REDIS = RedisContainerUtils.newRedisContainer();
+    private static final MySQLContainer<?> MYSQL = MySQLContainerUtils.newMySQLContainer();
+    private static final ClickHouseContainer CLICKHOUSE = ClickHouseContainerUtils.newClickHouseContainer();
+
+    @RegisterExtension
+    private static final TestDropwizardAppExtension app;
+    private static final WireMockUtils.WireMockRuntime wireMock;
+
+    private static final long LIMIT = 10L;
+    // long enough for all the calls of a test to fall in the same window
+    private static final long LIMIT_DURATION_IN_SECONDS = 5L;
+    private static final long LEASE_SIZE = 3L;
+
+    private final PodamFactory factory = PodamFactoryUtils.newPodamFactory();
+
+    static {
+        Startables.deepStart(MYSQL, CLICKHOUSE, REDIS).join();
+
+        wireMock = WireMockUtils.startWireMock();
+
+        var databaseAnalyticsFactory = ClickHouseContainerUtils.newDatabaseAnalyticsFactory(
+                CLICKHOUSE, DATABASE_NAME);
+
+        app = TestDropwizardAppExtensionUtils.newTestDropwizardAppExtension(
+                AppContextConfig.builder()
+                        .jdbcUrl(MYSQL.getJdbcUrl())
+                        .databaseAnalyticsFactory(databaseAnalyticsFactory)
+                        .runtimeInfo(wireMock.runtimeInfo())
+                        .redisUrl(REDIS.getRedisURI())
+                        .rateLimitEnabled(true)
+                        .limit(LIMIT)
+                        .limitDurationInSeconds(LIMIT_DURATION_IN_SECONDS)
+                        .customConfigs(List.of(new CustomConfig("rateLimit.leaseSize", String.valueOf(LEASE_SIZE))))
+                        .build());
+    }
+
+    private String baseURI;
+    private ClientSupport client;
+
+    @BeforeAll
+    void setUpAll(ClientSupport client, Jdbi jdbi) throws Exception {
+
+        MigrationUtils.runDbMigration(jdbi, MySQLContainerUtils.migrationParameters());
+
+        try (var connection = CLICKHOUSE.createConnection("")) {
+            MigrationUtils.runDbMigration(connection, CLICKHOUSE_CHANGELOG_FILE,
+                    ClickHouseContainerUtils.migrationParameters());
+        }
+
+        this.baseURI = "http://localhost:%d".formatted(client.getPort());
+        this.client = client;
+
+        ClientSupportUtils.config(client);
+    }
+
+    @AfterAll
+    void tearDownAll() {
+        wireMock.server().stop();
+    }
+
+    @Test
+    @DisplayName("Rate limit with leases: When limit is exceeded, Then block remaining calls")
+    void rateLimit__whenLeasingAndLimitIsExceeded__thenBlockRemainingCalls() {
+        var apiKey = UUID.randomUUID().toString();
+        var workspaceName = UUID.randomUUID().toString();
+        AuthTestUtils.mockTargetWorkspace(wireMock.server(), apiKey, workspaceName, UUID.randomUUID().toString(),
+                UUID.randomUUID().toString());
+
+        // a single node strands no permit in another node's lease, so exactly the limit is admitted
+        var responses = triggerCalls(LIMIT * 2, apiKey, workspaceName);
+
+        assertThat(responses).containsOnly(
+                Map.entry(HttpStatus.SC_CREATED, LIMIT),
+                Map.entry(HttpStatus.SC_TOO_MANY_REQUESTS, LIMIT));
+    }
+
+    @Test
+    @DisplayName("Rate limit with leases: When the window is over, Then allow calls again")
+    void rateLimit__whenLeasingAndWindowIsOver__thenAllowCallsAgain() {
+        var apiKey = UUID.randomUUID().toString();
+        var workspaceName = UUID.randomUUID().toString();
+        AuthTestUtils.mockTargetWorkspace(wireMock.server(), apiKey, workspaceName, UUID.randomUUID().toString(),
+                UUID.randomUUID().toString());
+
+        assertThat(triggerCalls(LIMIT, apiKey, workspaceName))
+                .containsOnly(Map.entry(HttpStatus.SC_CREATED, LIMIT));
+
+        Mono.delay(Duration.ofSeconds(LIMIT_DURATION_IN_SECONDS)).block();
+
+        assertThat(triggerCalls(LIMIT, apiKey, workspaceName))
+                .containsOnly(Map.entry(HttpStatus.SC_CREATED, LIMIT));
+    }
+
+    private Map<Integer, Long> triggerCalls(long calls, String apiKey, String workspaceName) {
+        var projectName = UUID.randomUUID().toString();
+        return Flux.range(0, (int) calls)
+                .map(i -> {
+                    var trace = factory.manufacturePojo(Trace.class).toBuilder()
+                            .projectName(projectName)
+                            .build();
+
+                    try (var response = client.target(BASE_RESOURCE_URI.formatted(baseURI))
+                            .request()
+                            .accept(MediaType.APPLICATION_JSON_TYPE)
+                            .header(HttpHeaders.AUTHORIZATION, apiKey)
+                            .header(WORKSPACE_HEADER, workspaceName)
+                            .post(Entity.json(trace))) {
+                        return response;
+                    }
+                })
+                .toStream()
+                .collect(groupingBy(Response::getStatus, counting()));
+    }
+}
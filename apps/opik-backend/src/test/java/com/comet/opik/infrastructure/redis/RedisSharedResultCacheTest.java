@@ -0,0 +1,74 @@
+package com.comet.opik.infrastructure.redis;
+
+import com.comet.opik.api.resources.utils.RedisContainerUtils;
+import com.redis.testcontainers.RedisContainer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.testcontainers.shaded.org.awaitility.Awaitility;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisSharedResultCacheTest {
+
+    private static final RedisContainer REDIS = RedisContainerUtils.newRedisContainer();
+
+    private static RedissonClient redissonClient;
+    private static RedisSharedResultCache cache;
+
+    @BeforeAll
+    static void beforeAll() {
+        REDIS.start();
+        var config = new Config();
+        config.useSingleServer().setAddress(REDIS.getRedisURI());
+        redissonClient = Redisson.create(config);
+        cache = new RedisSharedResultCache(redissonClient.reactive());
+    }
+
+    @AfterAll
+    static void afterAll() {
+        redissonClient.shutdown();
+        REDIS.stop();
+    }
+
+    private long watermark(String key) {
+        return cache.getWatermarks(List.of(key)).block().get(key);
+    }
+
+    @Test
+    void advanceWatermark__whenAdvancedRepeatedly__thenGrows() {
+        var key = "watermark:" + UUID.randomUUID();
+
+        cache.advanceWatermark(key, Duration.ofMinutes(1)).block();
+        long first = watermark(key);
+        cache.advanceWatermark(key, Duration.ofMinutes(1)).block();
+        long second = watermark(key);
+
+        assertThat(first).isGreaterThan(0);
+        assertThat(second).isGreaterThan(first);
+    }
+
+    @Test
+    void advanceWatermark__whenAdvancedAfterExpiring__thenKeepsGrowing() {
+        var key = "watermark:" + UUID.randomUUID();
+        var ttl = Duration.ofSeconds(1);
+
+        cache.advanceWatermark(key, ttl).block();
+        cache.advanceWatermark(key, ttl).block();
+        long beforeExpiry = watermark(key);
+
+        Awaitility.await().atMost(Duration.ofSeconds(5))
+                .until(() -> cache.getWatermarks(List.of(key)).block().isEmpty());
+
+        cache.advanceWatermark(key, Duration.ofMinutes(1)).block();
+
+        assertThat(watermark(key)).isGreaterThan(beforeExpiry);
+    }
+}
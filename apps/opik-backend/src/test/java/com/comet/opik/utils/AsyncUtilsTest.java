@@ -0,0 +1,46 @@
+package com.comet.opik.utils;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AsyncUtilsTest {
+
+    @Test
+    void countAndPage__thenRunConcurrentlyOnTheirOwnConnections() {
+        var connections = new CopyOnWriteArrayList<Connection>();
+        var connectionFactory = mock(ConnectionFactory.class);
+        doAnswer(invocation -> Mono.fromSupplier(() -> {
+            var connection = mock(Connection.class);
+            when(connection.close()).thenReturn(Mono.empty());
+            connections.add(connection);
+            return connection;
+        })).when(connectionFactory).create();
+
+        // the count only completes once the page has started, which never happens if they run one after the other
+        Sinks.Empty<Void> pageStarted = Sinks.empty();
+        Mono<Long> count = Mono.usingWhen(connectionFactory.create(),
+                connection -> pageStarted.asMono().thenReturn(10L),
+                Connection::close);
+        Mono<List<String>> page = Mono.usingWhen(connectionFactory.create(),
+                connection -> Mono.fromRunnable(pageStarted::tryEmitEmpty).thenReturn(List.of("item")),
+                Connection::close);
+
+        var actual = AsyncUtils.countAndPage(count, page, (total, items) -> total + items.size())
+                .block(Duration.ofSeconds(5));
+
+        assertThat(actual).isEqualTo(11L);
+        assertThat(connections).hasSize(2).doesNotHaveDuplicates();
+    }
+}
@@ -1,10 +1,16 @@
 package com.comet.opik.utils;
 
+import com.fasterxml.uuid.Generators;
+import jakarta.ws.rs.BadRequestException;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -48,4 +54,30 @@ public class PaginationUtilsTest {
                 arguments(1, 0, PaginationUtils.ERR_SIZE_INVALID.formatted(0)),
                 arguments(1, -1, PaginationUtils.ERR_SIZE_INVALID.formatted(-1)));
     }
+
+    @Test
+    void testCursorRoundTrip() {
+        var ids = IntStream.range(0, 10).mapToObj(i -> Generators.timeBasedEpochGenerator().generate()).toList();
+
+        String cursor = PaginationUtils.nextCursor(ids, ids.size(), Function.identity());
+
+        assertThat(PaginationUtils.decodeCursor(cursor)).isEqualTo(ids.getLast());
+    }
+
+    @Test
+    void testNextCursorWhenPageIsNotFull() {
+        List<UUID> ids = List.of(UUID.randomUUID());
+
+        assertThat(PaginationUtils.nextCursor(ids, 2, Function.identity())).isNull();
+        assertThat(PaginationUtils.nextCursor(List.<UUID>of(), 2, Function.identity())).isNull();
+        assertThat(PaginationUtils.decodeCursor(null)).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"not a cursor", "AAAA", "%%%"})
+    void testDecodeCursorNegative(String cursor) {
+        assertThatThrownBy(() -> PaginationUtils.decodeCursor(cursor))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage(PaginationUtils.ERR_CURSOR_INVALID.formatted(cursor));
+    }
 }
@@ -0,0 +1,69 @@
+package com.comet.opik.utils;
+
+import com.comet.opik.api.Span;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RawJsonNodeTest {
+
+    private static final String INPUT = "{\"messages\": [{\"role\": \"user\", \"content\": \"hello\"}]}";
+
+    @Test
+    void serialize__whenNotInspected__thenWriteTheTextAsIsWithoutParsing() {
+        var input = new RawJsonNode(INPUT);
+        var span = Span.builder().name("llm").input(input).build();
+
+        var actual = JsonUtils.writeValueAsString(span);
+
+        assertThat(actual).contains("\"input\":" + INPUT);
+        assertThat(input.isParsed()).isFalse();
+        assertThat(input.toString()).isEqualTo(INPUT);
+    }
+
+    @Test
+    void get__whenInspected__thenParseItOnce() {
+        var metadata = new RawJsonNode("{\"model\": \"gpt-4o\", \"temperature\": 0.7}");
+
+        assertThat(metadata.isObject()).isTrue();
+        assertThat(metadata.get("model").asText()).isEqualTo("gpt-4o");
+        assertThat(metadata.path("temperature").doubleValue()).isEqualTo(0.7);
+        assertThat(metadata.isParsed()).isTrue();
+        assertThat(metadata.<JsonNode>deepCopy())
+                .isEqualTo(JsonUtils.getJsonNodeFromString("{\"temperature\":0.7,\"model\":\"gpt-4o\"}"));
+    }
+
+    @Test
+    void equals__whenSameText__thenEqualWithoutParsing() {
+        var input = new RawJsonNode(INPUT);
+        var other = new RawJsonNode(INPUT);
+
+        assertThat(input).isEqualTo(other);
+        assertThat(other).isEqualTo(input);
+        assertThat(input).hasSameHashCodeAs(other);
+        assertThat(input.isParsed()).isFalse();
+        assertThat(other.isParsed()).isFalse();
+    }
+
+    @Test
+    void equals__whenOtherNode__thenNotEqualInEitherDirection() {
+        var input = new RawJsonNode(INPUT);
+        var parsed = JsonUtils.getJsonNodeFromString(INPUT);
+
+        assertThat(input).isNotEqualTo(parsed);
+        assertThat(parsed).isNotEqualTo(input);
+        assertThat(input.<JsonNode>deepCopy()).isEqualTo(parsed);
+    }
+
+    @Test
+    void convertValue__whenRawNode__thenConvertTheParsedValue() {
+        var actual = JsonUtils.MAPPER.convertValue(new RawJsonNode(INPUT), new TypeReference<Map<String, Object>>() {
+        });
+
+        assertThat(actual).containsOnlyKeys("messages");
+    }
+}